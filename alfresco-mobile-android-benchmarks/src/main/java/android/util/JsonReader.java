@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package android.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * JVM implementation of the Android streaming json reader. <br/>
+ * The android jar only contains stubs : this class takes precedence over the
+ * stub inside benchmarks.jar so JsonStreamReader can be measured. Android
+ * derives its reader from the Gson one : calls are delegated to it.
+ */
+public final class JsonReader implements Closeable
+{
+    /** Android tokens indexed by the ordinal of the Gson tokens. */
+    private static final JsonToken[] TOKENS;
+    static
+    {
+        com.google.gson.stream.JsonToken[] tokens = com.google.gson.stream.JsonToken.values();
+        TOKENS = new JsonToken[tokens.length];
+        for (int i = 0; i < tokens.length; i++)
+        {
+            TOKENS[i] = JsonToken.valueOf(tokens[i].name());
+        }
+    }
+
+    private final com.google.gson.stream.JsonReader reader;
+
+    public JsonReader(Reader in)
+    {
+        reader = new com.google.gson.stream.JsonReader(in);
+    }
+
+    public void setLenient(boolean lenient)
+    {
+        reader.setLenient(lenient);
+    }
+
+    public boolean isLenient()
+    {
+        return reader.isLenient();
+    }
+
+    public void beginArray() throws IOException
+    {
+        reader.beginArray();
+    }
+
+    public void endArray() throws IOException
+    {
+        reader.endArray();
+    }
+
+    public void beginObject() throws IOException
+    {
+        reader.beginObject();
+    }
+
+    public void endObject() throws IOException
+    {
+        reader.endObject();
+    }
+
+    public boolean hasNext() throws IOException
+    {
+        return reader.hasNext();
+    }
+
+    public JsonToken peek() throws IOException
+    {
+        return TOKENS[reader.peek().ordinal()];
+    }
+
+    public String nextName() throws IOException
+    {
+        return reader.nextName();
+    }
+
+    public String nextString() throws IOException
+    {
+        return reader.nextString();
+    }
+
+    public boolean nextBoolean() throws IOException
+    {
+        return reader.nextBoolean();
+    }
+
+    public void nextNull() throws IOException
+    {
+        reader.nextNull();
+    }
+
+    public double nextDouble() throws IOException
+    {
+        return reader.nextDouble();
+    }
+
+    public long nextLong() throws IOException
+    {
+        return reader.nextLong();
+    }
+
+    public int nextInt() throws IOException
+    {
+        return reader.nextInt();
+    }
+
+    public void skipValue() throws IOException
+    {
+        reader.skipValue();
+    }
+
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+    @Override
+    public String toString()
+    {
+        return reader.toString();
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.benchmark;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.mobile.android.api.utils.DateUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * DateUtils parsing of the dates of the task payload. <br/>
+ * Dates are parsed with their REST API form (2014-03-12T10:22:31.512+0100)
+ * and with their AtomPub form (2014-03-12T09:22:31.512Z).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateParsingBenchmark
+{
+    @Param({ "json", "atompub" })
+    public String format;
+
+    private List<String> dates;
+
+    @Setup
+    public void setup()
+    {
+        List<String> jsonDates = Fixtures.collectDates(Fixtures.load(Fixtures.TASKS));
+        if ("json".equals(format))
+        {
+            dates = jsonDates;
+        }
+        else
+        {
+            dates = new ArrayList<String>(jsonDates.size());
+            for (String date : jsonDates)
+            {
+                // Same instant, UTC designator.
+                dates.add(date.substring(0, 23) + "Z");
+            }
+        }
+    }
+
+    @Benchmark
+    public void parseDate(Blackhole bh)
+    {
+        for (String date : dates)
+        {
+            bh.consume(DateUtils.parseDate(date));
+        }
+    }
+
+    /** Pattern used by TaskImpl and ProcessImpl. */
+    @Benchmark
+    public void parseDateWithFormat(Blackhole bh)
+    {
+        SimpleDateFormat sdf = new SimpleDateFormat(DateUtils.FORMAT_3, Locale.getDefault());
+        for (String date : dates)
+        {
+            bh.consume(DateUtils.parseDate(date, sdf));
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.mobile.android.api.utils.DateUtils;
+import org.alfresco.mobile.android.api.utils.JsonUtils;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Property;
+import org.apache.chemistry.opencmis.client.runtime.PropertyImpl;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyBooleanDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDateTimeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+
+/**
+ * Recorded payloads used by the benchmarks. <br/>
+ * Payloads are stored under /fixtures :
+ * <ul>
+ * <li>tasks.json : 50 tasks of api/task-instances.</li>
+ * <li>processes.json : 50 processes of api/workflow-instances.</li>
+ * <li>sites.json : 100 sites of api/people/{user}/sites.</li>
+ * <li>children.json : properties of 100 children of a document library
+ * folder (15 folders, 85 documents) and their definitions.</li>
+ * </ul>
+ */
+public final class Fixtures
+{
+    public static final String TASKS = "tasks.json";
+
+    public static final String PROCESSES = "processes.json";
+
+    public static final String SITES = "sites.json";
+
+    public static final String CHILDREN = "children.json";
+
+    private static final String DATA = "data";
+
+    private Fixtures()
+    {
+    }
+
+    // ////////////////////////////////////////////////////
+    // PAYLOADS
+    // ////////////////////////////////////////////////////
+    /**
+     * @param name : fixture file name.
+     * @return raw content of the fixture.
+     */
+    public static byte[] load(String name)
+    {
+        InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+        if (in == null) { throw new IllegalArgumentException("Unknown fixture " + name); }
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        finally
+        {
+            try
+            {
+                in.close();
+            }
+            catch (IOException e)
+            {
+                // Nothing to do.
+            }
+        }
+    }
+
+    /** @return JSON object of a payload. */
+    public static Map<String, Object> parseObject(byte[] payload)
+    {
+        return JsonUtils.parseObject(new ByteArrayInputStream(payload), "UTF-8");
+    }
+
+    /** @return items of the "data" array of a payload. */
+    @SuppressWarnings("unchecked")
+    public static List<Map<String, Object>> parseData(byte[] payload)
+    {
+        return (List<Map<String, Object>>) parseObject(payload).get(DATA);
+    }
+
+    /** @return items of a payload which is a JSON array. */
+    @SuppressWarnings("unchecked")
+    public static List<Map<String, Object>> parseArray(byte[] payload)
+    {
+        List<Object> items = JsonUtils.parseArray(new ByteArrayInputStream(payload), "UTF-8");
+        List<Map<String, Object>> result = new ArrayList<Map<String, Object>>(items.size());
+        for (Object item : items)
+        {
+            result.add((Map<String, Object>) item);
+        }
+        return result;
+    }
+
+    /** @return all date strings of a payload (ISO 8601 and RFC 822 like). */
+    public static List<String> collectDates(byte[] payload)
+    {
+        List<String> dates = new ArrayList<String>();
+        collectDates(parseObject(payload), dates);
+        return dates;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collectDates(Object value, List<String> dates)
+    {
+        if (value instanceof Map)
+        {
+            for (Object item : ((Map<String, Object>) value).values())
+            {
+                collectDates(item, dates);
+            }
+        }
+        else if (value instanceof List)
+        {
+            for (Object item : (List<Object>) value)
+            {
+                collectDates(item, dates);
+            }
+        }
+        else if (value instanceof String && ((String) value).length() == 28 && ((String) value).charAt(10) == 'T')
+        {
+            dates.add((String) value);
+        }
+    }
+
+    // ////////////////////////////////////////////////////
+    // CMIS OBJECTS
+    // ////////////////////////////////////////////////////
+    /**
+     * Creates CMIS objects from children.json. Objects only provide their
+     * properties and base type : they are enough for node conversion and
+     * property access.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<CmisObject> createCmisObjects(byte[] payload)
+    {
+        Map<String, Object> json = parseObject(payload);
+        Map<String, Object> definitions = (Map<String, Object>) json.get("definitions");
+        List<Object> objects = (List<Object>) json.get("objects");
+
+        List<CmisObject> result = new ArrayList<CmisObject>(objects.size());
+        for (Object object : objects)
+        {
+            Map<String, Property<?>> properties = new LinkedHashMap<String, Property<?>>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) object).entrySet())
+            {
+                properties.put(entry.getKey(),
+                        createProperty(entry.getKey(), (String) definitions.get(entry.getKey()), entry.getValue()));
+            }
+            result.add(createCmisObject(properties));
+        }
+        return result;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Property<?> createProperty(String id, String type, Object value)
+    {
+        AbstractPropertyDefinition definition;
+        List values = new ArrayList();
+        if ("datetime".equals(type))
+        {
+            definition = new PropertyDateTimeDefinitionImpl();
+            if (value != null)
+            {
+                GregorianCalendar calendar = new GregorianCalendar();
+                calendar.setTime(DateUtils.parseDate((String) value));
+                values.add(calendar);
+            }
+        }
+        else
+        {
+            if ("integer".equals(type))
+            {
+                definition = new PropertyIntegerDefinitionImpl();
+            }
+            else if ("boolean".equals(type))
+            {
+                definition = new PropertyBooleanDefinitionImpl();
+            }
+            else if ("id".equals(type))
+            {
+                definition = new PropertyIdDefinitionImpl();
+            }
+            else
+            {
+                definition = new PropertyStringDefinitionImpl();
+            }
+
+            if (value instanceof List)
+            {
+                values.addAll((List) value);
+            }
+            else if (value instanceof Number && !(value instanceof BigInteger))
+            {
+                values.add(BigInteger.valueOf(((Number) value).longValue()));
+            }
+            else if (value != null)
+            {
+                values.add(value);
+            }
+        }
+
+        definition.setId(id);
+        definition.setLocalName(id);
+        definition.setQueryName(id);
+        definition.setDisplayName(id);
+        definition.setCardinality((value instanceof List) ? Cardinality.MULTI : Cardinality.SINGLE);
+        return new PropertyImpl((PropertyDefinition) definition, values);
+    }
+
+    /**
+     * CmisObject is a large interface : a dynamic proxy answers property and
+     * type related calls and rejects others.
+     */
+    private static CmisObject createCmisObject(final Map<String, Property<?>> properties)
+    {
+        final List<Property<?>> list = Collections.unmodifiableList(new ArrayList<Property<?>>(properties.values()));
+        final BaseTypeId baseTypeId = BaseTypeId.fromValue((String) properties.get(PropertyIds.BASE_TYPE_ID)
+                .getFirstValue());
+
+        return (CmisObject) Proxy.newProxyInstance(Fixtures.class.getClassLoader(),
+                new Class<?>[] { CmisObject.class }, new InvocationHandler()
+                {
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                    {
+                        String name = method.getName();
+                        if ("getProperties".equals(name)) { return list; }
+                        if ("getProperty".equals(name)) { return properties.get(args[0]); }
+                        if ("getPropertyValue".equals(name))
+                        {
+                            Property<?> property = properties.get(args[0]);
+                            return (property != null) ? property.getValue() : null;
+                        }
+                        if ("getBaseTypeId".equals(name)) { return baseTypeId; }
+                        if ("getId".equals(name)) { return properties.get(PropertyIds.OBJECT_ID).getFirstValue(); }
+                        if ("getName".equals(name)) { return properties.get(PropertyIds.NAME).getFirstValue(); }
+                        if ("getAllowableActions".equals(name)) { return null; }
+                        if ("hashCode".equals(name)) { return System.identityHashCode(proxy); }
+                        if ("equals".equals(name)) { return proxy == args[0]; }
+                        if ("toString".equals(name)) { return "CmisObject " + properties.get(PropertyIds.OBJECT_ID); }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JsonUtils parsing of recorded REST API and CMIS payloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonParsingBenchmark
+{
+    private byte[] tasks;
+
+    private byte[] sites;
+
+    private byte[] children;
+
+    @Setup
+    public void setup()
+    {
+        tasks = Fixtures.load(Fixtures.TASKS);
+        sites = Fixtures.load(Fixtures.SITES);
+        children = Fixtures.load(Fixtures.CHILDREN);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseTasks()
+    {
+        return Fixtures.parseObject(tasks);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> parseSites()
+    {
+        return Fixtures.parseArray(sites);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseChildren()
+    {
+        return Fixtures.parseObject(children);
+    }
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.mobile.android.api.model.Process;
+import org.alfresco.mobile.android.api.model.Site;
+import org.alfresco.mobile.android.api.model.Task;
+import org.alfresco.mobile.android.api.model.impl.ProcessImpl;
+import org.alfresco.mobile.android.api.model.impl.SiteImpl;
+import org.alfresco.mobile.android.api.model.impl.TaskImpl;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.ItemBinder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Listings read by JsonStreamReader (streaming) against JsonUtils followed by
+ * parseJson on each item (tree). <br/>
+ * Both variants bind the same items : the difference is the cost of the json
+ * tree. The tree variant of a page still parses the whole payload. Run with
+ * the GC profiler (BenchmarkRunner) to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListingParsingBenchmark
+{
+    private static final String CHARSET = "UTF-8";
+
+    private static final String[] DATA_PATH = { "data" };
+
+    private static final int PAGE_SKIP = 20;
+
+    private static final int PAGE_SIZE = 10;
+
+    private static final ItemBinder<Task> TASK_BINDER = new ItemBinder<Task>()
+    {
+        public Task bind(Map<String, Object> json)
+        {
+            return TaskImpl.parseJson(json);
+        }
+    };
+
+    private static final ItemBinder<Process> PROCESS_BINDER = new ItemBinder<Process>()
+    {
+        public Process bind(Map<String, Object> json)
+        {
+            return ProcessImpl.parseJson(json);
+        }
+    };
+
+    private static final ItemBinder<Site> SITE_BINDER = new ItemBinder<Site>()
+    {
+        public Site bind(Map<String, Object> json)
+        {
+            return SiteImpl.parseJson(json);
+        }
+    };
+
+    private byte[] tasks;
+
+    private byte[] processes;
+
+    private byte[] sites;
+
+    @Setup
+    public void setup()
+    {
+        tasks = Fixtures.load(Fixtures.TASKS);
+        processes = Fixtures.load(Fixtures.PROCESSES);
+        sites = Fixtures.load(Fixtures.SITES);
+    }
+
+    // ////////////////////////////////////////////////////
+    // TASKS
+    // ////////////////////////////////////////////////////
+    @Benchmark
+    public List<Task> tasksTree()
+    {
+        return bind(Fixtures.parseData(tasks), TASK_BINDER, 0, -1);
+    }
+
+    @Benchmark
+    public List<Task> tasksStreaming()
+    {
+        return JsonStreamReader.readListing(new ByteArrayInputStream(tasks), CHARSET, DATA_PATH, TASK_BINDER)
+                .getItems();
+    }
+
+    @Benchmark
+    public List<Task> tasksPageTree()
+    {
+        return bind(Fixtures.parseData(tasks), TASK_BINDER, PAGE_SKIP, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Task> tasksPageStreaming()
+    {
+        return JsonStreamReader.readListing(new ByteArrayInputStream(tasks), CHARSET, DATA_PATH, TASK_BINDER,
+                PAGE_SKIP, PAGE_SIZE).getItems();
+    }
+
+    // ////////////////////////////////////////////////////
+    // PROCESSES
+    // ////////////////////////////////////////////////////
+    @Benchmark
+    public List<Process> processesTree()
+    {
+        return bind(Fixtures.parseData(processes), PROCESS_BINDER, 0, -1);
+    }
+
+    @Benchmark
+    public List<Process> processesStreaming()
+    {
+        return JsonStreamReader.readListing(new ByteArrayInputStream(processes), CHARSET, DATA_PATH,
+                PROCESS_BINDER).getItems();
+    }
+
+    // ////////////////////////////////////////////////////
+    // SITES
+    // ////////////////////////////////////////////////////
+    @Benchmark
+    public List<Site> sitesTree()
+    {
+        return bind(Fixtures.parseArray(sites), SITE_BINDER, 0, -1);
+    }
+
+    @Benchmark
+    public List<Site> sitesStreaming()
+    {
+        return JsonStreamReader.readListing(new ByteArrayInputStream(sites), CHARSET, null, SITE_BINDER)
+                .getItems();
+    }
+
+    // ////////////////////////////////////////////////////
+    // UTILS
+    // ////////////////////////////////////////////////////
+    private static <T> List<T> bind(List<Map<String, Object>> items, ItemBinder<T> binder, int skipCount,
+            int maxItems)
+    {
+        int toIndex = (maxItems < 0) ? items.size() : Math.min(items.size(), skipCount + maxItems);
+        List<T> result = new ArrayList<T>();
+        for (int i = skipCount; i < toIndex; i++)
+        {
+            T item = binder.bind(items.get(i));
+            if (item != null)
+            {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+}
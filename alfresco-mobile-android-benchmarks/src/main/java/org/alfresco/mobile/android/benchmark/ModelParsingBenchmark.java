@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.mobile.android.api.model.impl.ProcessImpl;
+import org.alfresco.mobile.android.api.model.impl.SiteImpl;
+import org.alfresco.mobile.android.api.model.impl.TaskImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Conversion of JSON payloads into Task, Process and Site objects. <br/>
+ * TaskImpl.parseJson clears nested JSON objects once they are read : the task
+ * payload is parsed again at each invocation. Subtract
+ * {@link JsonParsingBenchmark#parseTasks()} to get the conversion cost only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelParsingBenchmark
+{
+    private byte[] tasks;
+
+    private List<Map<String, Object>> processes;
+
+    private List<Map<String, Object>> sites;
+
+    @Setup
+    public void setup()
+    {
+        tasks = Fixtures.load(Fixtures.TASKS);
+        processes = Fixtures.parseData(Fixtures.load(Fixtures.PROCESSES));
+        sites = Fixtures.parseArray(Fixtures.load(Fixtures.SITES));
+    }
+
+    @Benchmark
+    public void taskParseJson(Blackhole bh)
+    {
+        for (Map<String, Object> json : Fixtures.parseData(tasks))
+        {
+            bh.consume(TaskImpl.parseJson(json));
+        }
+    }
+
+    @Benchmark
+    public void processParseJson(Blackhole bh)
+    {
+        for (Map<String, Object> json : processes)
+        {
+            bh.consume(ProcessImpl.parseJson(json));
+        }
+    }
+
+    @Benchmark
+    public void siteParseJson(Blackhole bh)
+    {
+        for (Map<String, Object> json : sites)
+        {
+            bh.consume(SiteImpl.parseJson(json));
+        }
+    }
+}
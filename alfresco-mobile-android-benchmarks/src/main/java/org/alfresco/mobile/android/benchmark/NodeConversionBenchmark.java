@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.mobile.android.api.constants.ContentModel;
+import org.alfresco.mobile.android.api.model.Node;
+import org.alfresco.mobile.android.api.model.impl.NodeImpl;
+import org.alfresco.mobile.android.api.services.impl.AlfrescoService;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Conversion of CMIS objects into nodes and property access, as done when a
+ * folder listing is displayed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeConversionBenchmark
+{
+    /** Properties read by a listing row. */
+    private static final String[] LISTING_PROPERTIES = { PropertyIds.NAME, ContentModel.PROP_TITLE,
+            PropertyIds.LAST_MODIFICATION_DATE, PropertyIds.LAST_MODIFIED_BY, PropertyIds.CONTENT_STREAM_LENGTH,
+            PropertyIds.CONTENT_STREAM_MIME_TYPE, PropertyIds.BASE_TYPE_ID };
+
+    private NodeConverter converter;
+
+    private List<CmisObject> objects;
+
+    private Node[] nodes;
+
+    @Setup
+    public void setup()
+    {
+        converter = new NodeConverter();
+        objects = Fixtures.createCmisObjects(Fixtures.load(Fixtures.CHILDREN));
+        nodes = new Node[objects.size()];
+        for (int i = 0; i < nodes.length; i++)
+        {
+            nodes[i] = converter.convert(objects.get(i));
+        }
+    }
+
+    @Benchmark
+    public void convertNode(Blackhole bh)
+    {
+        for (CmisObject object : objects)
+        {
+            bh.consume(converter.convert(object));
+        }
+    }
+
+    @Benchmark
+    public void getProperties(Blackhole bh)
+    {
+        for (Node node : nodes)
+        {
+            bh.consume(node.getProperties());
+        }
+    }
+
+    @Benchmark
+    public void getPropertyValue(Blackhole bh)
+    {
+        for (Node node : nodes)
+        {
+            for (String name : LISTING_PROPERTIES)
+            {
+                bh.consume(node.getPropertyValue(name));
+            }
+        }
+    }
+
+    /** Conversion and listing row display. */
+    @Benchmark
+    public void convertAndRead(Blackhole bh)
+    {
+        for (CmisObject object : objects)
+        {
+            NodeImpl node = (NodeImpl) converter.convert(object);
+            bh.consume(node.getName());
+            bh.consume(node.getTitle());
+            bh.consume(node.getModifiedAt());
+            bh.consume(node.getType());
+            bh.consume(node.isFolder());
+        }
+    }
+
+    /** Gives access to AlfrescoService node conversion without a session. */
+    private static class NodeConverter extends AlfrescoService
+    {
+        Node convert(CmisObject object)
+        {
+            return convertNode(object, true);
+        }
+    }
+}
@@ -298,6 +298,10 @@ public interface OnPremiseConstant
     String PARAM_PAGESIZE = "pageSize";
 
     String PARAM_REVERSE = "reverse";
+
+    String PARAM_FROM = "from";
+
+    String PARAM_DETAILS = "details";
     
     String SIZE_VALUE = "size";
     
@@ -326,6 +330,12 @@ public interface OnPremiseConstant
     
     String MAX_RESULTS_VALUE = "maxResults";
 
+    String TOTALRECORDS_VALUE = "totalRecords";
+
+    String PAGING_VALUE = "paging";
+
+    String TOTALITEMS_VALUE = "totalItems";
+
     // WORKFLOW
     String VERSION_VALUE = "version";
 
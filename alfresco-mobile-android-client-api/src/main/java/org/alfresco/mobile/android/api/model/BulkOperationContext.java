@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.model;
+
+import java.io.Serializable;
+
+/**
+ * Provides informations to manage the behaviour of bulk operations of the
+ * {@link org.alfresco.mobile.android.api.services.DocumentFolderService
+ * DocumentFolderService} e.g. deleteNodes or updateProperties on a list of
+ * nodes.
+ *
+ * @since 1.5.1
+ */
+public class BulkOperationContext implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** Default number of nodes processed at the same time. */
+    public static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+    /** Number of nodes processed at the same time. */
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    /** Retrieve each node after the operation. */
+    private boolean refreshNodes = false;
+
+    /** Stop at the first failed node. */
+    private boolean stopOnError = false;
+
+    /**
+     * Instantiates a new bulk operation context with default values.
+     */
+    public BulkOperationContext()
+    {
+        super();
+    }
+
+    /**
+     * Instantiates a new bulk operation context.
+     *
+     * @param maxConcurrency : number of nodes processed at the same time.
+     * @param refreshNodes : true to retrieve each node after the operation.
+     * @param stopOnError : true to stop at the first failed node.
+     */
+    public BulkOperationContext(int maxConcurrency, boolean refreshNodes, boolean stopOnError)
+    {
+        super();
+        this.maxConcurrency = maxConcurrency;
+        this.refreshNodes = refreshNodes;
+        this.stopOnError = stopOnError;
+    }
+
+    /**
+     * Returns the maximum number of nodes processed at the same time.
+     *
+     * @return the maximum number of concurrent requests.
+     */
+    public int getMaxConcurrency()
+    {
+        return maxConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of nodes processed at the same time. Values
+     * lower than 1 are replaced by {@link #DEFAULT_MAX_CONCURRENCY}.
+     *
+     * @param maxConcurrency the maximum number of concurrent requests.
+     */
+    public void setMaxConcurrency(int maxConcurrency)
+    {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Returns true if each node is retrieved after the operation. Default :
+     * false, the result doesn't contain the updated nodes.
+     *
+     * @return true if nodes are refreshed.
+     */
+    public boolean isRefreshNodes()
+    {
+        return refreshNodes;
+    }
+
+    /**
+     * Defines if each node is retrieved after the operation. It costs one
+     * request per node.
+     *
+     * @param refreshNodes true to retrieve the updated nodes.
+     */
+    public void setRefreshNodes(boolean refreshNodes)
+    {
+        this.refreshNodes = refreshNodes;
+    }
+
+    /**
+     * Returns true if the operation stops at the first failed node. Default :
+     * false, only fatal errors (authentication, network) stop the operation.
+     *
+     * @return true if the operation stops at the first error.
+     */
+    public boolean isStopOnError()
+    {
+        return stopOnError;
+    }
+
+    /**
+     * Defines if the operation stops at the first failed node.
+     *
+     * @param stopOnError true to stop at the first error.
+     */
+    public void setStopOnError(boolean stopOnError)
+    {
+        this.stopOnError = stopOnError;
+    }
+}
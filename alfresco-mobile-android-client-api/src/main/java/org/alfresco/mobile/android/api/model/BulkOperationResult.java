@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk operation : one status per node, in the order of the
+ * nodes given to the operation.
+ *
+ * @since 1.5.1
+ */
+public interface BulkOperationResult
+{
+    /** Status of one node. */
+    public enum Status
+    {
+        /** The operation has been applied. */
+        SUCCEEDED,
+        /** The operation has failed. See {@link BulkOperationResult#getError(int)}. */
+        FAILED,
+        /** The operation has been stopped before this node. */
+        SKIPPED
+    }
+
+    /**
+     * @return number of nodes given to the operation.
+     */
+    int getCount();
+
+    /**
+     * @param index : position of the node in the list given to the operation.
+     * @return the node given to the operation.
+     */
+    Node getNode(int index);
+
+    /**
+     * @param index : position of the node in the list given to the operation.
+     * @return status of the node.
+     */
+    Status getStatus(int index);
+
+    /**
+     * @param index : position of the node in the list given to the operation.
+     * @return the updated node if the operation succeeded and
+     *         {@link BulkOperationContext#isRefreshNodes()} is true. Null
+     *         otherwise.
+     */
+    Node getResult(int index);
+
+    /**
+     * @param index : position of the node in the list given to the operation.
+     * @return the exception of a failed node. Null otherwise.
+     */
+    Exception getError(int index);
+
+    /**
+     * @param status : status of nodes.
+     * @return nodes given to the operation with this status.
+     */
+    List<Node> getNodes(Status status);
+
+    /**
+     * @return true if no node has failed or been skipped.
+     */
+    boolean isSucceeded();
+
+    /**
+     * @return true if the operation has been stopped before the end by an
+     *         error.
+     */
+    boolean isStopped();
+}
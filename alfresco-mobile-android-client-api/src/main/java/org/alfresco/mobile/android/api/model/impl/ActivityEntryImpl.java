@@ -17,10 +17,8 @@
  ******************************************************************************/
 package org.alfresco.mobile.android.api.model.impl;
 
-import java.text.SimpleDateFormat;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
 
 import org.alfresco.mobile.android.api.constants.CloudConstant;
@@ -84,8 +82,7 @@ public class ActivityEntryImpl implements ActivityEntry
         String postDate = JSONConverter.getString(jo, OnPremiseConstant.POSTDATE_VALUE);
 
         GregorianCalendar g = new GregorianCalendar();
-        SimpleDateFormat sdf = new SimpleDateFormat(DateUtils.FORMAT_3, Locale.getDefault());
-        g.setTime(DateUtils.parseDate(postDate, sdf));
+        g.setTime(DateUtils.parseDate(postDate));
         activityItem.postDate = g;
 
         activityItem.type = JSONConverter.getString(jo, OnPremiseConstant.ACTIVITYTYPE_VALUE);
@@ -153,8 +150,7 @@ public class ActivityEntryImpl implements ActivityEntry
         String postDate = JSONConverter.getString(jo, CloudConstant.POSTEDAT_VALUE);
 
         GregorianCalendar g = new GregorianCalendar();
-        SimpleDateFormat sdf = new SimpleDateFormat(DateUtils.FORMAT_3, Locale.getDefault());
-        g.setTime(DateUtils.parseDate(postDate, sdf));
+        g.setTime(DateUtils.parseDate(postDate));
         activityItem.postDate = g;
 
         activityItem.type = JSONConverter.getString(jo, CloudConstant.ACTIVITYTYPE_VALUE);
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.model.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.alfresco.mobile.android.api.model.BulkOperationResult;
+import org.alfresco.mobile.android.api.model.Node;
+
+/**
+ * Implementation of {@link BulkOperationResult}. Nodes are skipped until
+ * their outcome is set.
+ *
+ * @since 1.5.1
+ */
+public class BulkOperationResultImpl implements BulkOperationResult
+{
+    private final List<Node> nodes;
+
+    private final Status[] statuses;
+
+    private final Node[] results;
+
+    private final Exception[] errors;
+
+    private volatile boolean stopped = false;
+
+    public BulkOperationResultImpl(List<Node> nodes)
+    {
+        this.nodes = new ArrayList<Node>(nodes);
+        this.statuses = new Status[nodes.size()];
+        this.results = new Node[nodes.size()];
+        this.errors = new Exception[nodes.size()];
+        Arrays.fill(statuses, Status.SKIPPED);
+    }
+
+    // ////////////////////////////////////////////////////
+    // OUTCOMES
+    // ////////////////////////////////////////////////////
+    public synchronized void setSucceeded(int index, Node result)
+    {
+        statuses[index] = Status.SUCCEEDED;
+        results[index] = result;
+    }
+
+    public synchronized void setFailed(int index, Exception error)
+    {
+        statuses[index] = Status.FAILED;
+        errors[index] = error;
+    }
+
+    public void setStopped()
+    {
+        stopped = true;
+    }
+
+    // ////////////////////////////////////////////////////
+    // GETTERS
+    // ////////////////////////////////////////////////////
+    public int getCount()
+    {
+        return nodes.size();
+    }
+
+    public Node getNode(int index)
+    {
+        return nodes.get(index);
+    }
+
+    public synchronized Status getStatus(int index)
+    {
+        return statuses[index];
+    }
+
+    public synchronized Node getResult(int index)
+    {
+        return results[index];
+    }
+
+    public synchronized Exception getError(int index)
+    {
+        return errors[index];
+    }
+
+    public synchronized List<Node> getNodes(Status status)
+    {
+        List<Node> selection = new ArrayList<Node>();
+        for (int i = 0; i < statuses.length; i++)
+        {
+            if (statuses[i] == status)
+            {
+                selection.add(nodes.get(i));
+            }
+        }
+        return selection;
+    }
+
+    public synchronized boolean isSucceeded()
+    {
+        for (Status status : statuses)
+        {
+            if (status != Status.SUCCEEDED) { return false; }
+        }
+        return true;
+    }
+
+    public boolean isStopped()
+    {
+        return stopped;
+    }
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.model.impl;
+
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.alfresco.mobile.android.api.model.PagingResult;
+
+/**
+ * Paging Result which converts the raw objects of a page only when they are
+ * consumed. <br/>
+ * Iterating over the result converts objects one by one.
+ * {@link #getList()} converts all remaining objects. Converted objects are
+ * kept so each raw object is converted only once.
+ *
+ * @since 1.5.1
+ */
+public class LazyPagingResultImpl<S, T> implements PagingResult<T>, Iterable<T>
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Transforms one raw object into its high level object.
+     */
+    public interface Converter<S, T>
+    {
+        /**
+         * @param source : raw object.
+         * @return high level object or null if the object must be ignored.
+         */
+        T convert(S source);
+    }
+
+    /** Raw objects of the page. */
+    private final transient List<S> sources;
+
+    private final transient Converter<S, T> converter;
+
+    /** Objects already converted. */
+    private final List<T> objects;
+
+    /** Index of the next raw object to convert. */
+    private int position;
+
+    /** Indicator to know if there's some extra page. */
+    private final boolean hasMoreItems;
+
+    /** Total size of items available. */
+    private final int numItems;
+
+    public LazyPagingResultImpl(List<S> sources, Converter<S, T> converter, boolean hasMoreItems, int totalItems)
+    {
+        super();
+        this.sources = (sources != null) ? new ArrayList<S>(sources) : new ArrayList<S>(0);
+        this.converter = converter;
+        this.objects = new ArrayList<T>(this.sources.size());
+        this.hasMoreItems = hasMoreItems;
+        this.numItems = totalItems;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized List<T> getList()
+    {
+        while (convertNext())
+        {
+            // Convert all remaining objects.
+        }
+        return objects;
+    }
+
+    /** {@inheritDoc} */
+    public Boolean hasMoreItems()
+    {
+        return hasMoreItems;
+    }
+
+    /** {@inheritDoc} */
+    public int getTotalItems()
+    {
+        return numItems;
+    }
+
+    /**
+     * Returns an iterator which converts objects as they are consumed. The
+     * iterator doesn't support removal.
+     */
+    public Iterator<T> iterator()
+    {
+        return new Iterator<T>()
+        {
+            private int index = 0;
+
+            public boolean hasNext()
+            {
+                synchronized (LazyPagingResultImpl.this)
+                {
+                    while (index >= objects.size())
+                    {
+                        if (!convertNext()) { return false; }
+                    }
+                    return true;
+                }
+            }
+
+            public T next()
+            {
+                if (!hasNext()) { throw new NoSuchElementException(); }
+                synchronized (LazyPagingResultImpl.this)
+                {
+                    return objects.get(index++);
+                }
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Converts the next raw object.
+     *
+     * @return false if all raw objects have been converted.
+     */
+    private boolean convertNext()
+    {
+        if (position >= sources.size()) { return false; }
+        T object = converter.convert(sources.get(position));
+        // Release the raw object as soon as possible.
+        sources.set(position, null);
+        position++;
+        if (object != null)
+        {
+            objects.add(object);
+        }
+        return true;
+    }
+
+    /**
+     * Raw objects are not serializable : the converted page is serialized
+     * instead.
+     */
+    private Object writeReplace() throws ObjectStreamException
+    {
+        return new PagingResultImpl<T>(new ArrayList<T>(getList()), hasMoreItems, numItems);
+    }
+}
@@ -17,8 +17,9 @@
  ******************************************************************************/
 package org.alfresco.mobile.android.api.model.impl;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -26,13 +27,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.alfresco.cmis.client.AlfrescoAspects;
 import org.alfresco.mobile.android.api.constants.ContentModel;
 import org.alfresco.mobile.android.api.constants.ModelMappingUtils;
 import org.alfresco.mobile.android.api.model.Node;
 import org.alfresco.mobile.android.api.model.Property;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
-import org.apache.chemistry.opencmis.client.api.ObjectType;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.enums.Action;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
@@ -49,14 +48,14 @@ public class NodeImpl implements Node
 {
     private static final long serialVersionUID = 1L;
 
+    /** Returned by getProperty for a property unknown by the CMIS object. */
+    private static final Property EMPTY_PROPERTY = new PropertyImpl((Object) null);
+
     /** NodeRef of the Node (Unique reference). */
     private String identifier;
 
-    /** Map of properties available for this Node. */
-    private Map<String, Property> properties;
-
-    /** List of Aspects available for this Node. */
-    private List<String> aspects;
+    /** Properties and aspects available for this Node. */
+    private PropertyTable table;
 
     /** List of allowable actions. */
     private List<String> allowableActions;
@@ -125,26 +124,23 @@ public class NodeImpl implements Node
     /** {@inheritDoc} */
     public String getType()
     {
-        if (getPropertyValue(PropertyIds.OBJECT_TYPE_ID) != null)
+        String objectTypeId = getPropertyValue(PropertyIds.OBJECT_TYPE_ID);
+        if (objectTypeId != null)
         {
-            if (((String) getPropertyValue(PropertyIds.OBJECT_TYPE_ID))
-                    .startsWith(ModelMappingUtils.CMISPREFIX_DOCUMENT))
+            if (objectTypeId.startsWith(ModelMappingUtils.CMISPREFIX_DOCUMENT))
             {
-                return ((String) getPropertyValue(PropertyIds.OBJECT_TYPE_ID)).replaceFirst(
-                        ModelMappingUtils.CMISPREFIX_DOCUMENT, "");
+                return objectTypeId.substring(ModelMappingUtils.CMISPREFIX_DOCUMENT.length());
             }
-            else if (((String) getPropertyValue(PropertyIds.OBJECT_TYPE_ID))
-                    .startsWith(ModelMappingUtils.CMISPREFIX_FOLDER))
+            else if (objectTypeId.startsWith(ModelMappingUtils.CMISPREFIX_FOLDER))
             {
-                return ((String) getPropertyValue(PropertyIds.OBJECT_TYPE_ID)).replaceFirst(
-                        ModelMappingUtils.CMISPREFIX_FOLDER, "");
+                return objectTypeId.substring(ModelMappingUtils.CMISPREFIX_FOLDER.length());
             }
-            else if (BaseTypeId.CMIS_DOCUMENT.value().equals(getPropertyValue(PropertyIds.OBJECT_TYPE_ID)))
+            else if (BaseTypeId.CMIS_DOCUMENT.value().equals(objectTypeId))
             {
                 return ContentModel.TYPE_CONTENT;
             }
-            else if (BaseTypeId.CMIS_FOLDER.value().equals(getPropertyValue(PropertyIds.OBJECT_TYPE_ID))) { return ContentModel.TYPE_FOLDER; }
-            return getPropertyValue(PropertyIds.OBJECT_TYPE_ID);
+            else if (BaseTypeId.CMIS_FOLDER.value().equals(objectTypeId)) { return ContentModel.TYPE_FOLDER; }
+            return objectTypeId;
         }
         else
         {
@@ -188,29 +184,21 @@ public class NodeImpl implements Node
         return getProp(ModelMappingUtils.getPropertyName(name));
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc} <br/>
+     * The map is read only.
+     */
     public Map<String, Property> getProperties()
     {
-        if (object != null)
-        {
-            List<org.apache.chemistry.opencmis.client.api.Property<?>> props = object.getProperties();
-            Map<String, Property> s = new HashMap<String, Property>(props.size());
-            for (org.apache.chemistry.opencmis.client.api.Property<?> property : props)
-            {
-                s.put(property.getId(), new PropertyImpl(property));
-            }
-            return s;
-        }
-        else if (properties != null) { return properties; }
-        return null;
+        PropertyTable t = getTable();
+        return (t != null) ? t.asMap() : null;
     }
 
     /** {@inheritDoc} */
-    @SuppressWarnings("unchecked")
     public <T> T getPropertyValue(String name)
     {
-        if (getProp(name) != null) { return (T) getProp(name).getValue(); }
-        return null;
+        PropertyTable t = getTable();
+        return (t != null) ? t.<T> getValue(name) : null;
     }
 
     /**
@@ -225,63 +213,41 @@ public class NodeImpl implements Node
      */
     private Property getProp(String name)
     {
-        if (object != null)
-        {
-            return new PropertyImpl(object.getProperty(name));
-        }
-        else if (properties != null)
-        {
-            return properties.get(name);
-        }
-        else
+        PropertyTable t = getTable();
+        if (t == null) { return null; }
+        Property property = t.get(name);
+        if (property == null && object != null) { return EMPTY_PROPERTY; }
+        return property;
+    }
+
+    /**
+     * The table of a node created by a CMIS object is built at the first
+     * access.
+     */
+    private PropertyTable getTable()
+    {
+        if (table == null && object != null)
         {
-            return null;
+            table = PropertyTable.create(object);
         }
+        return table;
     }
 
     /** {@inheritDoc} */
     public boolean hasAspect(String aspectName)
     {
-        String tmpAspectName = aspectName;
-        if (!aspectName.startsWith(ModelMappingUtils.CMISPREFIX_ASPECTS))
-        {
-            tmpAspectName = ModelMappingUtils.CMISPREFIX_ASPECTS + aspectName;
-        }
-        if (object != null)
-        {
-            AlfrescoAspects alf = (AlfrescoAspects) object;
-            return alf.hasAspect(tmpAspectName);
-        }
-        else if (aspects != null)
-        {
-            if (!aspects.contains(tmpAspectName)) { return aspects.contains(aspectName); }
-            return aspects.contains(tmpAspectName);
-        }
-        else
-        {
-            return false;
-        }
+        PropertyTable t = getTable();
+        return t != null && t.hasAspect(aspectName);
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc} <br/>
+     * The list is read only.
+     */
     public List<String> getAspects()
     {
-        if (object != null)
-        {
-            AlfrescoAspects alf = (AlfrescoAspects) object;
-            Collection<ObjectType> c = alf.getAspects();
-            ArrayList<String> list = new ArrayList<String>(c.size());
-            for (ObjectType objectType : c)
-            {
-                if (objectType.getId() != null && !objectType.getId().isEmpty())
-                {
-                    list.add(objectType.getId().replaceFirst(ModelMappingUtils.CMISPREFIX_ASPECTS, ""));
-                }
-            }
-            return list;
-        }
-        else if (aspects != null) { return aspects; }
-        return new ArrayList<String>(0);
+        PropertyTable t = getTable();
+        return (t != null) ? t.getAspects() : PropertyTable.EMPTY.getAspects();
     }
 
     @Override
@@ -419,18 +385,31 @@ public class NodeImpl implements Node
         if (object != null)
         {
             identifier = getIdentifier();
-            properties = getProperties();
-            aspects = getAspects();
             allowableActions = new ArrayList<String>(getAllowableActions());
         }
 
         dest.writeString(identifier);
-        dest.writeMap(properties);
-        dest.writeList(aspects);
+        dest.writeMap(getProperties());
+        dest.writeList(getAspects());
         dest.writeList(allowableActions);
         dest.writeString(Boolean.toString(hasAllProperties));
     }
 
+    /**
+     * The CMIS object is not serializable : properties, aspects and allowable
+     * actions are copied before.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        if (object != null)
+        {
+            getTable();
+            identifier = getIdentifier();
+            allowableActions = new ArrayList<String>(getAllowableActions());
+        }
+        out.defaultWriteObject();
+    }
+
     /**
      * Android specific internal methods to retrieve information depending on
      * state.</br> By state it means that
@@ -466,10 +445,11 @@ public class NodeImpl implements Node
     public NodeImpl(Parcel o)
     {
         this.identifier = o.readString();
-        this.properties = new HashMap<String, Property>();
-        o.readMap(this.properties, getClass().getClassLoader());
-        this.aspects = new ArrayList<String>();
-        o.readList(this.aspects, getClass().getClassLoader());
+        Map<String, Property> properties = new HashMap<String, Property>();
+        o.readMap(properties, getClass().getClassLoader());
+        List<String> aspects = new ArrayList<String>();
+        o.readList(aspects, getClass().getClassLoader());
+        this.table = PropertyTable.create(properties, aspects);
         this.allowableActions = new ArrayList<String>();
         o.readList(this.allowableActions, getClass().getClassLoader());
         this.hasAllProperties = Boolean.parseBoolean(o.readString());
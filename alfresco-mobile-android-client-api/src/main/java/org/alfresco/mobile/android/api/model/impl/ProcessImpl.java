@@ -18,11 +18,9 @@
 package org.alfresco.mobile.android.api.model.impl;
 
 import java.io.Serializable;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
 
 import org.alfresco.mobile.android.api.constants.OnPremiseConstant;
@@ -103,10 +101,9 @@ public class ProcessImpl implements Process
         // PARSE DATES
         String date = JSONConverter.getString(json, OnPremiseConstant.STARTDATE_VALUE);
         GregorianCalendar g = new GregorianCalendar();
-        SimpleDateFormat sdf = new SimpleDateFormat(DateUtils.FORMAT_3, Locale.getDefault());
         if (date != null)
         {
-            g.setTime(DateUtils.parseDate(date, sdf));
+            g.setTime(DateUtils.parseDate(date));
             process.startedAt = g;
         }
 
@@ -114,7 +111,7 @@ public class ProcessImpl implements Process
         if (date != null)
         {
             g = new GregorianCalendar();
-            g.setTime(DateUtils.parseDate(date, sdf));
+            g.setTime(DateUtils.parseDate(date));
             process.endedAt = g;
         }
 
@@ -131,7 +128,7 @@ public class ProcessImpl implements Process
         if (date != null)
         {
             g = new GregorianCalendar();
-            g.setTime(DateUtils.parseDate(date, sdf));
+            g.setTime(DateUtils.parseDate(date));
             process.dueAt = g;
         }
         process.data.put(OnPremiseConstant.DUEDATE_VALUE, g);
@@ -177,12 +174,11 @@ public class ProcessImpl implements Process
         process.initiatorIdentifier = JSONConverter.getString(json, PublicAPIConstant.STARTUSERID_VALUE);
 
         GregorianCalendar g = new GregorianCalendar();
-        SimpleDateFormat sdf = new SimpleDateFormat(DateUtils.FORMAT_3, Locale.getDefault());
 
         String startedAt = JSONConverter.getString(json, PublicAPIConstant.STARTEDAT_VALUE);
         if (startedAt != null)
         {
-            g.setTime(DateUtils.parseDate(startedAt, sdf));
+            g.setTime(DateUtils.parseDate(startedAt));
             process.startedAt = g;
         }
 
@@ -190,7 +186,7 @@ public class ProcessImpl implements Process
         if (endedAt != null)
         {
             g = new GregorianCalendar();
-            g.setTime(DateUtils.parseDate(endedAt, sdf));
+            g.setTime(DateUtils.parseDate(endedAt));
             process.endedAt = g;
         }
 
@@ -238,7 +234,7 @@ public class ProcessImpl implements Process
                     if (dueDateValue != null)
                     {
                         g = new GregorianCalendar();
-                        g.setTime(DateUtils.parseDate(dueDateValue, sdf));
+                        g.setTime(DateUtils.parseDate(dueDateValue));
                         process.dueAt = g;
                     }
                 }
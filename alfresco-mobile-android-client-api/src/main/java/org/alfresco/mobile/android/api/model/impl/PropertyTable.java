@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.model.impl;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.alfresco.cmis.client.AlfrescoAspects;
+import org.alfresco.mobile.android.api.constants.ModelMappingUtils;
+import org.alfresco.mobile.android.api.model.Property;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+
+/**
+ * Immutable properties and aspects of one node. <br/>
+ * The table is built once per node : property wrappers are created at that
+ * time and shared by all later calls. Property identifiers are kept in a
+ * sorted array and shared by all tables. Aspect names are stored without
+ * their CMIS prefix.
+ *
+ * @since 1.5.1
+ */
+public final class PropertyTable implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** Table without property and aspect. */
+    public static final PropertyTable EMPTY = new PropertyTable(new String[0], new Property[0],
+            Collections.<String> emptyList());
+
+    /** Maximum number of shared property identifiers. */
+    private static final int MAX_SHARED_IDS = 2048;
+
+    /** Property identifiers shared by all tables. */
+    private static final Map<String, String> SHARED_IDS = new ConcurrentHashMap<String, String>(128);
+
+    /** Sorted property identifiers. */
+    private final String[] ids;
+
+    /** Properties in the order of identifiers. */
+    private final Property[] properties;
+
+    private final List<String> aspects;
+
+    private transient Map<String, Property> map;
+
+    private PropertyTable(String[] ids, Property[] properties, List<String> aspects)
+    {
+        this.ids = ids;
+        this.properties = properties;
+        this.aspects = aspects;
+    }
+
+    // ////////////////////////////////////////////////////
+    // FACTORIES
+    // ////////////////////////////////////////////////////
+    /**
+     * Creates the table of a CMIS object. Aspects are available if the object
+     * supports Alfresco aspects.
+     */
+    public static PropertyTable create(CmisObject object)
+    {
+        List<org.apache.chemistry.opencmis.client.api.Property<?>> props = object.getProperties();
+        TreeMap<String, Property> sorted = new TreeMap<String, Property>();
+        if (props != null)
+        {
+            for (org.apache.chemistry.opencmis.client.api.Property<?> property : props)
+            {
+                sorted.put(property.getId(), new PropertyImpl(property));
+            }
+        }
+
+        List<String> aspects = Collections.emptyList();
+        if (object instanceof AlfrescoAspects)
+        {
+            Collection<ObjectType> types = ((AlfrescoAspects) object).getAspects();
+            aspects = new ArrayList<String>(types.size());
+            for (ObjectType objectType : types)
+            {
+                if (objectType.getId() != null && objectType.getId().length() > 0)
+                {
+                    aspects.add(stripAspectPrefix(objectType.getId()));
+                }
+            }
+        }
+        return build(sorted, aspects);
+    }
+
+    /**
+     * Creates a table from properties and aspects.
+     *
+     * @param properties : properties by identifier. Can be null.
+     * @param aspects : aspect names with or without CMIS prefix. Can be null.
+     */
+    public static PropertyTable create(Map<String, Property> properties, List<String> aspects)
+    {
+        List<String> names = Collections.emptyList();
+        if (aspects != null && !aspects.isEmpty())
+        {
+            names = new ArrayList<String>(aspects.size());
+            for (String aspect : aspects)
+            {
+                names.add(stripAspectPrefix(aspect));
+            }
+        }
+        return build(new TreeMap<String, Property>(properties != null ? properties : Collections
+                .<String, Property> emptyMap()), names);
+    }
+
+    private static PropertyTable build(TreeMap<String, Property> sorted, List<String> aspects)
+    {
+        if (sorted.isEmpty() && aspects.isEmpty()) { return EMPTY; }
+        String[] ids = new String[sorted.size()];
+        Property[] properties = new Property[sorted.size()];
+        int i = 0;
+        for (Map.Entry<String, Property> entry : sorted.entrySet())
+        {
+            ids[i] = shareId(entry.getKey());
+            properties[i] = entry.getValue();
+            i++;
+        }
+        return new PropertyTable(ids, properties, Collections.unmodifiableList(aspects));
+    }
+
+    // ////////////////////////////////////////////////////
+    // PROPERTIES
+    // ////////////////////////////////////////////////////
+    /** @return the property or null if the table doesn't contain it. */
+    public Property get(String id)
+    {
+        int index = indexOf(id);
+        return (index < 0) ? null : properties[index];
+    }
+
+    /** @return the value of the property or null. */
+    @SuppressWarnings("unchecked")
+    public <T> T getValue(String id)
+    {
+        int index = indexOf(id);
+        return (index < 0 || properties[index] == null) ? null : (T) properties[index].getValue();
+    }
+
+    /** @return number of properties. */
+    public int size()
+    {
+        return ids.length;
+    }
+
+    /** @return read only map view of the properties. */
+    public Map<String, Property> asMap()
+    {
+        if (map == null)
+        {
+            map = new TableMap();
+        }
+        return map;
+    }
+
+    private int indexOf(String id)
+    {
+        if (id == null || ids.length == 0) { return -1; }
+        return Arrays.binarySearch(ids, id);
+    }
+
+    // ////////////////////////////////////////////////////
+    // ASPECTS
+    // ////////////////////////////////////////////////////
+    /** @return read only list of aspect names without CMIS prefix. */
+    public List<String> getAspects()
+    {
+        return aspects;
+    }
+
+    /**
+     * @param aspectName : aspect name with or without CMIS prefix.
+     * @return true if the node has this aspect.
+     */
+    public boolean hasAspect(String aspectName)
+    {
+        if (aspectName == null) { return false; }
+        return aspects.contains(stripAspectPrefix(aspectName));
+    }
+
+    // ////////////////////////////////////////////////////
+    // INTERNALS
+    // ////////////////////////////////////////////////////
+    private static String stripAspectPrefix(String aspectName)
+    {
+        return aspectName.startsWith(ModelMappingUtils.CMISPREFIX_ASPECTS) ? aspectName
+                .substring(ModelMappingUtils.CMISPREFIX_ASPECTS.length()) : aspectName;
+    }
+
+    private static String shareId(String id)
+    {
+        String shared = SHARED_IDS.get(id);
+        if (shared != null) { return shared; }
+        if (SHARED_IDS.size() >= MAX_SHARED_IDS) { return id; }
+        SHARED_IDS.put(id, id);
+        return id;
+    }
+
+    /** Map view of the table. */
+    private final class TableMap extends AbstractMap<String, Property>
+    {
+        private Set<Map.Entry<String, Property>> entries;
+
+        @Override
+        public Property get(Object key)
+        {
+            return (key instanceof String) ? PropertyTable.this.get((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return (key instanceof String) && indexOf((String) key) >= 0;
+        }
+
+        @Override
+        public int size()
+        {
+            return ids.length;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Property>> entrySet()
+        {
+            if (entries == null)
+            {
+                entries = new AbstractSet<Map.Entry<String, Property>>()
+                {
+                    @Override
+                    public Iterator<Map.Entry<String, Property>> iterator()
+                    {
+                        return new EntryIterator();
+                    }
+
+                    @Override
+                    public int size()
+                    {
+                        return ids.length;
+                    }
+                };
+            }
+            return entries;
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<String, Property>>
+    {
+        private int index = 0;
+
+        public boolean hasNext()
+        {
+            return index < ids.length;
+        }
+
+        public Map.Entry<String, Property> next()
+        {
+            if (index >= ids.length) { throw new NoSuchElementException(); }
+            Map.Entry<String, Property> entry = new AbstractMap.SimpleImmutableEntry<String, Property>(ids[index],
+                    properties[index]);
+            index++;
+            return entry;
+        }
+
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -19,10 +19,8 @@ package org.alfresco.mobile.android.api.model.impl;
 
 import java.io.Serializable;
 import java.math.BigInteger;
-import java.text.SimpleDateFormat;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -192,15 +190,14 @@ public class TaskImpl implements Task
 
         String startedAt = JSONConverter.getString(json, PublicAPIConstant.STARTEDAT_VALUE);
         GregorianCalendar g = new GregorianCalendar();
-        SimpleDateFormat sdf = new SimpleDateFormat(DateUtils.FORMAT_3, Locale.getDefault());
-        g.setTime(DateUtils.parseDate(startedAt, sdf));
+        g.setTime(DateUtils.parseDate(startedAt));
         task.startedAt = g;
 
         String dueAt = JSONConverter.getString(json, PublicAPIConstant.DUEAT_VALUE);
         if (dueAt != null)
         {
             g = new GregorianCalendar();
-            g.setTime(DateUtils.parseDate(dueAt, sdf));
+            g.setTime(DateUtils.parseDate(dueAt));
             task.dueAt = g;
         }
 
@@ -208,7 +205,7 @@ public class TaskImpl implements Task
         if (endedAt != null)
         {
             g = new GregorianCalendar();
-            g.setTime(DateUtils.parseDate(endedAt, sdf));
+            g.setTime(DateUtils.parseDate(endedAt));
             task.endedAt = g;
         }
 
@@ -233,7 +230,6 @@ public class TaskImpl implements Task
         String translatedKey = null;
 
         GregorianCalendar g = new GregorianCalendar();
-        SimpleDateFormat sdf = new SimpleDateFormat(DateUtils.FORMAT_3, Locale.getDefault());
 
         for (Entry<String, Object> entry : data.entrySet())
         {
@@ -255,7 +251,7 @@ public class TaskImpl implements Task
                 {
                     case DATETIME:
                         g = new GregorianCalendar();
-                        g.setTime(DateUtils.parseDate((String) entry.getValue(), sdf));
+                        g.setTime(DateUtils.parseDate((String) entry.getValue()));
                         properties.put(translatedKey, new PropertyImpl(g, variableType.propertyType,
                                 variableType.isMultiValued));
                         break;
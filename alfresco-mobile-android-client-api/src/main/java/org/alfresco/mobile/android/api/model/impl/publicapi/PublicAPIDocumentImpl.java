@@ -44,9 +44,9 @@ public class PublicAPIDocumentImpl extends PublicAPINodeImpl implements Document
     @Override
     public long getContentStreamLength()
     {
-        return (Long) ((getPropertyValue(SIZEINBYTES) == null) ? (long) -1
-                : (getPropertyValue(SIZEINBYTES) instanceof String) ? Long
-                        .parseLong((String) getPropertyValue(SIZEINBYTES)) : getPropertyValue(SIZEINBYTES));
+        Object size = getPropertyValue(SIZEINBYTES);
+        if (size == null) { return -1; }
+        return (size instanceof String) ? Long.parseLong((String) size) : ((Number) size).longValue();
     }
 
     @Override
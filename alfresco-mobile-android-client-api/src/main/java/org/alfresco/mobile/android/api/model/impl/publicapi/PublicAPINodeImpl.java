@@ -31,7 +31,6 @@ import static org.alfresco.mobile.android.api.model.impl.publicapi.PublicAPIProp
 import static org.alfresco.mobile.android.api.model.impl.publicapi.PublicAPIPropertyIds.TYPE;
 import static org.alfresco.mobile.android.api.model.impl.publicapi.PublicAPIPropertyIds.VERSIONLABEL;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
@@ -41,6 +40,7 @@ import java.util.Map;
 import org.alfresco.mobile.android.api.model.Node;
 import org.alfresco.mobile.android.api.model.Property;
 import org.alfresco.mobile.android.api.model.impl.PropertyImpl;
+import org.alfresco.mobile.android.api.model.impl.PropertyTable;
 import org.alfresco.mobile.android.api.utils.DateUtils;
 import org.alfresco.mobile.android.api.utils.NodeRefUtils;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
@@ -52,8 +52,8 @@ public class PublicAPINodeImpl implements Node
 {
     private static final long serialVersionUID = 1L;
 
-    /** Map of properties available for this Node. */
-    private Map<String, Property> properties = new HashMap<String, Property>();
+    /** Properties available for this Node. */
+    private PropertyTable table = PropertyTable.EMPTY;
 
     private boolean hasAllProperties;
 
@@ -76,20 +76,21 @@ public class PublicAPINodeImpl implements Node
     public PublicAPINodeImpl(String type, Map<String, Object> json)
     {
         super();
-        this.properties.put(ID, new PropertyImpl(JSONConverter.getString(json, ID)));
-        this.properties.put(GUID, new PropertyImpl(JSONConverter.getString(json, GUID)));
-        this.properties.put(NAME, new PropertyImpl(JSONConverter.getString(json, NAME)));
-        this.properties.put(TITLE, new PropertyImpl(JSONConverter.getString(json, TITLE)));
-        this.properties.put(DESCRIPTION, new PropertyImpl(JSONConverter.getString(json, DESCRIPTION)));
-        this.properties.put(CREATEDAT, new PropertyImpl(JSONConverter.getString(json, CREATEDAT)));
-        this.properties.put(CREATEDBY, new PropertyImpl(JSONConverter.getString(json, CREATEDBY)));
-        this.properties.put(MODIFIEDAT, new PropertyImpl(JSONConverter.getString(json, MODIFIEDAT)));
-        this.properties.put(MODIFIEDBY, new PropertyImpl(JSONConverter.getString(json, MODIFIEDBY)));
-        this.properties.put(MODIFIEDBY, new PropertyImpl(JSONConverter.getString(json, MODIFIEDBY)));
-        this.properties.put(MIMETYPE, new PropertyImpl(JSONConverter.getString(json, MIMETYPE)));
-        this.properties.put(SIZEINBYTES, new PropertyImpl(JSONConverter.getString(json, SIZEINBYTES)));
-        this.properties.put(VERSIONLABEL, new PropertyImpl(JSONConverter.getString(json, VERSIONLABEL)));
-        this.properties.put(TYPE, new PropertyImpl(type));
+        Map<String, Property> properties = new HashMap<String, Property>(16);
+        properties.put(ID, new PropertyImpl(JSONConverter.getString(json, ID)));
+        properties.put(GUID, new PropertyImpl(JSONConverter.getString(json, GUID)));
+        properties.put(NAME, new PropertyImpl(JSONConverter.getString(json, NAME)));
+        properties.put(TITLE, new PropertyImpl(JSONConverter.getString(json, TITLE)));
+        properties.put(DESCRIPTION, new PropertyImpl(JSONConverter.getString(json, DESCRIPTION)));
+        properties.put(CREATEDAT, new PropertyImpl(JSONConverter.getString(json, CREATEDAT)));
+        properties.put(CREATEDBY, new PropertyImpl(JSONConverter.getString(json, CREATEDBY)));
+        properties.put(MODIFIEDAT, new PropertyImpl(JSONConverter.getString(json, MODIFIEDAT)));
+        properties.put(MODIFIEDBY, new PropertyImpl(JSONConverter.getString(json, MODIFIEDBY)));
+        properties.put(MIMETYPE, new PropertyImpl(JSONConverter.getString(json, MIMETYPE)));
+        properties.put(SIZEINBYTES, new PropertyImpl(JSONConverter.getString(json, SIZEINBYTES)));
+        properties.put(VERSIONLABEL, new PropertyImpl(JSONConverter.getString(json, VERSIONLABEL)));
+        properties.put(TYPE, new PropertyImpl(type));
+        this.table = PropertyTable.create(properties, null);
         this.hasAllProperties = false;
     }
 
@@ -181,32 +182,23 @@ public class PublicAPINodeImpl implements Node
     @Override
     public Property getProperty(String name)
     {
-        return getProp(name);
+        return table.get(name);
     }
 
+    /**
+     * {@inheritDoc} <br/>
+     * The map is read only.
+     */
     @Override
     public Map<String, Property> getProperties()
     {
-        return properties;
+        return table.asMap();
     }
 
     /** {@inheritDoc} */
     public <T> T getPropertyValue(String name)
     {
-        if (getProp(name) != null) { return getProp(name).getValue(); }
-        return null;
-    }
-
-    private PropertyImpl getProp(String name)
-    {
-        if (properties != null)
-        {
-            return (PropertyImpl) properties.get(name);
-        }
-        else
-        {
-            return null;
-        }
+        return table.<T> getValue(name);
     }
 
     @Override
@@ -218,7 +210,7 @@ public class PublicAPINodeImpl implements Node
     @Override
     public List<String> getAspects()
     {
-        return new ArrayList<String>(0);
+        return table.getAspects();
     }
 
     @Override
@@ -230,13 +222,13 @@ public class PublicAPINodeImpl implements Node
     @Override
     public boolean isFolder()
     {
-        return PublicAPIBaseTypeIds.FOLDER.value().equals(getProp(TYPE).getValue());
+        return PublicAPIBaseTypeIds.FOLDER.value().equals(getPropertyValue(TYPE));
     }
 
     @Override
     public boolean isDocument()
     {
-        return PublicAPIBaseTypeIds.DOCUMENT.value().equals(getProp(TYPE).getValue());
+        return PublicAPIBaseTypeIds.DOCUMENT.value().equals(getPropertyValue(TYPE));
     }
 
     // ////////////////////////////////////////////////////
@@ -264,14 +256,15 @@ public class PublicAPINodeImpl implements Node
     @Override
     public void writeToParcel(Parcel dest, int flags)
     {
+        dest.writeMap(table.asMap());
         dest.writeString(Boolean.toString(hasAllProperties));
-        dest.writeMap(properties);
     }
 
     public PublicAPINodeImpl(Parcel o)
     {
-        this.properties = new HashMap<String, Property>();
-        o.readMap(this.properties, getClass().getClassLoader());
+        Map<String, Property> properties = new HashMap<String, Property>();
+        o.readMap(properties, getClass().getClassLoader());
+        this.table = PropertyTable.create(properties, null);
         this.hasAllProperties = Boolean.parseBoolean(o.readString());
     }
 }
@@ -0,0 +1,623 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.protocol.RequestAddCookies;
+import org.apache.http.client.protocol.ResponseProcessCookies;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.LayeredSocketFactory;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.scheme.SocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Bounded pool of keep-alive HTTP connections shared by all
+ * {@link PooledHttpInvoker} instances of the application.<br/>
+ * Connections are reused per route (scheme + host + port) up to
+ * {@link #getMaxPerRoute()} and up to {@link #getMaxTotal()} for the whole
+ * pool. Invokers with the same SSL settings and limits share a pool. <br/>
+ * One background thread evicts expired and idle connections of all pools and
+ * releases the pools which have no connection and haven't been used for their
+ * idle timeout. It stops when there's no pool left.
+ *
+ * @since 1.5.1
+ */
+public final class HttpConnectionPool
+{
+    /** Default maximum number of connections for the whole pool. */
+    public static final int DEFAULT_MAX_TOTAL = 20;
+
+    /** Default maximum number of connections for one route. */
+    public static final int DEFAULT_MAX_PER_ROUTE = 5;
+
+    /** Default keep-alive duration (ms) when the server doesn't send one. */
+    public static final long DEFAULT_KEEP_ALIVE = 30000;
+
+    /** Default duration (ms) after which an unused connection is closed. */
+    public static final long DEFAULT_IDLE_TIMEOUT = 60000;
+
+    /** Pools by configuration. */
+    private static final Map<PoolKey, HttpConnectionPool> POOLS = new HashMap<PoolKey, HttpConnectionPool>();
+
+    /** Evictor of all pools. Guarded by POOLS. */
+    private static IdleConnectionEvictor evictor;
+
+    private final PoolKey key;
+
+    private final int maxTotal;
+
+    private final int maxPerRoute;
+
+    private final long keepAlive;
+
+    private final long idleTimeout;
+
+    private final ThreadSafeClientConnManager connectionManager;
+
+    private final DefaultHttpClient httpClient;
+
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong openedCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    // ///////////////////////////////////////////////
+    // CONSTRUCTOR
+    // ///////////////////////////////////////////////
+    private HttpConnectionPool(PoolKey key, SSLSocketFactory sslFactory, HostnameVerifier verifier, int maxTotal,
+            int maxPerRoute, long keepAlive, long idleTimeout)
+    {
+        this.key = key;
+        this.maxTotal = maxTotal;
+        this.maxPerRoute = maxPerRoute;
+        this.keepAlive = keepAlive;
+        this.idleTimeout = idleTimeout;
+
+        HttpParams params = new BasicHttpParams();
+        HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+        HttpProtocolParams.setContentCharset(params, HTTP.UTF_8);
+        HttpConnectionParams.setStaleCheckingEnabled(params, true);
+        HttpConnectionParams.setTcpNoDelay(params, true);
+        ConnManagerParams.setMaxTotalConnections(params, maxTotal);
+        ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(maxPerRoute));
+
+        SchemeRegistry registry = new SchemeRegistry();
+        registry.register(new Scheme("http", new CountingSocketFactory(PlainSocketFactory.getSocketFactory()), 80));
+        registry.register(new Scheme("https", new CountingSSLSocketFactory(
+                (sslFactory != null) ? sslFactory : HttpsURLConnection.getDefaultSSLSocketFactory(),
+                (verifier != null) ? verifier : HttpsURLConnection.getDefaultHostnameVerifier()), 443));
+
+        connectionManager = new ThreadSafeClientConnManager(params, registry);
+        httpClient = new DefaultHttpClient(connectionManager, params);
+
+        // Cookies must not leak between sessions sharing the pool.
+        httpClient.removeRequestInterceptorByClass(RequestAddCookies.class);
+        httpClient.removeResponseInterceptorByClass(ResponseProcessCookies.class);
+        httpClient.setHttpRequestRetryHandler(new DefaultHttpRequestRetryHandler(1, false));
+        httpClient.setKeepAliveStrategy(new KeepAliveStrategy());
+    }
+
+    /**
+     * Returns the pool associated to the SSL settings and limits. The pool is
+     * created if it doesn't exist yet or if it has been released. It must be
+     * requested for each request instead of being kept by the caller.
+     *
+     * @param sslFactory : SSLSocketFactory used for https connections. Can be
+     *            null to use the default one.
+     * @param verifier : HostnameVerifier used for https connections. Can be
+     *            null to use the default one.
+     */
+    public static HttpConnectionPool getInstance(SSLSocketFactory sslFactory, HostnameVerifier verifier,
+            int maxTotal, int maxPerRoute, long keepAlive, long idleTimeout)
+    {
+        PoolKey key = new PoolKey(sslFactory, verifier, maxTotal, maxPerRoute, keepAlive, idleTimeout);
+        synchronized (POOLS)
+        {
+            HttpConnectionPool pool = POOLS.get(key);
+            if (pool == null)
+            {
+                pool = new HttpConnectionPool(key, sslFactory, verifier, maxTotal, maxPerRoute, keepAlive,
+                        idleTimeout);
+                POOLS.put(key, pool);
+                if (evictor == null)
+                {
+                    evictor = new IdleConnectionEvictor();
+                    evictor.start();
+                }
+            }
+            pool.lastUsed = System.currentTimeMillis();
+            return pool;
+        }
+    }
+
+    /**
+     * Returns a pool with the default SSL settings or null if it has not been
+     * created yet.
+     */
+    public static HttpConnectionPool getDefault()
+    {
+        synchronized (POOLS)
+        {
+            for (HttpConnectionPool pool : POOLS.values())
+            {
+                if (pool.key.sslFactory == null && pool.key.verifier == null) { return pool; }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Closes all connections of all pools. Pools are recreated on next
+     * request.
+     */
+    public static void shutdownAll()
+    {
+        synchronized (POOLS)
+        {
+            for (HttpConnectionPool pool : POOLS.values())
+            {
+                pool.connectionManager.shutdown();
+            }
+            POOLS.clear();
+            if (evictor != null)
+            {
+                evictor.interrupt();
+                evictor = null;
+            }
+        }
+    }
+
+    /**
+     * Evicts the idle connections of all pools and releases the unused pools.
+     */
+    private static void evictAll()
+    {
+        List<HttpConnectionPool> pools;
+        synchronized (POOLS)
+        {
+            pools = new ArrayList<HttpConnectionPool>(POOLS.values());
+        }
+        for (HttpConnectionPool pool : pools)
+        {
+            pool.evictIdleConnections();
+        }
+
+        List<HttpConnectionPool> released = new ArrayList<HttpConnectionPool>();
+        synchronized (POOLS)
+        {
+            for (Iterator<HttpConnectionPool> it = POOLS.values().iterator(); it.hasNext();)
+            {
+                HttpConnectionPool pool = it.next();
+                if (pool.isUnused())
+                {
+                    it.remove();
+                    released.add(pool);
+                }
+            }
+        }
+        for (HttpConnectionPool pool : released)
+        {
+            pool.connectionManager.shutdown();
+        }
+    }
+
+    /**
+     * @return delay before the next eviction or -1 if there's no pool left :
+     *         the evictor stops.
+     */
+    private static long getEvictionPeriod(IdleConnectionEvictor thread)
+    {
+        synchronized (POOLS)
+        {
+            if (evictor != thread) { return -1; }
+            if (POOLS.isEmpty())
+            {
+                evictor = null;
+                return -1;
+            }
+            long period = Long.MAX_VALUE;
+            for (HttpConnectionPool pool : POOLS.values())
+            {
+                period = Math.min(period, Math.max(1000, Math.min(pool.keepAlive, pool.idleTimeout) / 2));
+            }
+            return period;
+        }
+    }
+
+    // ///////////////////////////////////////////////
+    // METHODS
+    // ///////////////////////////////////////////////
+    DefaultHttpClient getHttpClient()
+    {
+        requestCount.incrementAndGet();
+        return httpClient;
+    }
+
+    /**
+     * Closes immediately expired connections and connections idle for longer
+     * than the idle timeout.
+     */
+    public void evictIdleConnections()
+    {
+        int before = connectionManager.getConnectionsInPool();
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+        int after = connectionManager.getConnectionsInPool();
+        if (before > after)
+        {
+            evictionCount.addAndGet(before - after);
+        }
+    }
+
+    /**
+     * @return true if the pool has no connection and hasn't been used for its
+     *         idle timeout.
+     */
+    private boolean isUnused()
+    {
+        return connectionManager.getConnectionsInPool() == 0
+                && System.currentTimeMillis() - lastUsed > idleTimeout;
+    }
+
+    public int getMaxTotal()
+    {
+        return maxTotal;
+    }
+
+    public int getMaxPerRoute()
+    {
+        return maxPerRoute;
+    }
+
+    /**
+     * Returns a snapshot of the pool usage.
+     */
+    public Statistics getStatistics()
+    {
+        return new Statistics(maxTotal, maxPerRoute, connectionManager.getConnectionsInPool(), requestCount.get(),
+                openedCount.get(), evictionCount.get());
+    }
+
+    // ///////////////////////////////////////////////
+    // STATISTICS
+    // ///////////////////////////////////////////////
+    /**
+     * Snapshot of the usage of a {@link HttpConnectionPool}.
+     */
+    public static final class Statistics
+    {
+        private final int maxTotal;
+
+        private final int maxPerRoute;
+
+        private final int pooledConnections;
+
+        private final long requests;
+
+        private final long openedConnections;
+
+        private final long evictedConnections;
+
+        Statistics(int maxTotal, int maxPerRoute, int pooledConnections, long requests, long openedConnections,
+                long evictedConnections)
+        {
+            this.maxTotal = maxTotal;
+            this.maxPerRoute = maxPerRoute;
+            this.pooledConnections = pooledConnections;
+            this.requests = requests;
+            this.openedConnections = openedConnections;
+            this.evictedConnections = evictedConnections;
+        }
+
+        /** Maximum number of connections for the whole pool. */
+        public int getMaxTotal()
+        {
+            return maxTotal;
+        }
+
+        /** Maximum number of connections per route. */
+        public int getMaxPerRoute()
+        {
+            return maxPerRoute;
+        }
+
+        /** Number of connections (leased and available) currently allocated. */
+        public int getPooledConnections()
+        {
+            return pooledConnections;
+        }
+
+        /** Number of requests executed through the pool. */
+        public long getRequests()
+        {
+            return requests;
+        }
+
+        /** Number of physical connections opened by the pool. */
+        public long getOpenedConnections()
+        {
+            return openedConnections;
+        }
+
+        /** Number of requests which have reused an existing connection. */
+        public long getReusedConnections()
+        {
+            return Math.max(0, requests - openedConnections);
+        }
+
+        /** Number of idle or expired connections closed by the pool. */
+        public long getEvictedConnections()
+        {
+            return evictedConnections;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "HttpConnectionPool [pooled=" + pooledConnections + "/" + maxTotal + ", perRoute=" + maxPerRoute
+                    + ", requests=" + requests + ", opened=" + openedConnections + ", reused="
+                    + getReusedConnections() + ", evicted=" + evictedConnections + "]";
+        }
+    }
+
+    // ///////////////////////////////////////////////
+    // INTERNAL
+    // ///////////////////////////////////////////////
+    /**
+     * Configuration of a pool. SSL objects are compared by identity.
+     */
+    private static final class PoolKey
+    {
+        private final SSLSocketFactory sslFactory;
+
+        private final HostnameVerifier verifier;
+
+        private final int maxTotal;
+
+        private final int maxPerRoute;
+
+        private final long keepAlive;
+
+        private final long idleTimeout;
+
+        PoolKey(SSLSocketFactory sslFactory, HostnameVerifier verifier, int maxTotal, int maxPerRoute,
+                long keepAlive, long idleTimeout)
+        {
+            this.sslFactory = sslFactory;
+            this.verifier = verifier;
+            this.maxTotal = maxTotal;
+            this.maxPerRoute = maxPerRoute;
+            this.keepAlive = keepAlive;
+            this.idleTimeout = idleTimeout;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) { return true; }
+            if (!(obj instanceof PoolKey)) { return false; }
+            PoolKey other = (PoolKey) obj;
+            return sslFactory == other.sslFactory && verifier == other.verifier && maxTotal == other.maxTotal
+                    && maxPerRoute == other.maxPerRoute && keepAlive == other.keepAlive
+                    && idleTimeout == other.idleTimeout;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = System.identityHashCode(sslFactory);
+            result = 31 * result + System.identityHashCode(verifier);
+            result = 31 * result + maxTotal;
+            result = 31 * result + maxPerRoute;
+            result = 31 * result + (int) (keepAlive ^ (keepAlive >>> 32));
+            return 31 * result + (int) (idleTimeout ^ (idleTimeout >>> 32));
+        }
+    }
+
+    /**
+     * Uses the Keep-Alive timeout sent by the server, the pool default
+     * otherwise.
+     */
+    private class KeepAliveStrategy implements ConnectionKeepAliveStrategy
+    {
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context)
+        {
+            HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (it.hasNext())
+            {
+                HeaderElement he = it.nextElement();
+                if (he.getValue() != null && "timeout".equalsIgnoreCase(he.getName()))
+                {
+                    try
+                    {
+                        return Long.parseLong(he.getValue()) * 1000;
+                    }
+                    catch (NumberFormatException ignore)
+                    {
+                        // Use the default one.
+                    }
+                }
+            }
+            return keepAlive;
+        }
+    }
+
+    /**
+     * Daemon thread responsible to close idle connections of all pools.
+     */
+    private static final class IdleConnectionEvictor extends Thread
+    {
+        IdleConnectionEvictor()
+        {
+            super("AlfrescoHttpConnectionEvictor");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                long period;
+                while (!isInterrupted() && (period = getEvictionPeriod(this)) >= 0)
+                {
+                    Thread.sleep(period);
+                    evictAll();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                // Pool shutdown
+            }
+        }
+    }
+
+    /**
+     * Plain socket factory which counts physical connections.
+     */
+    private class CountingSocketFactory implements SocketFactory
+    {
+        private final SocketFactory delegate;
+
+        CountingSocketFactory(SocketFactory delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        public Socket createSocket() throws IOException
+        {
+            return delegate.createSocket();
+        }
+
+        public Socket connectSocket(Socket sock, String host, int port, InetAddress localAddress, int localPort,
+                HttpParams params) throws IOException
+        {
+            Socket s = delegate.connectSocket(sock, host, port, localAddress, localPort, params);
+            openedCount.incrementAndGet();
+            return s;
+        }
+
+        public boolean isSecure(Socket sock)
+        {
+            return delegate.isSecure(sock);
+        }
+    }
+
+    /**
+     * Bridge between the javax SSLSocketFactory provided by the
+     * AuthenticationProvider and the HttpClient connection operator.
+     */
+    private class CountingSSLSocketFactory implements LayeredSocketFactory
+    {
+        private final SSLSocketFactory factory;
+
+        private final HostnameVerifier verifier;
+
+        CountingSSLSocketFactory(SSLSocketFactory factory, HostnameVerifier verifier)
+        {
+            this.factory = factory;
+            this.verifier = verifier;
+        }
+
+        public Socket createSocket() throws IOException
+        {
+            return new Socket();
+        }
+
+        public Socket connectSocket(Socket sock, String host, int port, InetAddress localAddress, int localPort,
+                HttpParams params) throws IOException
+        {
+            Socket plain = (sock != null) ? sock : createSocket();
+            if (localAddress != null || localPort > 0)
+            {
+                plain.bind(new InetSocketAddress(localAddress, (localPort < 0) ? 0 : localPort));
+            }
+
+            try
+            {
+                plain.connect(new InetSocketAddress(host, port), HttpConnectionParams.getConnectionTimeout(params));
+            }
+            catch (SocketTimeoutException e)
+            {
+                throw new ConnectTimeoutException("Connect to " + host + ":" + port + " timed out");
+            }
+            plain.setSoTimeout(HttpConnectionParams.getSoTimeout(params));
+
+            Socket secure = createSocket(plain, host, port, true);
+            openedCount.incrementAndGet();
+            return secure;
+        }
+
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException
+        {
+            SSLSocket sslSocket = (SSLSocket) factory.createSocket(socket, host, port, autoClose);
+            sslSocket.startHandshake();
+            if (!verifier.verify(host, sslSocket.getSession()))
+            {
+                sslSocket.close();
+                throw new SSLPeerUnverifiedException("Hostname " + host + " not verified");
+            }
+            return sslSocket;
+        }
+
+        public boolean isSecure(Socket sock)
+        {
+            return sock instanceof SSLSocket;
+        }
+    }
+}
@@ -0,0 +1,420 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.network;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.alfresco.mobile.android.api.model.ContentFile;
+import org.alfresco.mobile.android.api.services.cache.impl.ContentCache;
+import org.alfresco.mobile.android.api.session.AlfrescoSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.http.HttpStatus;
+
+import android.util.Log;
+
+/**
+ * Disk cache of GET responses revalidated with conditional requests. <br/>
+ * Responses with an ETag or a Last-Modified header are stored with their
+ * validators. The next GET of the same url sends If-None-Match /
+ * If-Modified-Since : if the server answers 304 Not Modified, the response is
+ * served from the cache. Responses are never served without revalidation.<br/>
+ * Each user has its own cache folder. Entries are evicted in least recently
+ * used order when the cache exceeds
+ * {@link AlfrescoSession#CACHE_HTTP_MAX_SIZE}. Bodies bigger than
+ * {@link #MAX_ENTRY_SIZE} are not stored. <br/>
+ * Endpoints can be excluded with {@link #setPolicy(String, boolean)}. By
+ * default login and CMIS content urls are excluded : document content is kept
+ * by the content cache.
+ *
+ * @since 1.5.1
+ */
+public final class HttpResponseCache
+{
+    private static final String TAG = HttpResponseCache.class.getName();
+
+    /** Default maximum size of one user cache : 10 MB. */
+    public static final long DEFAULT_MAX_SIZE = 10L * 1024 * 1024;
+
+    /** Maximum size in bytes of one cached body. */
+    public static final long MAX_ENTRY_SIZE = 1024 * 1024;
+
+    /** Binding session parameter : identifier of the user. */
+    public static final String USER = "org.alfresco.mobile.cache.http.user";
+
+    private static final String HTTP_CACHE_FOLDER = "http";
+
+    private static final String ETAG = "ETag";
+
+    private static final String LAST_MODIFIED = "Last-Modified";
+
+    private static final String CACHE_CONTROL = "Cache-Control";
+
+    private static final String NO_STORE = "no-store";
+
+    /** Separates the validators inside the stamp of an entry. */
+    private static final char SEPARATOR = '\n';
+
+    /** Url fragments and their policy. The last registered policy wins. */
+    private static final List<Policy> POLICIES = new CopyOnWriteArrayList<Policy>();
+
+    static
+    {
+        setPolicy("/api/login", false);
+        setPolicy("/content?id=", false);
+        setPolicy("cmisselector=content", false);
+    }
+
+    private final ContentCache cache;
+
+    private HttpResponseCache(ContentCache cache)
+    {
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the cache of the user of the binding session.
+     *
+     * @return the cache or null if the cache is disabled or the user unknown.
+     */
+    public static HttpResponseCache getInstance(BindingSession session)
+    {
+        Object folder = session.get(AlfrescoSession.CACHE_FOLDER);
+        Object user = session.get(USER);
+        if (folder == null || user == null) { return null; }
+
+        long maxSize = DEFAULT_MAX_SIZE;
+        Object size = session.get(AlfrescoSession.CACHE_HTTP_MAX_SIZE);
+        if (size != null)
+        {
+            try
+            {
+                maxSize = Long.parseLong(size.toString());
+            }
+            catch (NumberFormatException e)
+            {
+                // Default value
+            }
+        }
+        if (maxSize <= 0) { return null; }
+
+        // Content caches are shared by folder.
+        File directory = new File(new File(folder.toString(), HTTP_CACHE_FOLDER), hash(user.toString()));
+        return new HttpResponseCache(ContentCache.getInstance(directory, maxSize));
+    }
+
+    // ////////////////////////////////////////////////////
+    // POLICIES
+    // ////////////////////////////////////////////////////
+    /**
+     * Defines if the responses of urls containing a fragment can be cached.
+     *
+     * @param urlFragment : part of the url e.g. "/api/people/".
+     * @param cacheable : false to never cache these responses.
+     */
+    public static void setPolicy(String urlFragment, boolean cacheable)
+    {
+        POLICIES.add(0, new Policy(urlFragment, cacheable));
+    }
+
+    /** @return true if the response of this url can be cached. */
+    public static boolean isCacheable(String url)
+    {
+        for (Policy policy : POLICIES)
+        {
+            if (url.contains(policy.urlFragment)) { return policy.cacheable; }
+        }
+        return true;
+    }
+
+    // ////////////////////////////////////////////////////
+    // INVOKE
+    // ////////////////////////////////////////////////////
+    /**
+     * Performs a GET, conditional if the cache contains the response.
+     */
+    Response invokeGET(NetworkHttpInvoker invoker, UrlBuilder url, BindingSession session)
+    {
+        String key = hash(url.toString());
+        String stamp = cache.getStamp(key);
+        Map<String, String> headers = null;
+        if (stamp != null)
+        {
+            headers = new HashMap<String, String>(2);
+            int index = stamp.indexOf(SEPARATOR);
+            String etag = stamp.substring(0, index);
+            String lastModified = stamp.substring(index + 1);
+            if (etag.length() > 0)
+            {
+                headers.put("If-None-Match", etag);
+            }
+            if (lastModified.length() > 0)
+            {
+                headers.put("If-Modified-Since", lastModified);
+            }
+        }
+
+        Response resp = invoker.send(url, "GET", null, headers, null, session, null, null);
+        if (resp.getResponseCode() == HttpStatus.SC_NOT_MODIFIED && stamp != null)
+        {
+            Response cached = createResponse(cache.get(key, stamp));
+            if (cached != null) { return cached; }
+
+            // Entry evicted in the meantime.
+            return invoker.send(url, "GET", null, null, null, session, null, null);
+        }
+        if (resp.getResponseCode() == HttpStatus.SC_OK && resp.getStream() != null)
+        {
+            String newStamp = getStamp(resp);
+            if (newStamp != null) { return ResponseUtils.withStream(resp, new CachingInputStream(key, newStamp,
+                    url.toString(), resp.getContentTypeHeader(), resp.getStream())); }
+        }
+        return resp;
+    }
+
+    /** Removes all responses of the cache. */
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    // ////////////////////////////////////////////////////
+    // INTERNALS
+    // ////////////////////////////////////////////////////
+    /** @return validators of the response or null if it can't be cached. */
+    private static String getStamp(Response resp)
+    {
+        String cacheControl = resp.getHeader(CACHE_CONTROL);
+        if (cacheControl != null && cacheControl.contains(NO_STORE)) { return null; }
+        String etag = resp.getHeader(ETAG);
+        String lastModified = resp.getHeader(LAST_MODIFIED);
+        if (etag == null && lastModified == null) { return null; }
+        return ((etag != null) ? etag : "") + SEPARATOR + ((lastModified != null) ? lastModified : "");
+    }
+
+    private static Response createResponse(ContentFile file)
+    {
+        if (file == null) { return null; }
+        try
+        {
+            Map<String, List<String>> headers = new HashMap<String, List<String>>(2);
+            if (file.getMimeType() != null)
+            {
+                headers.put("Content-Type", Collections.singletonList(file.getMimeType()));
+            }
+            headers.put("Content-Length", Collections.singletonList(Long.toString(file.getLength())));
+            return new Response(HttpStatus.SC_OK, "OK", headers, new FileInputStream(file.getFile()), null);
+        }
+        catch (FileNotFoundException e)
+        {
+            return null;
+        }
+    }
+
+    private static String hash(String value)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+            {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Policy
+    {
+        private final String urlFragment;
+
+        private final boolean cacheable;
+
+        Policy(String urlFragment, boolean cacheable)
+        {
+            this.urlFragment = urlFragment;
+            this.cacheable = cacheable;
+        }
+    }
+
+    /**
+     * Copies the body inside a temporary file while the caller reads it. The
+     * entry is stored once the body has been fully read.
+     */
+    private final class CachingInputStream extends FilterInputStream
+    {
+        private final String key;
+
+        private final String stamp;
+
+        private final String url;
+
+        private final String mimeType;
+
+        private File tmp;
+
+        private OutputStream out;
+
+        private long length = 0;
+
+        CachingInputStream(String key, String stamp, String url, String mimeType, InputStream in)
+        {
+            super(in);
+            this.key = key;
+            this.stamp = stamp;
+            this.url = url;
+            this.mimeType = mimeType;
+            try
+            {
+                tmp = new File(cache.getDirectory(), key + "-" + Thread.currentThread().getId() + ".tmp");
+                tmp.getParentFile().mkdirs();
+                out = new FileOutputStream(tmp);
+            }
+            catch (IOException e)
+            {
+                abandon();
+            }
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+            if (b == -1)
+            {
+                commit();
+            }
+            else if (out != null)
+            {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException
+        {
+            int read = super.read(buffer, offset, count);
+            if (read == -1)
+            {
+                commit();
+            }
+            else if (out != null)
+            {
+                write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            // Skipped bytes are not cached.
+            abandon();
+            return super.skip(n);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            abandon();
+            super.close();
+        }
+
+        private void write(byte[] buffer, int offset, int count)
+        {
+            length += count;
+            if (length > MAX_ENTRY_SIZE)
+            {
+                abandon();
+                return;
+            }
+            try
+            {
+                out.write(buffer, offset, count);
+            }
+            catch (IOException e)
+            {
+                abandon();
+            }
+        }
+
+        private void commit()
+        {
+            if (out == null) { return; }
+            try
+            {
+                out.close();
+                out = null;
+                cache.putFile(key, stamp, tmp, url, mimeType);
+                tmp = null;
+            }
+            catch (IOException e)
+            {
+                Log.w(TAG, "Unable to cache " + url + " : " + e.getMessage());
+                abandon();
+            }
+        }
+
+        private void abandon()
+        {
+            if (out != null)
+            {
+                try
+                {
+                    out.close();
+                }
+                catch (IOException e)
+                {
+                    // Nothing to do.
+                }
+                out = null;
+            }
+            if (tmp != null)
+            {
+                tmp.delete();
+                tmp = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.network;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In memory aggregation of request events by operation, HTTP method and url
+ * template. <br/>
+ * Latencies are counted in a histogram with fixed buckets : percentiles are
+ * the upper bound of the bucket containing them. <br/>
+ * Usage : set an instance as value of
+ * {@link org.alfresco.mobile.android.api.session.AlfrescoSession#METRICS_LISTENER
+ * METRICS_LISTENER} and call {@link #dump()} to get a report.
+ *
+ * @since 1.5.1
+ */
+public class MetricsAggregator implements RequestListener, Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** Upper bounds in milliseconds of the latency buckets. */
+    public static final long[] BUCKETS = { 50, 100, 250, 500, 1000, 2500, 5000, 10000, Long.MAX_VALUE };
+
+    private final Map<String, Statistics> statistics = new TreeMap<String, Statistics>();
+
+    public synchronized void onRequest(RequestEvent event)
+    {
+        String key = event.getOperation() + " " + event.getMethod() + " " + event.getUrlTemplate();
+        Statistics stats = statistics.get(key);
+        if (stats == null)
+        {
+            stats = new Statistics();
+            statistics.put(key, stats);
+        }
+        stats.add(event);
+    }
+
+    /** @return copy of the statistics by "operation method urlTemplate". */
+    public synchronized Map<String, Statistics> getStatistics()
+    {
+        Map<String, Statistics> copy = new LinkedHashMap<String, Statistics>(statistics.size());
+        for (Map.Entry<String, Statistics> entry : statistics.entrySet())
+        {
+            copy.put(entry.getKey(), entry.getValue().copy());
+        }
+        return copy;
+    }
+
+    public synchronized void reset()
+    {
+        statistics.clear();
+    }
+
+    /**
+     * @return one line per operation, method and url template e.g. getChildren
+     *         GET /alfresco/... count=12 errors=0 retries=0 avg=120ms
+     *         p50<=250ms p90<=500ms max=812ms read=40ms sent=0B received=34567B
+     *         codes={200=12}
+     */
+    public synchronized String dump()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Statistics> entry : statistics.entrySet())
+        {
+            Statistics stats = entry.getValue();
+            sb.append(entry.getKey());
+            sb.append(" count=").append(stats.count);
+            sb.append(" errors=").append(stats.errors);
+            sb.append(" retries=").append(stats.retries);
+            sb.append(" avg=").append(stats.getAverageLatency()).append("ms");
+            sb.append(" p50<=").append(format(stats.getPercentile(50)));
+            sb.append(" p90<=").append(format(stats.getPercentile(90)));
+            sb.append(" max=").append(stats.maxLatency).append("ms");
+            sb.append(" read=").append(stats.count == 0 ? 0 : stats.readTime / stats.count).append("ms");
+            sb.append(" sent=").append(stats.bytesSent).append("B");
+            sb.append(" received=").append(stats.bytesReceived).append("B");
+            sb.append(" codes=").append(stats.responseCodes);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String format(long bound)
+    {
+        return (bound == Long.MAX_VALUE) ? "inf" : bound + "ms";
+    }
+
+    // ////////////////////////////////////////////////////
+    // STATISTICS
+    // ////////////////////////////////////////////////////
+    /** Statistics of one operation, method and url template. */
+    public static final class Statistics implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private int count;
+
+        private int errors;
+
+        private int retries;
+
+        private long totalLatency;
+
+        private long maxLatency;
+
+        private long readTime;
+
+        private long bytesSent;
+
+        private long bytesReceived;
+
+        private final long[] histogram = new long[BUCKETS.length];
+
+        private final Map<Integer, Integer> responseCodes = new TreeMap<Integer, Integer>();
+
+        void add(RequestEvent event)
+        {
+            count++;
+            if (event.isError())
+            {
+                errors++;
+            }
+            if (event.isRetry())
+            {
+                retries++;
+            }
+            totalLatency += event.getLatency();
+            maxLatency = Math.max(maxLatency, event.getLatency());
+            readTime += event.getReadTime();
+            bytesSent += event.getBytesSent();
+            bytesReceived += event.getBytesReceived();
+            for (int i = 0; i < BUCKETS.length; i++)
+            {
+                if (event.getLatency() <= BUCKETS[i])
+                {
+                    histogram[i]++;
+                    break;
+                }
+            }
+            Integer codeCount = responseCodes.get(event.getResponseCode());
+            responseCodes.put(event.getResponseCode(), (codeCount == null) ? 1 : codeCount + 1);
+        }
+
+        Statistics copy()
+        {
+            Statistics copy = new Statistics();
+            copy.count = count;
+            copy.errors = errors;
+            copy.retries = retries;
+            copy.totalLatency = totalLatency;
+            copy.maxLatency = maxLatency;
+            copy.readTime = readTime;
+            copy.bytesSent = bytesSent;
+            copy.bytesReceived = bytesReceived;
+            System.arraycopy(histogram, 0, copy.histogram, 0, histogram.length);
+            copy.responseCodes.putAll(responseCodes);
+            return copy;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+
+        public int getErrorCount()
+        {
+            return errors;
+        }
+
+        public int getRetryCount()
+        {
+            return retries;
+        }
+
+        public long getAverageLatency()
+        {
+            return (count == 0) ? 0 : totalLatency / count;
+        }
+
+        public long getMaxLatency()
+        {
+            return maxLatency;
+        }
+
+        /** @return total time in milliseconds spent reading response bodies. */
+        public long getReadTime()
+        {
+            return readTime;
+        }
+
+        public long getBytesSent()
+        {
+            return bytesSent;
+        }
+
+        public long getBytesReceived()
+        {
+            return bytesReceived;
+        }
+
+        /** @return number of requests in each bucket of {@link MetricsAggregator#BUCKETS}. */
+        public long[] getHistogram()
+        {
+            return histogram.clone();
+        }
+
+        /** @return number of responses by response code. */
+        public Map<Integer, Integer> getResponseCodes()
+        {
+            return new TreeMap<Integer, Integer>(responseCodes);
+        }
+
+        /**
+         * @param percentile : between 1 and 100.
+         * @return upper bound of the bucket containing the percentile.
+         */
+        public long getPercentile(int percentile)
+        {
+            long rank = (count * (long) percentile + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++)
+            {
+                seen += histogram[i];
+                if (seen >= rank && seen > 0) { return BUCKETS[i]; }
+            }
+            return 0;
+        }
+    }
+}
@@ -33,6 +33,8 @@ import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLSocketFactory;
 
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
+import org.alfresco.mobile.android.api.session.authentication.impl.PassthruAuthenticationProviderImpl;
+import org.alfresco.mobile.android.api.session.authentication.impl.RenewableAuthenticationProvider;
 import org.alfresco.mobile.android.api.utils.IOUtils;
 import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
@@ -57,28 +59,89 @@ public class NetworkHttpInvoker implements HttpInvoker
 
     public Response invokeGET(UrlBuilder url, BindingSession session)
     {
-        return invoke(url, "GET", null, null, null, session, null, null);
+        if (HttpResponseCache.isCacheable(url.toString()))
+        {
+            HttpResponseCache cache = HttpResponseCache.getInstance(session);
+            if (cache != null) { return cache.invokeGET(this, url, session); }
+        }
+        return send(url, "GET", null, null, null, session, null, null);
     }
 
     public Response invokeGET(UrlBuilder url, BindingSession session, BigInteger offset, BigInteger length)
     {
-        return invoke(url, "GET", null, null, null, session, offset, length);
+        return send(url, "GET", null, null, null, session, offset, length);
     }
 
     public Response invokePOST(UrlBuilder url, String contentType, Output writer, BindingSession session)
     {
-        return invoke(url, "POST", contentType, null, writer, session, null, null);
+        return send(url, "POST", contentType, null, writer, session, null, null);
     }
 
     public Response invokePUT(UrlBuilder url, String contentType, Map<String, String> headers, Output writer,
             BindingSession session)
     {
-        return invoke(url, "PUT", contentType, headers, writer, session, null, null);
+        return send(url, "PUT", contentType, headers, writer, session, null, null);
     }
 
     public Response invokeDELETE(UrlBuilder url, BindingSession session)
     {
-        return invoke(url, "DELETE", null, null, null, session, null, null);
+        return send(url, "DELETE", null, null, null, session, null, null);
+    }
+
+    /**
+     * Invokes the request and notifies the metrics listener of the session if
+     * any. <br/>
+     * If the request is rejected and the credentials can be renewed (e.g.
+     * ticket, OAuth token), they are renewed and the request is sent again
+     * once. Requests with a body are not sent again.
+     */
+    protected final Response send(UrlBuilder url, String method, String contentType, Map<String, String> headers,
+            Output writer, BindingSession session, BigInteger offset, BigInteger length)
+    {
+        Response resp = record(url, method, contentType, headers, writer, session, offset, length);
+        if (resp.getResponseCode() != HttpStatus.SC_UNAUTHORIZED) { return resp; }
+
+        RenewableAuthenticationProvider renewableProvider = getRenewableProvider(session);
+        if (renewableProvider != null && renewableProvider.renew() && writer == null)
+        {
+            resp = record(url, method, contentType, headers, writer, session, offset, length);
+            if (resp.getResponseCode() == HttpStatus.SC_UNAUTHORIZED)
+            {
+                renewableProvider.renewalRejected();
+            }
+        }
+        return resp;
+    }
+
+    private Response record(UrlBuilder url, String method, String contentType, Map<String, String> headers,
+            Output writer, BindingSession session, BigInteger offset, BigInteger length)
+    {
+        boolean retry = RequestMetrics.consumeRetry();
+        RequestListener listener = RequestMetrics.getListener(session);
+        if (listener == null) { return invoke(url, method, contentType, headers, writer, session, offset, length); }
+
+        RequestMetrics.Recorder recorder = RequestMetrics.start(listener, method, url.toString(), retry);
+        Response resp;
+        try
+        {
+            resp = invoke(url, method, contentType, headers, recorder.count(writer), session, offset, length);
+        }
+        catch (RuntimeException e)
+        {
+            recorder.failed(e);
+            throw e;
+        }
+        return recorder.received(resp);
+    }
+
+    private static RenewableAuthenticationProvider getRenewableProvider(BindingSession session)
+    {
+        AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(session);
+        if (!(authProvider instanceof PassthruAuthenticationProviderImpl)) { return null; }
+        Object alfrescoProvider = ((PassthruAuthenticationProviderImpl) authProvider)
+                .getAlfrescoAuthenticationProvider();
+        if (!(alfrescoProvider instanceof RenewableAuthenticationProvider)) { return null; }
+        return (RenewableAuthenticationProvider) alfrescoProvider;
     }
 
     protected HttpURLConnection getHttpURLConnection(URL url) throws IOException
@@ -127,7 +190,14 @@ public class NetworkHttpInvoker implements HttpInvoker
             }
 
             // connect
-            HttpURLConnection conn = getHttpURLConnection(new URL(url.toString()));
+            final HttpURLConnection conn = getHttpURLConnection(new URL(url.toString()));
+            RequestScope.register(new RequestScope.Abortable()
+            {
+                public void abort()
+                {
+                    conn.disconnect();
+                }
+            });
             conn.setRequestMethod(method);
             conn.setDoInput(true);
             conn.setDoOutput(writer != null);
@@ -353,7 +423,14 @@ public class NetworkHttpInvoker implements HttpInvoker
             // Log.d("URL", url.toString());
 
             // connect
-            HttpURLConnection conn = (HttpURLConnection) (new URL(url.toString())).openConnection();
+            final HttpURLConnection conn = (HttpURLConnection) (new URL(url.toString())).openConnection();
+            RequestScope.register(new RequestScope.Abortable()
+            {
+                public void abort()
+                {
+                    conn.disconnect();
+                }
+            });
             conn.setRequestMethod(method);
             conn.setDoInput(true);
             conn.setDoOutput(writer != null || forceOutput);
@@ -0,0 +1,513 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.network;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.alfresco.mobile.android.api.session.AlfrescoSession;
+import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.chemistry.opencmis.commons.spi.AuthenticationProvider;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HttpInvoker which keeps connections alive and reuses them across requests
+ * through a shared {@link HttpConnectionPool}.<br/>
+ * To use it, define the session parameter
+ * {@link AlfrescoSession#HTTP_INVOKER_CLASSNAME} with the classname of this
+ * class. Pool limits can be defined with
+ * {@link AlfrescoSession#HTTP_POOL_MAX_CONNECTIONS},
+ * {@link AlfrescoSession#HTTP_POOL_MAX_CONNECTIONS_PER_HOST},
+ * {@link AlfrescoSession#HTTP_POOL_KEEP_ALIVE} and
+ * {@link AlfrescoSession#HTTP_POOL_IDLE_TIMEOUT}. Sessions with the same SSL
+ * settings and limits share a pool.
+ *
+ * @since 1.5.1
+ */
+public class PooledHttpInvoker extends NetworkHttpInvoker
+{
+    private static final Logger LOG = LoggerFactory.getLogger(PooledHttpInvoker.class);
+
+    /**
+     * Request bodies which must be written before being sent are kept in
+     * memory up to this size, in a temporary file beyond.
+     */
+    private static final int SPOOL_THRESHOLD = 64 * 1024;
+
+    private volatile HttpConnectionPool pool;
+
+    /**
+     * Returns statistics of the pool used by this invoker or null if no
+     * request has been made yet.
+     */
+    public HttpConnectionPool.Statistics getStatistics()
+    {
+        return (pool != null) ? pool.getStatistics() : null;
+    }
+
+    /**
+     * Returns the pool of the session. It's requested for each request : an
+     * unused pool is released by {@link HttpConnectionPool}.
+     */
+    protected HttpConnectionPool getConnectionPool(BindingSession session, AuthenticationProvider authProvider)
+    {
+        pool = HttpConnectionPool.getInstance(
+                    (authProvider != null) ? authProvider.getSSLSocketFactory() : null,
+                    (authProvider != null) ? authProvider.getHostnameVerifier() : null,
+                    session.get(AlfrescoSession.HTTP_POOL_MAX_CONNECTIONS, HttpConnectionPool.DEFAULT_MAX_TOTAL),
+                    session.get(AlfrescoSession.HTTP_POOL_MAX_CONNECTIONS_PER_HOST,
+                            HttpConnectionPool.DEFAULT_MAX_PER_ROUTE),
+                    session.get(AlfrescoSession.HTTP_POOL_KEEP_ALIVE, (int) HttpConnectionPool.DEFAULT_KEEP_ALIVE),
+                session.get(AlfrescoSession.HTTP_POOL_IDLE_TIMEOUT, (int) HttpConnectionPool.DEFAULT_IDLE_TIMEOUT));
+        return pool;
+    }
+
+    @Override
+    protected Response invoke(UrlBuilder url, String method, String contentType, Map<String, String> headers,
+            final Output writer, final BindingSession session, BigInteger offset, BigInteger length)
+    {
+        HttpRequestBase request = null;
+        SpoolOutputStream spool = null;
+        try
+        {
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug(method + " " + url);
+            }
+
+            request = createRequest(method, url.toString());
+            final HttpRequestBase abortable = request;
+            RequestScope.register(new RequestScope.Abortable()
+            {
+                public void abort()
+                {
+                    abortable.abort();
+                }
+            });
+            request.setHeader(HTTP.USER_AGENT, getUserAgent());
+
+            // timeouts
+            int connectTimeout = session.get(SessionParameter.CONNECT_TIMEOUT, -1);
+            if (connectTimeout >= 0)
+            {
+                HttpConnectionParams.setConnectionTimeout(request.getParams(), connectTimeout);
+            }
+
+            int readTimeout = session.get(SessionParameter.READ_TIMEOUT, -1);
+            if (readTimeout >= 0)
+            {
+                HttpConnectionParams.setSoTimeout(request.getParams(), readTimeout);
+            }
+
+            // set content type
+            if (contentType != null)
+            {
+                request.setHeader(HTTP.CONTENT_TYPE, contentType);
+            }
+            // set other headers
+            if (headers != null)
+            {
+                for (Map.Entry<String, String> header : headers.entrySet())
+                {
+                    request.addHeader(header.getKey(), header.getValue());
+                }
+            }
+
+            // authenticate
+            AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(session);
+            if (authProvider != null)
+            {
+                Map<String, List<String>> httpHeaders = authProvider.getHTTPHeaders(url.toString());
+                if (httpHeaders != null)
+                {
+                    for (Map.Entry<String, List<String>> header : httpHeaders.entrySet())
+                    {
+                        if (header.getValue() != null)
+                        {
+                            for (String value : header.getValue())
+                            {
+                                request.addHeader(header.getKey(), value);
+                            }
+                        }
+                    }
+                }
+            }
+
+            // range
+            if ((offset != null) || (length != null))
+            {
+                StringBuilder sb = new StringBuilder("bytes=");
+
+                BigInteger tmpOffset = offset;
+                if ((tmpOffset == null) || (tmpOffset.signum() == -1))
+                {
+                    tmpOffset = BigInteger.ZERO;
+                }
+
+                sb.append(tmpOffset.toString());
+                sb.append("-");
+
+                if ((length != null) && (length.signum() == 1))
+                {
+                    sb.append(tmpOffset.add(length.subtract(BigInteger.ONE)).toString());
+                }
+
+                request.setHeader("Range", sb.toString());
+            }
+
+            // compression
+            Object compression = session.get(AlfrescoSession.HTTP_ACCEPT_ENCODING);
+            if (compression == null || "false".equalsIgnoreCase(compression.toString()))
+            {
+                request.setHeader("Accept-Encoding", "identity");
+            }
+            else if ("true".equalsIgnoreCase(compression.toString()))
+            {
+                request.setHeader("Accept-Encoding", "gzip,deflate");
+            }
+            else
+            {
+                request.setHeader("Accept-Encoding", compression.toString());
+            }
+
+            // locale
+            if (session.get(AlfrescoSession.HTTP_ACCEPT_LANGUAGE) instanceof String)
+            {
+                request.setHeader("Accept-Language", session.get(AlfrescoSession.HTTP_ACCEPT_LANGUAGE).toString());
+            }
+
+            // send data
+            if (writer != null && request instanceof HttpEntityEnclosingRequestBase)
+            {
+                final boolean gzip = isTrue(session.get(SessionParameter.CLIENT_COMPRESSION));
+                if (gzip)
+                {
+                    request.setHeader(HTTP.CONTENT_ENCODING, "gzip");
+                }
+
+                AbstractHttpEntity entity;
+                if (isTrue(session.get(AlfrescoSession.HTTP_CHUNK_TRANSFERT)))
+                {
+                    // Streamed directly to the socket.
+                    entity = new OutputEntity(writer, gzip);
+                    entity.setChunked(true);
+                }
+                else
+                {
+                    // Server doesn't support chunked transfer : the body
+                    // length must be known before sending it.
+                    spool = new SpoolOutputStream(session.get(AlfrescoSession.CACHE_FOLDER));
+                    try
+                    {
+                        new OutputEntity(writer, gzip).writeTo(spool);
+                    }
+                    finally
+                    {
+                        spool.close();
+                    }
+                    entity = spool.getEntity();
+                }
+                if (contentType != null)
+                {
+                    entity.setContentType(contentType);
+                }
+                ((HttpEntityEnclosingRequestBase) request).setEntity(entity);
+            }
+
+            // execute
+            HttpResponse httpResponse = getConnectionPool(session, authProvider).getHttpClient().execute(request);
+            int respCode = httpResponse.getStatusLine().getStatusCode();
+            Map<String, List<String>> responseHeaders = convertHeaders(httpResponse.getAllHeaders());
+
+            // get stream, if present
+            InputStream inputStream = null;
+            InputStream errorStream = null;
+            HttpEntity responseEntity = httpResponse.getEntity();
+            if ((respCode == HttpStatus.SC_OK) || (respCode == HttpStatus.SC_CREATED)
+                    || (respCode == HttpStatus.SC_NON_AUTHORITATIVE_INFORMATION)
+                    || (respCode == HttpStatus.SC_PARTIAL_CONTENT))
+            {
+                // The connection goes back to the pool when the stream is
+                // fully read or closed.
+                if (responseEntity != null)
+                {
+                    inputStream = responseEntity.getContent();
+                }
+            }
+            else if (responseEntity != null)
+            {
+                // Consume the error body to release the connection
+                // immediately.
+                errorStream = new ByteArrayInputStream(EntityUtils.toByteArray(responseEntity));
+            }
+
+            // log after connect
+            if (LOG.isTraceEnabled())
+            {
+                LOG.trace(method + " " + url + " > Headers: " + responseHeaders);
+            }
+
+            // forward response HTTP headers
+            if (authProvider != null)
+            {
+                authProvider.putResponseHeaders(url.toString(), respCode, responseHeaders);
+            }
+
+            // get the response
+            return new Response(respCode, httpResponse.getStatusLine().getReasonPhrase(), responseHeaders,
+                    inputStream, errorStream);
+        }
+        catch (Exception e)
+        {
+            if (request != null)
+            {
+                request.abort();
+            }
+            throw new CmisConnectionException("Cannot access " + url + ": " + e.getMessage(), e);
+        }
+        finally
+        {
+            if (spool != null)
+            {
+                spool.delete();
+            }
+        }
+    }
+
+    // ///////////////////////////////////////////////
+    // INTERNAL
+    // ///////////////////////////////////////////////
+    private static HttpRequestBase createRequest(String method, String url)
+    {
+        if ("GET".equals(method))
+        {
+            return new HttpGet(url);
+        }
+        else if ("POST".equals(method))
+        {
+            return new HttpPost(url);
+        }
+        else if ("PUT".equals(method))
+        {
+            return new HttpPut(url);
+        }
+        else if ("DELETE".equals(method)) { return new HttpDelete(url); }
+        throw new IllegalArgumentException("Unsupported HTTP method " + method);
+    }
+
+    private static Map<String, List<String>> convertHeaders(Header[] headers)
+    {
+        Map<String, List<String>> result = new LinkedHashMap<String, List<String>>();
+        for (Header header : headers)
+        {
+            List<String> values = result.get(header.getName());
+            if (values == null)
+            {
+                values = new ArrayList<String>(1);
+                result.put(header.getName(), values);
+            }
+            values.add(header.getValue());
+        }
+        return result;
+    }
+
+    private static boolean isTrue(Object value)
+    {
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    /**
+     * Request body which delegates the writing to the OpenCMIS Output.
+     */
+    private static class OutputEntity extends AbstractHttpEntity
+    {
+        private final Output writer;
+
+        private final boolean gzip;
+
+        OutputEntity(Output writer, boolean gzip)
+        {
+            this.writer = writer;
+            this.gzip = gzip;
+        }
+
+        public boolean isRepeatable()
+        {
+            return false;
+        }
+
+        public long getContentLength()
+        {
+            return -1;
+        }
+
+        /**
+         * The body is written in memory : it's normally streamed by
+         * {@link #writeTo(OutputStream)}.
+         */
+        public InputStream getContent() throws IOException
+        {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            writeTo(bos);
+            return new ByteArrayInputStream(bos.toByteArray());
+        }
+
+        public void writeTo(OutputStream outstream) throws IOException
+        {
+            OutputStream out = gzip ? new GZIPOutputStream(outstream, 4096) : outstream;
+            try
+            {
+                writer.write(out);
+            }
+            catch (IOException e)
+            {
+                throw e;
+            }
+            catch (Exception e)
+            {
+                throw new IOException(e.getMessage(), e);
+            }
+            if (gzip)
+            {
+                ((GZIPOutputStream) out).finish();
+            }
+            out.flush();
+        }
+
+        public boolean isStreaming()
+        {
+            return true;
+        }
+    }
+
+    /**
+     * Request body written before being sent : kept in memory up to
+     * {@link #SPOOL_THRESHOLD}, in a temporary file beyond.
+     */
+    private static final class SpoolOutputStream extends OutputStream
+    {
+        private final Object folder;
+
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+
+        private File file;
+
+        private OutputStream fileOut;
+
+        /**
+         * @param folder : folder of the temporary file. Can be null to use
+         *            the default temporary folder.
+         */
+        SpoolOutputStream(Object folder)
+        {
+            this.folder = folder;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException
+        {
+            if (fileOut == null && memory.size() + length > SPOOL_THRESHOLD)
+            {
+                File directory = null;
+                if (folder != null)
+                {
+                    directory = new File(folder.toString());
+                    directory.mkdirs();
+                }
+                file = File.createTempFile("request", ".tmp", directory);
+                fileOut = new BufferedOutputStream(new FileOutputStream(file));
+                memory.writeTo(fileOut);
+                memory = null;
+            }
+
+            if (fileOut != null)
+            {
+                fileOut.write(buffer, offset, length);
+            }
+            else
+            {
+                memory.write(buffer, offset, length);
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (fileOut != null)
+            {
+                fileOut.close();
+            }
+        }
+
+        /** @return entity sending the body written. */
+        AbstractHttpEntity getEntity()
+        {
+            if (file != null) { return new FileEntity(file, null); }
+            return new ByteArrayEntity(memory.toByteArray());
+        }
+
+        void delete()
+        {
+            if (file != null)
+            {
+                file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+
+/**
+ * Shares identical read requests made at the same time. <br/>
+ * The first request for a key (the leader) goes to the network. Requests
+ * with the same key made before the leader receives its response wait for
+ * it and get a copy of the response instead of making their own request. The
+ * key must identify the method, the url and the authenticated user. <br/>
+ * The response body is buffered only if other requests are waiting for it.
+ * Bodies bigger than {@link #MAX_SHARED_LENGTH} are not shared : waiting
+ * requests are then sent to the network. If the leader fails, waiting
+ * requests are sent to the network too. <br/>
+ * Counters report how many requests have been saved.
+ *
+ * @since 1.5.1
+ */
+public final class RequestCoalescer
+{
+    /** Request made by the leader. */
+    public interface Invocation
+    {
+        Response invoke();
+    }
+
+    /** Maximum size in bytes of a shared response body. */
+    public static final int MAX_SHARED_LENGTH = 1024 * 1024;
+
+    private static final RequestCoalescer INSTANCE = new RequestCoalescer();
+
+    /** Calls in progress by key. */
+    private final Map<String, Call> calls = new HashMap<String, Call>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong savedCount = new AtomicLong();
+
+    RequestCoalescer()
+    {
+    }
+
+    public static RequestCoalescer getInstance()
+    {
+        return INSTANCE;
+    }
+
+    // ////////////////////////////////////////////////////
+    // INVOKE
+    // ////////////////////////////////////////////////////
+    /**
+     * Makes the request or waits for the identical request in progress.
+     *
+     * @param key : method, url and user of the request.
+     * @param invocation : makes the request.
+     * @return response. Its body can be read by the caller only.
+     */
+    public Response invoke(String key, Invocation invocation)
+    {
+        requestCount.incrementAndGet();
+        Call call;
+        boolean leader = false;
+        synchronized (calls)
+        {
+            call = calls.get(key);
+            if (call == null)
+            {
+                call = new Call();
+                calls.put(key, call);
+                leader = true;
+            }
+            else
+            {
+                call.followers++;
+            }
+        }
+
+        if (leader) { return lead(key, call, invocation); }
+
+        SharedResponse shared = call.await();
+        if (shared == null) { return invocation.invoke(); }
+        savedCount.incrementAndGet();
+        return shared.createResponse();
+    }
+
+    private Response lead(String key, Call call, Invocation invocation)
+    {
+        Response response = null;
+        int followers;
+        try
+        {
+            response = invocation.invoke();
+        }
+        finally
+        {
+            synchronized (calls)
+            {
+                calls.remove(key);
+                followers = call.followers;
+            }
+            if (response == null)
+            {
+                // Failure : nothing is shared.
+                call.complete(null);
+            }
+        }
+        if (followers == 0) { return response; }
+
+        SharedResponse shared = null;
+        try
+        {
+            InputStream stream = response.getStream();
+            byte[] body = null;
+            if (stream != null)
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+                if (!readAtMost(stream, out, MAX_SHARED_LENGTH))
+                {
+                    // Too big : the leader reads the rest of the stream.
+                    return ResponseUtils.withStream(response, new SequenceInputStream(new ByteArrayInputStream(
+                            out.toByteArray()), stream));
+                }
+                body = out.toByteArray();
+                stream.close();
+            }
+            shared = new SharedResponse(response, body);
+            return shared.createResponse();
+        }
+        catch (IOException e)
+        {
+            throw new CmisConnectionException("Cannot read response: " + e.getMessage(), e);
+        }
+        finally
+        {
+            call.complete(shared);
+        }
+    }
+
+    /** @return true if the whole stream has been read. */
+    private static boolean readAtMost(InputStream in, ByteArrayOutputStream out, int max) throws IOException
+    {
+        byte[] buffer = new byte[8192];
+        int count;
+        while (out.size() <= max - buffer.length)
+        {
+            count = in.read(buffer);
+            if (count == -1) { return true; }
+            out.write(buffer, 0, count);
+        }
+        return false;
+    }
+
+    // ////////////////////////////////////////////////////
+    // COUNTERS
+    // ////////////////////////////////////////////////////
+    /** @return number of requests received since the last reset. */
+    public long getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    /** @return number of requests served by another request since the last reset. */
+    public long getSavedCount()
+    {
+        return savedCount.get();
+    }
+
+    public void resetCounters()
+    {
+        requestCount.set(0);
+        savedCount.set(0);
+    }
+
+    // ////////////////////////////////////////////////////
+    // INTERNALS
+    // ////////////////////////////////////////////////////
+    private static final class Call
+    {
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        /** Guarded by the calls map. */
+        private int followers = 0;
+
+        private volatile SharedResponse response;
+
+        private volatile boolean completed = false;
+
+        void complete(SharedResponse sharedResponse)
+        {
+            if (completed) { return; }
+            response = sharedResponse;
+            completed = true;
+            latch.countDown();
+        }
+
+        /** @return the response or null if it can't be shared. */
+        SharedResponse await()
+        {
+            try
+            {
+                latch.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new CmisConnectionException("Interrupted", e);
+            }
+            return response;
+        }
+    }
+
+    /** Response decoded and buffered. */
+    private static final class SharedResponse
+    {
+        private final int code;
+
+        private final String message;
+
+        private final Map<String, List<String>> headers;
+
+        private final byte[] body;
+
+        private final byte[] errorContent;
+
+        SharedResponse(Response response, byte[] body) throws UnsupportedEncodingException
+        {
+            this.code = response.getResponseCode();
+            this.message = response.getResponseMessage();
+            Map<String, List<String>> decodedHeaders = ResponseUtils.removeEncodingHeaders(response.getHeaders());
+            if (body != null)
+            {
+                ResponseUtils.setContentLength(decodedHeaders, body.length);
+            }
+            this.headers = Collections.unmodifiableMap(decodedHeaders);
+            this.body = body;
+            String charset = (response.getCharset() != null) ? response.getCharset() : "UTF-8";
+            this.errorContent = (response.getErrorContent() != null) ? response.getErrorContent().getBytes(
+                    charset) : null;
+        }
+
+        Response createResponse()
+        {
+            return new Response(code, message, headers, (body != null) ? new ByteArrayInputStream(body) : null,
+                    (errorContent != null) ? new ByteArrayInputStream(errorContent) : null);
+        }
+    }
+}
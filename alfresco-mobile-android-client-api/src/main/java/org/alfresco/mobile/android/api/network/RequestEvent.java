@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.network;
+
+import java.io.Serializable;
+
+/**
+ * Measures of one HTTP request.
+ *
+ * @since 1.5.1
+ */
+public class RequestEvent implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** Response code of a request which failed without response. */
+    public static final int NO_RESPONSE = -1;
+
+    private final String operation;
+
+    private final String method;
+
+    private final String urlTemplate;
+
+    private final long startTime;
+
+    private final boolean retry;
+
+    private final int responseCode;
+
+    private final long latency;
+
+    private final long readTime;
+
+    private final long bytesSent;
+
+    private final long bytesReceived;
+
+    private final String error;
+
+    RequestEvent(String operation, String method, String urlTemplate, long startTime, boolean retry,
+            int responseCode, long latency, long readTime, long bytesSent, long bytesReceived, String error)
+    {
+        this.operation = operation;
+        this.method = method;
+        this.urlTemplate = urlTemplate;
+        this.startTime = startTime;
+        this.retry = retry;
+        this.responseCode = responseCode;
+        this.latency = latency;
+        this.readTime = readTime;
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+        this.error = error;
+    }
+
+    /** @return name of the service method which made the request e.g. getChildren. */
+    public String getOperation()
+    {
+        return operation;
+    }
+
+    /** @return HTTP method. */
+    public String getMethod()
+    {
+        return method;
+    }
+
+    /**
+     * @return url without host, identifiers replaced by {id} and query
+     *         parameters without values.
+     */
+    public String getUrlTemplate()
+    {
+        return urlTemplate;
+    }
+
+    /** @return start of the request in milliseconds since epoch. */
+    public long getStartTime()
+    {
+        return startTime;
+    }
+
+    /** @return true if the request repeats a failed request. */
+    public boolean isRetry()
+    {
+        return retry;
+    }
+
+    /** @return HTTP response code or {@link #NO_RESPONSE}. */
+    public int getResponseCode()
+    {
+        return responseCode;
+    }
+
+    /** @return milliseconds between the start of the request and the response headers. */
+    public long getLatency()
+    {
+        return latency;
+    }
+
+    /**
+     * @return milliseconds spent reading the response body. Bodies are parsed
+     *         while they are read : it includes the parse time.
+     */
+    public long getReadTime()
+    {
+        return readTime;
+    }
+
+    /** @return bytes of the request body. */
+    public long getBytesSent()
+    {
+        return bytesSent;
+    }
+
+    /** @return bytes of the response body read by the SDK (uncompressed). */
+    public long getBytesReceived()
+    {
+        return bytesReceived;
+    }
+
+    /** @return class name of the exception if the request failed, otherwise null. */
+    public String getError()
+    {
+        return error;
+    }
+
+    /** @return true if the request failed or the response code is an error. */
+    public boolean isError()
+    {
+        return error != null || responseCode >= 400;
+    }
+
+    @Override
+    public String toString()
+    {
+        return operation + " " + method + " " + urlTemplate + " " + responseCode + " " + latency + "ms";
+    }
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.network;
+
+/**
+ * Receives one event per HTTP request made by the SDK services. <br/>
+ * The listener is defined by the session parameter
+ * {@link org.alfresco.mobile.android.api.session.AlfrescoSession#METRICS_LISTENER
+ * METRICS_LISTENER}. {@link MetricsAggregator} is the built-in
+ * implementation. <br/>
+ * Events are sent by the threads making the requests : implementations must be
+ * thread safe and fast.
+ *
+ * @since 1.5.1
+ */
+public interface RequestListener
+{
+    /**
+     * Called once the response body has been read or closed, or when the
+     * request fails.
+     */
+    void onRequest(RequestEvent event);
+}
@@ -0,0 +1,443 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.network;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.alfresco.mobile.android.api.session.AlfrescoSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+
+import android.util.Log;
+
+/**
+ * Records the requests made by the HTTP invokers and sends them to the
+ * {@link RequestListener} of the session. <br/>
+ * Binding sessions only contain strings : listeners are registered here and
+ * binding sessions contain their key. <br/>
+ * The operation of a request is the outermost method of a service
+ * implementation found in the stack of the calling thread. It is computed only
+ * if a listener is defined.
+ *
+ * @since 1.5.1
+ */
+public final class RequestMetrics
+{
+    private static final String TAG = RequestMetrics.class.getName();
+
+    /** Operation of requests made outside a service method. */
+    public static final String UNKNOWN_OPERATION = "unknown";
+
+    private static final String SERVICES_PACKAGE = "org.alfresco.mobile.android.api.services.impl";
+
+    /** Classes of the services package which are not services. */
+    private static final Set<String> IGNORED_CLASSES = new HashSet<String>(Arrays.asList(SERVICES_PACKAGE
+            + ".AlfrescoService", SERVICES_PACKAGE + ".AsyncServiceImpl"));
+
+    /** Path segments followed by an identifier. */
+    private static final Set<String> IDENTIFIER_PARENTS = new HashSet<String>(Arrays.asList("people", "person",
+            "sites", "site", "members", "processes", "tasks", "task-instances", "workflow-instances",
+            "process-definitions", "workflow-definitions", "comments", "ratings", "containers"));
+
+    private static final String IDENTIFIER = "{id}";
+
+    /** Listeners created from a class name by key : one instance per class. */
+    private static final Map<String, RequestListener> CLASS_LISTENERS = new ConcurrentHashMap<String, RequestListener>();
+
+    /**
+     * Listener instances by key. They are weakly referenced : the parameters
+     * of the session keep them alive as long as the session is used.
+     */
+    private static final Map<String, WeakReference<RequestListener>> LISTENERS = new ConcurrentHashMap<String, WeakReference<RequestListener>>();
+
+    private static final ThreadLocal<Boolean> RETRY = new ThreadLocal<Boolean>();
+
+    private RequestMetrics()
+    {
+    }
+
+    // ////////////////////////////////////////////////////
+    // LISTENERS
+    // ////////////////////////////////////////////////////
+    /**
+     * Registers the listener defined by the session parameter
+     * {@link AlfrescoSession#METRICS_LISTENER}.
+     *
+     * @param value : listener instance or class name of a listener.
+     * @return key of the listener to put in binding sessions or null if there's
+     *         no listener.
+     */
+    public static String register(Object value)
+    {
+        if (value == null) { return null; }
+        if (value instanceof RequestListener) { return registerInstance((RequestListener) value); }
+        return registerClass(value.toString());
+    }
+
+    private static synchronized String registerInstance(RequestListener listener)
+    {
+        // Forget the listeners of discarded sessions.
+        for (Iterator<WeakReference<RequestListener>> it = LISTENERS.values().iterator(); it.hasNext();)
+        {
+            if (it.next().get() == null)
+            {
+                it.remove();
+            }
+        }
+
+        String prefix = listener.getClass().getName() + "@"
+                + Integer.toHexString(System.identityHashCode(listener));
+        String key = prefix;
+        for (int i = 1;; i++)
+        {
+            WeakReference<RequestListener> reference = LISTENERS.get(key);
+            RequestListener registered = (reference != null) ? reference.get() : null;
+            if (registered == listener) { return key; }
+            if (registered == null)
+            {
+                LISTENERS.put(key, new WeakReference<RequestListener>(listener));
+                return key;
+            }
+            // Same identity hash code as another listener.
+            key = prefix + "-" + i;
+        }
+    }
+
+    private static synchronized String registerClass(String className)
+    {
+        if (CLASS_LISTENERS.containsKey(className)) { return className; }
+        try
+        {
+            CLASS_LISTENERS.put(className, (RequestListener) Class.forName(className).getDeclaredConstructor()
+                    .newInstance());
+            return className;
+        }
+        catch (Exception e)
+        {
+            Log.w(TAG, "Unable to create request listener " + className + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** @return listener of the binding session or null. */
+    static RequestListener getListener(BindingSession session)
+    {
+        if (session == null || (LISTENERS.isEmpty() && CLASS_LISTENERS.isEmpty())) { return null; }
+        Object key = session.get(AlfrescoSession.METRICS_LISTENER);
+        if (key == null) { return null; }
+        RequestListener listener = CLASS_LISTENERS.get(key.toString());
+        if (listener != null) { return listener; }
+        WeakReference<RequestListener> reference = LISTENERS.get(key.toString());
+        return (reference != null) ? reference.get() : null;
+    }
+
+    /**
+     * Marks the next request of the current thread as a retry of a failed
+     * request.
+     */
+    public static void markRetry()
+    {
+        RETRY.set(Boolean.TRUE);
+    }
+
+    /**
+     * Clears the retry mark of the current thread. It's called for every
+     * request, even without listener.
+     *
+     * @return true if the request is a retry.
+     */
+    static boolean consumeRetry()
+    {
+        boolean retry = Boolean.TRUE.equals(RETRY.get());
+        RETRY.remove();
+        return retry;
+    }
+
+    // ////////////////////////////////////////////////////
+    // NAMES
+    // ////////////////////////////////////////////////////
+    /** @return outermost service method of the current thread. */
+    static String getOperation()
+    {
+        String operation = UNKNOWN_OPERATION;
+        for (StackTraceElement element : new Throwable().getStackTrace())
+        {
+            String className = element.getClassName();
+            if (className.startsWith(SERVICES_PACKAGE) && className.indexOf('$') < 0
+                    && !IGNORED_CLASSES.contains(className))
+            {
+                operation = element.getMethodName();
+            }
+        }
+        return operation;
+    }
+
+    /**
+     * Returns the template of an url : path without host, identifiers replaced
+     * by {id} and names of the query parameters.
+     * e.g. /alfresco/service/api/people/{id}/sites?size
+     */
+    public static String getUrlTemplate(String url)
+    {
+        int query = url.indexOf('?');
+        String path = (query < 0) ? url : url.substring(0, query);
+        int scheme = path.indexOf("://");
+        if (scheme >= 0)
+        {
+            int slash = path.indexOf('/', scheme + 3);
+            path = (slash < 0) ? "/" : path.substring(slash);
+        }
+
+        StringBuilder sb = new StringBuilder(path.length());
+        String previous = null;
+        for (String segment : path.split("/"))
+        {
+            if (segment.length() == 0)
+            {
+                continue;
+            }
+            sb.append('/');
+            sb.append((isIdentifier(segment) || IDENTIFIER_PARENTS.contains(previous)) ? IDENTIFIER : segment);
+            previous = segment;
+        }
+        if (sb.length() == 0)
+        {
+            sb.append('/');
+        }
+
+        if (query >= 0)
+        {
+            Set<String> names = new TreeSet<String>();
+            for (String parameter : url.substring(query + 1).split("&"))
+            {
+                int equals = parameter.indexOf('=');
+                String name = (equals < 0) ? parameter : parameter.substring(0, equals);
+                if (name.length() > 0)
+                {
+                    names.add(name);
+                }
+            }
+            char separator = '?';
+            for (String name : names)
+            {
+                sb.append(separator).append(name);
+                separator = '&';
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Numbers, uuids, node references and version labels. */
+    private static boolean isIdentifier(String segment)
+    {
+        int digits = 0;
+        for (int i = 0; i < segment.length(); i++)
+        {
+            char c = segment.charAt(i);
+            if (c >= '0' && c <= '9')
+            {
+                digits++;
+            }
+            else if (c == ';' || c == '%')
+            {
+                return true;
+            }
+        }
+        return digits == segment.length() || (digits > 0 && segment.length() >= 8);
+    }
+
+    // ////////////////////////////////////////////////////
+    // RECORDING
+    // ////////////////////////////////////////////////////
+    /** Starts the measure of a request made by the current thread. */
+    static Recorder start(RequestListener listener, String method, String url, boolean retry)
+    {
+        return new Recorder(listener, getOperation(), method, getUrlTemplate(url), retry);
+    }
+
+    /** Measures of one request. */
+    static final class Recorder
+    {
+        private final RequestListener listener;
+
+        private final String operation;
+
+        private final String method;
+
+        private final String urlTemplate;
+
+        private final boolean retry;
+
+        private final long startTime = System.currentTimeMillis();
+
+        private final long start = System.nanoTime();
+
+        private long responseTime;
+
+        private int responseCode = RequestEvent.NO_RESPONSE;
+
+        private volatile long bytesSent;
+
+        private long bytesReceived;
+
+        private boolean sent = false;
+
+        Recorder(RequestListener listener, String operation, String method, String urlTemplate, boolean retry)
+        {
+            this.listener = listener;
+            this.operation = operation;
+            this.method = method;
+            this.urlTemplate = urlTemplate;
+            this.retry = retry;
+        }
+
+        /** @return writer counting the bytes of the request body. */
+        Output count(final Output writer)
+        {
+            if (writer == null) { return null; }
+            return new Output()
+            {
+                public void write(OutputStream out) throws Exception
+                {
+                    writer.write(new FilterOutputStream(out)
+                    {
+                        @Override
+                        public void write(int b) throws IOException
+                        {
+                            out.write(b);
+                            bytesSent++;
+                        }
+
+                        @Override
+                        public void write(byte[] buffer, int offset, int length) throws IOException
+                        {
+                            out.write(buffer, offset, length);
+                            bytesSent += length;
+                        }
+                    });
+                }
+            };
+        }
+
+        /**
+         * Records the response. The event is sent once the body is read or
+         * closed.
+         */
+        Response received(Response response)
+        {
+            responseTime = System.nanoTime();
+            responseCode = response.getResponseCode();
+            InputStream stream = response.getStream();
+            if (stream == null)
+            {
+                send(null);
+                return response;
+            }
+            return ResponseUtils.withCountedStream(response, new CountingInputStream(stream));
+        }
+
+        void failed(Exception e)
+        {
+            responseTime = System.nanoTime();
+            send(e.getClass().getName());
+        }
+
+        private synchronized void send(String error)
+        {
+            if (sent) { return; }
+            sent = true;
+            long end = System.nanoTime();
+            try
+            {
+                listener.onRequest(new RequestEvent(operation, method, urlTemplate, startTime, retry,
+                        responseCode, (responseTime - start) / 1000000, (end - responseTime) / 1000000, bytesSent,
+                        bytesReceived, error));
+            }
+            catch (RuntimeException e)
+            {
+                Log.w(TAG, "Request listener error : " + e.getMessage());
+            }
+        }
+
+        private final class CountingInputStream extends FilterInputStream
+        {
+            CountingInputStream(InputStream in)
+            {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException
+            {
+                int b = super.read();
+                if (b == -1)
+                {
+                    send(null);
+                }
+                else
+                {
+                    bytesReceived++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException
+            {
+                int read = super.read(buffer, offset, count);
+                if (read == -1)
+                {
+                    send(null);
+                }
+                else
+                {
+                    bytesReceived += read;
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException
+            {
+                long skipped = super.skip(n);
+                bytesReceived += skipped;
+                return skipped;
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+                super.close();
+                send(null);
+            }
+        }
+    }
+}
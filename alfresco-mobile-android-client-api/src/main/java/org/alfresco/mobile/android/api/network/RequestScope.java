@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.network;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cancellation scope of the requests made by one thread. <br/>
+ * While a scope is opened on a thread, the HTTP invokers register each
+ * connection they open. Cancelling the scope aborts these connections : the
+ * blocked read or write fails immediately and the service call ends with an
+ * exception. Connections opened after the cancellation are aborted as soon as
+ * they are registered. <br/>
+ * Requests made outside a scope are not tracked.
+ *
+ * @since 1.5.1
+ */
+public final class RequestScope
+{
+    /** Connection which can be aborted from another thread. */
+    public interface Abortable
+    {
+        void abort();
+    }
+
+    private static final ThreadLocal<RequestScope> CURRENT = new ThreadLocal<RequestScope>();
+
+    private final List<Abortable> requests = new ArrayList<Abortable>(2);
+
+    private boolean cancelled = false;
+
+    private RequestScope()
+    {
+    }
+
+    // ////////////////////////////////////////////////////
+    // LIFECYCLE
+    // ////////////////////////////////////////////////////
+    /**
+     * Opens a new scope on the current thread. The scope must be closed by the
+     * same thread with {@link #close()}.
+     */
+    public static RequestScope open()
+    {
+        RequestScope scope = new RequestScope();
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /** Detaches the scope from the current thread and forgets its requests. */
+    public void close()
+    {
+        if (CURRENT.get() == this)
+        {
+            CURRENT.remove();
+        }
+        synchronized (requests)
+        {
+            requests.clear();
+        }
+    }
+
+    /** Aborts all requests registered in the scope. Can be called by any thread. */
+    public void cancel()
+    {
+        Abortable[] pending;
+        synchronized (requests)
+        {
+            if (cancelled) { return; }
+            cancelled = true;
+            pending = requests.toArray(new Abortable[requests.size()]);
+            requests.clear();
+        }
+        for (Abortable request : pending)
+        {
+            abort(request);
+        }
+    }
+
+    public boolean isCancelled()
+    {
+        synchronized (requests)
+        {
+            return cancelled;
+        }
+    }
+
+    // ////////////////////////////////////////////////////
+    // REGISTRATION
+    // ////////////////////////////////////////////////////
+    /**
+     * Registers a request in the scope of the current thread. Does nothing if
+     * no scope is opened.
+     */
+    public static void register(Abortable request)
+    {
+        RequestScope scope = CURRENT.get();
+        if (scope == null) { return; }
+        synchronized (scope.requests)
+        {
+            if (!scope.cancelled)
+            {
+                scope.requests.add(request);
+                return;
+            }
+        }
+        abort(request);
+    }
+
+    private static void abort(Abortable request)
+    {
+        try
+        {
+            request.abort();
+        }
+        catch (RuntimeException e)
+        {
+            // Connection already closed.
+        }
+    }
+}
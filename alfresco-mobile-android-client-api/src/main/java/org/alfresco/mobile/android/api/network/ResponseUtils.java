@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.network;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+
+/**
+ * Helpers to rebuild HTTP responses around another body stream.
+ *
+ * @since 1.5.1
+ */
+final class ResponseUtils
+{
+    private static final String CONTENT_LENGTH = "Content-Length";
+
+    /** Headers describing the raw body : they don't apply to a decoded body. */
+    private static final String[] ENCODING_HEADERS = { "Content-Encoding", "Content-Transfer-Encoding",
+            CONTENT_LENGTH };
+
+    private ResponseUtils()
+    {
+    }
+
+    /**
+     * @param response : successful response.
+     * @param stream : decoded body which replaces the body of the response.
+     *            It must have the same length as the decoded body.
+     * @return copy of the response with the new body. Content-Length is kept
+     *         if the body wasn't encoded.
+     */
+    static Response withStream(Response response, InputStream stream)
+    {
+        Map<String, List<String>> headers = removeEncodingHeaders(response.getHeaders());
+        if (!isEncoded(response.getHeaders()) && response.getContentLength() != null)
+        {
+            setContentLength(headers, response.getContentLength().longValue());
+        }
+        return new Response(response.getResponseCode(), response.getResponseMessage(), headers, stream, null);
+    }
+
+    /**
+     * @param response : response of any status.
+     * @param stream : filter of the body of the response which doesn't change
+     *            its content.
+     * @return copy of the response with the new body. Content-Length keeps its
+     *         value : the response looks the same to the caller.
+     */
+    static Response withCountedStream(Response response, InputStream stream)
+    {
+        Map<String, List<String>> headers = removeEncodingHeaders(response.getHeaders());
+        if (response.getContentLength() != null)
+        {
+            setContentLength(headers, response.getContentLength().longValue());
+        }
+        return new Response(response.getResponseCode(), response.getResponseMessage(), headers, stream, null);
+    }
+
+    /** Defines the Content-Length header of a decoded body. */
+    static void setContentLength(Map<String, List<String>> headers, long length)
+    {
+        headers.put(CONTENT_LENGTH, Collections.singletonList(Long.toString(length)));
+    }
+
+    /** @return true if the raw body is encoded (compression or transfer encoding). */
+    private static boolean isEncoded(Map<String, List<String>> headers)
+    {
+        if (headers == null) { return false; }
+        for (Map.Entry<String, List<String>> header : headers.entrySet())
+        {
+            if (header.getKey() == null || CONTENT_LENGTH.equalsIgnoreCase(header.getKey()))
+            {
+                continue;
+            }
+            for (String name : ENCODING_HEADERS)
+            {
+                if (name.equalsIgnoreCase(header.getKey())) { return true; }
+            }
+        }
+        return false;
+    }
+
+    /** @return copy of the headers without the headers describing the raw body. */
+    static Map<String, List<String>> removeEncodingHeaders(Map<String, List<String>> headers)
+    {
+        Map<String, List<String>> result = new LinkedHashMap<String, List<String>>();
+        if (headers == null) { return result; }
+        for (Map.Entry<String, List<String>> header : headers.entrySet())
+        {
+            boolean encoding = false;
+            for (String name : ENCODING_HEADERS)
+            {
+                if (name.equalsIgnoreCase(header.getKey()))
+                {
+                    encoding = true;
+                    break;
+                }
+            }
+            if (!encoding)
+            {
+                result.put(header.getKey(), header.getValue());
+            }
+        }
+        return result;
+    }
+}
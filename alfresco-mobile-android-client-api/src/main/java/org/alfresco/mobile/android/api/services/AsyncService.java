@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.services;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Runs calls of any SDK service in background threads. <br/>
+ * Each operation is a {@link Callable} calling one or more service methods
+ * e.g.
+ *
+ * <pre>
+ * Task&lt;Folder&gt; task = asyncService.submit(new Callable&lt;Folder&gt;()
+ * {
+ *     public Folder call()
+ *     {
+ *         return docFolderService.getRootFolder();
+ *     }
+ * });
+ * </pre>
+ *
+ * Operations run on a bounded thread pool shared by all services of the
+ * session. Its size is defined by the session parameter
+ * {@link org.alfresco.mobile.android.api.session.AlfrescoSession#ASYNC_THREADS
+ * ASYNC_THREADS}. <br/>
+ * Cancelling a running task aborts the HTTP connections opened by the task :
+ * the service call ends immediately instead of waiting for the network.
+ *
+ * @since 1.5.1
+ */
+public interface AsyncService
+{
+    /**
+     * Receives the result of a task. Methods are called by the thread which
+     * ran the task. They are not called if the task is cancelled.
+     */
+    public interface Callback<T>
+    {
+        void onSuccess(T result);
+
+        /**
+         * @param exception : runtime exception thrown by the operation or
+         *            AlfrescoServiceException wrapping a checked exception.
+         */
+        void onFailure(Exception exception);
+    }
+
+    /**
+     * Handle of a submitted operation.
+     */
+    public interface Task<T> extends Future<T>
+    {
+        /**
+         * Waits for the end of the task and returns its result.
+         *
+         * @return result of the operation.
+         * @throws RuntimeException : runtime exception thrown by the
+         *             operation. Checked exceptions are wrapped in an
+         *             AlfrescoServiceException.
+         * @throws java.util.concurrent.CancellationException : if the task
+         *             has been cancelled.
+         */
+        T getResult();
+    }
+
+    /**
+     * Runs an operation in background.
+     *
+     * @param operation : calls to service methods.
+     * @return handle of the task.
+     */
+    <T> Task<T> submit(Callable<T> operation);
+
+    /**
+     * Runs an operation in background and notifies the callback at the end.
+     *
+     * @param operation : calls to service methods.
+     * @param callback : receives the result. Can be null.
+     * @return handle of the task.
+     */
+    <T> Task<T> submit(Callable<T> operation, Callback<T> callback);
+
+    /**
+     * Runs independent operations concurrently. <br/>
+     * The task succeeds when all operations have succeeded. If one operation
+     * fails, the others are cancelled and the task fails with the same
+     * exception. Cancelling the task cancels all operations.
+     *
+     * @param operations : independent operations.
+     * @param callback : receives the results. Can be null.
+     * @return handle of the task. Its result contains the result of each
+     *         operation in the order of the list.
+     */
+    Task<List<Object>> submitAll(List<? extends Callable<?>> operations, Callback<List<Object>> callback);
+
+    /**
+     * Cancels all tasks and releases the threads. The service can't be used
+     * anymore.
+     */
+    void shutdown();
+}
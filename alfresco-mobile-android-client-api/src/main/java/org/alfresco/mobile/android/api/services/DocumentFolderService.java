@@ -77,6 +77,20 @@ public interface DocumentFolderService extends Service
      */
     String FILTER_INCLUDE_LINKS = "filterIncludeLinks";
 
+    /**
+     * Filter to list folders or documents with a repository query (CMIS
+     * IN_FOLDER). Only the requested type is sent by the server, with a
+     * reduced set of properties (
+     * {@link org.alfresco.mobile.android.api.model.Node#hasAllProperties()
+     * hasAllProperties} returns false). <br/>
+     * Used by {@link #getFolders(Folder, ListingContext)} and
+     * {@link #getDocuments(Folder, ListingContext)}. As results come from the
+     * repository index, a node created a few seconds ago may be missing.
+     * 
+     * @since 1.5.1
+     */
+    String FILTER_TYPED_LISTING = "filterTypedListing";
+
     /**
      * Lists all immediate child nodes of the given context folder. </br> By
      * default, this list contains a maximum of 50 elements. </br> Use
@@ -91,7 +105,14 @@ public interface DocumentFolderService extends Service
     List<Node> getChildren(Folder folder);
 
     /**
-     * Lists immediate child nodes of the given context folder.
+     * Lists immediate child nodes of the given context folder. <br/>
+     * The paging result is also an {@link Iterable} which creates each node
+     * only when it's consumed. <br/>
+     * If
+     * {@link org.alfresco.mobile.android.api.session.AlfrescoSession#CACHE_METADATA
+     * CACHE_METADATA} is enabled, all children are retrieved and stored at
+     * the first listing. Next listings are served by the store until
+     * {@link #synchronizeMetadata()} updates it.
      * 
      * @param folder : context folder
      * @param listingContext : Listing context that define the behaviour of
@@ -408,6 +429,65 @@ public interface DocumentFolderService extends Service
      */
     Node addAspects(Node node, List<String> aspects);
 
+    /**
+     * Deletes the specified nodes. Folders are deleted with their content.
+     * <br/>
+     * Unlike {@link #deleteNode(Node)}, permissions are not evaluated before
+     * each deletion : nodes the user can't delete fail with an access denied
+     * error.
+     * 
+     * @param nodes : Nodes to delete (Folder or Document).
+     * @param context : concurrency and error policy. Can be null.
+     * @return outcome of each node.
+     * @throws IllegalArgumentException : if nodes is null.
+     * @since 1.5.1
+     */
+    BulkOperationResult deleteNodes(List<Node> nodes, BulkOperationContext context);
+
+    /**
+     * Moves the specified nodes from one folder to another.
+     * 
+     * @param nodes : Nodes to move.
+     * @param sourceFolder : current parent folder of the nodes. If null, the
+     *            parent folder of each node is retrieved first.
+     * @param targetFolder : new parent folder of the nodes.
+     * @param context : concurrency, refresh and error policy. Can be null.
+     * @return outcome of each node.
+     * @throws IllegalArgumentException : if nodes or targetFolder is null.
+     * @since 1.5.1
+     */
+    BulkOperationResult moveNodes(List<Node> nodes, Folder sourceFolder, Folder targetFolder,
+            BulkOperationContext context);
+
+    /**
+     * Updates the same properties on the specified nodes and applies the
+     * given aspects. <br/>
+     * Updated nodes are retrieved only if
+     * {@link BulkOperationContext#isRefreshNodes()} is true.
+     * 
+     * @param nodes : Nodes to update
+     * @param properties : Properties to update.
+     * @param aspects : list of aspects to apply. Can be null.
+     * @param context : concurrency, refresh and error policy. Can be null.
+     * @return outcome of each node.
+     * @throws IllegalArgumentException : if nodes or properties is null.
+     * @since 1.5.1
+     */
+    BulkOperationResult updateProperties(List<Node> nodes, Map<String, Serializable> properties,
+            List<String> aspects, BulkOperationContext context);
+
+    /**
+     * Adds the given aspects to the specified nodes.
+     * 
+     * @param nodes : Nodes to update
+     * @param aspects : list of aspects to apply
+     * @param context : concurrency, refresh and error policy. Can be null.
+     * @return outcome of each node.
+     * @throws IllegalArgumentException : if nodes is null.
+     * @since 1.5.1
+     */
+    BulkOperationResult addAspects(List<Node> nodes, List<String> aspects, BulkOperationContext context);
+
     /**
      * Updates the content on the given document using the provided local file.
      * 
@@ -568,4 +648,21 @@ public interface DocumentFolderService extends Service
      */
     Node refreshNode(Node node);
 
+    /**
+     * Updates folders stored by
+     * {@link #getChildren(Folder, ListingContext) getChildren} when
+     * {@link org.alfresco.mobile.android.api.session.AlfrescoSession#CACHE_METADATA
+     * CACHE_METADATA} is enabled. <br/>
+     * If the repository provides a change log, only created, updated and
+     * deleted nodes since the previous synchronization are retrieved.
+     * Otherwise the change token of each stored folder is compared with the
+     * repository and children of changed folders are listed again.
+     * 
+     * @return number of changes applied to stored folders.
+     * @throws AlfrescoServiceException : if network or internal problems occur
+     *             during the process.
+     * @since 1.5.1
+     */
+    int synchronizeMetadata();
+
 }
@@ -94,4 +94,15 @@ public interface ModelDefinitionService extends Service
      */
     public TaskTypeDefinition getTaskTypeDefinition(Task task);
 
+    /**
+     * Retrieves all type and aspect definitions of the repository in one
+     * request. Definitions are then served without network round trips for
+     * the lifetime of the session (and at the next start if
+     * {@link org.alfresco.mobile.android.api.session.AlfrescoSession#CACHE_MODEL_PERSIST
+     * CACHE_MODEL_PERSIST} is enabled).
+     * 
+     * @since 1.5.1
+     */
+    public void preloadDefinitions();
+
 }
@@ -91,4 +91,12 @@ public interface ServiceRegistry extends Parcelable
      */
     ModelDefinitionService getModelDefinitionService();
 
+    /**
+     * Returns the AsyncService instance for the session. It runs calls of the
+     * other services in background.
+     * 
+     * @since 1.5.1
+     */
+    AsyncService getAsyncService();
+
 }
@@ -0,0 +1,658 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.services.cache.impl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.mobile.android.api.model.ContentFile;
+import org.alfresco.mobile.android.api.model.impl.ContentFileImpl;
+import org.alfresco.mobile.android.api.utils.IOUtils;
+
+import android.util.Log;
+
+/**
+ * Size bounded disk cache for content and renditions. <br/>
+ * Each entry is identified by a key (relative path of the file inside the
+ * cache folder) and validated by a stamp (change token or last modification
+ * date of the node). An entry is served only if its stamp is equal to the
+ * current stamp of the node. <br/>
+ * Entries are evicted in least recently used order when the total size of the
+ * cache exceeds the maximum size. Files returned by the cache are not locked :
+ * a file is only valid until the next put, which can evict it. Callers that
+ * keep a file longer must open it right away or copy it. All operations are recorded inside a journal
+ * so the cache index survives application restarts and crashes. Reads are
+ * only buffered : after a crash the least recently used order may be slightly
+ * outdated but no entry is lost.
+ *
+ * @since 1.5.1
+ */
+public final class ContentCache
+{
+    private static final String TAG = ContentCache.class.getName();
+
+    /** Default maximum size of the cache : 100 MB. */
+    public static final long DEFAULT_MAX_SIZE = 100L * 1024 * 1024;
+
+    private static final String JOURNAL_FILE = "cache.journal";
+
+    private static final String JOURNAL_FILE_TMP = "cache.journal.tmp";
+
+    private static final String JOURNAL_MAGIC = "alfresco.content.cache";
+
+    private static final String JOURNAL_VERSION = "1";
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final String PART_SUFFIX = ".part";
+
+    private static final String PUT = "PUT";
+
+    private static final String READ = "READ";
+
+    private static final String REMOVE = "REMOVE";
+
+    private static final String SEPARATOR = "\t";
+
+    private static final String ENCODING = "UTF-8";
+
+    /** Journal is compacted when it contains more redundant operations. */
+    private static final int COMPACT_THRESHOLD = 2000;
+
+    private static final Map<String, ContentCache> CACHES = new HashMap<String, ContentCache>();
+
+    private final File directory;
+
+    private long maxSize;
+
+    private long size;
+
+    /** Access ordered : first entry is the least recently used. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    private Writer journalWriter;
+
+    private int redundantOperations;
+
+    private int hitCount;
+
+    private int missCount;
+
+    private int putCount;
+
+    private int evictionCount;
+
+    // ///////////////////////////////////////////////////////////////////////////
+    // CONSTRUCTORS
+    // ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns the cache associated to the directory. Caches are shared between
+     * sessions using the same cache folder.
+     *
+     * @param directory : cache folder
+     * @param maxSize : maximum size in bytes of the cache.
+     * @return content cache associated to the directory.
+     */
+    public static ContentCache getInstance(File directory, long maxSize)
+    {
+        String path = directory.getAbsolutePath();
+        synchronized (CACHES)
+        {
+            ContentCache cache = CACHES.get(path);
+            if (cache == null)
+            {
+                cache = new ContentCache(directory, maxSize);
+                CACHES.put(path, cache);
+            }
+            else
+            {
+                cache.setMaxSize(maxSize);
+            }
+            return cache;
+        }
+    }
+
+    private ContentCache(File directory, long maxSize)
+    {
+        this.directory = directory;
+        this.maxSize = (maxSize > 0) ? maxSize : DEFAULT_MAX_SIZE;
+        synchronized (this)
+        {
+            readJournal();
+            rebuildJournal();
+        }
+    }
+
+    // ///////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS
+    // ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns the cached content if the cache contains an entry for this key
+     * with the same stamp.
+     *
+     * @param key : relative path of the entry inside the cache folder.
+     * @param stamp : current change token or modification date of the node. If
+     *            null the cache is never used.
+     * @return cached content or null if there's no fresh entry. The file is
+     *         only valid until the next put : it can be evicted.
+     */
+    public synchronized ContentFile get(String key, String stamp)
+    {
+        Entry entry = entries.get(key);
+        if (stamp == null || entry == null || !stamp.equals(entry.stamp))
+        {
+            missCount++;
+            return null;
+        }
+
+        File f = getFile(key);
+        if (!f.exists() || f.length() != entry.length)
+        {
+            // File removed by someone else.
+            remove(key);
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        writeJournal(READ, key);
+        return new ContentFileImpl(f, entry.fileName, entry.mimeType);
+    }
+
+    /**
+     * @param key : relative path of the entry inside the cache folder.
+     * @return stamp of the entry or null if the cache doesn't contain it.
+     */
+    public synchronized String getStamp(String key)
+    {
+        Entry entry = entries.get(key);
+        return (entry != null) ? entry.stamp : null;
+    }
+
+    /**
+     * Stores the stream inside the cache. The stream is always closed.
+     *
+     * @param key : relative path of the entry inside the cache folder.
+     * @param stamp : change token or modification date of the node. Can be
+     *            null.
+     * @param stream : content to store
+     * @param fileName : name of the content
+     * @param mimeType : mimetype of the content
+     * @return content file associated to the cache entry. The file is only
+     *         valid until the next put : it can be evicted.
+     * @throws IOException : if the content can't be written.
+     */
+    public ContentFile put(String key, String stamp, InputStream stream, String fileName, String mimeType)
+            throws IOException
+    {
+        // Download is done outside the lock inside a temporary file.
+        File f = getFile(key);
+        File tmp = new File(f.getParentFile(), f.getName() + "-" + Thread.currentThread().getId() + TMP_SUFFIX);
+        f.getParentFile().mkdirs();
+        try
+        {
+            IOUtils.copyStream(stream, new FileOutputStream(tmp));
+        }
+        catch (IOException e)
+        {
+            tmp.delete();
+            throw e;
+        }
+
+        return putFile(key, stamp, tmp, fileName, mimeType);
+    }
+
+    /**
+     * Returns the file where a partial download of the entry can be kept
+     * between two attempts. Once complete the file must be stored with
+     * {@link #putFile(String, String, File, String, String)}.
+     *
+     * @param key : relative path of the entry inside the cache folder.
+     * @return partial file.
+     */
+    public File getPartialFile(String key)
+    {
+        File f = getFile(key);
+        f.getParentFile().mkdirs();
+        return new File(f.getParentFile(), f.getName() + PART_SUFFIX);
+    }
+
+    /**
+     * Stores a complete local file inside the cache. The file is moved.
+     *
+     * @param key : relative path of the entry inside the cache folder.
+     * @param stamp : change token or modification date of the node. Can be
+     *            null.
+     * @param tmp : complete file to move inside the cache.
+     * @param fileName : name of the content
+     * @param mimeType : mimetype of the content
+     * @return content file associated to the cache entry. The file is only
+     *         valid until the next put : it can be evicted.
+     * @throws IOException : if the file can't be moved.
+     */
+    public ContentFile putFile(String key, String stamp, File tmp, String fileName, String mimeType)
+            throws IOException
+    {
+        File f = getFile(key);
+        synchronized (this)
+        {
+            Entry previous = entries.remove(key);
+            if (previous != null)
+            {
+                size -= previous.length;
+            }
+            if (f.exists() && !f.delete())
+            {
+                tmp.delete();
+                throw new IOException("Unable to replace " + f.getPath());
+            }
+            if (!tmp.renameTo(f))
+            {
+                tmp.delete();
+                throw new IOException("Unable to rename " + tmp.getPath());
+            }
+
+            Entry entry = new Entry(stamp, f.length(), fileName, mimeType);
+            entries.put(key, entry);
+            size += entry.length;
+            putCount++;
+            writeJournal(PUT, key, entry.stamp, Long.toString(entry.length), entry.mimeType, entry.fileName);
+            trimToSize(key);
+
+            return new ContentFileImpl(f, fileName, mimeType);
+        }
+    }
+
+    /**
+     * Removes the entry and its file from the cache.
+     *
+     * @param key : relative path of the entry inside the cache folder.
+     */
+    public synchronized void remove(String key)
+    {
+        Entry entry = entries.remove(key);
+        if (entry != null)
+        {
+            size -= entry.length;
+            getFile(key).delete();
+            writeJournal(REMOVE, key);
+        }
+    }
+
+    /**
+     * Removes all entries and their files.
+     */
+    public synchronized void clear()
+    {
+        for (String key : entries.keySet())
+        {
+            getFile(key).delete();
+        }
+        entries.clear();
+        size = 0;
+        rebuildJournal();
+    }
+
+    /**
+     * Modifies the maximum size of the cache. Entries are evicted if
+     * necessary.
+     */
+    public synchronized void setMaxSize(long maxSize)
+    {
+        if (maxSize > 0 && maxSize != this.maxSize)
+        {
+            this.maxSize = maxSize;
+            trimToSize(null);
+        }
+    }
+
+    /**
+     * @return cache folder
+     */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * @return snapshot of cache counters.
+     */
+    public synchronized Statistics getStatistics()
+    {
+        return new Statistics(this);
+    }
+
+    // ///////////////////////////////////////////////////////////////////////////
+    // INTERNALS
+    // ///////////////////////////////////////////////////////////////////////////
+    private File getFile(String key)
+    {
+        return new File(directory, key);
+    }
+
+    /**
+     * Evicts least recently used entries until the cache fits its maximum
+     * size. The entry identified by keptKey is never evicted so the caller
+     * always gets back the file it has just stored. Files of other entries are
+     * deleted even if they have been returned before.
+     */
+    private void trimToSize(String keptKey)
+    {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        Map.Entry<String, Entry> eldest = null;
+        while (size > maxSize && iterator.hasNext())
+        {
+            eldest = iterator.next();
+            if (eldest.getKey().equals(keptKey))
+            {
+                continue;
+            }
+            iterator.remove();
+            size -= eldest.getValue().length;
+            getFile(eldest.getKey()).delete();
+            writeJournal(REMOVE, eldest.getKey());
+            evictionCount++;
+        }
+    }
+
+    private void readJournal()
+    {
+        File journal = new File(directory, JOURNAL_FILE);
+        if (!journal.exists()) { return; }
+
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(journal), ENCODING));
+            if (!JOURNAL_MAGIC.equals(reader.readLine()) || !JOURNAL_VERSION.equals(reader.readLine())) { return; }
+
+            String line = null;
+            String[] values = null;
+            while ((line = reader.readLine()) != null)
+            {
+                values = line.split(SEPARATOR, -1);
+                if (PUT.equals(values[0]) && values.length == 6)
+                {
+                    entries.put(decode(values[1]), new Entry(decode(values[2]), Long.parseLong(values[3]),
+                            decode(values[5]), decode(values[4])));
+                }
+                else if (READ.equals(values[0]) && values.length == 2)
+                {
+                    entries.get(decode(values[1]));
+                }
+                else if (REMOVE.equals(values[0]) && values.length == 2)
+                {
+                    entries.remove(decode(values[1]));
+                }
+                // Otherwise truncated line after a crash : ignored.
+            }
+        }
+        catch (Exception e)
+        {
+            Log.w(TAG, "Unable to read cache journal : " + e.getMessage());
+        }
+        finally
+        {
+            IOUtils.closeStream(reader);
+        }
+
+        // Drop entries whose file is missing or incomplete.
+        List<String> invalidKeys = new ArrayList<String>();
+        File f = null;
+        for (Map.Entry<String, Entry> entry : entries.entrySet())
+        {
+            f = getFile(entry.getKey());
+            if (!f.exists() || f.length() != entry.getValue().length)
+            {
+                invalidKeys.add(entry.getKey());
+            }
+            else
+            {
+                size += entry.getValue().length;
+            }
+        }
+        for (String key : invalidKeys)
+        {
+            entries.remove(key);
+            getFile(key).delete();
+        }
+    }
+
+    /**
+     * Writes a compact journal containing only current entries.
+     */
+    private void rebuildJournal()
+    {
+        IOUtils.closeStream(journalWriter);
+        journalWriter = null;
+
+        directory.mkdirs();
+        File journal = new File(directory, JOURNAL_FILE);
+        File journalTmp = new File(directory, JOURNAL_FILE_TMP);
+        Writer writer = null;
+        try
+        {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalTmp), ENCODING));
+            writer.write(JOURNAL_MAGIC + "\n" + JOURNAL_VERSION + "\n");
+            for (Map.Entry<String, Entry> entry : entries.entrySet())
+            {
+                writer.write(formatLine(PUT, entry.getKey(), entry.getValue().stamp,
+                        Long.toString(entry.getValue().length), entry.getValue().mimeType,
+                        entry.getValue().fileName));
+            }
+            writer.close();
+            writer = null;
+
+            if (journal.exists() && !journal.delete()) { throw new IOException("Unable to delete journal"); }
+            if (!journalTmp.renameTo(journal)) { throw new IOException("Unable to rename journal"); }
+
+            journalWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journal, true), ENCODING));
+            redundantOperations = 0;
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Unable to write cache journal : " + e.getMessage());
+        }
+        finally
+        {
+            IOUtils.closeStream(writer);
+        }
+    }
+
+    /**
+     * Appends an operation to the journal. PUT and REMOVE are flushed
+     * immediately, READ stays buffered until the next flush.
+     */
+    private void writeJournal(String operation, String... values)
+    {
+        if (journalWriter == null) { return; }
+        try
+        {
+            journalWriter.write(formatLine(operation, values));
+            if (!READ.equals(operation))
+            {
+                journalWriter.flush();
+            }
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Unable to write cache journal : " + e.getMessage());
+        }
+
+        redundantOperations++;
+        if (redundantOperations >= COMPACT_THRESHOLD && redundantOperations >= entries.size())
+        {
+            rebuildJournal();
+        }
+    }
+
+    private static String formatLine(String operation, String... values)
+    {
+        StringBuilder sb = new StringBuilder(operation);
+        for (String value : values)
+        {
+            sb.append(SEPARATOR).append(encode(value));
+        }
+        return sb.append("\n").toString();
+    }
+
+    private static String encode(String value)
+    {
+        if (value == null) { return ""; }
+        try
+        {
+            return URLEncoder.encode(value, ENCODING);
+        }
+        catch (IOException e)
+        {
+            return "";
+        }
+    }
+
+    private static String decode(String value)
+    {
+        if (value == null || value.length() == 0) { return null; }
+        try
+        {
+            return URLDecoder.decode(value, ENCODING);
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    private static final class Entry
+    {
+        private final String stamp;
+
+        private final long length;
+
+        private final String fileName;
+
+        private final String mimeType;
+
+        private Entry(String stamp, long length, String fileName, String mimeType)
+        {
+            this.stamp = stamp;
+            this.length = length;
+            this.fileName = fileName;
+            this.mimeType = mimeType;
+        }
+    }
+
+    // ///////////////////////////////////////////////////////////////////////////
+    // STATISTICS
+    // ///////////////////////////////////////////////////////////////////////////
+    /**
+     * Snapshot of the cache counters.
+     */
+    public static final class Statistics
+    {
+        private final long size;
+
+        private final long maxSize;
+
+        private final int entryCount;
+
+        private final int hitCount;
+
+        private final int missCount;
+
+        private final int putCount;
+
+        private final int evictionCount;
+
+        private Statistics(ContentCache cache)
+        {
+            this.size = cache.size;
+            this.maxSize = cache.maxSize;
+            this.entryCount = cache.entries.size();
+            this.hitCount = cache.hitCount;
+            this.missCount = cache.missCount;
+            this.putCount = cache.putCount;
+            this.evictionCount = cache.evictionCount;
+        }
+
+        /** @return total size in bytes of cached files. */
+        public long getSize()
+        {
+            return size;
+        }
+
+        /** @return maximum size in bytes of the cache. */
+        public long getMaxSize()
+        {
+            return maxSize;
+        }
+
+        /** @return number of entries. */
+        public int getEntryCount()
+        {
+            return entryCount;
+        }
+
+        /** @return number of requests served by the cache. */
+        public int getHitCount()
+        {
+            return hitCount;
+        }
+
+        /** @return number of requests not served by the cache. */
+        public int getMissCount()
+        {
+            return missCount;
+        }
+
+        /** @return number of stored entries. */
+        public int getPutCount()
+        {
+            return putCount;
+        }
+
+        /** @return number of entries evicted to respect the maximum size. */
+        public int getEvictionCount()
+        {
+            return evictionCount;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "ContentCache[size=" + size + ", maxSize=" + maxSize + ", entries=" + entryCount + ", hits="
+                    + hitCount + ", misses=" + missCount + ", puts=" + putCount + ", evictions=" + evictionCount
+                    + "]";
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.services.cache.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.mobile.android.api.model.ListingContext;
+import org.alfresco.mobile.android.api.model.PagingResult;
+import org.alfresco.mobile.android.api.model.impl.PagingResultImpl;
+import org.alfresco.mobile.android.api.session.AlfrescoSession;
+
+/**
+ * Memory cache of complete listings returned by REST APIs without paging
+ * parameters. <br/>
+ * The first page of a listing downloads and parses the whole listing once :
+ * next pages are served from memory until the listing expires. Listings are
+ * identified by their url. The most recently used listings are kept.
+ *
+ * @since 1.5.1
+ */
+public final class ListingCache
+{
+    /** Default validity of a listing : 1 minute. */
+    public static final long DEFAULT_TTL = 60 * 1000;
+
+    /** Maximum number of listings kept. */
+    private static final int MAX_LISTINGS = 20;
+
+    private final long ttl;
+
+    private final Map<String, Entry> listings = new LinkedHashMap<String, Entry>(MAX_LISTINGS, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+        {
+            return size() > MAX_LISTINGS;
+        }
+    };
+
+    /**
+     * @param ttl : validity of a listing in milliseconds. 0 to disable the
+     *            cache.
+     */
+    public ListingCache(long ttl)
+    {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Creates the cache of a service. The validity is defined by
+     * {@link AlfrescoSession#LISTING_CACHE_TTL}.
+     */
+    public static ListingCache create(AlfrescoSession session)
+    {
+        long ttl = DEFAULT_TTL;
+        Serializable value = (session != null) ? session.getParameter(AlfrescoSession.LISTING_CACHE_TTL) : null;
+        if (value instanceof Number)
+        {
+            ttl = ((Number) value).longValue();
+        }
+        else if (value != null)
+        {
+            try
+            {
+                ttl = Long.parseLong(value.toString());
+            }
+            catch (NumberFormatException e)
+            {
+                // Default value
+            }
+        }
+        return new ListingCache(ttl);
+    }
+
+    /**
+     * @param key : url of the listing.
+     * @return the complete listing or null if it's not cached or expired.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(String key)
+    {
+        synchronized (listings)
+        {
+            Entry entry = listings.get(key);
+            if (entry == null) { return null; }
+            if (System.currentTimeMillis() - entry.timestamp >= ttl)
+            {
+                listings.remove(key);
+                return null;
+            }
+            return (List<T>) entry.items;
+        }
+    }
+
+    /**
+     * Keeps a complete listing. Does nothing if the cache is disabled.
+     */
+    public void put(String key, List<?> items)
+    {
+        if (ttl <= 0) { return; }
+        synchronized (listings)
+        {
+            listings.put(key, new Entry(Collections.unmodifiableList(new ArrayList<Object>(items))));
+        }
+    }
+
+    /** Removes all listings e.g. after a modification. */
+    public void clear()
+    {
+        synchronized (listings)
+        {
+            listings.clear();
+        }
+    }
+
+    // ////////////////////////////////////////////////////
+    // PAGING
+    // ////////////////////////////////////////////////////
+    /**
+     * Extracts the window defined by the listing context from a complete
+     * listing.
+     *
+     * @param items : complete listing.
+     * @param listingContext : window to return. Null for the whole listing.
+     * @return page of the listing. Its total is the size of the listing.
+     */
+    public static <T> PagingResult<T> page(List<T> items, ListingContext listingContext)
+    {
+        int size = items.size();
+        if (listingContext == null) { return new PagingResultImpl<T>(new ArrayList<T>(items), false, size); }
+
+        int fromIndex = Math.min(Math.max(listingContext.getSkipCount(), 0), size);
+        int toIndex = size;
+        boolean hasMoreItems = false;
+        if (listingContext.getMaxItems() >= 0 && (long) fromIndex + listingContext.getMaxItems() < size)
+        {
+            toIndex = fromIndex + listingContext.getMaxItems();
+            hasMoreItems = true;
+        }
+        return new PagingResultImpl<T>(new ArrayList<T>(items.subList(fromIndex, toIndex)), hasMoreItems, size);
+    }
+
+    private static final class Entry
+    {
+        private final List<?> items;
+
+        private final long timestamp = System.currentTimeMillis();
+
+        Entry(List<?> items)
+        {
+            this.items = items;
+        }
+    }
+}
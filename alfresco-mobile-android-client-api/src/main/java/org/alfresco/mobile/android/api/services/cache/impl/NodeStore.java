@@ -0,0 +1,491 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.services.cache.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.alfresco.mobile.android.api.model.Node;
+import org.alfresco.mobile.android.api.utils.IOUtils;
+import org.alfresco.mobile.android.api.utils.NodeRefUtils;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+
+import android.util.Log;
+import android.util.LruCache;
+
+/**
+ * Local store of folder children of one repository and one user. <br/>
+ * Each stored folder keeps the complete list of its children inside its own
+ * file. An index file keeps the change token of stored folders, the parent
+ * folder of stored nodes and the change log token of the last
+ * synchronization. Children of recently used folders stay in memory. <br/>
+ * Nodes are identified by their identifier without version label.
+ *
+ * @since 1.5.1
+ */
+public final class NodeStore
+{
+    private static final String TAG = NodeStore.class.getName();
+
+    private static final int FILE_VERSION = 1;
+
+    private static final String INDEX_FILE = "index";
+
+    private static final String FOLDER_SUFFIX = ".folder";
+
+    private static final int MAX_LOADED_FOLDERS = 20;
+
+    private final File folder;
+
+    private final String repositoryKey;
+
+    /** Change token of stored folders by folder identifier. */
+    private final Map<String, String> folderTokens = new HashMap<String, String>();
+
+    /** Parent folder of stored nodes by node identifier. */
+    private final Map<String, String> parents = new HashMap<String, String>();
+
+    /** Children of recently used folders. */
+    private final LruCache<String, List<Node>> children = new LruCache<String, List<Node>>(MAX_LOADED_FOLDERS);
+
+    private String changeLogToken;
+
+    private boolean loaded;
+
+    /**
+     * @param folder : folder of the store files.
+     * @param repositoryKey : identifies the repository and its version.
+     */
+    public NodeStore(File folder, String repositoryKey)
+    {
+        this.folder = folder;
+        this.repositoryKey = repositoryKey;
+    }
+
+    // ////////////////////////////////////////////////////
+    // READ
+    // ////////////////////////////////////////////////////
+    /**
+     * @param folderIdentifier : identifier of the folder.
+     * @return read only list of children or null if the folder is not stored.
+     *         Children are not sorted : updated nodes keep their position and
+     *         added nodes are appended.
+     */
+    public synchronized List<Node> getChildren(String folderIdentifier)
+    {
+        load();
+        String folderId = getKey(folderIdentifier);
+        if (folderId == null || !folderTokens.containsKey(folderId)) { return null; }
+
+        List<Node> nodes = children.get(folderId);
+        if (nodes == null)
+        {
+            nodes = readFolder(folderId);
+            if (nodes == null)
+            {
+                removeFolder(folderId);
+                return null;
+            }
+            children.put(folderId, nodes);
+        }
+        return nodes;
+    }
+
+    /** @return true if the children of the folder are stored. */
+    public synchronized boolean contains(String folderIdentifier)
+    {
+        load();
+        String folderId = getKey(folderIdentifier);
+        return folderId != null && folderTokens.containsKey(folderId);
+    }
+
+    /** @return identifiers of stored folders. */
+    public synchronized Set<String> getFolderIdentifiers()
+    {
+        load();
+        return new HashSet<String>(folderTokens.keySet());
+    }
+
+    /** @return change token of the folder when its children were stored. */
+    public synchronized String getFolderChangeToken(String folderIdentifier)
+    {
+        load();
+        return folderTokens.get(getKey(folderIdentifier));
+    }
+
+    /** @return identifier of the stored folder which contains the node. */
+    public synchronized String getParentIdentifier(String nodeIdentifier)
+    {
+        load();
+        return parents.get(getKey(nodeIdentifier));
+    }
+
+    /** @return change log token of the last synchronization. */
+    public synchronized String getChangeLogToken()
+    {
+        load();
+        return changeLogToken;
+    }
+
+    /** Defines the change log token of the last synchronization. */
+    public synchronized void setChangeLogToken(String changeLogToken)
+    {
+        load();
+        this.changeLogToken = changeLogToken;
+    }
+
+    // ////////////////////////////////////////////////////
+    // WRITE
+    // ////////////////////////////////////////////////////
+    /**
+     * Stores the complete list of children of a folder.
+     *
+     * @param parentFolder : the folder.
+     * @param nodes : all children of the folder.
+     */
+    public synchronized void putChildren(Node parentFolder, List<Node> nodes)
+    {
+        load();
+        String folderId = getKey(parentFolder.getIdentifier());
+        for (Iterator<String> it = parents.values().iterator(); it.hasNext();)
+        {
+            if (folderId.equals(it.next()))
+            {
+                it.remove();
+            }
+        }
+
+        List<Node> list = new ArrayList<Node>(nodes.size());
+        for (Node node : nodes)
+        {
+            if (node != null)
+            {
+                list.add(node);
+                parents.put(getKey(node.getIdentifier()), folderId);
+            }
+        }
+        folderTokens.put(folderId, getChangeToken(parentFolder));
+        writeFolder(folderId, list);
+    }
+
+    /**
+     * Updates a node inside the stored folders which contain it.
+     *
+     * @param node : the new version of the node.
+     * @param parentIdentifiers : identifiers of the parent folders of the node.
+     *            If null, the node stays inside its current folder.
+     * @return true if a stored folder has changed.
+     */
+    public synchronized boolean updateNode(Node node, List<String> parentIdentifiers)
+    {
+        load();
+        String nodeId = getKey(node.getIdentifier());
+        String oldParentId = parents.get(nodeId);
+        String newParentId = oldParentId;
+        if (parentIdentifiers != null)
+        {
+            newParentId = null;
+            for (String parentIdentifier : parentIdentifiers)
+            {
+                String parentId = getKey(parentIdentifier);
+                if (folderTokens.containsKey(parentId))
+                {
+                    newParentId = parentId;
+                    break;
+                }
+            }
+        }
+
+        boolean changed = false;
+        if (oldParentId != null && !oldParentId.equals(newParentId))
+        {
+            changed = replaceChild(oldParentId, nodeId, null);
+            parents.remove(nodeId);
+        }
+        if (newParentId != null)
+        {
+            changed = replaceChild(newParentId, nodeId, node) || changed;
+            parents.put(nodeId, newParentId);
+        }
+        return changed;
+    }
+
+    /**
+     * Removes a node from the store. If the node is a stored folder, its
+     * children and stored subfolders are removed too.
+     *
+     * @return true if the store has changed.
+     */
+    public synchronized boolean remove(String nodeIdentifier)
+    {
+        load();
+        String nodeId = getKey(nodeIdentifier);
+        if (nodeId == null) { return false; }
+        boolean changed = false;
+        String parentId = parents.remove(nodeId);
+        if (parentId != null)
+        {
+            changed = replaceChild(parentId, nodeId, null);
+        }
+        if (folderTokens.containsKey(nodeId))
+        {
+            removeFolder(nodeId);
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Removes the stored children of a folder. They are retrieved again at the
+     * next listing.
+     */
+    public synchronized void invalidate(String folderIdentifier)
+    {
+        load();
+        String folderId = getKey(folderIdentifier);
+        if (folderId != null && folderTokens.containsKey(folderId))
+        {
+            removeFolder(folderId);
+        }
+    }
+
+    /**
+     * Saves the index file. Children are saved when they are stored.
+     */
+    public synchronized void save()
+    {
+        load();
+        HashMap<String, Object> index = new HashMap<String, Object>(4);
+        index.put("changeLogToken", changeLogToken);
+        index.put("folderTokens", new HashMap<String, String>(folderTokens));
+        index.put("parents", new HashMap<String, String>(parents));
+        write(new File(folder, INDEX_FILE), index);
+    }
+
+    /**
+     * Removes all nodes from memory and disk.
+     */
+    public synchronized void clear()
+    {
+        folderTokens.clear();
+        parents.clear();
+        children.evictAll();
+        changeLogToken = null;
+        loaded = true;
+        File[] files = folder.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+        }
+    }
+
+    // ////////////////////////////////////////////////////
+    // UTILS
+    // ////////////////////////////////////////////////////
+    /**
+     * @return the change token of the node or its modification date if the
+     *         repository doesn't provide change tokens.
+     */
+    public static String getChangeToken(Node node)
+    {
+        Object token = node.getPropertyValue(PropertyIds.CHANGE_TOKEN);
+        if (token != null) { return token.toString(); }
+        GregorianCalendar modifiedAt = node.getModifiedAt();
+        return (modifiedAt != null) ? Long.toString(modifiedAt.getTimeInMillis()) : null;
+    }
+
+    private static String getKey(String identifier)
+    {
+        return (identifier != null) ? NodeRefUtils.getCleanIdentifier(identifier) : null;
+    }
+
+    // ////////////////////////////////////////////////////
+    // INTERNALS
+    // ////////////////////////////////////////////////////
+    /**
+     * Replaces, adds (node is not inside the folder) or removes (node is null)
+     * a child of a stored folder.
+     */
+    private boolean replaceChild(String folderId, String nodeId, Node node)
+    {
+        List<Node> nodes = getChildren(folderId);
+        if (nodes == null) { return false; }
+        List<Node> list = new ArrayList<Node>(nodes.size() + 1);
+        boolean found = false;
+        for (Node child : nodes)
+        {
+            if (nodeId.equals(getKey(child.getIdentifier())))
+            {
+                found = true;
+                if (node != null)
+                {
+                    list.add(node);
+                }
+            }
+            else
+            {
+                list.add(child);
+            }
+        }
+        if (!found && node == null) { return false; }
+        if (!found)
+        {
+            list.add(node);
+        }
+        writeFolder(folderId, list);
+        return true;
+    }
+
+    private void removeFolder(String folderId)
+    {
+        folderTokens.remove(folderId);
+        children.remove(folderId);
+        getFolderFile(folderId).delete();
+
+        List<String> subFolders = new ArrayList<String>();
+        for (Iterator<Map.Entry<String, String>> it = parents.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry<String, String> entry = it.next();
+            if (folderId.equals(entry.getValue()))
+            {
+                it.remove();
+                if (folderTokens.containsKey(entry.getKey()))
+                {
+                    subFolders.add(entry.getKey());
+                }
+            }
+        }
+        for (String subFolder : subFolders)
+        {
+            removeFolder(subFolder);
+        }
+    }
+
+    private File getFolderFile(String folderId)
+    {
+        return new File(folder, folderId.replaceAll("[^\\w\\-]", "_") + FOLDER_SUFFIX);
+    }
+
+    private void writeFolder(String folderId, List<Node> nodes)
+    {
+        List<Node> list = Collections.unmodifiableList(nodes);
+        children.put(folderId, list);
+        write(getFolderFile(folderId), new ArrayList<Node>(nodes));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Node> readFolder(String folderId)
+    {
+        Object nodes = read(getFolderFile(folderId));
+        return (nodes instanceof List) ? Collections.unmodifiableList((List<Node>) nodes) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load()
+    {
+        if (loaded) { return; }
+        loaded = true;
+        Object value = read(new File(folder, INDEX_FILE));
+        if (!(value instanceof Map))
+        {
+            clear();
+            return;
+        }
+        Map<String, Object> index = (Map<String, Object>) value;
+        changeLogToken = (String) index.get("changeLogToken");
+        folderTokens.putAll((Map<String, String>) index.get("folderTokens"));
+        parents.putAll((Map<String, String>) index.get("parents"));
+    }
+
+    /** Writes the object inside a temporary file then renames it. */
+    private void write(File file, Object value)
+    {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        ObjectOutputStream oos = null;
+        try
+        {
+            folder.mkdirs();
+            oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            oos.writeInt(FILE_VERSION);
+            oos.writeUTF(repositoryKey);
+            oos.writeObject(value);
+            oos.close();
+            oos = null;
+
+            if (!tmpFile.renameTo(file))
+            {
+                file.delete();
+                tmpFile.renameTo(file);
+            }
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Unable to save " + file.getName() + " : " + e.getMessage());
+            tmpFile.delete();
+        }
+        finally
+        {
+            IOUtils.closeStream(oos);
+        }
+    }
+
+    /** @return the object or null if the file is missing or invalid. */
+    private Object read(File file)
+    {
+        if (!file.exists()) { return null; }
+        ObjectInputStream ois = null;
+        try
+        {
+            ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (ois.readInt() != FILE_VERSION || !repositoryKey.equals(ois.readUTF()))
+            {
+                // Another repository or server version : nodes may have
+                // changed.
+                return null;
+            }
+            return ois.readObject();
+        }
+        catch (Exception e)
+        {
+            Log.w(TAG, "Unable to load " + file.getName() + " : " + e.getMessage());
+            return null;
+        }
+        finally
+        {
+            IOUtils.closeStream(ois);
+        }
+    }
+}
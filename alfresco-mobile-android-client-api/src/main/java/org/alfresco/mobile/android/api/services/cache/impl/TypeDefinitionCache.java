@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.services.cache.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.mobile.android.api.utils.IOUtils;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+
+import android.util.Log;
+
+/**
+ * Cache of CMIS type definitions (types and aspects) of one repository. <br/>
+ * Definitions are kept in memory for the lifetime of the session. If a file is
+ * provided, definitions can be saved and are loaded back at the next start so
+ * property forms can be displayed without network round trips. Saved
+ * definitions are ignored when the repository identifier or version changes.
+ * <br/>
+ * A definition expires after a maximum age : it's requested again so models
+ * deployed on the server without version change are taken into account.
+ *
+ * @since 1.5.1
+ */
+public final class TypeDefinitionCache
+{
+    private static final String TAG = TypeDefinitionCache.class.getName();
+
+    private static final int FILE_VERSION = 2;
+
+    /** Default maximum age of a definition : 1 day. */
+    public static final long DEFAULT_MAX_AGE = 24L * 60 * 60 * 1000;
+
+    private final Map<String, TypeDefinition> definitions = new ConcurrentHashMap<String, TypeDefinition>();
+
+    /**
+     * Delay before definitions added by lookups are saved : lookups made close
+     * together are saved once.
+     */
+    private static final long SAVE_DELAY = 5000;
+
+    /** Saves definitions in background. */
+    private static final ScheduledExecutorService SAVE_EXECUTOR = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "TypeDefinitionSave");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    /** Time when definitions have been retrieved by type identifier. */
+    private final Map<String, Long> retrievalTimes = new ConcurrentHashMap<String, Long>();
+
+    private final File file;
+
+    private final String repositoryKey;
+
+    private final long maxAge;
+
+    private volatile boolean loaded;
+
+    /** True if definitions have been added since the last save. */
+    private volatile boolean changed = false;
+
+    /** True if a background save is pending. Guarded by synchronized(this). */
+    private boolean saveScheduled = false;
+
+    /**
+     * @param file : file used to persist definitions. Null for a memory only
+     *            cache.
+     * @param repositoryKey : identifies the repository and its version.
+     */
+    public TypeDefinitionCache(File file, String repositoryKey)
+    {
+        this(file, repositoryKey, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * @param file : file used to persist definitions. Null for a memory only
+     *            cache.
+     * @param repositoryKey : identifies the repository and its version.
+     * @param maxAge : duration in milliseconds after which a definition
+     *            expires.
+     */
+    public TypeDefinitionCache(File file, String repositoryKey, long maxAge)
+    {
+        this.file = file;
+        this.repositoryKey = repositoryKey;
+        this.maxAge = maxAge;
+        this.loaded = (file == null);
+    }
+
+    /**
+     * @param typeId : CMIS type identifier.
+     * @return the type definition or null if it's not cached or expired.
+     */
+    public TypeDefinition get(String typeId)
+    {
+        if (typeId == null) { return null; }
+        load();
+        Long retrievalTime = retrievalTimes.get(typeId);
+        if (retrievalTime == null || isExpired(retrievalTime.longValue())) { return null; }
+        return definitions.get(typeId);
+    }
+
+    /**
+     * Adds a type definition retrieved from the repository.
+     */
+    public void put(TypeDefinition typeDefinition)
+    {
+        if (typeDefinition == null || typeDefinition.getId() == null) { return; }
+        definitions.put(typeDefinition.getId(), typeDefinition);
+        retrievalTimes.put(typeDefinition.getId(), System.currentTimeMillis());
+        changed = true;
+    }
+
+    /**
+     * Adds all type definitions of a type hierarchy.
+     *
+     * @param containers : result of getTypeDescendants.
+     * @return number of type definitions added.
+     */
+    public int putAll(List<TypeDefinitionContainer> containers)
+    {
+        if (containers == null) { return 0; }
+        int count = 0;
+        for (TypeDefinitionContainer container : containers)
+        {
+            if (container.getTypeDefinition() != null)
+            {
+                put(container.getTypeDefinition());
+                count++;
+            }
+            count += putAll(container.getChildren());
+        }
+        return count;
+    }
+
+    /** @return number of cached type definitions. */
+    public int size()
+    {
+        load();
+        return definitions.size();
+    }
+
+    /**
+     * Removes all definitions from memory and disk.
+     */
+    public synchronized void clear()
+    {
+        definitions.clear();
+        retrievalTimes.clear();
+        changed = false;
+        if (file != null)
+        {
+            file.delete();
+        }
+    }
+
+    // ////////////////////////////////////////////////////
+    // PERSISTENCE
+    // ////////////////////////////////////////////////////
+    private boolean isExpired(long retrievalTime)
+    {
+        return System.currentTimeMillis() - retrievalTime > maxAge;
+    }
+
+    /**
+     * Saves definitions in background after a short delay. Definitions added
+     * in the meantime are saved at the same time.
+     */
+    public synchronized void saveLater()
+    {
+        if (file == null || !changed || saveScheduled) { return; }
+        saveScheduled = true;
+        SAVE_EXECUTOR.schedule(new Runnable()
+        {
+            public void run()
+            {
+                synchronized (TypeDefinitionCache.this)
+                {
+                    saveScheduled = false;
+                }
+                save();
+            }
+        }, SAVE_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Saves all definitions inside the cache file. Does nothing for a memory
+     * only cache or if no definition has been added since the last save.
+     */
+    public synchronized void save()
+    {
+        if (file == null || !changed) { return; }
+        changed = false;
+
+        File tmpFile = new File(file.getPath() + ".tmp");
+        ObjectOutputStream oos = null;
+        try
+        {
+            file.getParentFile().mkdirs();
+            oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            oos.writeInt(FILE_VERSION);
+            oos.writeUTF(repositoryKey);
+            oos.writeObject(new HashMap<String, TypeDefinition>(definitions));
+            oos.writeObject(new HashMap<String, Long>(retrievalTimes));
+            oos.close();
+            oos = null;
+
+            if (!tmpFile.renameTo(file))
+            {
+                file.delete();
+                tmpFile.renameTo(file);
+            }
+        }
+        catch (Exception e)
+        {
+            Log.w(TAG, "Unable to save type definitions : " + e.getMessage());
+            tmpFile.delete();
+        }
+        finally
+        {
+            IOUtils.closeStream(oos);
+        }
+    }
+
+    private void load()
+    {
+        if (!loaded)
+        {
+            loadFile();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void loadFile()
+    {
+        if (loaded) { return; }
+        loaded = true;
+        if (!file.exists()) { return; }
+
+        ObjectInputStream ois = null;
+        try
+        {
+            ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (ois.readInt() != FILE_VERSION || !repositoryKey.equals(ois.readUTF()))
+            {
+                // Another repository or server version : definitions may
+                // have changed.
+                IOUtils.closeStream(ois);
+                ois = null;
+                file.delete();
+                return;
+            }
+
+            Map<String, TypeDefinition> saved = (Map<String, TypeDefinition>) ois.readObject();
+            Map<String, Long> savedTimes = (Map<String, Long>) ois.readObject();
+            for (Map.Entry<String, TypeDefinition> entry : saved.entrySet())
+            {
+                // Definitions retrieved during this session are more recent.
+                Long retrievalTime = savedTimes.get(entry.getKey());
+                if (!definitions.containsKey(entry.getKey()) && retrievalTime != null
+                        && !isExpired(retrievalTime.longValue()))
+                {
+                    definitions.put(entry.getKey(), entry.getValue());
+                    retrievalTimes.put(entry.getKey(), retrievalTime);
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            Log.w(TAG, "Unable to load type definitions : " + e.getMessage());
+            file.delete();
+        }
+        finally
+        {
+            IOUtils.closeStream(ois);
+        }
+    }
+}
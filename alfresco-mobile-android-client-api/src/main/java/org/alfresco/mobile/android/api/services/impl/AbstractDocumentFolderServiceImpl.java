@@ -19,6 +19,7 @@ package org.alfresco.mobile.android.api.services.impl;
 
 import static org.alfresco.mobile.android.api.constants.ModelMappingUtils.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Serializable;
@@ -32,10 +33,13 @@ import org.alfresco.mobile.android.api.exceptions.AlfrescoServiceException;
 import org.alfresco.mobile.android.api.exceptions.ErrorCodeRegistry;
 import org.alfresco.mobile.android.api.model.*;
 import org.alfresco.mobile.android.api.model.impl.ContentStreamImpl;
+import org.alfresco.mobile.android.api.model.impl.LazyPagingResultImpl;
 import org.alfresco.mobile.android.api.model.impl.PagingResultImpl;
 import org.alfresco.mobile.android.api.model.impl.PermissionsImpl;
 import org.alfresco.mobile.android.api.model.impl.RepositoryVersionHelper;
 import org.alfresco.mobile.android.api.services.DocumentFolderService;
+import org.alfresco.mobile.android.api.services.cache.impl.ContentCache;
+import org.alfresco.mobile.android.api.services.cache.impl.NodeStore;
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.RepositorySession;
 import org.alfresco.mobile.android.api.session.impl.AbstractAlfrescoSessionImpl;
@@ -47,17 +51,22 @@ import org.alfresco.mobile.android.api.utils.messages.Messagesl18n;
 import org.apache.chemistry.opencmis.client.api.ObjectFactory;
 import org.apache.chemistry.opencmis.client.api.OperationContext;
 import org.apache.chemistry.opencmis.client.api.Session;
-import org.apache.chemistry.opencmis.client.bindings.spi.atompub.AbstractAtomPubService;
-import org.apache.chemistry.opencmis.client.bindings.spi.atompub.AtomPubParser;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
-import org.apache.chemistry.opencmis.client.runtime.OperationContextImpl;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ChangeEventInfo;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.FailedToDeleteData;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
 import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.data.ObjectParentData;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityChanges;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.Updatability;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
@@ -66,6 +75,7 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundExcept
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.spi.DiscoveryService;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
 import org.apache.chemistry.opencmis.commons.spi.NavigationService;
 import org.apache.chemistry.opencmis.commons.spi.ObjectService;
@@ -86,6 +96,8 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
 
     protected Session cmisSession;
 
+    private NodeStore nodeStore;
+
     /**
      * Default Constructor. Only used inside ServiceRegistry.
      * 
@@ -115,72 +127,14 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
 
         try
         {
-            NavigationService navigationService = cmisSession.getBinding().getNavigationService();
-            OperationContext ctxt = new OperationContextImpl(cmisSession.getDefaultContext());
-            ObjectFactory objectFactory = cmisSession.getObjectFactory();
-
-            // By default Listing context has default value
-            String orderBy = getSorting(SORT_PROPERTY_NAME, true);
-            BigInteger maxItems = null;
-            BigInteger skipCount = null;
             boolean includeLinks = false;
-
-            if (lcontext != null)
-            {
-                orderBy = getSorting(lcontext.getSortProperty(), lcontext.isSortAscending());
-                maxItems = BigInteger.valueOf(lcontext.getMaxItems());
-                skipCount = BigInteger.valueOf(lcontext.getSkipCount());
-                includeLinks = (lcontext.getFilter() != null)
-                        ? (Boolean) lcontext.getFilter().getFilterValue(FILTER_INCLUDE_LINKS) : false;
-            }
-            // get the children
-            ObjectInFolderList children = navigationService.getChildren(session.getRepositoryInfo().getIdentifier(),
-                    parentFolder.getIdentifier(), ctxt.getFilterString(), orderBy, ctxt.isIncludeAllowableActions(),
-                    ctxt.getIncludeRelationships(), ctxt.getRenditionFilterString(), ctxt.isIncludePathSegments(),
-                    maxItems, skipCount, null);
-
-            // convert objects
-            List<Node> page = new ArrayList<Node>();
-            List<ObjectInFolderData> childObjects = children.getObjects();
-
-            if (childObjects != null)
+            if (lcontext != null && lcontext.getFilter() != null)
             {
-                // //Log.d(TAG, "childObjects : " + childObjects.size());
-                for (ObjectInFolderData objectData : childObjects)
-                {
-                    try
-                    {
-                        if (objectData.getObject() != null)
-                        {
-                            Node n = convertNode(objectFactory.convertObject(objectData.getObject(), ctxt));
-                            page.add(n);
-
-                            // Remove links if set
-                            if (!includeLinks && n instanceof Link)
-                            {
-                                page.remove(n);
-                            }
-                        }
-                    }
-                    catch (Exception e)
-                    {
-                        Log.d("Convert issue", "Impossible to convert " + objectData.getObject() + " to Node Object"
-                                + objectData.getObject().getBaseTypeId());
-                    }
-                }
+                includeLinks = Boolean.TRUE.equals(lcontext.getFilter().getFilterValue(FILTER_INCLUDE_LINKS));
             }
-
-            Boolean hasMoreItem = false;
-            if (maxItems != null)
-            {
-                hasMoreItem = children.hasMoreItems() && page.size() == maxItems.intValue();
-            }
-            else
-            {
-                hasMoreItem = children.hasMoreItems();
-            }
-
-            return new PagingResultImpl<Node>(page, hasMoreItem, children.getNumItems().intValue());
+            NodeStore store = getNodeStore();
+            if (store != null && !includeLinks) { return listStoredChildren(store, parentFolder, lcontext); }
+            return listChildren(parentFolder, lcontext, null, includeLinks);
         }
         catch (Exception e)
         {
@@ -293,16 +247,8 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
 
         try
         {
-            PagingResult<Node> nodes = getChildren(folder, listingContext);
-            List<Folder> folders = new ArrayList<Folder>(nodes.getList().size());
-            for (Node node : nodes.getList())
-            {
-                if (node.isFolder())
-                {
-                    folders.add((Folder) node);
-                }
-            }
-            return new PagingResultImpl<Folder>(folders, nodes.hasMoreItems(), -1);
+            if (isTypedListing(listingContext)) { return queryChildren(folder, listingContext, BaseTypeId.CMIS_FOLDER); }
+            return listChildren(folder, listingContext, BaseTypeId.CMIS_FOLDER, false);
         }
         catch (CmisObjectNotFoundException e)
         {
@@ -326,19 +272,11 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
     {
         if (isObjectNull(folder)) { throw new IllegalArgumentException(String.format(
                 Messagesl18n.getString("ErrorCodeRegistry.GENERAL_INVALID_ARG_NULL"), "parentFolder")); }
+
         try
         {
-
-            PagingResult<Node> nodes = getChildren(folder, listingContext);
-            List<Document> docs = new ArrayList<Document>(nodes.getList().size());
-            for (Node node : nodes.getList())
-            {
-                if (node.isDocument())
-                {
-                    docs.add((Document) node);
-                }
-            }
-            return new PagingResultImpl<Document>(docs, nodes.hasMoreItems(), -1);
+            if (isTypedListing(listingContext)) { return queryChildren(folder, listingContext, BaseTypeId.CMIS_DOCUMENT); }
+            return listChildren(folder, listingContext, BaseTypeId.CMIS_DOCUMENT, false);
         }
         catch (CmisObjectNotFoundException e)
         {
@@ -378,6 +316,169 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
         return null;
     }
 
+    // ////////////////////////////////////////////////////
+    // LISTING
+    // ////////////////////////////////////////////////////
+    private static final String QUERY_TYPED_FOLDERS = "SELECT cmis:objectId, cmis:baseTypeId, cmis:objectTypeId, "
+            + "cmis:name, cmis:createdBy, cmis:creationDate, cmis:lastModifiedBy, cmis:lastModificationDate, "
+            + "cmis:changeToken, cmis:parentId, cmis:path FROM cmis:folder WHERE IN_FOLDER('%s') ORDER BY ";
+
+    private static final String QUERY_TYPED_DOCUMENTS = "SELECT cmis:objectId, cmis:baseTypeId, cmis:objectTypeId, "
+            + "cmis:name, cmis:createdBy, cmis:creationDate, cmis:lastModifiedBy, cmis:lastModificationDate, "
+            + "cmis:changeToken, cmis:versionSeriesId, cmis:versionLabel, cmis:isLatestVersion, "
+            + "cmis:contentStreamLength, cmis:contentStreamMimeType, cmis:contentStreamFileName "
+            + "FROM cmis:document WHERE IN_FOLDER('%s') ORDER BY ";
+
+    /**
+     * Lists children of a folder with the navigation service. Children are
+     * filtered on their raw data and converted into nodes only when consumed.
+     * 
+     * @param baseType : base type of children to keep. Null for all.
+     * @param includeLinks : true to keep Alfresco links.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Node> PagingResult<T> listChildren(Folder parentFolder, ListingContext lcontext,
+            BaseTypeId baseType, boolean includeLinks)
+    {
+        NavigationService navigationService = cmisSession.getBinding().getNavigationService();
+        final OperationContext ctxt = cmisSession.getDefaultContext();
+        final ObjectFactory objectFactory = cmisSession.getObjectFactory();
+
+        // By default Listing context has default value
+        String orderBy = getSorting(SORT_PROPERTY_NAME, true);
+        BigInteger maxItems = null;
+        BigInteger skipCount = null;
+
+        if (lcontext != null)
+        {
+            orderBy = getSorting(lcontext.getSortProperty(), lcontext.isSortAscending());
+            maxItems = BigInteger.valueOf(lcontext.getMaxItems());
+            skipCount = BigInteger.valueOf(lcontext.getSkipCount());
+        }
+        // get the children
+        ObjectInFolderList children = navigationService.getChildren(session.getRepositoryInfo().getIdentifier(),
+                parentFolder.getIdentifier(), ctxt.getFilterString(), orderBy, ctxt.isIncludeAllowableActions(),
+                ctxt.getIncludeRelationships(), ctxt.getRenditionFilterString(), ctxt.isIncludePathSegments(),
+                maxItems, skipCount, null);
+
+        // Filter raw objects : only kept objects are converted
+        List<ObjectData> page = new ArrayList<ObjectData>();
+        int listed = 0;
+        if (children.getObjects() != null)
+        {
+            for (ObjectInFolderData objectInFolder : children.getObjects())
+            {
+                ObjectData objectData = objectInFolder.getObject();
+                if (objectData == null)
+                {
+                    continue;
+                }
+                // Links are Alfresco items
+                if (!includeLinks && objectData.getBaseTypeId() == BaseTypeId.CMIS_ITEM)
+                {
+                    continue;
+                }
+                listed++;
+                if (baseType == null || baseType == objectData.getBaseTypeId())
+                {
+                    page.add(objectData);
+                }
+            }
+        }
+
+        boolean hasMoreItem = children.hasMoreItems() != null && children.hasMoreItems();
+        if (maxItems != null)
+        {
+            hasMoreItem = hasMoreItem && listed == maxItems.intValue();
+        }
+
+        int totalItems = -1;
+        if (baseType == null && children.getNumItems() != null)
+        {
+            totalItems = children.getNumItems().intValue();
+        }
+
+        return new LazyPagingResultImpl<ObjectData, T>(page, new LazyPagingResultImpl.Converter<ObjectData, T>()
+        {
+            public T convert(ObjectData objectData)
+            {
+                try
+                {
+                    return (T) convertNode(objectFactory.convertObject(objectData, ctxt));
+                }
+                catch (Exception e)
+                {
+                    Log.d(TAG, "Impossible to convert " + objectData + " to Node Object "
+                            + objectData.getBaseTypeId());
+                    return null;
+                }
+            }
+        }, hasMoreItem, totalItems);
+    }
+
+    /**
+     * Lists folders or documents of a folder with a CMIS query. Type filtering
+     * and property projection are done by the repository.
+     * 
+     * @param baseType : CMIS_FOLDER or CMIS_DOCUMENT
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Node> PagingResult<T> queryChildren(Folder parentFolder, ListingContext lcontext,
+            BaseTypeId baseType)
+    {
+        DiscoveryService discoveryService = cmisSession.getBinding().getDiscoveryService();
+        final OperationContext ctxt = cmisSession.getDefaultContext();
+        final ObjectFactory objectFactory = cmisSession.getObjectFactory();
+
+        String orderBy = getQuerySorting(SORT_PROPERTY_NAME, true);
+        BigInteger maxItems = null;
+        BigInteger skipCount = null;
+        if (lcontext != null)
+        {
+            orderBy = getQuerySorting(lcontext.getSortProperty(), lcontext.isSortAscending());
+            maxItems = BigInteger.valueOf(lcontext.getMaxItems());
+            skipCount = BigInteger.valueOf(lcontext.getSkipCount());
+        }
+
+        String statement = String.format(
+                (baseType == BaseTypeId.CMIS_FOLDER) ? QUERY_TYPED_FOLDERS : QUERY_TYPED_DOCUMENTS,
+                parentFolder.getIdentifier().replace("'", "\\'")) + orderBy;
+
+        ObjectList resultList = discoveryService.query(session.getRepositoryInfo().getIdentifier(), statement, false,
+                ctxt.isIncludeAllowableActions(), IncludeRelationships.NONE, "cmis:none", maxItems, skipCount, null);
+
+        return new LazyPagingResultImpl<ObjectData, T>(resultList.getObjects(),
+                new LazyPagingResultImpl.Converter<ObjectData, T>()
+                {
+                    public T convert(ObjectData objectData)
+                    {
+                        if (objectData == null) { return null; }
+                        return (T) convertNode(objectFactory.convertObject(objectData, ctxt), false);
+                    }
+                }, resultList.hasMoreItems() != null && resultList.hasMoreItems(),
+                (resultList.getNumItems() == null) ? -1 : resultList.getNumItems().intValue());
+    }
+
+    private static boolean isTypedListing(ListingContext lcontext)
+    {
+        return lcontext != null && lcontext.getFilter() != null
+                && Boolean.TRUE.equals(lcontext.getFilter().getFilterValue(FILTER_TYPED_LISTING));
+    }
+
+    /**
+     * Queries can only be sorted by CMIS properties : name is used instead of
+     * title and description.
+     */
+    private static String getQuerySorting(String sortingKey, boolean modifier)
+    {
+        String orderBy = getSorting(sortingKey, modifier);
+        if (!orderBy.startsWith("cmis:"))
+        {
+            orderBy = getSorting(SORT_PROPERTY_NAME, modifier);
+        }
+        return orderBy;
+    }
+
     // ////////////////////////////////////////////////////
     // CREATION
     // ////////////////////////////////////////////////////
@@ -449,6 +550,7 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
             if (!(n instanceof Folder)) { throw new AlfrescoServiceException(
                     ErrorCodeRegistry.DOCFOLDER_WRONG_NODE_TYPE, Messagesl18n.getString("DocumentFolderService.19")
                             + newId + " : " + n.getType() + " " + n.getName()); }
+            storeNode(n, parentFolder.getIdentifier());
             return (Folder) n;
         }
         catch (Exception e)
@@ -515,16 +617,39 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
             ObjectService objectService = cmisSession.getBinding().getObjectService();
             ObjectFactory objectFactory = cmisSession.getObjectFactory();
 
+            // Large files are uploaded by chunks after the creation.
+            ChunkedContentUploader uploader = getChunkedUploader(contentFile);
+            String uploadKey = null;
+            String newId = null;
+
             ContentStream c = null;
-            if (contentFile != null)
+            if (uploader != null)
+            {
+                uploadKey = ChunkedContentUploader.createUploadKey(parentFolder.getIdentifier() + "/" + documentName,
+                        contentFile);
+                newId = uploader.getPendingObjectId(uploadKey);
+            }
+            else if (contentFile != null)
             {
                 c = objectFactory.createContentStream(documentName, contentFile.getLength(), contentFile.getMimeType(),
                         IOUtils.getContentFileInputStream(contentFile));
             }
 
-            String newId = objectService.createDocument(session.getRepositoryInfo().getIdentifier(),
-                    objectFactory.convertProperties(tmpProperties, null, null, CREATE_UPDATABILITY),
-                    parentFolder.getIdentifier(), c, VersioningState.MAJOR, null, null, null, null);
+            if (newId == null)
+            {
+                newId = objectService.createDocument(session.getRepositoryInfo().getIdentifier(),
+                        objectFactory.convertProperties(tmpProperties, null, null, CREATE_UPDATABILITY),
+                        parentFolder.getIdentifier(), c, VersioningState.MAJOR, null, null, null, null);
+                if (uploader != null && newId != null)
+                {
+                    uploader.begin(uploadKey, newId, contentFile.getLength());
+                }
+            }
+
+            if (uploader != null && newId != null)
+            {
+                newId = uploader.upload(uploadKey, newId, null, contentFile, documentName, contentFile.getMimeType());
+            }
 
             // EXTRACT METADATA + Generate Thumbnails
             if (session instanceof RepositorySession && RepositoryVersionHelper.isAlfrescoProduct(session))
@@ -548,6 +673,7 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
             if (!(n instanceof Document)) { throw new AlfrescoServiceException(
                     ErrorCodeRegistry.DOCFOLDER_WRONG_NODE_TYPE, Messagesl18n.getString("DocumentFolderService.20")
                             + newId); }
+            storeNode(n, parentFolder.getIdentifier());
             return (Document) n;
         }
         catch (Exception e)
@@ -660,6 +786,11 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
             {
                 delete((Folder) node);
             }
+            NodeStore store = getNodeStore();
+            if (store != null && store.remove(node.getIdentifier()))
+            {
+                store.save();
+            }
         }
         catch (Exception e)
         {
@@ -738,67 +869,11 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
 
         try
         {
-            Map<String, Serializable> tmpProperties = convertProps(properties, node.getType());
-
-            // Check Custom type
-            if (!ContentModel.TYPE_CONTENT.equals(node.getType()) && !ContentModel.TYPE_FOLDER.equals(node.getType()))
-            {
-                String objectBaseTypeId = node.getProperty(PropertyIds.BASE_TYPE_ID).getValue();
-                if (BaseTypeId.CMIS_DOCUMENT.value().equals(objectBaseTypeId))
-                {
-                    tmpProperties.put(PropertyIds.OBJECT_TYPE_ID, CMISPREFIX_DOCUMENT + node.getType());
-                }
-                else if (BaseTypeId.CMIS_FOLDER.value().equals(objectBaseTypeId))
-                {
-                    tmpProperties.put(PropertyIds.OBJECT_TYPE_ID, CMISPREFIX_FOLDER + node.getType());
-                }
-            }
-
-            // Check Custom Aspects
-            tmpProperties.put(PropertyIds.OBJECT_TYPE_ID,
-                    addAspects((String) tmpProperties.get(PropertyIds.OBJECT_TYPE_ID), node.getAspects(), aspects));
-
-            ObjectService objectService = cmisSession.getBinding().getObjectService();
-            ObjectFactory objectFactory = cmisSession.getObjectFactory();
-
-            String objectId = node.getIdentifier();
-            Holder<String> objectIdHolder = new Holder<String>(objectId);
-
-            Holder<String> changeTokenHolder = null;
-            if (node.getProperty(PropertyIds.CHANGE_TOKEN) != null
-                    && node.getProperty(PropertyIds.CHANGE_TOKEN).getValue() != null)
-            {
-                changeTokenHolder = new Holder<String>(node.getProperty(PropertyIds.CHANGE_TOKEN).getValue().toString());
-            }
-
-            Set<Updatability> updatebility = new HashSet<Updatability>();
-            updatebility.add(Updatability.READWRITE);
-
-            // check if checked out
-            Property property = node.getProperty(PropertyIds.IS_VERSION_SERIES_CHECKED_OUT);
-            if (property != null)
-            {
-                Boolean isCheckedOut = (Boolean) property.getValue();
-                if ((isCheckedOut != null) && isCheckedOut.booleanValue())
-                {
-                    updatebility.add(Updatability.WHENCHECKEDOUT);
-                }
-            }
-
-            String nodeType = node.getProperty(PropertyIds.OBJECT_TYPE_ID).getValue().toString();
-            // tmpProperties.put(PropertyIds.OBJECT_TYPE_ID, nodeType);
-
-            // Retrieve Cmis Object to retrieve second type
-            // TODO !
-
-            // it's time to update
-            objectService.updateProperties(session.getRepositoryInfo().getIdentifier(), objectIdHolder,
-                    changeTokenHolder, objectFactory.convertProperties(tmpProperties,
-                            cmisSession.getTypeDefinition(nodeType), null, updatebility), null);
-
-            cmisSession.removeObjectFromCache(objectId);
+            update(node, properties, aspects);
 
-            return getChildById(objectId);
+            Node result = getChildById(node.getIdentifier());
+            storeNode(result, null);
+            return result;
         }
         catch (CmisRuntimeException e)
         {
@@ -831,6 +906,242 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
         return null;
     }
 
+    /**
+     * Updates the properties and aspects of a node without retrieving it.
+     */
+    private void update(Node node, Map<String, Serializable> properties, List<String> aspects)
+    {
+        Map<String, Serializable> tmpProperties = convertProps(properties, node.getType());
+
+        // Check Custom type
+        if (!ContentModel.TYPE_CONTENT.equals(node.getType()) && !ContentModel.TYPE_FOLDER.equals(node.getType()))
+        {
+            String objectBaseTypeId = node.getProperty(PropertyIds.BASE_TYPE_ID).getValue();
+            if (BaseTypeId.CMIS_DOCUMENT.value().equals(objectBaseTypeId))
+            {
+                tmpProperties.put(PropertyIds.OBJECT_TYPE_ID, CMISPREFIX_DOCUMENT + node.getType());
+            }
+            else if (BaseTypeId.CMIS_FOLDER.value().equals(objectBaseTypeId))
+            {
+                tmpProperties.put(PropertyIds.OBJECT_TYPE_ID, CMISPREFIX_FOLDER + node.getType());
+            }
+        }
+
+        // Check Custom Aspects
+        tmpProperties.put(PropertyIds.OBJECT_TYPE_ID,
+                addAspects((String) tmpProperties.get(PropertyIds.OBJECT_TYPE_ID), node.getAspects(), aspects));
+
+        ObjectService objectService = cmisSession.getBinding().getObjectService();
+        ObjectFactory objectFactory = cmisSession.getObjectFactory();
+
+        String objectId = node.getIdentifier();
+        Holder<String> objectIdHolder = new Holder<String>(objectId);
+
+        Holder<String> changeTokenHolder = null;
+        if (node.getProperty(PropertyIds.CHANGE_TOKEN) != null
+                && node.getProperty(PropertyIds.CHANGE_TOKEN).getValue() != null)
+        {
+            changeTokenHolder = new Holder<String>(node.getProperty(PropertyIds.CHANGE_TOKEN).getValue().toString());
+        }
+
+        Set<Updatability> updatebility = new HashSet<Updatability>();
+        updatebility.add(Updatability.READWRITE);
+
+        // check if checked out
+        Property property = node.getProperty(PropertyIds.IS_VERSION_SERIES_CHECKED_OUT);
+        if (property != null)
+        {
+            Boolean isCheckedOut = (Boolean) property.getValue();
+            if ((isCheckedOut != null) && isCheckedOut.booleanValue())
+            {
+                updatebility.add(Updatability.WHENCHECKEDOUT);
+            }
+        }
+
+        String nodeType = node.getProperty(PropertyIds.OBJECT_TYPE_ID).getValue().toString();
+        // tmpProperties.put(PropertyIds.OBJECT_TYPE_ID, nodeType);
+
+        // Retrieve Cmis Object to retrieve second type
+        // TODO !
+
+        // it's time to update
+        objectService.updateProperties(session.getRepositoryInfo().getIdentifier(), objectIdHolder,
+                changeTokenHolder, objectFactory.convertProperties(tmpProperties,
+                        cmisSession.getTypeDefinition(nodeType), null, updatebility), null);
+
+        cmisSession.removeObjectFromCache(objectId);
+    }
+
+    // ////////////////////////////////////////////////////
+    // BULK OPERATIONS
+    // ////////////////////////////////////////////////////
+    /** {@inheritDoc} */
+    public BulkOperationResult deleteNodes(List<Node> nodes, BulkOperationContext context)
+    {
+        if (nodes == null) { throw new IllegalArgumentException(String.format(
+                Messagesl18n.getString("ErrorCodeRegistry.GENERAL_INVALID_ARG_NULL"), "nodes")); }
+
+        final String repositoryId = session.getRepositoryInfo().getIdentifier();
+        final ObjectService objectService = cmisSession.getBinding().getObjectService();
+        BulkOperationResult result = new BulkOperationRunner(context).run(nodes, new BulkOperationRunner.Operation()
+        {
+            public Node apply(Node node)
+            {
+                if (node.isFolder())
+                {
+                    FailedToDeleteData failed = objectService.deleteTree(repositoryId, node.getIdentifier(), true,
+                            null, false, null);
+                    int count = (failed != null && failed.getIds() != null) ? failed.getIds().size() : 0;
+                    if (count > 0) { throw new AlfrescoServiceException(ErrorCodeRegistry.DOCFOLDER_GENERIC, count
+                            + " nodes not deleted"); }
+                }
+                else
+                {
+                    objectService.deleteObject(repositoryId, node.getIdentifier(), true, null);
+                }
+                cmisSession.removeObjectFromCache(node.getIdentifier());
+                return null;
+            }
+        });
+
+        NodeStore store = getNodeStore();
+        if (store != null)
+        {
+            boolean changed = false;
+            for (Node node : result.getNodes(BulkOperationResult.Status.SUCCEEDED))
+            {
+                changed = store.remove(node.getIdentifier()) || changed;
+            }
+            if (changed)
+            {
+                store.save();
+            }
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public BulkOperationResult moveNodes(List<Node> nodes, final Folder sourceFolder, final Folder targetFolder,
+            BulkOperationContext context)
+    {
+        if (nodes == null) { throw new IllegalArgumentException(String.format(
+                Messagesl18n.getString("ErrorCodeRegistry.GENERAL_INVALID_ARG_NULL"), "nodes")); }
+        if (isObjectNull(targetFolder)) { throw new IllegalArgumentException(String.format(
+                Messagesl18n.getString("ErrorCodeRegistry.GENERAL_INVALID_ARG_NULL"), "targetFolder")); }
+
+        final boolean refresh = (context != null) && context.isRefreshNodes();
+        final String repositoryId = session.getRepositoryInfo().getIdentifier();
+        final ObjectService objectService = cmisSession.getBinding().getObjectService();
+        BulkOperationResult result = new BulkOperationRunner(context).run(nodes, new BulkOperationRunner.Operation()
+        {
+            public Node apply(Node node)
+            {
+                Folder source = (sourceFolder != null) ? sourceFolder : getParentFolder(node);
+                if (source == null) { throw new AlfrescoServiceException(ErrorCodeRegistry.DOCFOLDER_PARENT_NOT_FOUND,
+                        Messagesl18n.getString("ErrorCodeRegistry.DOCFOLDER_PARENT_NOT_FOUND")); }
+                Holder<String> objectIdHolder = new Holder<String>(node.getIdentifier());
+                objectService.moveObject(repositoryId, objectIdHolder, targetFolder.getIdentifier(),
+                        source.getIdentifier(), null);
+                cmisSession.removeObjectFromCache(node.getIdentifier());
+                return refresh ? getChildById(objectIdHolder.getValue()) : null;
+            }
+        });
+
+        NodeStore store = getNodeStore();
+        if (store != null)
+        {
+            List<String> targetIds = Collections.singletonList(targetFolder.getIdentifier());
+            for (int i = 0; i < result.getCount(); i++)
+            {
+                if (result.getStatus(i) != BulkOperationResult.Status.SUCCEEDED)
+                {
+                    continue;
+                }
+                if (result.getResult(i) != null)
+                {
+                    store.updateNode(result.getResult(i), targetIds);
+                }
+                else
+                {
+                    invalidateParent(store, result.getNode(i).getIdentifier());
+                    store.invalidate(targetFolder.getIdentifier());
+                }
+            }
+            store.save();
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public BulkOperationResult updateProperties(List<Node> nodes, Map<String, Serializable> properties,
+            List<String> aspects, BulkOperationContext context)
+    {
+        if (isMapNull(properties)) { throw new IllegalArgumentException(String.format(
+                Messagesl18n.getString("ErrorCodeRegistry.GENERAL_INVALID_ARG_NULL"), "properties")); }
+        return update(nodes, properties, aspects, context);
+    }
+
+    /** {@inheritDoc} */
+    public BulkOperationResult addAspects(List<Node> nodes, List<String> aspects, BulkOperationContext context)
+    {
+        return update(nodes, null, aspects, context);
+    }
+
+    private BulkOperationResult update(List<Node> nodes, final Map<String, Serializable> properties,
+            final List<String> aspects, BulkOperationContext context)
+    {
+        if (nodes == null) { throw new IllegalArgumentException(String.format(
+                Messagesl18n.getString("ErrorCodeRegistry.GENERAL_INVALID_ARG_NULL"), "nodes")); }
+
+        final boolean refresh = (context != null) && context.isRefreshNodes();
+        BulkOperationResult result = new BulkOperationRunner(context).run(nodes, new BulkOperationRunner.Operation()
+        {
+            public Node apply(Node node)
+            {
+                update(node, properties, aspects);
+                return refresh ? getChildById(node.getIdentifier()) : null;
+            }
+        });
+
+        NodeStore store = getNodeStore();
+        if (store != null)
+        {
+            boolean changed = false;
+            for (int i = 0; i < result.getCount(); i++)
+            {
+                if (result.getStatus(i) != BulkOperationResult.Status.SUCCEEDED)
+                {
+                    continue;
+                }
+                if (result.getResult(i) != null)
+                {
+                    changed = store.updateNode(result.getResult(i), null) || changed;
+                }
+                else
+                {
+                    changed = invalidateParent(store, result.getNode(i).getIdentifier()) || changed;
+                }
+            }
+            if (changed)
+            {
+                store.save();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes the stored folder which contains a node not retrieved after its
+     * update : the folder is listed again at the next call.
+     */
+    private static boolean invalidateParent(NodeStore store, String nodeIdentifier)
+    {
+        String parentId = store.getParentIdentifier(nodeIdentifier);
+        if (parentId == null) { return false; }
+        store.invalidate(parentId);
+        return true;
+    }
+
     // ////////////////////////////////////////////////////
     // CONTENT
     // ////////////////////////////////////////////////////
@@ -850,19 +1161,30 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
             Holder<String> changeTokenHolder = new Holder<String>((String) content
                     .getProperty(PropertyIds.CHANGE_TOKEN).getValue());
 
-            ContentStream c = null;
-            if (contentFile != null)
+            ChunkedContentUploader uploader = getChunkedUploader(contentFile);
+            if (uploader != null)
             {
-                c = objectFactory.createContentStream(contentFile.getFileName(), contentFile.getLength(),
-                        content.getContentStreamMimeType(), IOUtils.getContentFileInputStream(contentFile));
+                uploader.upload(ChunkedContentUploader.createUploadKey(content.getIdentifier(), contentFile),
+                        content.getIdentifier(), changeTokenHolder.getValue(), contentFile, contentFile.getFileName(),
+                        content.getContentStreamMimeType());
             }
+            else
+            {
+                ContentStream c = null;
+                if (contentFile != null)
+                {
+                    c = objectFactory.createContentStream(contentFile.getFileName(), contentFile.getLength(),
+                            content.getContentStreamMimeType(), IOUtils.getContentFileInputStream(contentFile));
+                }
 
-            objectService.setContentStream(session.getRepositoryInfo().getIdentifier(), objectIdHolder, true,
-                    changeTokenHolder, c, null);
+                objectService.setContentStream(session.getRepositoryInfo().getIdentifier(), objectIdHolder, true,
+                        changeTokenHolder, c, null);
+            }
 
             cmisSession.removeObjectFromCache(content.getIdentifier());
 
             newContent = (Document) getNodeByIdentifier(content.getIdentifier());
+            storeNode(newContent, null);
 
         }
         catch (Exception e)
@@ -882,8 +1204,17 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
 
         try
         {
-            return saveContentStream(getContentStream(document),
-                    NodeRefUtils.getNodeIdentifier(document.getIdentifier()), CONTENT_CACHE);
+            String cacheFileName = NodeRefUtils.getNodeIdentifier(document.getIdentifier());
+            String stamp = getCacheStamp(document);
+            ContentFile cachedContent = getCachedContent(cacheFileName, CONTENT_CACHE, stamp);
+            if (cachedContent != null) { return cachedContent; }
+
+            long chunkSize = getLongParameter(AlfrescoSession.DOWNLOAD_CHUNK_SIZE,
+                    RangedContentDownloader.DEFAULT_CHUNK_SIZE);
+            if (document.getContentStreamLength() > chunkSize) { return downloadContentByRanges(document,
+                    cacheFileName, stamp, chunkSize); }
+
+            return saveContentStream(getContentStream(document), cacheFileName, CONTENT_CACHE, stamp);
         }
         catch (Exception e)
         {
@@ -892,6 +1223,45 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
         return null;
     }
 
+    /**
+     * Returns the chunked uploader if the content file must be uploaded by
+     * chunks : file bigger than the chunk size and repository supporting
+     * appendContentStream.
+     * 
+     * @param contentFile : file to upload
+     * @return uploader or null if content must be sent in one request.
+     */
+    private ChunkedContentUploader getChunkedUploader(ContentFile contentFile)
+    {
+        if (contentFile == null || contentFile.getFile() == null) { return null; }
+
+        long chunkSize = getLongParameter(AlfrescoSession.UPLOAD_CHUNK_SIZE, ChunkedContentUploader.DEFAULT_CHUNK_SIZE);
+        if (contentFile.getLength() <= chunkSize || !ChunkedContentUploader.isSupported(cmisSession)) { return null; }
+
+        return new ChunkedContentUploader(cmisSession.getBinding().getObjectService(), session.getRepositoryInfo()
+                .getIdentifier(), chunkSize, new File((String) session.getParameter(AlfrescoSession.CACHE_FOLDER),
+                "upload"));
+    }
+
+    /**
+     * Downloads a large content by ranges inside the content cache. The
+     * partial file is kept if the download fails so the next call resumes it.
+     */
+    private ContentFile downloadContentByRanges(Document document, String cacheFileName, String stamp,
+            long chunkSize) throws IOException
+    {
+        ContentCache cache = getContentCache();
+        String key = getCacheKey(cacheFileName, CONTENT_CACHE);
+
+        RangedContentDownloader downloader = new RangedContentDownloader(cmisSession.getBinding()
+                .getObjectService(), session.getRepositoryInfo().getIdentifier(), chunkSize,
+                (int) getLongParameter(AlfrescoSession.DOWNLOAD_THREADS, RangedContentDownloader.DEFAULT_THREADS));
+        File partialFile = downloader.download(document.getIdentifier(), stamp, document.getContentStreamLength(),
+                cache.getPartialFile(key));
+
+        return cache.putFile(key, stamp, partialFile, document.getName(), document.getContentStreamMimeType());
+    }
+
     /** {@inheritDoc} */
     @Override
     public org.alfresco.mobile.android.api.model.ContentStream getContentStream(Document document)
@@ -947,9 +1317,7 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
 
         try
         {
-            AbstractAtomPubService objectService = (AbstractAtomPubService) cmisSession.getBinding().getObjectService();
-            return objectService.loadLink(session.getRepositoryInfo().getIdentifier(), document.getIdentifier(),
-                    AtomPubParser.LINK_REL_CONTENT, null);
+            return getContentUrl(document.getIdentifier());
         }
         catch (Exception e)
         {
@@ -983,8 +1351,18 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
         if (isObjectNull(node)) { throw new IllegalArgumentException(String.format(
                 Messagesl18n.getString("ErrorCodeRegistry.GENERAL_INVALID_ARG_NULL"), "node")); }
 
-        return saveContentStream(getRenditionStream(node.getIdentifier(), type),
-                NodeRefUtils.getNodeIdentifier(node.getIdentifier()), RENDITION_CACHE);
+        // Each rendition type has its own cache file.
+        String cacheFileName = NodeRefUtils.getNodeIdentifier(node.getIdentifier());
+        if (type != null)
+        {
+            cacheFileName += "-" + type;
+        }
+        String stamp = getCacheStamp(node);
+        ContentFile cachedContent = getCachedContent(cacheFileName, RENDITION_CACHE, stamp);
+        if (cachedContent != null) { return cachedContent; }
+
+        return saveContentStream(getRenditionStream(node.getIdentifier(), type), cacheFileName, RENDITION_CACHE,
+                stamp);
     }
 
     // ////////////////////////////////////////////////////
@@ -1159,4 +1537,378 @@ public abstract class AbstractDocumentFolderServiceImpl extends AlfrescoService
         cmisSession.removeObjectFromCache(node.getIdentifier());
         return getNodeByIdentifier(node.getIdentifier());
     }
+
+    // ////////////////////////////////////////////////////
+    // METADATA STORE
+    // ////////////////////////////////////////////////////
+    private static final String METADATA_CACHE_FOLDER = "metadata";
+
+    /** Number of children retrieved by request when a folder is stored. */
+    private static final int STORE_PAGE_SIZE = 100;
+
+    /** Number of change events retrieved by request. */
+    private static final int CHANGES_PAGE_SIZE = 100;
+
+    /** Properties required to compare folder change tokens. */
+    private static final String FOLDER_TOKEN_FILTER = PropertyIds.OBJECT_ID + "," + PropertyIds.BASE_TYPE_ID + ","
+            + PropertyIds.OBJECT_TYPE_ID + "," + PropertyIds.CHANGE_TOKEN + "," + PropertyIds.LAST_MODIFICATION_DATE;
+
+    /** {@inheritDoc} */
+    public int synchronizeMetadata()
+    {
+        NodeStore store = getNodeStore();
+        if (store == null) { return 0; }
+
+        try
+        {
+            String repositoryId = session.getRepositoryInfo().getIdentifier();
+            RepositoryInfo repositoryInfo = cmisSession.getBinding().getRepositoryService()
+                    .getRepositoryInfo(repositoryId, null);
+            boolean hasChangeLog = repositoryInfo.getCapabilities() != null
+                    && repositoryInfo.getCapabilities().getChangesCapability() != null
+                    && repositoryInfo.getCapabilities().getChangesCapability() != CapabilityChanges.NONE;
+
+            int changes = -1;
+            if (hasChangeLog && store.getChangeLogToken() != null)
+            {
+                try
+                {
+                    changes = applyContentChanges(store);
+                }
+                catch (CmisConstraintException e)
+                {
+                    // The change log doesn't contain the token anymore.
+                    Log.w(TAG, "Change log token expired : " + e.getMessage());
+                }
+                catch (CmisInvalidArgumentException e)
+                {
+                    Log.w(TAG, "Change log token rejected : " + e.getMessage());
+                }
+            }
+            if (changes < 0)
+            {
+                changes = compareChangeTokens(store);
+                // Changes done during the comparison are applied again at the
+                // next synchronization.
+                store.setChangeLogToken(hasChangeLog ? repositoryInfo.getLatestChangeLogToken() : null);
+            }
+            store.save();
+            return changes;
+        }
+        catch (Exception e)
+        {
+            convertException(e);
+        }
+        return 0;
+    }
+
+    /**
+     * Folders are stored inside the cache folder if
+     * {@link AlfrescoSession#CACHE_METADATA} is set to true.
+     * 
+     * @return the store or null if it's disabled.
+     */
+    protected synchronized NodeStore getNodeStore()
+    {
+        if (nodeStore == null && Boolean.TRUE.equals(session.getParameter(AlfrescoSession.CACHE_METADATA)))
+        {
+            String cacheFolder = (String) session.getParameter(AlfrescoSession.CACHE_FOLDER);
+            if (cacheFolder == null) { return null; }
+            String repositoryId = session.getRepositoryInfo().getIdentifier();
+            // Users don't have access to the same nodes.
+            String storeName = (repositoryId + "_" + session.getPersonIdentifier()).replaceAll("[^\\w\\-]", "_");
+            nodeStore = new NodeStore(new File(new File(cacheFolder, METADATA_CACHE_FOLDER), storeName), repositoryId
+                    + "/" + session.getRepositoryInfo().getVersion());
+        }
+        return nodeStore;
+    }
+
+    /**
+     * Lists children from the store. Children of a folder which is not stored
+     * are retrieved and stored first.
+     */
+    private PagingResult<Node> listStoredChildren(NodeStore store, Folder parentFolder, ListingContext lcontext)
+    {
+        List<Node> nodes = store.getChildren(parentFolder.getIdentifier());
+        if (nodes == null)
+        {
+            nodes = listAllChildren(parentFolder);
+            store.putChildren(parentFolder, nodes);
+            store.save();
+        }
+
+        // Updated and added nodes don't keep the stored order : children are
+        // always sorted.
+        ListingContext lc = (lcontext != null) ? lcontext : new ListingContext();
+        List<Node> sorted = new ArrayList<Node>(nodes);
+        Collections.sort(sorted, new NodeComparator(getSortingProperty(lc.getSortProperty()), lc.isSortAscending()));
+        nodes = sorted;
+
+        // Without listing context, all children are returned like the
+        // repository does.
+        int from = Math.min(Math.max(lc.getSkipCount(), 0), nodes.size());
+        int to = (lcontext != null && lc.getMaxItems() > 0) ? Math.min(from + lc.getMaxItems(), nodes.size()) : nodes
+                .size();
+        return new PagingResultImpl<Node>(new ArrayList<Node>(nodes.subList(from, to)), to < nodes.size(),
+                nodes.size());
+    }
+
+    /** Lists all children of a folder ordered by name. */
+    private List<Node> listAllChildren(Folder parentFolder)
+    {
+        List<Node> nodes = new ArrayList<Node>();
+        PagingResult<Node> page;
+        int skipCount = 0;
+        do
+        {
+            page = listChildren(parentFolder, new ListingContext(SORT_PROPERTY_NAME, STORE_PAGE_SIZE, skipCount, true),
+                    null, false);
+            for (Node node : page.getList())
+            {
+                if (node != null)
+                {
+                    nodes.add(node);
+                }
+            }
+            skipCount += STORE_PAGE_SIZE;
+        }
+        while (page.hasMoreItems() && !page.getList().isEmpty());
+        return nodes;
+    }
+
+    private static String getSortingProperty(String sortProperty)
+    {
+        String property = sortingMap.get(sortProperty);
+        return (property != null) ? property : PropertyIds.NAME;
+    }
+
+    /**
+     * Applies the change log since the stored token.
+     * 
+     * @return number of changes applied to stored folders.
+     */
+    private int applyContentChanges(NodeStore store)
+    {
+        DiscoveryService discoveryService = cmisSession.getBinding().getDiscoveryService();
+        String repositoryId = session.getRepositoryInfo().getIdentifier();
+
+        // Only the last event of each node is kept.
+        Set<String> changedIds = new LinkedHashSet<String>();
+        Set<String> deletedIds = new LinkedHashSet<String>();
+        Holder<String> changeLogToken = new Holder<String>(store.getChangeLogToken());
+        boolean hasMoreItems;
+        do
+        {
+            ObjectList changes = discoveryService.getContentChanges(repositoryId, changeLogToken, false, null, false,
+                    false, BigInteger.valueOf(CHANGES_PAGE_SIZE), null);
+            List<ObjectData> events = changes.getObjects();
+            if (events != null)
+            {
+                for (ObjectData objectData : events)
+                {
+                    ChangeEventInfo event = objectData.getChangeEventInfo();
+                    if (event == null || objectData.getId() == null)
+                    {
+                        continue;
+                    }
+                    String id = NodeRefUtils.getCleanIdentifier(objectData.getId());
+                    if (event.getChangeType() == ChangeType.DELETED)
+                    {
+                        changedIds.remove(id);
+                        deletedIds.add(id);
+                    }
+                    else
+                    {
+                        deletedIds.remove(id);
+                        changedIds.add(id);
+                    }
+                }
+            }
+            hasMoreItems = Boolean.TRUE.equals(changes.hasMoreItems()) && events != null && !events.isEmpty();
+        }
+        while (hasMoreItems);
+
+        int count = 0;
+        for (String id : deletedIds)
+        {
+            if (store.remove(id))
+            {
+                count++;
+            }
+        }
+        for (String id : changedIds)
+        {
+            if (refreshStoredNode(store, id))
+            {
+                count++;
+            }
+        }
+        store.setChangeLogToken(changeLogToken.getValue());
+        return count;
+    }
+
+    /**
+     * Retrieves a created or updated node if it's inside a stored folder.
+     * 
+     * @return true if a stored folder has changed.
+     */
+    private boolean refreshStoredNode(NodeStore store, String nodeId)
+    {
+        String repositoryId = session.getRepositoryInfo().getIdentifier();
+        try
+        {
+            List<String> parentIds = new ArrayList<String>(1);
+            try
+            {
+                List<ObjectParentData> parents = cmisSession.getBinding().getNavigationService()
+                        .getObjectParents(repositoryId, nodeId, PropertyIds.OBJECT_ID, false, IncludeRelationships.NONE,
+                                "cmis:none", false, null);
+                for (ObjectParentData parent : parents)
+                {
+                    if (parent.getObject() != null && parent.getObject().getId() != null)
+                    {
+                        parentIds.add(parent.getObject().getId());
+                    }
+                }
+            }
+            catch (CmisInvalidArgumentException e)
+            {
+                // Root folder
+            }
+
+            boolean stored = store.getParentIdentifier(nodeId) != null;
+            for (String parentId : parentIds)
+            {
+                stored = stored || store.contains(parentId);
+            }
+            if (!stored) { return false; }
+
+            OperationContext ctxt = cmisSession.getDefaultContext();
+            ObjectData objectData = cmisSession.getBinding().getObjectService()
+                    .getObject(repositoryId, nodeId, ctxt.getFilterString(), ctxt.isIncludeAllowableActions(),
+                            ctxt.getIncludeRelationships(), ctxt.getRenditionFilterString(), ctxt.isIncludePolicies(),
+                            ctxt.isIncludeAcls(), null);
+            cmisSession.removeObjectFromCache(nodeId);
+            return store.updateNode(convertNode(cmisSession.getObjectFactory().convertObject(objectData, ctxt)),
+                    parentIds);
+        }
+        catch (CmisObjectNotFoundException e)
+        {
+            // Deleted after the event or not readable anymore.
+            return store.remove(nodeId);
+        }
+    }
+
+    /**
+     * Lists again children of stored folders whose change token has changed.
+     * 
+     * @return number of folders updated.
+     */
+    private int compareChangeTokens(NodeStore store)
+    {
+        String repositoryId = session.getRepositoryInfo().getIdentifier();
+        ObjectService objectService = cmisSession.getBinding().getObjectService();
+        OperationContext ctxt = cmisSession.getDefaultContext();
+
+        int count = 0;
+        for (String folderId : store.getFolderIdentifiers())
+        {
+            if (!store.contains(folderId))
+            {
+                // Removed with a deleted parent.
+                continue;
+            }
+            Node folder;
+            try
+            {
+                ObjectData objectData = objectService.getObject(repositoryId, folderId, FOLDER_TOKEN_FILTER, false,
+                        IncludeRelationships.NONE, "cmis:none", false, false, null);
+                folder = convertNode(cmisSession.getObjectFactory().convertObject(objectData, ctxt), false);
+            }
+            catch (CmisObjectNotFoundException e)
+            {
+                store.remove(folderId);
+                count++;
+                continue;
+            }
+
+            String changeToken = NodeStore.getChangeToken(folder);
+            if (!(folder instanceof Folder))
+            {
+                store.remove(folderId);
+                count++;
+            }
+            else if (changeToken == null || !changeToken.equals(store.getFolderChangeToken(folderId)))
+            {
+                store.putChildren(folder, listAllChildren((Folder) folder));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Updates a node created or updated by this service inside the store.
+     * 
+     * @param parentId : parent folder of a new node. Null for an updated
+     *            node.
+     */
+    private void storeNode(Node node, String parentId)
+    {
+        NodeStore store = getNodeStore();
+        if (store == null || node == null) { return; }
+        List<String> parentIds = null;
+        if (parentId != null)
+        {
+            parentIds = new ArrayList<String>(1);
+            parentIds.add(parentId);
+        }
+        if (store.updateNode(node, parentIds))
+        {
+            store.save();
+        }
+    }
+
+    /** Sorts stored nodes like the repository. */
+    private static class NodeComparator implements Comparator<Node>, Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String propertyId;
+
+        private final boolean ascending;
+
+        NodeComparator(String propertyId, boolean ascending)
+        {
+            this.propertyId = propertyId;
+            this.ascending = ascending;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public int compare(Node n1, Node n2)
+        {
+            Object v1 = n1.getPropertyValue(propertyId);
+            Object v2 = n2.getPropertyValue(propertyId);
+            int result;
+            if (v1 == null || v2 == null)
+            {
+                // Empty values are listed last.
+                result = (v1 == null) ? ((v2 == null) ? 0 : 1) : -1;
+                return result;
+            }
+            else if (v1 instanceof String && v2 instanceof String)
+            {
+                result = ((String) v1).compareToIgnoreCase((String) v2);
+            }
+            else if (v1 instanceof Comparable)
+            {
+                result = ((Comparable) v1).compareTo(v2);
+            }
+            else
+            {
+                result = 0;
+            }
+            return ascending ? result : -result;
+        }
+    }
 }
@@ -17,8 +17,12 @@
  ******************************************************************************/
 package org.alfresco.mobile.android.api.services.impl;
 
+import java.io.File;
+import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.alfresco.mobile.android.api.constants.ContentModel;
 import org.alfresco.mobile.android.api.constants.ModelMappingUtils;
@@ -35,10 +39,14 @@ import org.alfresco.mobile.android.api.model.impl.FolderTypeDefinitionImpl;
 import org.alfresco.mobile.android.api.model.impl.NodeTypeDefinitionImpl;
 import org.alfresco.mobile.android.api.model.impl.TaskTypeDefinitionImpl;
 import org.alfresco.mobile.android.api.services.ModelDefinitionService;
+import org.alfresco.mobile.android.api.services.cache.impl.TypeDefinitionCache;
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.impl.AbstractAlfrescoSessionImpl;
+import org.apache.chemistry.opencmis.client.api.ObjectType;
 import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 
 import android.util.Log;
@@ -59,8 +67,21 @@ public abstract class AbstractModelDefinitionService extends AlfrescoService imp
 
     private static final String TAG = AbstractModelDefinitionService.class.getSimpleName();
 
+    private static final String MODEL_CACHE_FOLDER = "models";
+
+    private static final String MODEL_CACHE_SUFFIX = ".definitions";
+
     protected Session cmisSession;
 
+    /** Raw definitions : shared with the disk cache. */
+    private TypeDefinitionCache typeDefinitionCache;
+
+    /** Definitions converted for the current session. */
+    private final Map<String, ObjectType> objectTypes = new ConcurrentHashMap<String, ObjectType>();
+
+    /** Definitions built for the current session. */
+    private final Map<String, ModelDefinition> definitions = new ConcurrentHashMap<String, ModelDefinition>();
+
     /**
      * Default Constructor. Only used inside ServiceRegistry.
      * 
@@ -117,6 +138,24 @@ public abstract class AbstractModelDefinitionService extends AlfrescoService imp
         return (TaskTypeDefinition) getTypeDefinition(TASK, task.getKey());
     }
 
+    @Override
+    public void preloadDefinitions()
+    {
+        try
+        {
+            List<TypeDefinitionContainer> hierarchy = cmisSession.getBinding().getRepositoryService()
+                    .getTypeDescendants(session.getRepositoryInfo().getIdentifier(), null, BigInteger.valueOf(-1),
+                            true, null);
+            int count = getTypeDefinitionCache().putAll(hierarchy);
+            getTypeDefinitionCache().save();
+            Log.d(TAG, count + " type definitions loaded");
+        }
+        catch (Exception e)
+        {
+            convertException(e);
+        }
+    }
+
     // ////////////////////////////////////////////////////////////////////////////////////
     // / INTERNAL
     // ////////////////////////////////////////////////////////////////////////////////////
@@ -142,43 +181,62 @@ public abstract class AbstractModelDefinitionService extends AlfrescoService imp
                     break;
                 case ASPECT:
                     type = ModelMappingUtils.CMISPREFIX_ASPECTS.concat(type);
-                    return new AspectDefinitionImpl(cmisSession.getTypeDefinition(type));
+                    break;
                 default:
                     break;
             }
         }
 
+        String key = modelId + type;
+        ModelDefinition definition = definitions.get(key);
+        if (definition != null) { return definition; }
+
         // Retrieve Type definition
-        org.apache.chemistry.opencmis.commons.definitions.TypeDefinition typeDefinition = cmisSession
-                .getTypeDefinition(type);
+        ObjectType objectType = getObjectType(type);
+        if (modelId == ASPECT)
+        {
+            definition = new AspectDefinitionImpl(objectType);
+            definitions.put(key, definition);
+            return definition;
+        }
+
         Map<String, ModelDefinition> aspectModels = null;
-        for (CmisExtensionElement extension : typeDefinition.getExtensions())
+        if (objectType.getExtensions() != null)
         {
-            if ("mandatoryAspects".equals(extension.getName()))
+            for (CmisExtensionElement extension : objectType.getExtensions())
             {
-                aspectModels = new HashMap<String, ModelDefinition>(extension.getChildren().size());
-                for (CmisExtensionElement aspectExtension : extension.getChildren())
+                if ("mandatoryAspects".equals(extension.getName()))
                 {
-                    aspectModels.put(aspectExtension.getValue(),
-                            new AspectDefinitionImpl(cmisSession.getTypeDefinition(aspectExtension.getValue())));
+                    aspectModels = new HashMap<String, ModelDefinition>(extension.getChildren().size());
+                    for (CmisExtensionElement aspectExtension : extension.getChildren())
+                    {
+                        aspectModels.put(aspectExtension.getValue(), getAspectModel(aspectExtension.getValue()));
+                    }
+                    break;
                 }
-                break;
             }
         }
-        
+
         switch (modelId)
         {
             case DOCUMENT:
-                return new DocumentTypeDefinitionImpl(cmisSession.getTypeDefinition(type), aspectModels);
+                definition = new DocumentTypeDefinitionImpl(objectType, aspectModels);
+                break;
             case FOLDER:
-                return new FolderTypeDefinitionImpl(cmisSession.getTypeDefinition(type), aspectModels);
+                definition = new FolderTypeDefinitionImpl(objectType, aspectModels);
+                break;
             case TASK:
-                return new TaskTypeDefinitionImpl(cmisSession.getTypeDefinition(type), aspectModels);
+                definition = new TaskTypeDefinitionImpl(objectType, aspectModels);
+                break;
             default:
                 break;
         }
-        
-        return null;
+
+        if (definition != null)
+        {
+            definitions.put(key, definition);
+        }
+        return definition;
     }
 
     private NodeTypeDefinition getNodeTypeDefinition(Node node)
@@ -199,10 +257,7 @@ public abstract class AbstractModelDefinitionService extends AlfrescoService imp
         {
             try
             {
-                aspectModels.put(
-                        aspectName,
-                        new AspectDefinitionImpl(cmisSession.getTypeDefinition(ModelMappingUtils.CMISPREFIX_ASPECTS
-                                .concat(aspectName))));
+                aspectModels.put(aspectName, getAspectModel(ModelMappingUtils.CMISPREFIX_ASPECTS.concat(aspectName)));
             }
             catch (Exception e)
             {
@@ -212,7 +267,70 @@ public abstract class AbstractModelDefinitionService extends AlfrescoService imp
             }
         }
 
-        return new NodeTypeDefinitionImpl(cmisSession.getTypeDefinition(type), aspectModels);
+        return new NodeTypeDefinitionImpl(getObjectType(type), aspectModels);
+    }
+
+    /**
+     * @param aspectId : CMIS identifier of the aspect (with its prefix).
+     * @return the aspect definition.
+     */
+    private ModelDefinition getAspectModel(String aspectId)
+    {
+        String key = ASPECT + aspectId;
+        ModelDefinition definition = definitions.get(key);
+        if (definition == null)
+        {
+            definition = new AspectDefinitionImpl(getObjectType(aspectId));
+            definitions.put(key, definition);
+        }
+        return definition;
+    }
+
+    /**
+     * Returns the CMIS type definition. The repository is requested only if
+     * the definition isn't cached or has expired. Retrieved definitions are
+     * saved in background : lookups made close together are saved once.
+     * 
+     * @param typeId : CMIS type identifier.
+     */
+    protected ObjectType getObjectType(String typeId)
+    {
+        ObjectType objectType = objectTypes.get(typeId);
+        if (objectType != null) { return objectType; }
+
+        TypeDefinition typeDefinition = getTypeDefinitionCache().get(typeId);
+        if (typeDefinition == null)
+        {
+            typeDefinition = cmisSession.getBinding().getRepositoryService()
+                    .getTypeDefinition(session.getRepositoryInfo().getIdentifier(), typeId, null);
+            getTypeDefinitionCache().put(typeDefinition);
+            getTypeDefinitionCache().saveLater();
+        }
+        objectType = cmisSession.getObjectFactory().convertTypeDefinition(typeDefinition);
+        objectTypes.put(typeId, objectType);
+        return objectType;
+    }
+
+    /**
+     * Definitions are persisted inside the cache folder if
+     * {@link AlfrescoSession#CACHE_MODEL_PERSIST} is set to true.
+     */
+    protected synchronized TypeDefinitionCache getTypeDefinitionCache()
+    {
+        if (typeDefinitionCache == null)
+        {
+            File file = null;
+            String cacheFolder = (String) session.getParameter(AlfrescoSession.CACHE_FOLDER);
+            if (Boolean.TRUE.equals(session.getParameter(AlfrescoSession.CACHE_MODEL_PERSIST)) && cacheFolder != null)
+            {
+                String repositoryId = session.getRepositoryInfo().getIdentifier();
+                file = new File(new File(cacheFolder, MODEL_CACHE_FOLDER), repositoryId.replaceAll("[^\\w\\-]", "_")
+                        + MODEL_CACHE_SUFFIX);
+            }
+            typeDefinitionCache = new TypeDefinitionCache(file, session.getRepositoryInfo().getIdentifier() + "/"
+                    + session.getRepositoryInfo().getVersion());
+        }
+        return typeDefinitionCache;
     }
 
     private static final Map<String, String> BASETYPE_INDEX = new HashMap<String, String>();
@@ -18,6 +18,7 @@
 package org.alfresco.mobile.android.api.services.impl;
 
 import org.alfresco.mobile.android.api.services.ActivityStreamService;
+import org.alfresco.mobile.android.api.services.AsyncService;
 import org.alfresco.mobile.android.api.services.CommentService;
 import org.alfresco.mobile.android.api.services.DocumentFolderService;
 import org.alfresco.mobile.android.api.services.ModelDefinitionService;
@@ -65,6 +66,8 @@ public abstract class AbstractServiceRegistry implements ServiceRegistry
     
     protected ModelDefinitionService typeDefinitionService;
 
+    private AsyncService asyncService;
+
     public AbstractServiceRegistry(AlfrescoSession session)
     {
         this.session = session;
@@ -89,6 +92,16 @@ public abstract class AbstractServiceRegistry implements ServiceRegistry
     {
         return versionService;
     }
+
+    public synchronized AsyncService getAsyncService()
+    {
+        // Threads are created on demand.
+        if (asyncService == null)
+        {
+            asyncService = new AsyncServiceImpl(session);
+        }
+        return asyncService;
+    }
     
     // ////////////////////////////////////////////////////
     // Save State - serialization / deserialization
@@ -19,8 +19,17 @@ package org.alfresco.mobile.android.api.services.impl;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.alfresco.mobile.android.api.constants.OnPremiseConstant;
 import org.alfresco.mobile.android.api.exceptions.AlfrescoServiceException;
@@ -38,6 +47,9 @@ import org.alfresco.mobile.android.api.services.impl.publicapi.PublicAPISiteServ
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.CloudSession;
 import org.alfresco.mobile.android.api.utils.AlphaComparator;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.ItemBinder;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.Listing;
 import org.alfresco.mobile.android.api.utils.JsonUtils;
 import org.alfresco.mobile.android.api.utils.OnPremiseUrlRegistry;
 import org.alfresco.mobile.android.api.utils.messages.Messagesl18n;
@@ -46,6 +58,7 @@ import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 import org.apache.http.HttpStatus;
 
+import android.util.Log;
 import android.util.LruCache;
 
 /**
@@ -59,6 +72,41 @@ public abstract class AbstractSiteServiceImpl extends AlfrescoService implements
     /** When user wants to join a site, the default role is SiteConsumer. */
     protected static final String DEFAULT_ROLE = "SiteConsumer";
 
+    private static final String TAG = AbstractSiteServiceImpl.class.getSimpleName();
+
+    /** Runs requests used to compute site extra properties. */
+    private static final ExecutorService EXTRA_PROPERTIES_EXECUTOR = Executors
+            .newCachedThreadPool(new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "SiteExtraProperties");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    /** Validity of a site inside the site cache : 5 minutes. */
+    protected static final long SITE_CACHE_TTL = 5 * 60 * 1000L;
+
+    /** Maximum number of sites requested at the same time. */
+    protected static final int SITE_FETCH_THREADS = 4;
+
+    /** Requests sites resolved by identifiers. */
+    private static final ExecutorService SITE_FETCH_EXECUTOR = Executors.newFixedThreadPool(SITE_FETCH_THREADS,
+            new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "SiteFetch");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    /** Background refresh of extra properties. */
+    private Future<?> refreshFuture;
+
     /**
      * Default constructor for service. </br>
      * Used by the {@link AbstractServiceRegistry}.
@@ -214,29 +262,120 @@ public abstract class AbstractSiteServiceImpl extends AlfrescoService implements
         try
         {
             initExtraPropertiesCache();
+            return fetchSite(siteIdentifier);
+        }
+        catch (Exception e)
+        {
+            convertException(e);
+        }
+        return null;
+    }
 
-            UrlBuilder url = getSiteUrl(siteIdentifier);
-            Response resp = getHttpInvoker().invokeGET(url, getSessionHttp());
+    /**
+     * Requests the site and keeps it inside the site cache.
+     * 
+     * @return the site or null if it doesn't exist.
+     */
+    private Site fetchSite(String siteIdentifier)
+    {
+        UrlBuilder url = getSiteUrl(siteIdentifier);
+        Response resp = getHttpInvoker().invokeGET(url, getSessionHttp());
 
-            // check response code
-            if (resp.getResponseCode() == HttpStatus.SC_NOT_FOUND)
-            {
-                return null;
-            }
-            else if (resp.getResponseCode() != HttpStatus.SC_OK)
-            {
-                convertStatusCode(resp, ErrorCodeRegistry.SITE_GENERIC);
-            }
+        // check response code
+        if (resp.getResponseCode() == HttpStatus.SC_NOT_FOUND)
+        {
+            siteCache.remove(siteIdentifier);
+            return null;
+        }
+        else if (resp.getResponseCode() != HttpStatus.SC_OK)
+        {
+            convertStatusCode(resp, ErrorCodeRegistry.SITE_GENERIC);
+        }
 
-            Map<String, Object> json = JsonUtils.parseObject(resp.getStream(), resp.getCharset());
+        Map<String, Object> json = JsonUtils.parseObject(resp.getStream(), resp.getCharset());
 
-            return parseData(siteIdentifier, json);
+        Site site = parseData(siteIdentifier, json);
+        if (site != null)
+        {
+            siteCache.put(siteIdentifier, new CacheSite(site));
         }
-        catch (Exception e)
+        return site;
+    }
+
+    /**
+     * Resolves sites by their short name. Sites present inside the site cache
+     * for less than {@link #SITE_CACHE_TTL} are not requested again, others
+     * are requested concurrently (at most {@link #SITE_FETCH_THREADS} requests
+     * at the same time). Resolution stops once maxItems sites have been
+     * found.
+     * 
+     * @param siteIdentifiers : short names of sites.
+     * @param maxItems : maximum number of sites to return. -1 for all.
+     * @return sites in the order of identifiers. Sites which don't exist
+     *         anymore are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    protected List<Site> resolveSites(List<String> siteIdentifiers, int maxItems)
+    {
+        int max = (maxItems < 0) ? siteIdentifiers.size() : Math.min(maxItems, siteIdentifiers.size());
+        List<Site> sites = new ArrayList<Site>(max);
+        int next = 0;
+
+        while (sites.size() < max && next < siteIdentifiers.size())
         {
-            convertException(e);
+            // Request only what's missing to fill the window.
+            int batchSize = Math.min(max - sites.size(), siteIdentifiers.size() - next);
+            List<Object> batch = new ArrayList<Object>(batchSize);
+            for (int i = 0; i < batchSize; i++)
+            {
+                final String siteIdentifier = siteIdentifiers.get(next++);
+                CacheSite cached = siteCache.get(siteIdentifier);
+                if (cached != null && System.currentTimeMillis() - cached.timestamp < SITE_CACHE_TTL)
+                {
+                    batch.add(refresh(cached.site));
+                }
+                else
+                {
+                    batch.add(SITE_FETCH_EXECUTOR.submit(new Callable<Site>()
+                    {
+                        public Site call() throws Exception
+                        {
+                            return fetchSite(siteIdentifier);
+                        }
+                    }));
+                }
+            }
+
+            for (Object item : batch)
+            {
+                Site site = null;
+                if (item instanceof Future)
+                {
+                    try
+                    {
+                        site = waitFor((Future<Site>) item);
+                    }
+                    catch (AlfrescoServiceException e)
+                    {
+                        throw e;
+                    }
+                    catch (Exception e)
+                    {
+                        throw new AlfrescoServiceException(ErrorCodeRegistry.SITE_GENERIC, e);
+                    }
+                }
+                else
+                {
+                    site = (Site) item;
+                }
+
+                if (site != null)
+                {
+                    sites.add(site);
+                }
+            }
         }
-        return null;
+        return sites;
     }
 
     /**
@@ -501,25 +640,145 @@ public abstract class AbstractSiteServiceImpl extends AlfrescoService implements
             };
         }
         extraPropertiesCache.evictAll();
+        siteCache.evictAll();
     }
 
     /**
-     * Responsible to init the cache if the cache is empty.
+     * Keeps site metadata by short name to avoid one request per site when
+     * sites are resolved by identifiers. Entries are valid during
+     * {@link #SITE_CACHE_TTL}.
+     * 
+     * @since 1.5.1
+     */
+    private final LruCache<String, CacheSite> siteCache = new LruCache<String, CacheSite>(MAX_CACHE_ITEMS);
+
+    private static final class CacheSite
+    {
+        private final Site site;
+
+        private final long timestamp = System.currentTimeMillis();
+
+        private CacheSite(Site site)
+        {
+            this.site = site;
+        }
+    }
+
+    /**
+     * Responsible to init the cache if the cache is empty. If a refresh is
+     * running in background, listings don't wait for it.
      */
     private void initExtraPropertiesCache()
     {
-        if (extraPropertiesCache != null && extraPropertiesCache.size() == 0)
+        if (extraPropertiesCache != null && extraPropertiesCache.size() == 0 && !isRefreshRunning())
         {
             retrieveExtraProperties(session.getPersonIdentifier());
         }
     }
 
     /**
-     * Retrieve sites extra properties.
+     * Refreshes in background the extra properties of sites (member, pending
+     * member, favorite). Meanwhile site listings return immediately with the
+     * properties already known. If a refresh is already running, its future
+     * is returned.
+     * 
+     * @since 1.5.1
+     * @param callback : executed in a background thread once properties are
+     *            up to date. Can be null.
+     * @return future of the refresh.
+     */
+    public synchronized Future<?> refreshExtraProperties(final Runnable callback)
+    {
+        if (isRefreshRunning()) { return refreshFuture; }
+
+        final String personIdentifier = session.getPersonIdentifier();
+        refreshFuture = EXTRA_PROPERTIES_EXECUTOR.submit(new Runnable()
+        {
+            public void run()
+            {
+                retrieveExtraProperties(personIdentifier);
+                if (callback != null)
+                {
+                    callback.run();
+                }
+            }
+        });
+        return refreshFuture;
+    }
+
+    private synchronized boolean isRefreshRunning()
+    {
+        return refreshFuture != null && !refreshFuture.isDone();
+    }
+
+    /**
+     * Retrieve sites extra properties. Favorite sites, user sites and join
+     * requests are requested concurrently.
      * 
      * @param personIdentifier
      */
-    protected abstract void retrieveExtraProperties(String personIdentifier);
+    protected void retrieveExtraProperties(final String personIdentifier)
+    {
+        try
+        {
+            Future<List<String>> favoriteSites = EXTRA_PROPERTIES_EXECUTOR.submit(new Callable<List<String>>()
+            {
+                public List<String> call() throws Exception
+                {
+                    return retrieveFavoriteSiteIdentifiers(personIdentifier);
+                }
+            });
+            Future<List<String>> userSites = EXTRA_PROPERTIES_EXECUTOR.submit(new Callable<List<String>>()
+            {
+                public List<String> call() throws Exception
+                {
+                    return retrieveUserSiteIdentifiers(personIdentifier);
+                }
+            });
+
+            List<JoinSiteRequestImpl> joinSiteRequestList = new ArrayList<JoinSiteRequestImpl>();
+            try
+            {
+                joinSiteRequestList = getJoinSiteRequests();
+            }
+            catch (Exception e)
+            {
+                Log.e(TAG, "Error during cache operation : JoinSiteRequest");
+                Log.e(TAG, Log.getStackTraceString(e));
+            }
+
+            retrieveExtraProperties(waitFor(favoriteSites), waitFor(userSites), joinSiteRequestList);
+        }
+        catch (Exception e)
+        {
+            Log.e(TAG, "Error during cache operation. The site object may contains incorrect informations");
+            Log.e(TAG, Log.getStackTraceString(e));
+        }
+    }
+
+    private static <T> T waitFor(Future<T> future) throws Exception
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (ExecutionException e)
+        {
+            throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * @param personIdentifier
+     * @return identifiers of sites the user has favorite.
+     */
+    protected abstract List<String> retrieveFavoriteSiteIdentifiers(String personIdentifier);
+
+    /**
+     * @param personIdentifier
+     * @return identifiers of sites the user is member of.
+     */
+    protected abstract List<String> retrieveUserSiteIdentifiers(String personIdentifier);
 
     /**
      * Responsible to create the extra properties cache.
@@ -531,42 +790,44 @@ public abstract class AbstractSiteServiceImpl extends AlfrescoService implements
     protected void retrieveExtraProperties(List<String> favoriteSites, List<String> userSites,
             List<JoinSiteRequestImpl> request)
     {
-        // Retrieve list of all favorites
-        boolean isFavorite = false;
-
-        List<String> tmpFavoriteSite = new ArrayList<String>();
-        tmpFavoriteSite.addAll(favoriteSites);
+        Set<String> favorites = new HashSet<String>(favoriteSites);
+        Map<String, CacheSiteExtraProperties> properties = new HashMap<String, CacheSiteExtraProperties>(
+                favorites.size() + userSites.size() + request.size());
 
         // Retrieve list of all join site request.
         for (JoinSiteRequestImpl joinSiteRequest : request)
         {
-            isFavorite = favoriteSites.contains(joinSiteRequest.getIdentifier());
-            extraPropertiesCache.put(joinSiteRequest.getSiteShortName(),
-                    new CacheSiteExtraProperties(true, false, isFavorite));
-
-            if (isFavorite)
-            {
-                favoriteSites.remove(joinSiteRequest.getSiteShortName());
-            }
+            String siteIdentifier = joinSiteRequest.getSiteShortName();
+            properties.put(siteIdentifier, new CacheSiteExtraProperties(true, false, favorites.contains(siteIdentifier)));
         }
 
         // Retrieve list of all sites user are member of.
         for (String siteIdentifier : userSites)
         {
-            isFavorite = favoriteSites.contains(siteIdentifier);
-            extraPropertiesCache.put(siteIdentifier, new CacheSiteExtraProperties(false, true, isFavorite));
+            properties.put(siteIdentifier, new CacheSiteExtraProperties(false, true, favorites.contains(siteIdentifier)));
+        }
 
-            if (isFavorite)
+        // If there's still site in favorite, it must be site user are not
+        // member of and with no pending request
+        for (String favoriteSite : favorites)
+        {
+            if (!properties.containsKey(favoriteSite))
             {
-                favoriteSites.remove(siteIdentifier);
+                properties.put(favoriteSite, new CacheSiteExtraProperties(false, false, true));
             }
         }
 
-        // If there's still site in favorite, it must be site user are not
-        // member of and with no pending request
-        for (String favoriteSite : favoriteSites)
+        // Replace cached values : entries are never missing during the update.
+        for (Map.Entry<String, CacheSiteExtraProperties> entry : properties.entrySet())
         {
-            extraPropertiesCache.put(favoriteSite, new CacheSiteExtraProperties(false, false, true));
+            extraPropertiesCache.put(entry.getKey(), entry.getValue());
+        }
+        for (String siteIdentifier : extraPropertiesCache.snapshot().keySet())
+        {
+            if (!properties.containsKey(siteIdentifier))
+            {
+                extraPropertiesCache.remove(siteIdentifier);
+            }
         }
     }
 
@@ -598,29 +859,41 @@ public abstract class AbstractSiteServiceImpl extends AlfrescoService implements
     {
         Response resp = read(url, ErrorCodeRegistry.SITE_GENERIC);
 
-        List<Object> json = JsonUtils.parseArray(resp.getStream(), resp.getCharset());
-        int size = json.size();
+        // Only sites inside the listing window are bound, others are just
+        // counted.
+        int skipCount = 0, maxItems = -1;
+        if (listingContext != null)
+        {
+            skipCount = listingContext.getSkipCount();
+            maxItems = listingContext.getMaxItems();
+        }
 
-        List<Site> result = new ArrayList<Site>();
-        int fromIndex = 0, toIndex = size;
+        Listing<Site> listing = JsonStreamReader.readListing(resp.getStream(), resp.getCharset(), null,
+                new ItemBinder<Site>()
+                {
+                    public Site bind(Map<String, Object> json)
+                    {
+                        String siteName = JSONConverter.getString(json, OnPremiseConstant.SHORTNAME_VALUE);
+                        CacheSiteExtraProperties extraProperties = extraPropertiesCache.get(siteName);
+                        if (extraProperties != null)
+                        {
+                            json.put(OnPremiseConstant.ISPENDINGMEMBER_VALUE, extraProperties.isPendingMember);
+                            json.put(OnPremiseConstant.ISMEMBER_VALUE, extraProperties.isMember);
+                            json.put(OnPremiseConstant.ISFAVORITE_VALUE, extraProperties.isFavorite);
+                        }
+                        return SiteImpl.parseCompatJson(json);
+                    }
+                }, skipCount, maxItems);
+        int size = listing.getCount();
+
+        List<Site> result = listing.getItems();
         Boolean hasMoreItems = false;
 
         // Define Listing Context
         if (listingContext != null)
         {
-            fromIndex = (listingContext.getSkipCount() > size) ? size : listingContext.getSkipCount();
-
-            // Case if skipCount > result size
-            if (listingContext.getMaxItems() + fromIndex >= size)
-            {
-                toIndex = size;
-                hasMoreItems = false;
-            }
-            else
-            {
-                toIndex = listingContext.getMaxItems() + fromIndex;
-                hasMoreItems = true;
-            }
+            int fromIndex = (skipCount > size) ? size : skipCount;
+            hasMoreItems = (maxItems + fromIndex < size);
         }
         else
         {
@@ -628,26 +901,6 @@ public abstract class AbstractSiteServiceImpl extends AlfrescoService implements
             listingContext.setSortProperty(SORT_PROPERTY_TITLE);
         }
 
-        String siteName = null;
-        Map<String, Object> mapProperties = null;
-        CacheSiteExtraProperties extraProperties = null;
-        for (int i = fromIndex; i < toIndex; i++)
-        {
-            mapProperties = (Map<String, Object>) json.get(i);
-            if (mapProperties != null)
-            {
-                siteName = JSONConverter.getString(mapProperties, OnPremiseConstant.SHORTNAME_VALUE);
-                if (extraPropertiesCache.get(siteName) != null)
-                {
-                    extraProperties = extraPropertiesCache.get(siteName);
-                    mapProperties.put(OnPremiseConstant.ISPENDINGMEMBER_VALUE, extraProperties.isPendingMember);
-                    mapProperties.put(OnPremiseConstant.ISMEMBER_VALUE, extraProperties.isMember);
-                    mapProperties.put(OnPremiseConstant.ISFAVORITE_VALUE, extraProperties.isFavorite);
-                }
-                result.add(SiteImpl.parseCompatJson((Map<String, Object>) json.get(i)));
-            }
-        }
-
         if (listingContext != null)
         {
             Collections.sort(result,
@@ -29,8 +29,12 @@ import org.alfresco.mobile.android.api.model.ContentFile;
 import org.alfresco.mobile.android.api.model.ContentStream;
 import org.alfresco.mobile.android.api.model.Node;
 import org.alfresco.mobile.android.api.model.impl.*;
+import org.alfresco.mobile.android.api.network.HttpResponseCache;
+import org.alfresco.mobile.android.api.network.RequestCoalescer;
+import org.alfresco.mobile.android.api.network.RequestMetrics;
 import org.alfresco.mobile.android.api.services.Service;
 import org.alfresco.mobile.android.api.services.ServiceRegistry;
+import org.alfresco.mobile.android.api.services.cache.impl.ContentCache;
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.CloudSession;
 import org.alfresco.mobile.android.api.session.RepositorySession;
@@ -38,14 +42,21 @@ import org.alfresco.mobile.android.api.session.impl.AbstractAlfrescoSessionImpl;
 import org.alfresco.mobile.android.api.utils.IOUtils;
 import org.alfresco.mobile.android.api.utils.messages.Messagesl18n;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
 import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.atompub.AbstractAtomPubService;
+import org.apache.chemistry.opencmis.client.bindings.spi.atompub.AtomPubParser;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoBrowserBindingImpl;
 import org.apache.http.HttpStatus;
 
 import android.os.Parcel;
@@ -62,6 +73,9 @@ import android.os.Parcel;
  */
 public abstract class AlfrescoService implements Service
 {
+    /** Subfolder of the cache folder which contains cached content. */
+    private static final String CONTENT_CACHE_FOLDER = "files";
+
     /** Repository Session. */
     protected AlfrescoSession session;
 
@@ -84,11 +98,7 @@ public abstract class AlfrescoService implements Service
     public AlfrescoService(AlfrescoSession repositorySession)
     {
         this.session = repositorySession;
-        this.bindingSession = new SessionImpl();
-        bindingSession.put(CmisBindingsHelper.AUTHENTICATION_PROVIDER_OBJECT,
-                ((AbstractAlfrescoSessionImpl) session).getPassthruAuthenticationProvider());
-        bindingSession.put(SessionParameter.HTTP_INVOKER_CLASS,
-                repositorySession.getParameter(AlfrescoSession.HTTP_INVOKER_CLASSNAME));
+        this.bindingSession = createBindingSession();
     }
 
     // //////////////////////////////////////////////////////////////////////////////////////////
@@ -102,10 +112,25 @@ public abstract class AlfrescoService implements Service
      * @param url : requested URL. @ : if network or internal problems occur
      *            during the process.
      */
-    protected Response read(UrlBuilder url, int errorCode)
+    protected Response read(final UrlBuilder url, int errorCode)
     {
         // Log.d("URL", url.toString());
-        Response resp = getHttpInvoker().invokeGET(url, getSessionHttp());
+        Response resp;
+        if (Boolean.FALSE.equals(session.getParameter(AlfrescoSession.HTTP_COALESCE_READS)))
+        {
+            resp = getHttpInvoker().invokeGET(url, getSessionHttp());
+        }
+        else
+        {
+            resp = RequestCoalescer.getInstance().invoke(getRequestKey("GET", url),
+                    new RequestCoalescer.Invocation()
+                    {
+                        public Response invoke()
+                        {
+                            return getHttpInvoker().invokeGET(url, getSessionHttp());
+                        }
+                    });
+        }
 
         // check response code
         if (resp.getResponseCode() != HttpStatus.SC_OK)
@@ -169,6 +194,17 @@ public abstract class AlfrescoService implements Service
         return resp;
     }
 
+    /**
+     * @return key identifying a request : method, url, authenticated user and
+     *         session. Requests of different sessions are never shared.
+     */
+    private String getRequestKey(String method, UrlBuilder url)
+    {
+        Session cmisSession = ((AbstractAlfrescoSessionImpl) session).getCmisSession();
+        String sessionId = (cmisSession != null) ? cmisSession.getBinding().getSessionId() : null;
+        return method + " " + url + " " + session.getPersonIdentifier() + "@" + sessionId;
+    }
+
     /**
      * @return Binding session for passing the authenticationProvider to execute
      *         the http request.
@@ -177,11 +213,7 @@ public abstract class AlfrescoService implements Service
     {
         if (bindingSession == null)
         {
-            bindingSession = new SessionImpl();
-            bindingSession.put(CmisBindingsHelper.AUTHENTICATION_PROVIDER_OBJECT,
-                    ((AbstractAlfrescoSessionImpl) session).getPassthruAuthenticationProvider());
-            bindingSession.put(SessionParameter.HTTP_INVOKER_CLASS,
-                    ((AbstractAlfrescoSessionImpl) session).getParameter(AlfrescoSession.HTTP_INVOKER_CLASSNAME));
+            bindingSession = createBindingSession();
         }
         else if (bindingSession != null
                 && bindingSession.get(CmisBindingsHelper.AUTHENTICATION_PROVIDER_OBJECT) == null)
@@ -192,6 +224,37 @@ public abstract class AlfrescoService implements Service
         return bindingSession;
     }
 
+    /** Session parameters forwarded to the HttpInvoker. */
+    private static final String[] HTTP_PARAMETERS = { AlfrescoSession.HTTP_POOL_MAX_CONNECTIONS,
+            AlfrescoSession.HTTP_POOL_MAX_CONNECTIONS_PER_HOST, AlfrescoSession.HTTP_POOL_KEEP_ALIVE,
+            AlfrescoSession.HTTP_POOL_IDLE_TIMEOUT, AlfrescoSession.CACHE_FOLDER, AlfrescoSession.CACHE_HTTP_MAX_SIZE };
+
+    private BindingSession createBindingSession()
+    {
+        BindingSession tmpSession = new SessionImpl();
+        tmpSession.put(CmisBindingsHelper.AUTHENTICATION_PROVIDER_OBJECT,
+                ((AbstractAlfrescoSessionImpl) session).getPassthruAuthenticationProvider());
+        tmpSession.put(SessionParameter.HTTP_INVOKER_CLASS,
+                session.getParameter(AlfrescoSession.HTTP_INVOKER_CLASSNAME));
+        for (String key : HTTP_PARAMETERS)
+        {
+            if (session.getParameter(key) != null)
+            {
+                tmpSession.put(key, session.getParameter(key).toString());
+            }
+        }
+        if (session.getPersonIdentifier() != null)
+        {
+            tmpSession.put(HttpResponseCache.USER, session.getPersonIdentifier());
+        }
+        String listenerKey = RequestMetrics.register(session.getParameter(AlfrescoSession.METRICS_LISTENER));
+        if (listenerKey != null)
+        {
+            tmpSession.put(AlfrescoSession.METRICS_LISTENER, listenerKey);
+        }
+        return tmpSession;
+    }
+
     /**
      * Gets the HTTP Invoker object.
      */
@@ -203,6 +266,34 @@ public abstract class AlfrescoService implements Service
     // //////////////////////////////////////////////////////////////////////////////////////////
     // UTILS
     // /////////////////////////////////////////////////////////////////////////////////////////
+    /**
+     * Returns the url of the content of a CMIS object. The url depends on the
+     * CMIS binding used by the session (AtomPub or Browser).
+     * 
+     * @param objectId : CMIS object identifier.
+     * @return the content url or null if it can't be determined.
+     * @since 1.5.1
+     */
+    protected String getContentUrl(String objectId)
+    {
+        Session cmisSession = ((AbstractAlfrescoSessionImpl) session).getCmisSession();
+        String repositoryId = session.getRepositoryInfo().getIdentifier();
+        Object objectService = cmisSession.getBinding().getObjectService();
+        if (objectService instanceof AbstractAtomPubService) { return ((AbstractAtomPubService) objectService)
+                .loadLink(repositoryId, objectId, AtomPubParser.LINK_REL_CONTENT, null); }
+
+        // Browser binding : content is available under the root url.
+        RepositoryInfo info = cmisSession.getBinding().getRepositoryService().getRepositoryInfo(repositoryId, null);
+        if (info instanceof RepositoryInfoBrowserBindingImpl)
+        {
+            UrlBuilder url = new UrlBuilder(((RepositoryInfoBrowserBindingImpl) info).getRootUrl());
+            url.addParameter(Constants.PARAM_OBJECT_ID, objectId);
+            url.addParameter(Constants.PARAM_SELECTOR, Constants.SELECTOR_CONTENT);
+            return url.toString();
+        }
+        return null;
+    }
+
     /**
      * Wrap and transform cmisobject into NodeObject
      * 
@@ -351,29 +442,32 @@ public abstract class AlfrescoService implements Service
      * @return ContentFile associated to the cache file.
      */
     protected ContentFile saveContentStream(ContentStream contentStream, String cacheFileName, int storageType)
+    {
+        return saveContentStream(contentStream, cacheFileName, storageType, null);
+    }
 
+    /**
+     * Allow to save a contentStream inside the content cache. The cache file
+     * can be served later by {@link #getCachedContent(String, int, String)} as
+     * long as the node keeps the same stamp.
+     * 
+     * @param contentStream : Content stream of any content
+     * @param cacheFileName : Name of the cache file
+     * @param storageType : Determine in which subfolders the content is stored
+     * @param stamp : change token or modification date of the node. See
+     *            {@link #getCacheStamp(Node)}. Null if the content must not be
+     *            served from the cache.
+     * @return ContentFile associated to the cache file.
+     */
+    protected ContentFile saveContentStream(ContentStream contentStream, String cacheFileName, int storageType,
+            String stamp)
     {
         if (contentStream == null || contentStream.getInputStream() == null) { return null; }
 
         try
         {
-            String folderName = (String) session.getParameter(AlfrescoSession.CACHE_FOLDER);
-            switch (storageType)
-            {
-                case RENDITION_CACHE:
-                    folderName += "/rendition";
-                    break;
-                case CONTENT_CACHE:
-                    folderName += "/content";
-                    break;
-                default:
-                    break;
-            }
-
-            File f = new File(folderName, cacheFileName);
-            IOUtils.ensureOrCreatePathAndFile(f);
-            IOUtils.copyFile(contentStream.getInputStream(), f);
-            return new ContentFileImpl(f, contentStream.getFileName(), contentStream.getMimeType());
+            return getContentCache().put(getCacheKey(cacheFileName, storageType), stamp,
+                    contentStream.getInputStream(), contentStream.getFileName(), contentStream.getMimeType());
         }
         catch (Exception e)
         {
@@ -382,6 +476,90 @@ public abstract class AlfrescoService implements Service
         return null;
     }
 
+    /**
+     * Returns the cache file previously saved by
+     * {@link #saveContentStream(ContentStream, String, int, String)} if it has
+     * been saved with the same stamp.
+     * 
+     * @param cacheFileName : Name of the cache file
+     * @param storageType : Determine in which subfolders the content is stored
+     * @param stamp : current change token or modification date of the node.
+     * @return ContentFile associated to the cache file or null if the cache
+     *         doesn't contain a fresh copy. The file can be evicted by the
+     *         next content saved in the cache.
+     */
+    protected ContentFile getCachedContent(String cacheFileName, int storageType, String stamp)
+    {
+        return getContentCache().get(getCacheKey(cacheFileName, storageType), stamp);
+    }
+
+    /**
+     * Returns the content cache associated to the cache folder of the
+     * session. The cache has its own subfolder so its size and journal only
+     * take its own files into account.
+     * 
+     * @return content cache.
+     */
+    public ContentCache getContentCache()
+    {
+        File directory = new File((String) session.getParameter(AlfrescoSession.CACHE_FOLDER), CONTENT_CACHE_FOLDER);
+        return ContentCache.getInstance(directory,
+                getLongParameter(AlfrescoSession.CACHE_CONTENT_MAX_SIZE, ContentCache.DEFAULT_MAX_SIZE));
+    }
+
+    /**
+     * Returns the numeric value of a session parameter.
+     * 
+     * @param key : session parameter key
+     * @param defaultValue : value returned if the parameter is not defined.
+     * @return parameter value
+     */
+    protected long getLongParameter(String key, long defaultValue)
+    {
+        Object value = session.getParameter(key);
+        if (value instanceof Number) { return ((Number) value).longValue(); }
+        if (value != null)
+        {
+            try
+            {
+                return Long.parseLong(value.toString());
+            }
+            catch (NumberFormatException e)
+            {
+                // Default value
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Returns the value used to validate cache files of a node : its change
+     * token if available, otherwise its last modification date.
+     * 
+     * @param node : node associated to the cache file.
+     * @return stamp or null if the node doesn't provide any.
+     */
+    protected static String getCacheStamp(Node node)
+    {
+        Object changeToken = node.getPropertyValue(PropertyIds.CHANGE_TOKEN);
+        if (changeToken != null) { return changeToken.toString(); }
+        if (node.getModifiedAt() != null) { return Long.toString(node.getModifiedAt().getTimeInMillis()); }
+        return null;
+    }
+
+    protected static String getCacheKey(String cacheFileName, int storageType)
+    {
+        switch (storageType)
+        {
+            case RENDITION_CACHE:
+                return "rendition/" + cacheFileName;
+            case CONTENT_CACHE:
+                return "content/" + cacheFileName;
+            default:
+                return cacheFileName;
+        }
+    }
+
     // ////////////////////////////////////////////////////
     // CACHING
     // ////////////////////////////////////////////////////
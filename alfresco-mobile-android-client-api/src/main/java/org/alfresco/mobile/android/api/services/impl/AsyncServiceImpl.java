@@ -0,0 +1,433 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.services.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.alfresco.mobile.android.api.exceptions.AlfrescoServiceException;
+import org.alfresco.mobile.android.api.exceptions.ErrorCodeRegistry;
+import org.alfresco.mobile.android.api.network.RequestScope;
+import org.alfresco.mobile.android.api.services.AsyncService;
+import org.alfresco.mobile.android.api.session.AlfrescoSession;
+
+/**
+ * Implementation of {@link AsyncService} based on a thread pool. <br/>
+ * Each task opens a {@link RequestScope} while it runs : cancelling the task
+ * aborts the connections opened by its thread. Connections opened by worker
+ * threads of the service itself (e.g. ranged downloads) are not aborted, they
+ * end with the task.
+ *
+ * @since 1.5.1
+ */
+public class AsyncServiceImpl implements AsyncService
+{
+    /** Default number of threads. */
+    public static final int DEFAULT_THREADS = 4;
+
+    /** Idle threads are released after this delay. */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger(1);
+
+    private final ThreadPoolExecutor executor;
+
+    /** Tasks not done yet. */
+    private final Set<TaskImpl<?>> tasks = Collections
+            .newSetFromMap(new ConcurrentHashMap<TaskImpl<?>, Boolean>());
+
+    public AsyncServiceImpl(AlfrescoSession session)
+    {
+        this(getThreads(session));
+    }
+
+    /**
+     * @param threads : maximum number of tasks running at the same time.
+     */
+    public AsyncServiceImpl(int threads)
+    {
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new AsyncThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static int getThreads(AlfrescoSession session)
+    {
+        Object value = session.getParameter(AlfrescoSession.ASYNC_THREADS);
+        int threads = DEFAULT_THREADS;
+        if (value instanceof Number)
+        {
+            threads = ((Number) value).intValue();
+        }
+        else if (value != null)
+        {
+            try
+            {
+                threads = Integer.parseInt(value.toString());
+            }
+            catch (NumberFormatException e)
+            {
+                // Default value
+            }
+        }
+        return (threads > 0) ? threads : DEFAULT_THREADS;
+    }
+
+    // ////////////////////////////////////////////////////
+    // SUBMIT
+    // ////////////////////////////////////////////////////
+    public <T> Task<T> submit(Callable<T> operation)
+    {
+        return submit(operation, null);
+    }
+
+    public <T> Task<T> submit(Callable<T> operation, Callback<T> callback)
+    {
+        if (operation == null) { throw new IllegalArgumentException("operation"); }
+        TaskImpl<T> task = new TaskImpl<T>(operation, callback, null, 0);
+        execute(task);
+        return task;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Task<List<Object>> submitAll(List<? extends Callable<?>> operations, Callback<List<Object>> callback)
+    {
+        if (operations == null) { throw new IllegalArgumentException("operations"); }
+        CompositeTask composite = new CompositeTask(operations.size(), callback);
+        if (operations.isEmpty())
+        {
+            composite.complete();
+            return composite;
+        }
+
+        for (int i = 0; i < operations.size(); i++)
+        {
+            composite.children.add(new TaskImpl<Object>((Callable<Object>) operations.get(i), null, composite, i));
+        }
+        for (TaskImpl<Object> task : composite.children)
+        {
+            execute(task);
+        }
+        return composite;
+    }
+
+    private void execute(TaskImpl<?> task)
+    {
+        tasks.add(task);
+        try
+        {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException e)
+        {
+            tasks.remove(task);
+            throw new AlfrescoServiceException(ErrorCodeRegistry.GENERAL_GENERIC, e);
+        }
+    }
+
+    public void shutdown()
+    {
+        executor.shutdown();
+        for (TaskImpl<?> task : new ArrayList<TaskImpl<?>>(tasks))
+        {
+            task.cancel(true);
+        }
+    }
+
+    // ////////////////////////////////////////////////////
+    // RESULTS
+    // ////////////////////////////////////////////////////
+    /**
+     * Waits for the end of a task.
+     *
+     * @return result of the task.
+     */
+    static <T> T waitFor(Future<T> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new AlfrescoServiceException(ErrorCodeRegistry.GENERAL_GENERIC, e);
+        }
+        catch (ExecutionException e)
+        {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause)
+    {
+        if (cause instanceof RuntimeException) { return (RuntimeException) cause; }
+        if (cause instanceof Error) { throw (Error) cause; }
+        return new AlfrescoServiceException(ErrorCodeRegistry.GENERAL_GENERIC, cause);
+    }
+
+    // ////////////////////////////////////////////////////
+    // TASKS
+    // ////////////////////////////////////////////////////
+    private final class TaskImpl<T> extends FutureTask<T> implements Task<T>
+    {
+        private final Callback<T> callback;
+
+        private final CompositeTask composite;
+
+        private final int index;
+
+        private volatile RequestScope scope;
+
+        TaskImpl(Callable<T> operation, Callback<T> callback, CompositeTask composite, int index)
+        {
+            super(operation);
+            this.callback = callback;
+            this.composite = composite;
+            this.index = index;
+        }
+
+        @Override
+        public void run()
+        {
+            RequestScope requestScope = RequestScope.open();
+            scope = requestScope;
+            try
+            {
+                // Cancelled between submit and run.
+                if (isCancelled())
+                {
+                    requestScope.cancel();
+                }
+                super.run();
+            }
+            finally
+            {
+                scope = null;
+                requestScope.close();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            RequestScope requestScope = scope;
+            if (cancelled && requestScope != null)
+            {
+                requestScope.cancel();
+            }
+            return cancelled;
+        }
+
+        public T getResult()
+        {
+            return waitFor(this);
+        }
+
+        @Override
+        protected void done()
+        {
+            tasks.remove(this);
+            if (composite != null)
+            {
+                composite.onDone(index, this);
+            }
+            else if (callback != null && !isCancelled())
+            {
+                T result;
+                try
+                {
+                    result = get();
+                }
+                catch (Exception e)
+                {
+                    callback.onFailure(unwrap((e instanceof ExecutionException) ? e.getCause() : e));
+                    return;
+                }
+                callback.onSuccess(result);
+            }
+        }
+    }
+
+    /** Task of independent operations. */
+    private final class CompositeTask implements Task<List<Object>>
+    {
+        private final List<TaskImpl<Object>> children;
+
+        private final Object[] results;
+
+        private final Callback<List<Object>> callback;
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private int remaining;
+
+        private RuntimeException failure;
+
+        private boolean cancelled = false;
+
+        CompositeTask(int size, Callback<List<Object>> callback)
+        {
+            this.children = new ArrayList<TaskImpl<Object>>(size);
+            this.results = new Object[size];
+            this.remaining = size;
+            this.callback = callback;
+        }
+
+        void onDone(int index, TaskImpl<?> child)
+        {
+            // Cancelled by this task.
+            if (child.isCancelled()) { return; }
+
+            RuntimeException error = null;
+            synchronized (this)
+            {
+                if (latch.getCount() == 0) { return; }
+                try
+                {
+                    results[index] = child.get();
+                }
+                catch (Exception e)
+                {
+                    error = unwrap((e instanceof ExecutionException) ? e.getCause() : e);
+                    failure = error;
+                }
+                if (error == null && --remaining > 0) { return; }
+                latch.countDown();
+            }
+
+            if (error != null)
+            {
+                // Fail fast
+                cancelChildren();
+            }
+            notifyCallback();
+        }
+
+        void complete()
+        {
+            latch.countDown();
+            notifyCallback();
+        }
+
+        private void notifyCallback()
+        {
+            if (callback == null) { return; }
+            if (failure != null)
+            {
+                callback.onFailure(failure);
+            }
+            else
+            {
+                callback.onSuccess(getResults());
+            }
+        }
+
+        private void cancelChildren()
+        {
+            for (TaskImpl<Object> child : children)
+            {
+                child.cancel(true);
+            }
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            synchronized (this)
+            {
+                if (latch.getCount() == 0) { return false; }
+                cancelled = true;
+                latch.countDown();
+            }
+            cancelChildren();
+            return true;
+        }
+
+        public synchronized boolean isCancelled()
+        {
+            return cancelled;
+        }
+
+        public boolean isDone()
+        {
+            return latch.getCount() == 0;
+        }
+
+        public List<Object> get() throws InterruptedException, ExecutionException
+        {
+            latch.await();
+            return report();
+        }
+
+        public List<Object> get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+                TimeoutException
+        {
+            if (!latch.await(timeout, unit)) { throw new TimeoutException(); }
+            return report();
+        }
+
+        public List<Object> getResult()
+        {
+            return waitFor(this);
+        }
+
+        private synchronized List<Object> report() throws ExecutionException
+        {
+            if (cancelled) { throw new CancellationException(); }
+            if (failure != null) { throw new ExecutionException(failure); }
+            return getResults();
+        }
+
+        private synchronized List<Object> getResults()
+        {
+            return Collections.unmodifiableList(Arrays.asList(results.clone()));
+        }
+    }
+
+    private static class AsyncThreadFactory implements ThreadFactory
+    {
+        private final int poolNumber = POOL_NUMBER.getAndIncrement();
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        public Thread newThread(Runnable r)
+        {
+            Thread thread = new Thread(r, "AlfrescoAsync-" + poolNumber + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
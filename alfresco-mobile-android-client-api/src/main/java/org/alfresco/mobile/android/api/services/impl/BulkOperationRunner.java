@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.services.impl;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.alfresco.mobile.android.api.exceptions.AlfrescoException;
+import org.alfresco.mobile.android.api.exceptions.ErrorCodeRegistry;
+import org.alfresco.mobile.android.api.exceptions.impl.ExceptionHelper;
+import org.alfresco.mobile.android.api.model.BulkOperationContext;
+import org.alfresco.mobile.android.api.model.BulkOperationResult;
+import org.alfresco.mobile.android.api.model.Node;
+import org.alfresco.mobile.android.api.model.impl.BulkOperationResultImpl;
+import org.alfresco.mobile.android.api.network.RequestScope;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisUnauthorizedException;
+
+/**
+ * Applies an operation to a list of nodes with a bounded number of
+ * concurrent requests. <br/>
+ * Each node gets its own outcome : a failed node doesn't stop the others
+ * unless {@link BulkOperationContext#isStopOnError()} is true. Fatal errors
+ * (authentication, session or network) always stop the operation : remaining
+ * nodes are skipped. <br/>
+ * If the calling thread runs inside a {@link RequestScope} (e.g. a task of the
+ * AsyncService), cancelling the scope stops the operation and aborts the
+ * requests in progress. <br/>
+ * The calling thread processes nodes too. Other workers come from a pool of
+ * daemon threads shared by all runners : when the pool is busy, the operation
+ * runs with fewer concurrent requests.
+ *
+ * @since 1.5.1
+ */
+public class BulkOperationRunner
+{
+    /** Maximum number of background workers shared by all runners. */
+    private static final int MAX_WORKERS = 8;
+
+    private static final ExecutorService WORKER_EXECUTOR = Executors.newFixedThreadPool(MAX_WORKERS,
+            new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "BulkOperation");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    /** Operation applied to one node. */
+    public interface Operation
+    {
+        /**
+         * @param node : node to process.
+         * @return the updated node or null if it hasn't been retrieved.
+         */
+        Node apply(Node node) throws Exception;
+    }
+
+    private final int maxConcurrency;
+
+    private final boolean stopOnError;
+
+    /**
+     * @param context : concurrency and error policy. Can be null.
+     */
+    public BulkOperationRunner(BulkOperationContext context)
+    {
+        int concurrency = (context != null) ? context.getMaxConcurrency() : 0;
+        this.maxConcurrency = (concurrency > 0) ? concurrency : BulkOperationContext.DEFAULT_MAX_CONCURRENCY;
+        this.stopOnError = (context != null) && context.isStopOnError();
+    }
+
+    // ////////////////////////////////////////////////////
+    // RUN
+    // ////////////////////////////////////////////////////
+    /**
+     * Applies the operation to all nodes and waits for the end.
+     *
+     * @return outcome of each node.
+     */
+    public BulkOperationResult run(List<Node> nodes, Operation operation)
+    {
+        BulkOperationResultImpl result = new BulkOperationResultImpl(nodes);
+        if (nodes.isEmpty()) { return result; }
+
+        Run run = new Run(nodes, operation, result);
+        RequestScope.register(run);
+        int workers = Math.min(maxConcurrency, nodes.size());
+        if (workers == 1)
+        {
+            // Current thread : its own scope applies.
+            run.work(false);
+            return result;
+        }
+
+        for (int i = 1; i < workers; i++)
+        {
+            WORKER_EXECUTOR.submit(run);
+        }
+        run.work(false);
+        try
+        {
+            run.awaitWorkers();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            run.abort();
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the error makes other nodes fail too : authentication,
+     *         session or network errors.
+     */
+    static boolean isFatal(Throwable error)
+    {
+        for (Throwable t = error; t != null; t = (t.getCause() != t) ? t.getCause() : null)
+        {
+            if (t instanceof CmisUnauthorizedException || t instanceof CmisConnectionException
+                    || t instanceof InterruptedException || t instanceof InterruptedIOException) { return true; }
+            if (t instanceof AlfrescoException)
+            {
+                int code = ((AlfrescoException) t).getErrorCode();
+                if (code >= ErrorCodeRegistry.SESSION_GENERIC && code < ErrorCodeRegistry.PARSING_GENERIC)
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Exception convert(Exception e)
+    {
+        try
+        {
+            ExceptionHelper.convertException(e);
+        }
+        catch (RuntimeException converted)
+        {
+            return converted;
+        }
+        return e;
+    }
+
+    // ////////////////////////////////////////////////////
+    // INTERNALS
+    // ////////////////////////////////////////////////////
+    /** State shared by the workers of one run. */
+    private final class Run implements Callable<Void>, RequestScope.Abortable
+    {
+        private final List<Node> nodes;
+
+        private final Operation operation;
+
+        private final BulkOperationResultImpl result;
+
+        private final AtomicInteger next = new AtomicInteger(0);
+
+        /** Scopes of the worker threads. */
+        private final List<RequestScope> scopes = new ArrayList<RequestScope>();
+
+        private boolean aborted = false;
+
+        /** Workers processing nodes. Guarded by synchronized(this). */
+        private int activeWorkers = 0;
+
+        Run(List<Node> nodes, Operation operation, BulkOperationResultImpl result)
+        {
+            this.nodes = nodes;
+            this.operation = operation;
+            this.result = result;
+        }
+
+        public Void call()
+        {
+            synchronized (this)
+            {
+                // Started once all nodes have been taken : nothing to do.
+                if (next.get() >= nodes.size()) { return null; }
+                activeWorkers++;
+            }
+            try
+            {
+                work(true);
+            }
+            finally
+            {
+                synchronized (this)
+                {
+                    activeWorkers--;
+                    notifyAll();
+                }
+            }
+            return null;
+        }
+
+        /** Waits for the end of the workers which have started. */
+        synchronized void awaitWorkers() throws InterruptedException
+        {
+            while (activeWorkers > 0)
+            {
+                wait();
+            }
+        }
+
+        void work(boolean ownScope)
+        {
+            RequestScope scope = null;
+            if (ownScope)
+            {
+                scope = RequestScope.open();
+                synchronized (scopes)
+                {
+                    if (aborted)
+                    {
+                        scope.cancel();
+                    }
+                    scopes.add(scope);
+                }
+            }
+            try
+            {
+                int index;
+                while ((index = next.getAndIncrement()) < nodes.size())
+                {
+                    try
+                    {
+                        result.setSucceeded(index, operation.apply(nodes.get(index)));
+                    }
+                    catch (Exception e)
+                    {
+                        Exception error = convert(e);
+                        result.setFailed(index, error);
+                        if (stopOnError || isFatal(error))
+                        {
+                            stop();
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                if (scope != null)
+                {
+                    scope.close();
+                }
+            }
+        }
+
+        /** Remaining nodes are skipped. */
+        void stop()
+        {
+            next.set(nodes.size());
+            result.setStopped();
+        }
+
+        /** Stops the run and aborts the requests in progress. */
+        public void abort()
+        {
+            stop();
+            List<RequestScope> pending;
+            synchronized (scopes)
+            {
+                aborted = true;
+                pending = new ArrayList<RequestScope>(scopes);
+            }
+            for (RequestScope scope : pending)
+            {
+                scope.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,476 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.services.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Properties;
+
+import org.alfresco.mobile.android.api.model.ContentFile;
+import org.alfresco.mobile.android.api.network.RequestMetrics;
+import org.alfresco.mobile.android.api.utils.IOUtils;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+
+import android.util.Log;
+
+/**
+ * Uploads the content of a local file in fixed-size chunks. <br/>
+ * The first chunk replaces the content of the document (CMIS
+ * setContentStream), next chunks are appended (CMIS 1.1 appendContentStream).
+ * After each chunk a checkpoint is saved inside the checkpoint folder so a
+ * failed upload is resumed from the last chunk confirmed by the server. <br/>
+ * Progress is reported through {@link ContentFile#fileReadCallback(int)}.
+ *
+ * @since 1.5.1
+ */
+public class ChunkedContentUploader
+{
+    private static final String TAG = ChunkedContentUploader.class.getName();
+
+    /** Default size of one chunk : 4 MB. */
+    public static final long DEFAULT_CHUNK_SIZE = 4L * 1024 * 1024;
+
+    private static final int MAX_RETRY = 3;
+
+    private static final long RETRY_DELAY = 1000;
+
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private static final String KEY_UPLOAD = "upload";
+
+    private static final String KEY_OBJECT_ID = "objectId";
+
+    private static final String KEY_OFFSET = "offset";
+
+    private static final String KEY_LENGTH = "length";
+
+    private static final String KEY_CHUNK_SIZE = "chunkSize";
+
+    private final ObjectService objectService;
+
+    private final String repositoryId;
+
+    private final long chunkSize;
+
+    private final File checkpointFolder;
+
+    /**
+     * @param objectService : CMIS object service.
+     * @param repositoryId : CMIS repository identifier.
+     * @param chunkSize : size in bytes of one chunk.
+     * @param checkpointFolder : folder where checkpoints are stored.
+     */
+    public ChunkedContentUploader(ObjectService objectService, String repositoryId, long chunkSize,
+            File checkpointFolder)
+    {
+        this.objectService = objectService;
+        this.repositoryId = repositoryId;
+        this.chunkSize = (chunkSize > 0) ? chunkSize : DEFAULT_CHUNK_SIZE;
+        this.checkpointFolder = checkpointFolder;
+    }
+
+    /**
+     * appendContentStream is only available with CMIS 1.1 repositories.
+     *
+     * @param cmisSession : current CMIS session
+     * @return true if the repository supports chunked upload.
+     */
+    public static boolean isSupported(Session cmisSession)
+    {
+        return cmisSession.getRepositoryInfo().getCmisVersion() == CmisVersion.CMIS_1_1;
+    }
+
+    /**
+     * @return size in bytes of one chunk.
+     */
+    public long getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the identifier of the object targeted by an interrupted upload.
+     *
+     * @param uploadKey : unique key of the upload (target + local file).
+     * @return object identifier or null if there's no pending upload.
+     */
+    public String getPendingObjectId(String uploadKey)
+    {
+        Properties checkpoint = readCheckpoint(uploadKey);
+        return (checkpoint != null) ? checkpoint.getProperty(KEY_OBJECT_ID) : null;
+    }
+
+    /**
+     * Records the object targeted by an upload before the first chunk is sent.
+     * Used when the object is created by the caller.
+     *
+     * @param uploadKey : unique key of the upload (target + local file).
+     * @param objectId : CMIS object identifier.
+     * @param length : content length.
+     */
+    public void begin(String uploadKey, String objectId, long length) throws IOException
+    {
+        writeCheckpoint(uploadKey, objectId, 0, length);
+    }
+
+    /**
+     * Uploads the content file into the object. If a checkpoint exists for
+     * this upload, upload restarts after the last chunk confirmed by the
+     * server.
+     *
+     * @param uploadKey : unique key of the upload (target + local file).
+     * @param objectId : CMIS object identifier.
+     * @param changeToken : change token sent with the first chunk. Can be
+     *            null.
+     * @param contentFile : local file.
+     * @param fileName : content file name.
+     * @param mimeType : content mimetype.
+     * @return object identifier after the upload (a new version may have been
+     *         created by the repository).
+     * @throws IOException : if a chunk can't be uploaded after retries or if
+     *             the content length stored on the server can't be read. The
+     *             checkpoint is kept for a later resume.
+     */
+    public String upload(String uploadKey, String objectId, String changeToken, ContentFile contentFile,
+            String fileName, String mimeType) throws IOException
+    {
+        long length = contentFile.getLength();
+        Holder<String> objectIdHolder = new Holder<String>(objectId);
+
+        // Resume
+        long offset = 0;
+        Properties checkpoint = readCheckpoint(uploadKey);
+        if (checkpoint != null && Long.toString(length).equals(checkpoint.getProperty(KEY_LENGTH))
+                && Long.toString(chunkSize).equals(checkpoint.getProperty(KEY_CHUNK_SIZE)))
+        {
+            objectIdHolder.setValue(checkpoint.getProperty(KEY_OBJECT_ID));
+            offset = resolveOffset(objectIdHolder.getValue(), length);
+            if (offset > 0)
+            {
+                Log.d(TAG, "Resume upload of " + objectIdHolder.getValue() + " at " + offset);
+                reportProgress(contentFile, offset);
+            }
+        }
+
+        while (offset < length)
+        {
+            long chunkLength = Math.min(chunkSize, length - offset);
+            offset = uploadChunk(objectIdHolder, (offset == 0) ? changeToken : null, contentFile, fileName,
+                    mimeType, offset, chunkLength, length);
+            writeCheckpoint(uploadKey, objectIdHolder.getValue(), offset, length);
+        }
+
+        deleteCheckpoint(uploadKey);
+        return objectIdHolder.getValue();
+    }
+
+    /**
+     * Creates a unique key for an upload.
+     *
+     * @param target : identifier of the target (parent folder + name or
+     *            document).
+     * @param contentFile : local file.
+     * @return upload key
+     */
+    public static String createUploadKey(String target, ContentFile contentFile)
+    {
+        File f = contentFile.getFile();
+        return target + "|" + f.getAbsolutePath() + "|" + f.length() + "|" + f.lastModified();
+    }
+
+    // ///////////////////////////////////////////////////////////////////////////
+    // CHUNKS
+    // ///////////////////////////////////////////////////////////////////////////
+    /**
+     * @return offset after the chunk.
+     */
+    private long uploadChunk(Holder<String> objectIdHolder, String changeToken, ContentFile contentFile,
+            String fileName, String mimeType, long offset, long chunkLength, long length) throws IOException
+    {
+        boolean isLastChunk = (offset + chunkLength >= length);
+        Exception lastError = null;
+
+        // Bytes of the chunk already reported by the failed attempts.
+        long reported = 0;
+
+        for (int attempt = 0; attempt < MAX_RETRY; attempt++)
+        {
+            if (attempt > 0)
+            {
+                // The request may have reached the server before failing.
+                long serverOffset = resolveOffset(objectIdHolder.getValue(), length);
+                if (serverOffset == offset + chunkLength)
+                {
+                    reportProgress(contentFile, chunkLength - reported);
+                    return serverOffset;
+                }
+                if (serverOffset != offset) { throw new IOException("Unexpected content length on server",
+                        lastError); }
+
+                if (!sleep(RETRY_DELAY * attempt))
+                {
+                    break;
+                }
+                RequestMetrics.markRetry();
+            }
+
+            CountingInputStream stream = null;
+            try
+            {
+                InputStream in = IOUtils.getContentFileInputStream(contentFile, offset, chunkLength, reported);
+                stream = (in != null) ? new CountingInputStream(in) : null;
+                ContentStreamImpl cs = new ContentStreamImpl(fileName, BigInteger.valueOf(chunkLength), mimeType,
+                        stream);
+                if (offset == 0)
+                {
+                    objectService.setContentStream(repositoryId, objectIdHolder, true, new Holder<String>(
+                            changeToken), cs, null);
+                }
+                else
+                {
+                    objectService.appendContentStream(repositoryId, objectIdHolder, null, cs, isLastChunk, null);
+                }
+                return offset + chunkLength;
+            }
+            catch (IOException e)
+            {
+                lastError = e;
+            }
+            catch (RuntimeException e)
+            {
+                // Network errors are reported as CmisConnectionException.
+                lastError = e;
+            }
+            finally
+            {
+                IOUtils.closeStream(stream);
+                if (stream != null)
+                {
+                    reported = Math.max(reported, stream.getCount());
+                }
+            }
+        }
+        throw new IOException("Unable to upload chunk at " + offset, lastError);
+    }
+
+    /**
+     * Reads the content length stored on the server. Upload must restart from
+     * the beginning if it's neither a chunk boundary nor the whole content.
+     *
+     * @throws IOException : if the content length can't be read after
+     *             retries. The offset is unknown.
+     */
+    private long resolveOffset(String objectId, long length) throws IOException
+    {
+        Exception lastError = null;
+        for (int attempt = 0; attempt < MAX_RETRY; attempt++)
+        {
+            if (attempt > 0 && !sleep(RETRY_DELAY * attempt))
+            {
+                break;
+            }
+            try
+            {
+                ObjectData data = objectService.getObject(repositoryId, objectId,
+                        PropertyIds.CONTENT_STREAM_LENGTH, false, IncludeRelationships.NONE, "cmis:none", false,
+                        false, null);
+                PropertyData<?> property = data.getProperties().getProperties()
+                        .get(PropertyIds.CONTENT_STREAM_LENGTH);
+                if (property == null || !(property.getFirstValue() instanceof BigInteger)) { return 0; }
+
+                // Whole content or complete chunks.
+                long serverLength = ((BigInteger) property.getFirstValue()).longValue();
+                if (serverLength == length) { return serverLength; }
+                if (serverLength < length && serverLength % chunkSize == 0) { return serverLength; }
+                return 0;
+            }
+            catch (RuntimeException e)
+            {
+                Log.w(TAG, "Unable to check content length of " + objectId + " : " + e.getMessage());
+                lastError = e;
+            }
+        }
+        throw new IOException("Unable to check content length of " + objectId, lastError);
+    }
+
+    /** @return false if the thread has been interrupted. */
+    private static boolean sleep(long delay)
+    {
+        try
+        {
+            Thread.sleep(delay);
+            return true;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void reportProgress(ContentFile contentFile, long bytes) throws IOException
+    {
+        long remaining = bytes;
+        while (remaining > 0)
+        {
+            int n = (int) Math.min(Integer.MAX_VALUE, remaining);
+            contentFile.fileReadCallback(n);
+            remaining -= n;
+        }
+    }
+
+    /** Counts the bytes of a chunk read by the binding. */
+    private static final class CountingInputStream extends FilterInputStream
+    {
+        private long count = 0;
+
+        CountingInputStream(InputStream in)
+        {
+            super(in);
+        }
+
+        long getCount()
+        {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+            if (b != -1)
+            {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException
+        {
+            int read = super.read(buffer, offset, length);
+            if (read > 0)
+            {
+                count += read;
+            }
+            return read;
+        }
+    }
+
+    // ///////////////////////////////////////////////////////////////////////////
+    // CHECKPOINTS
+    // ///////////////////////////////////////////////////////////////////////////
+    private File getCheckpointFile(String uploadKey)
+    {
+        return new File(checkpointFolder, hash(uploadKey) + CHECKPOINT_SUFFIX);
+    }
+
+    private Properties readCheckpoint(String uploadKey)
+    {
+        File f = getCheckpointFile(uploadKey);
+        if (!f.exists()) { return null; }
+
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream(f);
+            Properties checkpoint = new Properties();
+            checkpoint.load(in);
+            if (!uploadKey.equals(checkpoint.getProperty(KEY_UPLOAD))
+                    || checkpoint.getProperty(KEY_OBJECT_ID) == null) { return null; }
+            Long.parseLong(checkpoint.getProperty(KEY_OFFSET));
+            return checkpoint;
+        }
+        catch (Exception e)
+        {
+            // Corrupted checkpoint : upload restarts.
+            return null;
+        }
+        finally
+        {
+            IOUtils.closeStream(in);
+        }
+    }
+
+    private void writeCheckpoint(String uploadKey, String objectId, long offset, long length) throws IOException
+    {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty(KEY_UPLOAD, uploadKey);
+        checkpoint.setProperty(KEY_OBJECT_ID, objectId);
+        checkpoint.setProperty(KEY_OFFSET, Long.toString(offset));
+        checkpoint.setProperty(KEY_LENGTH, Long.toString(length));
+        checkpoint.setProperty(KEY_CHUNK_SIZE, Long.toString(chunkSize));
+
+        checkpointFolder.mkdirs();
+        File f = getCheckpointFile(uploadKey);
+        File tmp = new File(f.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(tmp);
+        try
+        {
+            checkpoint.store(out, null);
+        }
+        finally
+        {
+            IOUtils.closeStream(out);
+        }
+        if (!tmp.renameTo(f))
+        {
+            f.delete();
+            if (!tmp.renameTo(f)) { throw new IOException("Unable to write checkpoint " + f.getPath()); }
+        }
+    }
+
+    private void deleteCheckpoint(String uploadKey)
+    {
+        getCheckpointFile(uploadKey).delete();
+    }
+
+    private static String hash(String value)
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            byte[] digest = md.digest(value.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+            {
+                sb.append(Integer.toHexString((b & 0xFF) | 0x100).substring(1));
+            }
+            return sb.toString();
+        }
+        catch (Exception e)
+        {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+}
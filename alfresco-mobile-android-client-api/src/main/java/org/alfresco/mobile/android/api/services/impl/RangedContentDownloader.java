@@ -0,0 +1,410 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.services.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.alfresco.mobile.android.api.network.RequestMetrics;
+import org.alfresco.mobile.android.api.utils.IOUtils;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.PartialContentStream;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+
+import android.util.Log;
+
+/**
+ * Downloads the content of a document by byte ranges. <br/>
+ * The content is split into chunks fetched concurrently over several
+ * connections and written at their offset inside a preallocated file. Each
+ * completed chunk is recorded inside a progress file (destination file +
+ * ".progress") so an interrupted download restarts from the missing chunks
+ * only. <br/>
+ * If the server doesn't honour range requests, the content is downloaded
+ * sequentially in one request. <br/>
+ * Ranges are fetched by a pool of daemon threads shared by all downloads.
+ *
+ * @since 1.5.1
+ */
+public class RangedContentDownloader
+{
+    private static final String TAG = RangedContentDownloader.class.getName();
+
+    /** Default size of one range : 4 MB. */
+    public static final long DEFAULT_CHUNK_SIZE = 4L * 1024 * 1024;
+
+    /** Default number of concurrent connections. */
+    public static final int DEFAULT_THREADS = 3;
+
+    private static final int MAX_RETRY = 3;
+
+    private static final long RETRY_DELAY = 500;
+
+    private static final String PROGRESS_SUFFIX = ".progress";
+
+    /** Maximum number of ranges fetched at the same time by all downloads. */
+    private static final int MAX_THREADS = 6;
+
+    private static final ExecutorService DOWNLOAD_EXECUTOR = Executors.newFixedThreadPool(MAX_THREADS,
+            new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "RangedDownload");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    private final ObjectService objectService;
+
+    private final String repositoryId;
+
+    private final long chunkSize;
+
+    private final int threadCount;
+
+    /**
+     * @param objectService : CMIS object service used to retrieve ranges.
+     * @param repositoryId : CMIS repository identifier.
+     * @param chunkSize : size in bytes of one range.
+     * @param threadCount : maximum number of concurrent ranges.
+     */
+    public RangedContentDownloader(ObjectService objectService, String repositoryId, long chunkSize,
+            int threadCount)
+    {
+        this.objectService = objectService;
+        this.repositoryId = repositoryId;
+        this.chunkSize = (chunkSize > 0) ? chunkSize : DEFAULT_CHUNK_SIZE;
+        this.threadCount = (threadCount > 0) ? threadCount : DEFAULT_THREADS;
+    }
+
+    /**
+     * Downloads the content of the object into the destination file. If a
+     * previous download of the same object version has been interrupted, only
+     * missing ranges are retrieved.
+     *
+     * @param objectId : CMIS object identifier.
+     * @param stamp : change token or modification date of the object. Used to
+     *            invalidate progress of a previous version. Can be null.
+     * @param length : content length.
+     * @param dest : destination file.
+     * @return destination file.
+     * @throws IOException : if one range can't be downloaded after retries.
+     *             Progress is kept for a later resume.
+     */
+    public File download(String objectId, String stamp, long length, File dest) throws IOException
+    {
+        File progressFile = new File(dest.getPath() + PROGRESS_SUFFIX);
+        String header = objectId + "\n" + stamp + "\n" + length + "\n" + chunkSize + "\n";
+        int chunkCount = (int) ((length + chunkSize - 1) / chunkSize);
+
+        // Resume or start a new download.
+        Set<Integer> completed = readProgress(progressFile, header, dest, length);
+        if (completed == null)
+        {
+            completed = new HashSet<Integer>();
+            startProgress(progressFile, header, dest, length);
+        }
+
+        List<Integer> pending = new ArrayList<Integer>(chunkCount);
+        for (int i = 0; i < chunkCount; i++)
+        {
+            if (!completed.contains(i))
+            {
+                pending.add(i);
+            }
+        }
+
+        if (!pending.isEmpty())
+        {
+            try
+            {
+                downloadRanges(objectId, length, dest, progressFile, pending);
+            }
+            catch (RangeNotSupportedException e)
+            {
+                Log.d(TAG, "Range requests not supported : sequential download of " + objectId);
+                progressFile.delete();
+                downloadFully(objectId, dest);
+                return dest;
+            }
+        }
+
+        progressFile.delete();
+        return dest;
+    }
+
+    // ///////////////////////////////////////////////////////////////////////////
+    // RANGES
+    // ///////////////////////////////////////////////////////////////////////////
+    private void downloadRanges(final String objectId, final long length, File dest, File progressFile,
+            final List<Integer> pending) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(dest, "rw");
+        final Writer progressWriter = new OutputStreamWriter(new FileOutputStream(progressFile, true), "UTF-8");
+        final FileChannel channel = raf.getChannel();
+        final AtomicInteger next = new AtomicInteger(0);
+        int workers = Math.min(threadCount, pending.size());
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(workers);
+
+        try
+        {
+            for (int i = 0; i < workers; i++)
+            {
+                futures.add(DOWNLOAD_EXECUTOR.submit(new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        int index;
+                        while ((index = next.getAndIncrement()) < pending.size())
+                        {
+                            int chunk = pending.get(index);
+                            downloadRange(objectId, chunk, length, channel);
+                            synchronized (progressWriter)
+                            {
+                                progressWriter.write(chunk + "\n");
+                                progressWriter.flush();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            Exception error = null;
+            for (Future<Void> future : futures)
+            {
+                try
+                {
+                    future.get();
+                }
+                catch (Exception e)
+                {
+                    if (error == null)
+                    {
+                        error = e;
+                        // Stop other workers as soon as possible.
+                        next.set(pending.size());
+                    }
+                }
+            }
+
+            if (error != null)
+            {
+                Throwable cause = (error.getCause() != null) ? error.getCause() : error;
+                if (cause instanceof RangeNotSupportedException) { throw (RangeNotSupportedException) cause; }
+                if (cause instanceof IOException) { throw (IOException) cause; }
+                throw new IOException(cause.getMessage(), cause);
+            }
+        }
+        finally
+        {
+            // Interrupts the workers still running after an error.
+            for (Future<Void> future : futures)
+            {
+                future.cancel(true);
+            }
+            IOUtils.closeStream(progressWriter);
+            IOUtils.closeStream(raf);
+        }
+    }
+
+    private void downloadRange(String objectId, int chunk, long length, FileChannel channel) throws IOException
+    {
+        long offset = chunk * chunkSize;
+        long rangeLength = Math.min(chunkSize, length - offset);
+
+        IOException lastError = null;
+        for (int attempt = 0; attempt < MAX_RETRY; attempt++)
+        {
+            if (attempt > 0)
+            {
+                try
+                {
+                    Thread.sleep(RETRY_DELAY * attempt);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                RequestMetrics.markRetry();
+            }
+
+            InputStream stream = null;
+            byte[] buffer = null;
+            try
+            {
+                ContentStream cs = objectService.getContentStream(repositoryId, objectId, null,
+                        BigInteger.valueOf(offset), BigInteger.valueOf(rangeLength), null);
+                stream = cs.getStream();
+                if (!(cs instanceof PartialContentStream) && rangeLength != length)
+                {
+                    // Server has ignored the range.
+                    throw new RangeNotSupportedException();
+                }
+
+                long position = offset;
+                long end = offset + rangeLength;
+                buffer = IOUtils.acquireBuffer();
+                int count;
+                while (position < end
+                        && (count = stream.read(buffer, 0, (int) Math.min(buffer.length, end - position))) != -1)
+                {
+                    ByteBuffer bb = ByteBuffer.wrap(buffer, 0, count);
+                    while (bb.hasRemaining())
+                    {
+                        position += channel.write(bb, position);
+                    }
+                }
+                if (position != end) { throw new IOException("Incomplete range " + offset + "-" + end + " : "
+                        + (position - offset) + " bytes received"); }
+                return;
+            }
+            catch (RangeNotSupportedException e)
+            {
+                throw e;
+            }
+            catch (IOException e)
+            {
+                lastError = e;
+            }
+            catch (RuntimeException e)
+            {
+                // Network errors are reported as CmisConnectionException.
+                lastError = new IOException(e.getMessage(), e);
+            }
+            finally
+            {
+                IOUtils.releaseBuffer(buffer);
+                IOUtils.closeStream(stream);
+            }
+        }
+        throw (lastError != null) ? lastError : new IOException("Range download interrupted");
+    }
+
+    private void downloadFully(String objectId, File dest) throws IOException
+    {
+        ContentStream cs = objectService.getContentStream(repositoryId, objectId, null, null, null, null);
+        IOUtils.copyStream(cs.getStream(), new FileOutputStream(dest));
+    }
+
+    // ///////////////////////////////////////////////////////////////////////////
+    // PROGRESS
+    // ///////////////////////////////////////////////////////////////////////////
+    /**
+     * @return completed chunks or null if the progress file doesn't match the
+     *         current download.
+     */
+    private Set<Integer> readProgress(File progressFile, String header, File dest, long length)
+    {
+        if (!progressFile.exists() || !dest.exists() || dest.length() != length) { return null; }
+
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(progressFile), "UTF-8"));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 4; i++)
+            {
+                sb.append(reader.readLine()).append("\n");
+            }
+            if (!header.equals(sb.toString())) { return null; }
+
+            Set<Integer> completed = new HashSet<Integer>();
+            String line = null;
+            while ((line = reader.readLine()) != null)
+            {
+                try
+                {
+                    completed.add(Integer.parseInt(line));
+                }
+                catch (NumberFormatException e)
+                {
+                    // Truncated line : chunk downloaded again.
+                }
+            }
+            return completed;
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+        finally
+        {
+            IOUtils.closeStream(reader);
+        }
+    }
+
+    private void startProgress(File progressFile, String header, File dest, long length) throws IOException
+    {
+        dest.getParentFile().mkdirs();
+        dest.delete();
+
+        // Preallocate destination file.
+        RandomAccessFile raf = new RandomAccessFile(dest, "rw");
+        try
+        {
+            raf.setLength(length);
+        }
+        finally
+        {
+            IOUtils.closeStream(raf);
+        }
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(progressFile, false), "UTF-8");
+        try
+        {
+            writer.write(header);
+        }
+        finally
+        {
+            IOUtils.closeStream(writer);
+        }
+    }
+
+    /**
+     * Raised when the server returns the full content instead of a range.
+     */
+    private static class RangeNotSupportedException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -17,7 +17,6 @@
  ******************************************************************************/
 package org.alfresco.mobile.android.api.services.impl.onpremise;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -26,12 +25,13 @@ import org.alfresco.mobile.android.api.model.ActivityEntry;
 import org.alfresco.mobile.android.api.model.ListingContext;
 import org.alfresco.mobile.android.api.model.PagingResult;
 import org.alfresco.mobile.android.api.model.impl.ActivityEntryImpl;
-import org.alfresco.mobile.android.api.model.impl.PagingResultImpl;
+import org.alfresco.mobile.android.api.services.cache.impl.ListingCache;
 import org.alfresco.mobile.android.api.services.impl.AbstractActivityStreamService;
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.RepositorySession;
 import org.alfresco.mobile.android.api.session.impl.RepositorySessionImpl;
-import org.alfresco.mobile.android.api.utils.JsonUtils;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.ItemBinder;
 import org.alfresco.mobile.android.api.utils.OnPremiseUrlRegistry;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
@@ -46,6 +46,9 @@ import android.os.Parcelable;
  */
 public class OnPremiseActivityStreamServiceImpl extends AbstractActivityStreamService
 {
+    /** Activity feeds can't be paged by the server. */
+    private final ListingCache listingCache;
+
     /**
      * Default Constructor. Only used inside ServiceRegistry.
      * 
@@ -54,6 +57,7 @@ public class OnPremiseActivityStreamServiceImpl extends AbstractActivityStreamSe
     public OnPremiseActivityStreamServiceImpl(RepositorySession repositorySession)
     {
         super(repositorySession);
+        this.listingCache = ListingCache.create(repositorySession);
     }
 
     /** {@inheritDoc} */
@@ -80,53 +84,37 @@ public class OnPremiseActivityStreamServiceImpl extends AbstractActivityStreamSe
     // ////////////////////////////////////////////////////////////////////////////////////
     // / INTERNAL
     // ////////////////////////////////////////////////////////////////////////////////////
+    private static final ItemBinder<ActivityEntry> ACTIVITY_BINDER = new ItemBinder<ActivityEntry>()
+    {
+        public ActivityEntry bind(Map<String, Object> json)
+        {
+            return ActivityEntryImpl.parseJson(json);
+        }
+    };
+
     /**
      * Internal method to compute data from server and transform it as high
-     * level object.
+     * level object. The feed webscripts return the whole feed : it's parsed
+     * once and next pages are served by the listing cache.
      * 
      * @param url : Alfresco REST API activity url
      * @param listingContext : listing context to apply to the paging result.
      * @return Paging Result of activity entry.
      */
-    @SuppressWarnings("unchecked")
     protected PagingResult<ActivityEntry> computeActivities(UrlBuilder url, ListingContext listingContext)
     {
         try
         {
-            // read and parse
-            Response resp = read(url, ErrorCodeRegistry.ACTIVITISTREAM_GENERIC);
-
-            List<Object> json = JsonUtils.parseArray(resp.getStream(), resp.getCharset());
-            int size = json.size();
-            ArrayList<ActivityEntry> result = new ArrayList<ActivityEntry>(size);
-
-            Boolean b = false;
-            if (listingContext != null)
+            String key = url.toString();
+            List<ActivityEntry> entries = listingCache.get(key);
+            if (entries == null)
             {
-                int fromIndex = (listingContext.getSkipCount() > size) ? size : listingContext.getSkipCount();
-
-                // Case if skipCount > result size
-                if (listingContext.getMaxItems() + fromIndex >= size)
-                {
-                    json = json.subList(fromIndex, size);
-                    b = false;
-                }
-                else
-                {
-                    json = json.subList(fromIndex, listingContext.getMaxItems() + fromIndex);
-                    b = true;
-                }
+                Response resp = read(url, ErrorCodeRegistry.ACTIVITISTREAM_GENERIC);
+                entries = JsonStreamReader.readListing(resp.getStream(), resp.getCharset(), null, ACTIVITY_BINDER)
+                        .getItems();
+                listingCache.put(key, entries);
             }
-
-            if (json != null)
-            {
-                for (Object obj : json)
-                {
-                    result.add(ActivityEntryImpl.parseJson((Map<String, Object>) obj));
-                }
-            }
-
-            return new PagingResultImpl<ActivityEntry>(result, b, size);
+            return ListingCache.page(entries, listingContext);
         }
         catch (Exception e)
         {
@@ -134,7 +122,16 @@ public class OnPremiseActivityStreamServiceImpl extends AbstractActivityStreamSe
         }
         return null;
     }
-    
+
+    // ////////////////////////////////////////////////////
+    // CACHING
+    // ////////////////////////////////////////////////////
+    @Override
+    public void clear()
+    {
+        listingCache.clear();
+    }
+
     // ////////////////////////////////////////////////////
     // Save State - serialization / deserialization
     // ////////////////////////////////////////////////////
@@ -154,5 +151,6 @@ public class OnPremiseActivityStreamServiceImpl extends AbstractActivityStreamSe
     public OnPremiseActivityStreamServiceImpl(Parcel o)
     {
         super((AlfrescoSession) o.readParcelable(RepositorySessionImpl.class.getClassLoader()));
+        this.listingCache = ListingCache.create(session);
     }
 }
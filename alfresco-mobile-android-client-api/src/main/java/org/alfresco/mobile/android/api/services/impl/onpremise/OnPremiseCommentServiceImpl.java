@@ -17,7 +17,6 @@
  ******************************************************************************/
 package org.alfresco.mobile.android.api.services.impl.onpremise;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -32,7 +31,9 @@ import org.alfresco.mobile.android.api.model.impl.PagingResultImpl;
 import org.alfresco.mobile.android.api.services.impl.AbstractCommentService;
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.impl.RepositorySessionImpl;
-import org.alfresco.mobile.android.api.utils.JsonUtils;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.ItemBinder;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.Listing;
 import org.alfresco.mobile.android.api.utils.OnPremiseUrlRegistry;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
@@ -93,23 +94,27 @@ public class OnPremiseCommentServiceImpl extends AbstractCommentService
     // ////////////////////////////////////////////////////////////////////////////////////
     // / INTERNAL
     // ////////////////////////////////////////////////////////////////////////////////////
+    private static final String[] ITEMS_PATH = { OnPremiseConstant.ITEMS_VALUE };
+
+    private static final ItemBinder<Comment> COMMENT_BINDER = new ItemBinder<Comment>()
+    {
+        public Comment bind(Map<String, Object> json)
+        {
+            return CommentImpl.parseJson(json);
+        }
+    };
+
     /** {@inheritDoc} */
-    @SuppressWarnings("unchecked")
     protected PagingResult<Comment> computeComment(UrlBuilder url)
     {
         try
         {
             // read and parse
             Response resp = read(url, ErrorCodeRegistry.COMMENT_GENERIC);
-            Map<String, Object> json = JsonUtils.parseObject(resp.getStream(), resp.getCharset());
-
-            List<Object> jo = (List<Object>) json.get(OnPremiseConstant.ITEMS_VALUE);
-            List<Comment> result = new ArrayList<Comment>(jo.size());
-
-            for (Object obj : jo)
-            {
-                result.add(CommentImpl.parseJson((Map<String, Object>) obj));
-            }
+            Listing<Comment> listing = JsonStreamReader.readListing(resp.getStream(), resp.getCharset(), ITEMS_PATH,
+                    COMMENT_BINDER);
+            Map<String, Object> json = listing.getEnvelope();
+            List<Comment> result = listing.getItems();
 
             int pageSize = (JSONConverter.getString(json, OnPremiseConstant.PARAM_PAGESIZE) != null) ? Integer
                     .parseInt(JSONConverter.getString(json, OnPremiseConstant.PARAM_PAGESIZE)) : 0;
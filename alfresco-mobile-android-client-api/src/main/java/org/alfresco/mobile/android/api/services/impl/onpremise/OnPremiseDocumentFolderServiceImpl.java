@@ -108,7 +108,7 @@ public class OnPremiseDocumentFolderServiceImpl extends AbstractDocumentFolderSe
             else
             {
                 cf = new ContentStreamImpl(resp.getStream(), resp.getContentTypeHeader() + ";" + resp.getCharset(),
-                        resp.getContentLength().longValue());
+                        (resp.getContentLength() != null) ? resp.getContentLength().longValue() : -1);
             }
             return cf;
         }
@@ -99,8 +99,8 @@ public class OnPremisePersonServiceImpl extends AbstractPersonService
             UrlBuilder builder = getAvatarUrl(personIdentifier);
             Response resp = read(builder, ErrorCodeRegistry.PERSON_GENERIC);
 
-            cf = new ContentStreamImpl(resp.getStream(), resp.getContentTypeHeader() + ";" + resp.getCharset(), resp
-                    .getContentLength().longValue());
+            cf = new ContentStreamImpl(resp.getStream(), resp.getContentTypeHeader() + ";" + resp.getCharset(),
+                    (resp.getContentLength() != null) ? resp.getContentLength().longValue() : -1);
 
             return cf;
         }
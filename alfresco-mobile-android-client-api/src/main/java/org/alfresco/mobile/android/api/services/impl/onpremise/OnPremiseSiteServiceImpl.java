@@ -21,8 +21,11 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.alfresco.mobile.android.api.constants.OnPremiseConstant;
 import org.alfresco.mobile.android.api.constants.PublicAPIConstant;
@@ -38,6 +41,7 @@ import org.alfresco.mobile.android.api.model.impl.PagingResultImpl;
 import org.alfresco.mobile.android.api.model.impl.PersonImpl;
 import org.alfresco.mobile.android.api.model.impl.SiteImpl;
 import org.alfresco.mobile.android.api.services.cache.impl.CacheSiteExtraProperties;
+import org.alfresco.mobile.android.api.services.cache.impl.ListingCache;
 import org.alfresco.mobile.android.api.services.impl.AbstractServiceRegistry;
 import org.alfresco.mobile.android.api.services.impl.AbstractSiteServiceImpl;
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
@@ -45,6 +49,8 @@ import org.alfresco.mobile.android.api.session.RepositorySession;
 import org.alfresco.mobile.android.api.session.impl.RepositorySessionImpl;
 import org.alfresco.mobile.android.api.utils.AlphaComparator;
 import org.alfresco.mobile.android.api.utils.JsonDataWriter;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.ItemBinder;
 import org.alfresco.mobile.android.api.utils.JsonUtils;
 import org.alfresco.mobile.android.api.utils.OnPremiseUrlRegistry;
 import org.alfresco.mobile.android.api.utils.messages.Messagesl18n;
@@ -57,7 +63,6 @@ import org.apache.http.HttpStatus;
 
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.util.Log;
 
 /**
  * Sites are a key concept within Alfresco Share for managing documents, wiki
@@ -74,8 +79,6 @@ import android.util.Log;
  */
 public class OnPremiseSiteServiceImpl extends AbstractSiteServiceImpl
 {
-    private static final String TAG = "OnPremiseSiteServiceImpl";
-
     /**
      * Default constructor for service. </br>
      * Used by the {@link AbstractServiceRegistry}.
@@ -85,6 +88,7 @@ public class OnPremiseSiteServiceImpl extends AbstractSiteServiceImpl
     public OnPremiseSiteServiceImpl(RepositorySession repositorySession)
     {
         super(repositorySession);
+        this.listingCache = ListingCache.create(repositorySession);
     }
 
     /** {@inheritDoc} */
@@ -102,49 +106,53 @@ public class OnPremiseSiteServiceImpl extends AbstractSiteServiceImpl
     }
 
     /** {@inheritDoc} */
-    public List<Site> getFavoriteSites()
+    protected PagingResult<Site> computeFavoriteSites(ListingContext listingContext)
     {
-        try
-        {
-            // Retrieve information about
-            List<Site> sites = getSites();
-            List<String> favoriteSites = computeFavoriteSite(session.getPersonIdentifier());
-
-            List<Site> finalList = new ArrayList<Site>();
-            if (favoriteSites == null) { return finalList; }
-            for (Site site : sites)
+        List<String> favoriteSites = computeFavoriteSite(session.getPersonIdentifier());
+        if (favoriteSites == null || favoriteSites.isEmpty()) { return new PagingResultImpl<Site>(
+                new ArrayList<Site>(0), false, 0); }
+
+        int skipCount = (listingContext != null) ? Math.max(0, listingContext.getSkipCount()) : 0;
+        int maxItems = (listingContext != null) ? listingContext.getMaxItems() : -1;
+
+        if (listingContext != null && SORT_PROPERTY_SHORTNAME.equals(listingContext.getSortProperty()))
+        {
+            // Order is known without site metadata : only sites up to the end
+            // of the requested window are resolved. Sites before the window
+            // are resolved too (from the site cache after the first page) :
+            // sites which don't exist anymore are ignored, so the window is
+            // known once they are skipped.
+            final boolean asc = listingContext.isSortAscending();
+            Collections.sort(favoriteSites, new Comparator<String>()
             {
-                if (favoriteSites.contains(site.getShortName()))
+                public int compare(String a, String b)
                 {
-                    finalList.add(site);
-                    favoriteSites.remove(site.getShortName());
+                    return asc ? a.compareToIgnoreCase(b) : b.compareToIgnoreCase(a);
                 }
-            }
+            });
 
-            // Retrieve site user has favorite but user is not member of.
-            Site tmpSite = null;
-            for (String siteIdentifier : favoriteSites)
-            {
-                tmpSite = getSite(siteIdentifier);
-                if (tmpSite != null)
-                {
-                    finalList.add(tmpSite);
-                }
-            }
+            int wanted = (maxItems < 0) ? -1 : skipCount + maxItems;
+            List<Site> resolved = resolveSites(favoriteSites, wanted);
+            List<Site> result = new ArrayList<Site>(resolved.subList(Math.min(skipCount, resolved.size()),
+                    resolved.size()));
 
-            return finalList;
+            // Total is unknown while some favorite sites are not resolved.
+            boolean complete = wanted < 0 || resolved.size() < wanted || favoriteSites.size() == wanted;
+            return new PagingResultImpl<Site>(result, !complete, complete ? resolved.size() : -1);
         }
-        catch (Exception e)
+
+        // Sites user is member of are retrieved with one request, other
+        // favorite sites are resolved concurrently.
+        Set<String> missingSites = new LinkedHashSet<String>(favoriteSites);
+        List<Site> result = new ArrayList<Site>(favoriteSites.size());
+        for (Site site : getSites())
         {
-            convertException(e);
+            if (missingSites.remove(site.getShortName()))
+            {
+                result.add(site);
+            }
         }
-        return null;
-    }
-
-    /** {@inheritDoc} */
-    protected PagingResult<Site> computeFavoriteSites(ListingContext listingContext)
-    {
-        List<Site> result = getFavoriteSites();
+        result.addAll(resolveSites(new ArrayList<String>(missingSites), -1));
 
         if (listingContext != null)
         {
@@ -152,31 +160,22 @@ public class OnPremiseSiteServiceImpl extends AbstractSiteServiceImpl
                     new AlphaComparator(listingContext.isSortAscending(), listingContext.getSortProperty()));
         }
 
-        Boolean hasMoreItems = false;
+        boolean hasMoreItems = false;
+        int totalItems = result.size();
         if (listingContext != null)
         {
-            int fromIndex = (listingContext.getSkipCount() > result.size()) ? result.size()
-                    : listingContext.getSkipCount();
-
-            // Case if skipCount > result size
-            if (listingContext.getSkipCount() < result.size())
-            {
-                fromIndex = listingContext.getSkipCount();
-            }
-
-            // Case if skipCount > result size
-            if (listingContext.getMaxItems() + fromIndex >= result.size())
+            int fromIndex = Math.min(skipCount, result.size());
+            if (maxItems < 0 || maxItems + fromIndex >= result.size())
             {
                 result = result.subList(fromIndex, result.size());
-                hasMoreItems = false;
             }
             else
             {
-                result = result.subList(fromIndex, listingContext.getMaxItems() + fromIndex);
+                result = result.subList(fromIndex, maxItems + fromIndex);
                 hasMoreItems = true;
             }
         }
-        return new PagingResultImpl<Site>(result, hasMoreItems, result.size());
+        return new PagingResultImpl<Site>(result, hasMoreItems, totalItems);
     }
 
     /** {@inheritDoc} */
@@ -610,70 +609,50 @@ public class OnPremiseSiteServiceImpl extends AbstractSiteServiceImpl
     // ////////////////////////////////////////////////////////////////////////////////////
     // / INTERNAL
     // ////////////////////////////////////////////////////////////////////////////////////
-    /** {@inheritDoc} */
-    @SuppressWarnings("unchecked")
-    protected PagingResult<Site> computeSites(UrlBuilder url, ListingContext listingContext)
+    private static final ItemBinder<Site> SITE_BINDER = new ItemBinder<Site>()
     {
-        Response resp = read(url, ErrorCodeRegistry.SITE_GENERIC);
-
-        List<Object> json = JsonUtils.parseArray(resp.getStream(), resp.getCharset());
-        int size = json.size();
-
-        List<Site> result = new ArrayList<Site>();
-        int fromIndex = 0, toIndex = size;
-        Boolean hasMoreItems = false;
-
-        // Define Listing Context
-        if (listingContext != null)
+        public Site bind(Map<String, Object> json)
         {
-            fromIndex = (listingContext.getSkipCount() > size) ? size : listingContext.getSkipCount();
-
-            // Case if skipCount > result size
-            if (listingContext.getMaxItems() + fromIndex >= size)
-            {
-                toIndex = size;
-                hasMoreItems = false;
-            }
-            else
-            {
-                toIndex = listingContext.getMaxItems() + fromIndex;
-                hasMoreItems = true;
-            }
+            return SiteImpl.parseJson(json);
         }
-        else
+    };
+
+    /**
+     * {@inheritDoc} The site webscripts can't skip sites : the complete
+     * listing is parsed once and kept by the listing cache. The listing is
+     * sorted before the page is extracted.
+     */
+    protected PagingResult<Site> computeSites(UrlBuilder url, ListingContext listingContext)
+    {
+        String key = url.toString();
+        List<Site> sites = listingCache.get(key);
+        if (sites == null)
         {
-            listingContext = new ListingContext();
-            listingContext.setSortProperty(SORT_PROPERTY_TITLE);
+            Response resp = read(url, ErrorCodeRegistry.SITE_GENERIC);
+            sites = JsonStreamReader.readListing(resp.getStream(), resp.getCharset(), null, SITE_BINDER).getItems();
+            listingCache.put(key, sites);
         }
 
-        String siteName = null;
-        Map<String, Object> mapProperties = null;
-        CacheSiteExtraProperties extraProperties = null;
-        for (int i = fromIndex; i < toIndex; i++)
+        ListingContext sortContext = listingContext;
+        if (sortContext == null)
         {
-            mapProperties = (Map<String, Object>) json.get(i);
-            if (mapProperties != null)
-            {
-                siteName = JSONConverter.getString(mapProperties, OnPremiseConstant.SHORTNAME_VALUE);
-                if (extraPropertiesCache.get(siteName) != null)
-                {
-                    extraProperties = extraPropertiesCache.get(siteName);
-                    mapProperties.put(OnPremiseConstant.ISPENDINGMEMBER_VALUE, extraProperties.isPendingMember);
-                    mapProperties.put(OnPremiseConstant.ISMEMBER_VALUE, extraProperties.isMember);
-                    mapProperties.put(OnPremiseConstant.ISFAVORITE_VALUE, extraProperties.isFavorite);
-                }
-                result.add(SiteImpl.parseJson((Map<String, Object>) json.get(i)));
-            }
+            sortContext = new ListingContext();
+            sortContext.setSortProperty(SORT_PROPERTY_TITLE);
         }
+        List<Site> sortedSites = new ArrayList<Site>(sites);
+        Collections.sort(sortedSites,
+                new AlphaComparator(sortContext.isSortAscending(), sortContext.getSortProperty()));
 
-        if (listingContext != null)
+        // Extra properties change during the life of the listing.
+        PagingResult<Site> page = ListingCache.page(sortedSites, listingContext);
+        List<Site> result = new ArrayList<Site>(page.getList().size());
+        for (Site site : page.getList())
         {
-            Collections.sort(result,
-                    new AlphaComparator(listingContext.isSortAscending(), listingContext.getSortProperty()));
+            CacheSiteExtraProperties extraProperties = extraPropertiesCache.get(site.getShortName());
+            result.add((extraProperties == null) ? site : new SiteImpl(site, extraProperties.isPendingMember,
+                    extraProperties.isMember, extraProperties.isFavorite));
         }
-
-        return new PagingResultImpl<Site>(result, hasMoreItems, size);
-
+        return new PagingResultImpl<Site>(result, page.hasMoreItems(), page.getTotalItems());
     }
 
     @SuppressWarnings("unchecked")
@@ -770,32 +749,46 @@ public class OnPremiseSiteServiceImpl extends AbstractSiteServiceImpl
     // ////////////////////////////////////////////////////
     // CACHING
     // ////////////////////////////////////////////////////
-    protected void retrieveExtraProperties(String personIdentifier)
-    {
-        try
-        {
-            List<JoinSiteRequestImpl> joinSiteRequestList = new ArrayList<JoinSiteRequestImpl>();
-            try
-            {
-                joinSiteRequestList = getJoinSiteRequests();
-            }
-            catch (Exception e)
-            {
-                Log.e(TAG, "Error during cache operation : JoinSiteRequest");
-                Log.e(TAG, Log.getStackTraceString(e));
-            }
-            List<String> favoriteSites = computeFavoriteSite(personIdentifier);
-            List<String> userSites = getUserSite(personIdentifier);
+    /** Site listings the server can't page. */
+    private final ListingCache listingCache;
 
-            retrieveExtraProperties(favoriteSites, userSites, joinSiteRequestList);
-        }
-        catch (Exception e)
+    /** {@inheritDoc} */
+    @Override
+    public void clear()
+    {
+        super.clear();
+        if (listingCache != null)
         {
-            Log.e(TAG, "Error during cache operation. The site object may contains incorrect informations");
-            Log.e(TAG, Log.getStackTraceString(e));
+            listingCache.clear();
         }
     }
 
+    /**
+     * {@inheritDoc} Listings of the user sites are obsolete after a
+     * membership change.
+     */
+    @Override
+    protected void updateExtraPropertyCache(String siteIdentifier, boolean isPendingMember, boolean isMember,
+            boolean isFavorite)
+    {
+        super.updateExtraPropertyCache(siteIdentifier, isPendingMember, isMember, isFavorite);
+        listingCache.clear();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected List<String> retrieveFavoriteSiteIdentifiers(String personIdentifier)
+    {
+        return computeFavoriteSite(personIdentifier);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected List<String> retrieveUserSiteIdentifiers(String personIdentifier)
+    {
+        return getUserSite(personIdentifier);
+    }
+
     // ////////////////////////////////////////////////////
     // Save State - serialization / deserialization
     // ////////////////////////////////////////////////////
@@ -815,5 +808,6 @@ public class OnPremiseSiteServiceImpl extends AbstractSiteServiceImpl
     public OnPremiseSiteServiceImpl(Parcel o)
     {
         super((AlfrescoSession) o.readParcelable(RepositorySessionImpl.class.getClassLoader()));
+        this.listingCache = ListingCache.create(session);
     }
 }
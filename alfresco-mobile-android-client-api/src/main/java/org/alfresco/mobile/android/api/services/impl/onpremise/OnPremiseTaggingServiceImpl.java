@@ -18,10 +18,13 @@
 package org.alfresco.mobile.android.api.services.impl.onpremise;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import org.alfresco.mobile.android.api.constants.OnPremiseConstant;
 import org.alfresco.mobile.android.api.exceptions.AlfrescoServiceException;
 import org.alfresco.mobile.android.api.exceptions.ErrorCodeRegistry;
 import org.alfresco.mobile.android.api.model.ListingContext;
@@ -32,22 +35,26 @@ import org.alfresco.mobile.android.api.model.impl.PagingResultImpl;
 import org.alfresco.mobile.android.api.model.impl.TagImpl;
 import org.alfresco.mobile.android.api.services.ServiceRegistry;
 import org.alfresco.mobile.android.api.services.TaggingService;
+import org.alfresco.mobile.android.api.services.cache.impl.ListingCache;
 import org.alfresco.mobile.android.api.services.impl.AlfrescoService;
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.RepositorySession;
 import org.alfresco.mobile.android.api.session.impl.RepositorySessionImpl;
+import org.alfresco.mobile.android.api.utils.IOUtils;
 import org.alfresco.mobile.android.api.utils.JsonDataWriter;
-import org.alfresco.mobile.android.api.utils.JsonUtils;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader;
 import org.alfresco.mobile.android.api.utils.OnPremiseUrlRegistry;
 import org.alfresco.mobile.android.api.utils.messages.Messagesl18n;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 import org.json.JSONArray;
-import org.json.JSONException;
 
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
 /**
  * Tags are keywords or terms assigned to a piece of information including
@@ -63,6 +70,9 @@ import android.os.Parcelable;
  */
 public class OnPremiseTaggingServiceImpl extends AlfrescoService implements TaggingService
 {
+    /** Tag listings the server can't page. */
+    private final ListingCache listingCache;
+
     /**
      * Default constructor for service. </br> Used by the
      * {@link ServiceRegistry}.
@@ -72,6 +82,7 @@ public class OnPremiseTaggingServiceImpl extends AlfrescoService implements Tagg
     public OnPremiseTaggingServiceImpl(RepositorySession repositorySession)
     {
         super(repositorySession);
+        this.listingCache = ListingCache.create(repositorySession);
     }
 
     /** {@inheritDoc} */
@@ -158,6 +169,7 @@ public class OnPremiseTaggingServiceImpl extends AlfrescoService implements Tagg
                     formData.write(out);
                 }
             }, ErrorCodeRegistry.TAGGING_GENERIC);
+            listingCache.clear();
         }
         catch (Exception e)
         {
@@ -168,102 +180,154 @@ public class OnPremiseTaggingServiceImpl extends AlfrescoService implements Tagg
     // ////////////////////////////////////////////////////////////////////////////////////
     // / INTERNAL
     // ////////////////////////////////////////////////////////////////////////////////////
-    private PagingResult<Tag> computeTag(UrlBuilder url, ListingContext listingContext) throws JSONException
+    /**
+     * Retrieves a page of the repository tags. Repositories with tag
+     * management page the tag list on server side. Otherwise the complete
+     * list is kept by the listing cache.
+     */
+    private PagingResult<Tag> computeTag(UrlBuilder url, ListingContext listingContext) throws IOException
     {
-        Response resp = read(url, ErrorCodeRegistry.TAGGING_GENERIC);
-
-        String resultsString = JsonUtils.convertStreamToString(resp.getStream());
-        List<Tag> tags = new ArrayList<Tag>();
+        String key = url.toString();
+        List<Tag> tags = listingCache.get(key);
+        if (tags != null) { return ListingCache.page(tags, listingContext); }
 
-        JSONArray results = new JSONArray(resultsString);
-
-        int fromIndex = 0, toIndex = results.length();
-        Boolean hasMoreItems = false;
-
-        // Define Listing Context
-        if (listingContext != null)
+        if (listingContext != null && listingContext.getMaxItems() > 0)
         {
-            fromIndex = (listingContext.getSkipCount() > results.length()) ? results.length() : listingContext
-                    .getSkipCount();
-
-            // Case if skipCount > result size
-            if (listingContext.getMaxItems() + fromIndex >= results.length())
+            int skipCount = Math.max(listingContext.getSkipCount(), 0);
+            UrlBuilder pagedUrl = new UrlBuilder(key);
+            pagedUrl.addParameter(OnPremiseConstant.PARAM_DETAILS, true);
+            pagedUrl.addParameter(OnPremiseConstant.PARAM_FROM, skipCount);
+            pagedUrl.addParameter(OnPremiseConstant.PARAM_SIZE, listingContext.getMaxItems());
+            TagListing listing = readTags(read(pagedUrl, ErrorCodeRegistry.TAGGING_GENERIC));
+            if (listing.tags.size() > listingContext.getMaxItems())
             {
-                toIndex = results.length();
-                hasMoreItems = false;
+                // Size ignored : the complete list is returned.
+                listing.isComplete = true;
             }
-            else
+            if (listing.isComplete)
             {
-                toIndex = listingContext.getMaxItems() + fromIndex;
-                hasMoreItems = true;
+                listingCache.put(key, listing.tags);
+                return ListingCache.page(listing.tags, listingContext);
             }
-        }
 
-        for (int i = fromIndex; i < toIndex; i++)
-        {
-            tags.add(new TagImpl(results.getString(i)));
+            int count = listing.tags.size();
+            if (listing.total >= 0) { return new PagingResultImpl<Tag>(listing.tags,
+                    skipCount + count < listing.total, listing.total); }
+            // Total unknown : a full page may be followed by other tags.
+            boolean hasMoreItems = (count == listingContext.getMaxItems());
+            return new PagingResultImpl<Tag>(listing.tags, hasMoreItems, hasMoreItems ? -1 : skipCount + count);
         }
 
-        return new PagingResultImpl<Tag>(tags, hasMoreItems, results.length());
+        tags = readTags(read(url, ErrorCodeRegistry.TAGGING_GENERIC)).tags;
+        listingCache.put(key, tags);
+        return ListingCache.page(tags, listingContext);
     }
 
-    private PagingResult<Tag> computeSimpleTag(UrlBuilder url, ListingContext listingContext)
+    /**
+     * Reads a plain array of tag names or the items of a detailed tag
+     * listing.
+     */
+    @SuppressWarnings("unchecked")
+    private static TagListing readTags(Response resp) throws IOException
     {
-        Response resp = read(url, ErrorCodeRegistry.TAGGING_GENERIC);
-        String resultsString = JsonUtils.convertStreamToString(resp.getStream());
-        List<Tag> tags = new ArrayList<Tag>();
-
-        String[] results;
-        String tag = null;
-        results = resultsString.replace("[", "").replace("]", "").replaceAll("\t", "").trim().split("\n");
-
-        int fromIndex = 0, toIndex = results.length, totalItems = results.length;
-        Boolean hasMoreItems = false;
-
-        // Define Listing Context
-        if (listingContext != null)
+        TagListing listing = new TagListing();
+        JsonReader reader = null;
+        try
         {
-            fromIndex = (listingContext.getSkipCount() > results.length) ? results.length : listingContext
-                    .getSkipCount();
+            String charset = (resp.getCharset() != null) ? resp.getCharset() : "UTF-8";
+            reader = new JsonReader(new InputStreamReader(resp.getStream(), charset));
+            reader.setLenient(true);
+            if (reader.peek() == JsonToken.BEGIN_ARRAY)
+            {
+                listing.isComplete = true;
+                reader.beginArray();
+                while (reader.hasNext())
+                {
+                    addTag(listing.tags, JsonStreamReader.readValue(reader));
+                }
+                reader.endArray();
+                return listing;
+            }
 
-            // Case if skipCount > result size
-            if (listingContext.getMaxItems() + fromIndex >= results.length)
+            Map<String, Object> data = JSONConverter.getMap(JsonStreamReader.readObject(reader).get(
+                    OnPremiseConstant.DATA_VALUE));
+            if (data == null) { return listing; }
+            List<Object> items = (List<Object>) data.get(OnPremiseConstant.ITEMS_VALUE);
+            if (items != null)
             {
-                toIndex = results.length;
-                hasMoreItems = false;
+                for (Object item : items)
+                {
+                    addTag(listing.tags, item);
+                }
             }
-            else
+            Map<String, Object> paging = JSONConverter.getMap(data.get(OnPremiseConstant.PAGING_VALUE));
+            Object total = (paging != null) ? paging.get(OnPremiseConstant.TOTALITEMS_VALUE) : data
+                    .get(OnPremiseConstant.TOTALRECORDS_VALUE);
+            if (total instanceof Number)
             {
-                toIndex = listingContext.getMaxItems() + fromIndex;
-                hasMoreItems = true;
-
+                listing.total = ((Number) total).intValue();
             }
+            return listing;
         }
+        finally
+        {
+            IOUtils.closeStream(reader);
+            IOUtils.closeStream(resp.getStream());
+        }
+    }
 
-        for (int i = fromIndex; i < toIndex; i++)
+    @SuppressWarnings("unchecked")
+    private static void addTag(List<Tag> tags, Object item)
+    {
+        if (item instanceof String)
         {
-            if (results[i].length() == 0)
-            {
-                if (toIndex + 1 < results.length)
-                {
-                    toIndex++;
-                }
-                totalItems--;
-                continue;
-            }
-            if (i == results.length - 1)
+            tags.add(new TagImpl((String) item));
+        }
+        else if (item instanceof Map)
+        {
+            String name = JSONConverter.getString((Map<String, Object>) item, OnPremiseConstant.NAME_VALUE);
+            if (name != null)
             {
-                tag = results[i];
-                tags.add(new TagImpl(tag));
-                continue;
+                tags.add(new TagImpl(name));
             }
-            tag = results[i].substring(0, results[i].lastIndexOf(","));
-            tags.add(new TagImpl(tag));
         }
+    }
+
+    /**
+     * Tags of a node. The response is an array of tag names.
+     */
+    private PagingResult<Tag> computeSimpleTag(UrlBuilder url, ListingContext listingContext) throws IOException
+    {
+        String key = url.toString();
+        List<Tag> tags = listingCache.get(key);
+        if (tags == null)
+        {
+            tags = readTags(read(url, ErrorCodeRegistry.TAGGING_GENERIC)).tags;
+            listingCache.put(key, tags);
+        }
+        return ListingCache.page(tags, listingContext);
+    }
+
+    private static final class TagListing
+    {
+        private final List<Tag> tags = new ArrayList<Tag>();
+
+        /** Number of tags on server side. -1 if unknown. */
+        private int total = -1;
 
-        return new PagingResultImpl<Tag>(tags, hasMoreItems, totalItems);
+        /** True if the response contains all tags. */
+        private boolean isComplete = false;
     }
-    
+
+    // ////////////////////////////////////////////////////
+    // CACHING
+    // ////////////////////////////////////////////////////
+    @Override
+    public void clear()
+    {
+        listingCache.clear();
+    }
+
     // ////////////////////////////////////////////////////
     // Save State - serialization / deserialization
     // ////////////////////////////////////////////////////
@@ -283,5 +347,6 @@ public class OnPremiseTaggingServiceImpl extends AlfrescoService implements Tagg
     public OnPremiseTaggingServiceImpl(Parcel o)
     {
         super((AlfrescoSession) o.readParcelable(RepositorySessionImpl.class.getClassLoader()));
+        this.listingCache = ListingCache.create(session);
     }
 }
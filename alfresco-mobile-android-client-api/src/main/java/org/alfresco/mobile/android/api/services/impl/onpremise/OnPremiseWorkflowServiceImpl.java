@@ -53,6 +53,9 @@ import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.impl.RepositorySessionImpl;
 import org.alfresco.mobile.android.api.utils.DateUtils;
 import org.alfresco.mobile.android.api.utils.JsonDataWriter;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.ItemBinder;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.Listing;
 import org.alfresco.mobile.android.api.utils.JsonUtils;
 import org.alfresco.mobile.android.api.utils.NodeRefUtils;
 import org.alfresco.mobile.android.api.utils.OnPremiseUrlRegistry;
@@ -79,6 +82,24 @@ public class OnPremiseWorkflowServiceImpl extends AbstractWorkflowService
 {
     private static final String TAG = OnPremiseWorkflowServiceImpl.class.getName();
 
+    private static final String[] DATA_PATH = { OnPremiseConstant.DATA_VALUE };
+
+    private static final ItemBinder<Process> PROCESS_BINDER = new ItemBinder<Process>()
+    {
+        public Process bind(Map<String, Object> json)
+        {
+            return ProcessImpl.parseJson(json);
+        }
+    };
+
+    private static final ItemBinder<Task> TASK_BINDER = new ItemBinder<Task>()
+    {
+        public Task bind(Map<String, Object> json)
+        {
+            return TaskImpl.parseJson(json);
+        }
+    };
+
     public OnPremiseWorkflowServiceImpl(AlfrescoSession repositorySession)
     {
         super(repositorySession);
@@ -291,12 +312,11 @@ public class OnPremiseWorkflowServiceImpl extends AbstractWorkflowService
     }
 
     /** {@inheritDoc} */
-    @SuppressWarnings("unchecked")
     public PagingResult<Process> getProcesses(ListingContext listingContext)
     {
         List<Process> processes = new ArrayList<Process>();
-        Map<String, Object> json = new HashMap<String, Object>(0);
         int maxItems = -1;
+        int size = 0;
         boolean hasMoreItem = false;
         try
         {
@@ -408,24 +428,19 @@ public class OnPremiseWorkflowServiceImpl extends AbstractWorkflowService
 
             // send and parse
             Response resp = read(url, ErrorCodeRegistry.WORKFLOW_GENERIC);
-            json = JsonUtils.parseObject(resp.getStream(), resp.getCharset());
-            if (json != null)
-            {
-                List<Object> jo = (List<Object>) json.get(OnPremiseConstant.DATA_VALUE);
-                for (Object obj : jo)
-                {
-                    processes.add(ProcessImpl.parseJson((Map<String, Object>) obj));
-                }
+            Listing<Process> listing = JsonStreamReader.readListing(resp.getStream(), resp.getCharset(), DATA_PATH,
+                    PROCESS_BINDER);
+            processes = listing.getItems();
+            size = listing.getCount();
 
-                hasMoreItem = (maxItems == -1) ? false : (jo.size() == maxItems);
-            }
+            hasMoreItem = (maxItems == -1) ? false : (size == maxItems);
         }
         catch (Exception e)
         {
             convertException(e);
         }
 
-        return new PagingResultImpl<Process>(processes, hasMoreItem, json.size());
+        return new PagingResultImpl<Process>(processes, hasMoreItem, size);
     }
 
     /** {@inheritDoc} */
@@ -647,7 +662,6 @@ public class OnPremiseWorkflowServiceImpl extends AbstractWorkflowService
     private PagingResult<Task> getTasks(String link, ListingContext listingContext)
     {
         List<Task> tasks = new ArrayList<Task>();
-        Map<String, Object> json = new HashMap<String, Object>(0);
         int maxItems = -1;
         int size = 0;
         boolean hasMoreItem = false;
@@ -772,29 +786,28 @@ public class OnPremiseWorkflowServiceImpl extends AbstractWorkflowService
             Log.d(TAG, url.toString());
 
             // send and parse
+            // Tasks are returned as data array or as data.tasks array
+            // depending on the webscript.
             Response resp = read(url, ErrorCodeRegistry.WORKFLOW_GENERIC);
-            json = JsonUtils.parseObject(resp.getStream(), resp.getCharset());
-            if (json != null)
+            Listing<Task> listing = JsonStreamReader.readListing(resp.getStream(), resp.getCharset(), DATA_PATH,
+                    TASK_BINDER);
+            if (listing.isFound())
             {
-                List<Object> jo = null;
-                if (json.get(OnPremiseConstant.DATA_VALUE) instanceof List)
-                {
-                    jo = (List<Object>) json.get(OnPremiseConstant.DATA_VALUE);
-                }
-                else if (json.get(OnPremiseConstant.DATA_VALUE) instanceof Map)
-                {
-                    Map<String, Object> jso = (Map<String, Object>) json.get(OnPremiseConstant.DATA_VALUE);
-                    jo = (List<Object>) jso.get(OnPremiseConstant.TASKS_VALUE);
-                }
-
+                tasks = listing.getItems();
+                size = listing.getCount();
+            }
+            else if (listing.getEnvelope().get(OnPremiseConstant.DATA_VALUE) instanceof Map)
+            {
+                Map<String, Object> jso = (Map<String, Object>) listing.getEnvelope().get(OnPremiseConstant.DATA_VALUE);
+                List<Object> jo = (List<Object>) jso.get(OnPremiseConstant.TASKS_VALUE);
                 size = jo.size();
                 for (Object obj : jo)
                 {
                     tasks.add(TaskImpl.parseJson((Map<String, Object>) obj));
                 }
-
-                hasMoreItem = (maxItems == -1) ? false : (size == maxItems);
             }
+
+            hasMoreItem = (maxItems == -1) ? false : (size == maxItems);
         }
         catch (Exception e)
         {
@@ -1126,8 +1139,8 @@ public class OnPremiseWorkflowServiceImpl extends AbstractWorkflowService
             UrlBuilder builder = new UrlBuilder(url);
             Response resp = read(builder, ErrorCodeRegistry.WORKFLOW_GENERIC);
 
-            cf = new ContentStreamImpl(resp.getStream(), resp.getContentTypeHeader(), resp.getContentLength()
-                    .longValue());
+            cf = new ContentStreamImpl(resp.getStream(), resp.getContentTypeHeader(),
+                    (resp.getContentLength() != null) ? resp.getContentLength().longValue() : -1);
 
             return cf;
         }
@@ -31,6 +31,7 @@ import org.alfresco.mobile.android.api.model.impl.PagingResultImpl;
 import org.alfresco.mobile.android.api.services.impl.AbstractActivityStreamService;
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.impl.RepositorySessionImpl;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.ItemBinder;
 import org.alfresco.mobile.android.api.utils.PublicAPIResponse;
 import org.alfresco.mobile.android.api.utils.PublicAPIUrlRegistry;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
@@ -99,6 +100,15 @@ public class PublicAPIActivityStreamServiceImpl extends AbstractActivityStreamSe
     // ////////////////////////////////////////////////////////////////////////////////////
     // / INTERNAL
     // ////////////////////////////////////////////////////////////////////////////////////
+    private static final ItemBinder<ActivityEntry> ACTIVITY_BINDER = new ItemBinder<ActivityEntry>()
+    {
+        @SuppressWarnings("unchecked")
+        public ActivityEntry bind(Map<String, Object> json)
+        {
+            return ActivityEntryImpl.parsePublicAPIJson((Map<String, Object>) json.get(PublicAPIConstant.ENTRY_VALUE));
+        }
+    };
+
     /**
      * Internal method to compute data from server and transform it as high
      * level object.
@@ -107,19 +117,16 @@ public class PublicAPIActivityStreamServiceImpl extends AbstractActivityStreamSe
      * @param listingContext : listing context to apply to the paging result.
      * @return Paging Result of activity entry.
      */
-    @SuppressWarnings("unchecked")
     protected PagingResult<ActivityEntry> computeActivities(UrlBuilder url, ListingContext listingContext)
     {
         // read and parse
         Response resp = read(url, ErrorCodeRegistry.ACTIVITISTREAM_GENERIC);
-        PublicAPIResponse response = new PublicAPIResponse(resp);
+        PublicAPIResponse response = new PublicAPIResponse(resp, ACTIVITY_BINDER);
 
-        List<ActivityEntry> result = new ArrayList<ActivityEntry>();
-        Map<String, Object> data = null;
+        List<ActivityEntry> result = new ArrayList<ActivityEntry>(response.getEntries().size());
         for (Object entry : response.getEntries())
         {
-            data = (Map<String, Object>) ((Map<String, Object>) entry).get(PublicAPIConstant.ENTRY_VALUE);
-            result.add(ActivityEntryImpl.parsePublicAPIJson(data));
+            result.add((ActivityEntry) entry);
         }
 
         return new PagingResultImpl<ActivityEntry>(result, response.getHasMoreItems(), response.getSize());
@@ -32,6 +32,7 @@ import org.alfresco.mobile.android.api.model.impl.PagingResultImpl;
 import org.alfresco.mobile.android.api.services.impl.AbstractCommentService;
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.impl.RepositorySessionImpl;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.ItemBinder;
 import org.alfresco.mobile.android.api.utils.PublicAPIResponse;
 import org.alfresco.mobile.android.api.utils.PublicAPIUrlRegistry;
 import org.alfresco.mobile.android.api.utils.messages.Messagesl18n;
@@ -91,20 +92,26 @@ public class PublicAPICommentServiceImpl extends AbstractCommentService
     // ////////////////////////////////////////////////////////////////////////////////////
     // / INTERNAL
     // ////////////////////////////////////////////////////////////////////////////////////
-    @SuppressWarnings("unchecked")
+    private static final ItemBinder<Comment> COMMENT_BINDER = new ItemBinder<Comment>()
+    {
+        @SuppressWarnings("unchecked")
+        public Comment bind(Map<String, Object> json)
+        {
+            return CommentImpl.parsePublicAPIJson((Map<String, Object>) json.get(PublicAPIConstant.ENTRY_VALUE));
+        }
+    };
+
     /** {@inheritDoc} */
     protected PagingResult<Comment> computeComment(UrlBuilder url)
     {
         // read and parse
         Response resp = read(url, ErrorCodeRegistry.COMMENT_GENERIC);
-        PublicAPIResponse response = new PublicAPIResponse(resp);
+        PublicAPIResponse response = new PublicAPIResponse(resp, COMMENT_BINDER);
 
-        List<Comment> result = new ArrayList<Comment>();
-        Map<String, Object> data = null;
+        List<Comment> result = new ArrayList<Comment>(response.getEntries().size());
         for (Object entry : response.getEntries())
         {
-            data = (Map<String, Object>) ((Map<String, Object>) entry).get(PublicAPIConstant.ENTRY_VALUE);
-            result.add(CommentImpl.parsePublicAPIJson(data));
+            result.add((Comment) entry);
         }
 
         return new PagingResultImpl<Comment>(result, response.getHasMoreItems(), response.getSize());
@@ -44,8 +44,6 @@ import org.alfresco.mobile.android.api.utils.PublicAPIUrlRegistry;
 import org.alfresco.mobile.android.api.utils.messages.Messagesl18n;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Session;
-import org.apache.chemistry.opencmis.client.bindings.spi.atompub.AbstractAtomPubService;
-import org.apache.chemistry.opencmis.client.bindings.spi.atompub.AtomPubParser;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 import org.apache.http.HttpStatus;
@@ -85,9 +83,7 @@ public class PublicAPIPersonServiceImpl extends AbstractPersonService
         if (person.getAvatarIdentifier() == null) { return null; }
         Session cmisSession = ((AbstractAlfrescoSessionImpl) session).getCmisSession();
         CmisObject obj = cmisSession.getObject(person.getAvatarIdentifier());
-        String url = ((AbstractAtomPubService) cmisSession.getBinding().getObjectService()).loadLink(session
-                .getRepositoryInfo().getIdentifier(), obj.getId(), AtomPubParser.LINK_REL_CONTENT,
-                null);
+        String url = getContentUrl(obj.getId());
         Log.d("Avatar URL", url);
         return new UrlBuilder(url);
     }
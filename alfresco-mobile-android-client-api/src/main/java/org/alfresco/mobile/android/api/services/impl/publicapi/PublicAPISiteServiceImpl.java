@@ -43,6 +43,7 @@ import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.impl.RepositorySessionImpl;
 import org.alfresco.mobile.android.api.utils.JsonDataWriter;
 import org.alfresco.mobile.android.api.utils.JsonUtils;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.ItemBinder;
 import org.alfresco.mobile.android.api.utils.PublicAPIResponse;
 import org.alfresco.mobile.android.api.utils.PublicAPIUrlRegistry;
 import org.alfresco.mobile.android.api.utils.messages.Messagesl18n;
@@ -55,7 +56,6 @@ import org.apache.http.HttpStatus;
 
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.util.Log;
 
 /**
  * Cloud implementation of SiteService.
@@ -65,8 +65,6 @@ import android.util.Log;
 public class PublicAPISiteServiceImpl extends AbstractSiteServiceImpl
 {
 
-    private static final String TAG = "CloudSiteServiceImpl";
-
     /**
      * Default constructor for service. </br> Used by the
      * {@link AbstractServiceRegistry}.
@@ -398,33 +396,36 @@ public class PublicAPISiteServiceImpl extends AbstractSiteServiceImpl
     // ////////////////////////////////////////////////////////////////////////////////////
     // / INTERNAL
     // ////////////////////////////////////////////////////////////////////////////////////
-    @SuppressWarnings("unchecked")
-    protected PagingResult<Site> computeSites(UrlBuilder url, boolean isAllSite)
+    protected PagingResult<Site> computeSites(UrlBuilder url, final boolean isAllSite)
     {
 
         Response resp = read(url, ErrorCodeRegistry.SITE_GENERIC);
-        PublicAPIResponse response = new PublicAPIResponse(resp);
-
-        List<Site> result = new ArrayList<Site>();
-        Map<String, Object> data = null;
-        CacheSiteExtraProperties extraProperties = null;
-        String siteName = null;
-        for (Object entry : response.getEntries())
+        PublicAPIResponse response = new PublicAPIResponse(resp, new ItemBinder<Site>()
         {
-            data = (Map<String, Object>) ((Map<String, Object>) entry).get(PublicAPIConstant.ENTRY_VALUE);
-            if (!isAllSite)
-            {
-                data = (Map<String, Object>) data.get(PublicAPIConstant.SITE_VALUE);
-            }
-            siteName = JSONConverter.getString(data, PublicAPIConstant.ID_VALUE);
-            if (extraPropertiesCache.get(siteName) != null)
+            @SuppressWarnings("unchecked")
+            public Site bind(Map<String, Object> json)
             {
-                extraProperties = extraPropertiesCache.get(siteName);
-                data.put(PublicAPIConstant.ISPENDINGMEMBER_VALUE, extraProperties.isPendingMember);
-                data.put(PublicAPIConstant.ISMEMBER_VALUE, extraProperties.isMember);
-                data.put(PublicAPIConstant.ISFAVORITE_VALUE, extraProperties.isFavorite);
+                Map<String, Object> data = (Map<String, Object>) json.get(PublicAPIConstant.ENTRY_VALUE);
+                if (!isAllSite)
+                {
+                    data = (Map<String, Object>) data.get(PublicAPIConstant.SITE_VALUE);
+                }
+                String siteName = JSONConverter.getString(data, PublicAPIConstant.ID_VALUE);
+                CacheSiteExtraProperties extraProperties = extraPropertiesCache.get(siteName);
+                if (extraProperties != null)
+                {
+                    data.put(PublicAPIConstant.ISPENDINGMEMBER_VALUE, extraProperties.isPendingMember);
+                    data.put(PublicAPIConstant.ISMEMBER_VALUE, extraProperties.isMember);
+                    data.put(PublicAPIConstant.ISFAVORITE_VALUE, extraProperties.isFavorite);
+                }
+                return SiteImpl.parsePublicAPIJson(data);
             }
-            result.add(SiteImpl.parsePublicAPIJson(data));
+        });
+
+        List<Site> result = new ArrayList<Site>(response.getEntries().size());
+        for (Object entry : response.getEntries())
+        {
+            result.add((Site) entry);
         }
         return new PagingResultImpl<Site>(result, response.getHasMoreItems(), response.getSize());
     }
@@ -492,34 +493,19 @@ public class PublicAPISiteServiceImpl extends AbstractSiteServiceImpl
         return result;
     }
 
+    /** {@inheritDoc} */
     @Override
-    protected void retrieveExtraProperties(String personIdentifier)
+    protected List<String> retrieveFavoriteSiteIdentifiers(String personIdentifier)
     {
-        try
-        {
-            List<JoinSiteRequestImpl> joinSiteRequestList = new ArrayList<JoinSiteRequestImpl>();
-            try
-            {
-                joinSiteRequestList = getJoinSiteRequests();
-            }
-            catch (Exception e)
-            {
-                Log.e(TAG, "Error during cache operation : JoinSiteRequest");
-                Log.e(TAG, Log.getStackTraceString(e));
-            }
-
-            String link = PublicAPIUrlRegistry.getUserFavoriteSitesUrl(session, personIdentifier);
-            List<String> favoriteSites = getSiteIdentifier(new UrlBuilder(link));
-            link = PublicAPIUrlRegistry.getUserSitesUrl(session, personIdentifier);
-            List<String> userSites = getSiteIdentifier(new UrlBuilder(link));
+        return getSiteIdentifier(new UrlBuilder(PublicAPIUrlRegistry.getUserFavoriteSitesUrl(session,
+                personIdentifier)));
+    }
 
-            retrieveExtraProperties(favoriteSites, userSites, joinSiteRequestList);
-        }
-        catch (Exception e)
-        {
-            Log.e(TAG, "Error during cache operation. The site object may contains incorrect informations");
-            Log.e(TAG, Log.getStackTraceString(e));
-        }
+    /** {@inheritDoc} */
+    @Override
+    protected List<String> retrieveUserSiteIdentifiers(String personIdentifier)
+    {
+        return getSiteIdentifier(new UrlBuilder(PublicAPIUrlRegistry.getUserSitesUrl(session, personIdentifier)));
     }
 
     // ////////////////////////////////////////////////////
@@ -23,13 +23,11 @@ import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.net.URLEncoder;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -60,6 +58,7 @@ import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.impl.RepositorySessionImpl;
 import org.alfresco.mobile.android.api.utils.DateUtils;
 import org.alfresco.mobile.android.api.utils.JsonDataWriter;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.ItemBinder;
 import org.alfresco.mobile.android.api.utils.JsonUtils;
 import org.alfresco.mobile.android.api.utils.NodeRefUtils;
 import org.alfresco.mobile.android.api.utils.PublicAPIResponse;
@@ -85,6 +84,24 @@ public class PublicAPIWorkflowServiceImpl extends AbstractWorkflowService
 {
     private static final String TAG = PublicAPIWorkflowServiceImpl.class.getName();
 
+    private static final ItemBinder<Process> PROCESS_BINDER = new ItemBinder<Process>()
+    {
+        @SuppressWarnings("unchecked")
+        public Process bind(Map<String, Object> json)
+        {
+            return ProcessImpl.parsePublicAPIJson((Map<String, Object>) json.get(PublicAPIConstant.ENTRY_VALUE));
+        }
+    };
+
+    private static final ItemBinder<Task> TASK_BINDER = new ItemBinder<Task>()
+    {
+        @SuppressWarnings("unchecked")
+        public Task bind(Map<String, Object> json)
+        {
+            return TaskImpl.parsePublicAPIJson((Map<String, Object>) json.get(PublicAPIConstant.ENTRY_VALUE));
+        }
+    };
+
     /** Use for Public API to include extra variables in response. */
     public static final String INCLUDE_VARIABLES = "filterIncludeVariables";
 
@@ -284,13 +301,11 @@ public class PublicAPIWorkflowServiceImpl extends AbstractWorkflowService
 
             // send and parse
             Response resp = read(url, ErrorCodeRegistry.WORKFLOW_GENERIC);
-            response = new PublicAPIResponse(resp);
+            response = new PublicAPIResponse(resp, PROCESS_BINDER);
 
-            Map<String, Object> data = null;
             for (Object entry : response.getEntries())
             {
-                data = (Map<String, Object>) ((Map<String, Object>) entry).get(PublicAPIConstant.ENTRY_VALUE);
-                processes.add(ProcessImpl.parsePublicAPIJson(data));
+                processes.add((Process) entry);
             }
         }
         catch (Exception e)
@@ -363,13 +378,11 @@ public class PublicAPIWorkflowServiceImpl extends AbstractWorkflowService
 
             // send and parse
             Response resp = read(url, ErrorCodeRegistry.WORKFLOW_GENERIC);
-            response = new PublicAPIResponse(resp);
+            response = new PublicAPIResponse(resp, TASK_BINDER);
 
-            Map<String, Object> data = null;
             for (Object entry : response.getEntries())
             {
-                data = (Map<String, Object>) ((Map<String, Object>) entry).get(PublicAPIConstant.ENTRY_VALUE);
-                tasks.add(TaskImpl.parsePublicAPIJson(data));
+                tasks.add((Task) entry);
             }
         }
         catch (Exception e)
@@ -553,13 +566,11 @@ public class PublicAPIWorkflowServiceImpl extends AbstractWorkflowService
 
             // send and parse
             Response resp = read(url, ErrorCodeRegistry.WORKFLOW_GENERIC);
-            response = new PublicAPIResponse(resp);
+            response = new PublicAPIResponse(resp, TASK_BINDER);
 
-            Map<String, Object> data = null;
             for (Object entry : response.getEntries())
             {
-                data = (Map<String, Object>) ((Map<String, Object>) entry).get(PublicAPIConstant.ENTRY_VALUE);
-                tasks.add(TaskImpl.parsePublicAPIJson(data));
+                tasks.add((Task) entry);
             }
         }
         catch (Exception e)
@@ -1009,8 +1020,8 @@ public class PublicAPIWorkflowServiceImpl extends AbstractWorkflowService
             UrlBuilder builder = new UrlBuilder(url);
             Response resp = read(builder, ErrorCodeRegistry.WORKFLOW_GENERIC);
 
-            cf = new ContentStreamImpl(resp.getStream(), resp.getContentTypeHeader(), resp.getContentLength()
-                    .longValue());
+            cf = new ContentStreamImpl(resp.getStream(), resp.getContentTypeHeader(),
+                    (resp.getContentLength() != null) ? resp.getContentLength().longValue() : -1);
 
             return cf;
         }
@@ -1040,8 +1051,6 @@ public class PublicAPIWorkflowServiceImpl extends AbstractWorkflowService
         }
     };
 
-    private SimpleDateFormat sdf = new SimpleDateFormat(DateUtils.FORMAT_3, Locale.getDefault());
-
     /**
      * @param data
      * @return
@@ -1057,7 +1066,7 @@ public class PublicAPIWorkflowServiceImpl extends AbstractWorkflowService
             {
                 case DATETIME:
                     GregorianCalendar g = new GregorianCalendar();
-                    g.setTime(DateUtils.parseDate((String) data.get(PublicAPIConstant.VALUE), sdf));
+                    g.setTime(DateUtils.parseDate((String) data.get(PublicAPIConstant.VALUE)));
                     return new PropertyImpl(g, type);
                 case INTEGER:
                     return new PropertyImpl(((BigInteger) data.get(PublicAPIConstant.VALUE)).intValue(), type);
@@ -72,6 +72,57 @@ public interface AlfrescoSession extends Parcelable
      */
     String HTTP_CHUNK_TRANSFERT = "org.alfresco.mobile.http.transfert.chunk";
 
+    /**
+     * Used by the PooledHttpInvoker to define the maximum number of HTTP
+     * connections kept by the connection pool.<br/>
+     * Value must be an Integer > 0. Default : 20 <b>This parameter can't be
+     * changed after the session creation</b>.
+     * 
+     * @since 1.5.1
+     */
+    String HTTP_POOL_MAX_CONNECTIONS = "org.alfresco.mobile.http.pool.max";
+
+    /**
+     * Used by the PooledHttpInvoker to define the maximum number of HTTP
+     * connections kept by the connection pool for one host.<br/>
+     * Value must be an Integer > 0. Default : 5 <b>This parameter can't be
+     * changed after the session creation</b>.
+     * 
+     * @since 1.5.1
+     */
+    String HTTP_POOL_MAX_CONNECTIONS_PER_HOST = "org.alfresco.mobile.http.pool.max.host";
+
+    /**
+     * Used by the PooledHttpInvoker to define how long (in ms) a connection is
+     * kept alive when the server doesn't provide a Keep-Alive timeout.<br/>
+     * Value must be an Integer > 0. Default : 30000 <b>This parameter can't be
+     * changed after the session creation</b>.
+     * 
+     * @since 1.5.1
+     */
+    String HTTP_POOL_KEEP_ALIVE = "org.alfresco.mobile.http.pool.keepalive";
+
+    /**
+     * Used by the PooledHttpInvoker to define after how long (in ms) an unused
+     * connection is closed.<br/>
+     * Value must be an Integer > 0. Default : 60000 <b>This parameter can't be
+     * changed after the session creation</b>.
+     * 
+     * @since 1.5.1
+     */
+    String HTTP_POOL_IDLE_TIMEOUT = "org.alfresco.mobile.http.pool.idle";
+
+    /**
+     * Enable/disable the sharing of identical GET requests made at the same
+     * time by services : waiting requests reuse the response of the request
+     * in progress for the same url and user.<br/>
+     * Value must be a Boolean. <br/>
+     * Default : true
+     * 
+     * @since 1.5.1
+     */
+    String HTTP_COALESCE_READS = "org.alfresco.mobile.http.coalesce";
+
     // ///////////////////////////////////////////////
     // EXTENSION
     // ///////////////////////////////////////////////
@@ -97,6 +148,8 @@ public interface AlfrescoSession extends Parcelable
      * be a full qualified classname. This class must extend
      * {@link org.alfresco.mobile.android.api.session.authentication.AuthenticationProvider}
      * <br/>
+     * {@link org.alfresco.mobile.android.api.session.authentication.impl.TicketAuthenticationProviderImpl}
+     * authenticates with an Alfresco ticket instead of the password. <br/>
      * <b>This parameter can't be changed after the session creation</b>.
      */
     String AUTHENTICATOR_CLASSNAME = "org.alfresco.mobile.api.authenticator.classname";
@@ -106,6 +159,8 @@ public interface AlfrescoSession extends Parcelable
      * a full qualified classname. This class must extend
      * {@link org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker}
      * <br/>
+     * Use {@link org.alfresco.mobile.android.api.network.PooledHttpInvoker} to
+     * reuse connections between requests. <br/>
      * <b>This parameter can't be changed after the session creation</b>.
      */
     String HTTP_INVOKER_CLASSNAME = "org.alfresco.mobile.api.httpinvoker.classname";
@@ -133,6 +188,18 @@ public interface AlfrescoSession extends Parcelable
      */
     String LISTING_MAX_ITEMS = "org.alfresco.mobile.api.listing.maxitems";
 
+    /**
+     * <b>OnPremise ONLY</b> : Define in milliseconds how long activity
+     * streams, tags and sites listings which can't be paged by the server are
+     * kept in memory. Next pages of a listing are served from memory during
+     * this delay. <br/>
+     * Value must be a Long. 0 to always request the server. <br/>
+     * Default : 60000 (1 minute)
+     * 
+     * @since 1.5.1
+     */
+    String LISTING_CACHE_TTL = "org.alfresco.mobile.api.listing.cache.ttl";
+
     // ///////////////////////////////////////////////
     // CACHE
     // ///////////////////////////////////////////////
@@ -145,6 +212,176 @@ public interface AlfrescoSession extends Parcelable
      */
     String CACHE_FOLDER = "org.alfresco.mobile.cache.folder";
 
+    /**
+     * Define the maximum size in bytes of the content and rendition cache
+     * stored inside the cache folder. Least recently used files are removed
+     * when the limit is reached.<br/>
+     * Value must be a Long or an Integer > 0. <br/>
+     * Default : 104857600 (100 MB)
+     * 
+     * @since 1.5.1
+     */
+    String CACHE_CONTENT_MAX_SIZE = "org.alfresco.mobile.cache.content.maxsize";
+
+    /**
+     * Define the maximum size in bytes of the HTTP response cache of one user.
+     * GET responses with an ETag or a Last-Modified header are stored inside
+     * the cache folder and revalidated by conditional requests : unchanged
+     * responses are not downloaded again. 0 disables the cache.<br/>
+     * Value must be a Long or an Integer >= 0. <br/>
+     * Default : 10485760 (10 MB)
+     * 
+     * @since 1.5.1
+     */
+    String CACHE_HTTP_MAX_SIZE = "org.alfresco.mobile.cache.http.maxsize";
+
+    /**
+     * Define if type and aspect definitions retrieved by the
+     * ModelDefinitionService are saved inside the cache folder and reused at
+     * the next session creation.<br/>
+     * Value must be a Boolean. <br/>
+     * Default : false
+     * 
+     * @since 1.5.1
+     */
+    String CACHE_MODEL_PERSIST = "org.alfresco.mobile.cache.model.persist";
+
+    /**
+     * Define if folder children listed by the DocumentFolderService are stored
+     * inside the cache folder. Stored folders are then listed without network
+     * round trips and are updated by
+     * {@link org.alfresco.mobile.android.api.services.DocumentFolderService#synchronizeMetadata()
+     * synchronizeMetadata}.<br/>
+     * Value must be a Boolean. <br/>
+     * Default : false
+     * 
+     * @since 1.5.1
+     */
+    String CACHE_METADATA = "org.alfresco.mobile.cache.metadata";
+
+    // ///////////////////////////////////////////////
+    // DOWNLOAD
+    // ///////////////////////////////////////////////
+    /**
+     * Define the size in bytes of one range when the content of a large
+     * document is downloaded. Documents bigger than this size are downloaded
+     * by ranges over several connections and can be resumed after a network
+     * failure.<br/>
+     * Value must be a Long or an Integer > 0. <br/>
+     * Default : 4194304 (4 MB)
+     * 
+     * @since 1.5.1
+     */
+    String DOWNLOAD_CHUNK_SIZE = "org.alfresco.mobile.download.chunk.size";
+
+    /**
+     * Define the maximum number of concurrent connections used to download the
+     * content of a large document.<br/>
+     * Value must be an Integer > 0. <br/>
+     * Default : 3
+     * 
+     * @since 1.5.1
+     */
+    String DOWNLOAD_THREADS = "org.alfresco.mobile.download.threads";
+
+    // ///////////////////////////////////////////////
+    // UPLOAD
+    // ///////////////////////////////////////////////
+    /**
+     * Define the size in bytes of one chunk when the content of a large file
+     * is uploaded. With CMIS 1.1 repositories, files bigger than this size are
+     * uploaded chunk by chunk and the upload resumes from the last chunk after
+     * a failure.<br/>
+     * Value must be a Long or an Integer > 0. <br/>
+     * Default : 4194304 (4 MB)
+     * 
+     * @since 1.5.1
+     */
+    String UPLOAD_CHUNK_SIZE = "org.alfresco.mobile.upload.chunk.size";
+
+    // ///////////////////////////////////////////////
+    // CMIS BINDING
+    // ///////////////////////////////////////////////
+    /**
+     * Define the CMIS binding used to communicate with the repository.<br/>
+     * Values can be
+     * <ul>
+     * <li>{@link #CMIS_BINDING_ATOMPUB} : AtomPub binding (XML).</li>
+     * <li>{@link #CMIS_BINDING_BROWSER} : CMIS 1.1 Browser binding (JSON). If
+     * the repository doesn't provide it, the session falls back to the AtomPub
+     * binding.</li>
+     * </ul>
+     * Ignored if the binding url is forced. <b>This parameter can't be changed
+     * after the session creation</b>. <br/>
+     * Default : {@link #CMIS_BINDING_ATOMPUB}
+     * 
+     * @since 1.5.1
+     */
+    String CMIS_BINDING = "org.alfresco.mobile.cmis.binding";
+
+    /**
+     * Value of {@link #CMIS_BINDING} for the AtomPub binding.
+     * 
+     * @since 1.5.1
+     */
+    String CMIS_BINDING_ATOMPUB = "atompub";
+
+    /**
+     * Value of {@link #CMIS_BINDING} for the Browser binding.
+     * 
+     * @since 1.5.1
+     */
+    String CMIS_BINDING_BROWSER = "browser";
+
+    // ///////////////////////////////////////////////
+    // ASYNC
+    // ///////////////////////////////////////////////
+    /**
+     * Define the maximum number of operations run at the same time by the
+     * {@link org.alfresco.mobile.android.api.services.AsyncService
+     * AsyncService}. Other operations wait in a queue.<br/>
+     * Value must be an Integer > 0. <br/>
+     * Default : 4
+     * 
+     * @since 1.5.1
+     */
+    String ASYNC_THREADS = "org.alfresco.mobile.async.threads";
+
+    // ///////////////////////////////////////////////
+    // METRICS
+    // ///////////////////////////////////////////////
+    /**
+     * Define the listener notified of the latency, payload size and result of
+     * each HTTP request made by the session e.g. a
+     * {@link org.alfresco.mobile.android.api.network.MetricsAggregator
+     * MetricsAggregator}. <br/>
+     * Value must be a RequestListener instance or the class name of a
+     * RequestListener with a public default constructor. <br/>
+     * Default : no listener, no measure.
+     * 
+     * @since 1.5.1
+     */
+    String METRICS_LISTENER = "org.alfresco.mobile.metrics.listener";
+
+    // ///////////////////////////////////////////////
+    // BOOTSTRAP
+    // ///////////////////////////////////////////////
+    /**
+     * Define if the session is created from a snapshot saved by the previous
+     * session of the same user. The snapshot is stored inside
+     * {@link #CACHE_FOLDER} and contains the binding, the repository info and
+     * the root folder but never the credentials. A session created from a
+     * snapshot is available without network round trip : the credentials and
+     * the root folder are checked in background and the snapshot is deleted if
+     * they are not valid anymore. <br/>
+     * Snapshots are not used if the user identifier is unknown e.g. a cloud
+     * session created with OAuth data only. <br/>
+     * Value must be a Boolean. Default : false.
+     * 
+     * @since 1.5.1
+     */
+    String SESSION_SNAPSHOT = "org.alfresco.mobile.session.snapshot";
+
     // ///////////////////////////////////////////////
     // METHODS
     // ///////////////////////////////////////////////
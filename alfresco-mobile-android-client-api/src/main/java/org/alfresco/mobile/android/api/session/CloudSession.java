@@ -122,7 +122,13 @@ public abstract class CloudSession extends AbstractAlfrescoSessionImpl
     public abstract CloudNetwork getNetwork();
 
     /**
-     * Returns the OAuthData the session is currently using.
+     * Returns the OAuthData the session is currently using. <br/>
+     * The access token is refreshed by the session before its expiration :
+     * register an
+     * {@link org.alfresco.mobile.android.api.session.authentication.impl.OAuthTokenManager.Listener
+     * OAuthTokenManager.Listener} to save the new token. A session created
+     * with the same token replaces this one : its token is not refreshed
+     * anymore.
      * 
      * @return
      */
@@ -71,7 +71,7 @@ public class BasicAuthenticationProviderImpl extends AuthenticationProviderImpl
         return result.isEmpty() ? null : result;
     }
 
-    private String getParameter(String key)
+    protected String getParameter(String key)
     {
         if (cmisSession != null && cmisSession.get(key) != null && cmisSession.get(key) instanceof String)
         {
@@ -139,7 +139,7 @@ public class BasicAuthenticationProviderImpl extends AuthenticationProviderImpl
         }
     }
 
-    private String getPassword()
+    protected String getPassword()
     {
         if (password == null && getParameter(SessionParameter.PASSWORD) != null)
         {
@@ -148,7 +148,7 @@ public class BasicAuthenticationProviderImpl extends AuthenticationProviderImpl
         return password;
     }
 
-    private String getUser()
+    protected String getUser()
     {
         if (user == null && getParameter(SessionParameter.USER) != null)
         {
@@ -161,7 +161,7 @@ public class BasicAuthenticationProviderImpl extends AuthenticationProviderImpl
      * Creates a basic authentication header value from a username and a
      * password.
      */
-    private List<String> createBasicAuthHeaderValue(String username, String password)
+    protected List<String> createBasicAuthHeaderValue(String username, String password)
     {
         String tmpPassword = password;
         if (tmpPassword == null)
@@ -33,32 +33,117 @@ import org.alfresco.mobile.android.api.session.authentication.OAuthData;
  * @author Jean Marie Pascal
  */
 public class OAuth2AuthenticationProviderImpl extends AuthenticationProviderImpl implements
-        OAuthAuthenticationProvider, OAuthConstant
+        OAuthAuthenticationProvider, RenewableAuthenticationProvider, OAuthConstant
 {
     private static final long serialVersionUID = 1L;
 
     private static final String TOKEN_TYPE_BEARER = "Bearer";
 
-    private OAuthData token;
+    private volatile OAuthData token;
 
-    private Map<String, List<String>> fixedHeaders = new HashMap<String, List<String>>();
+    private transient volatile OAuthTokenManager tokenManager;
+
+    /** Access token sent by the last request of each thread. */
+    private transient volatile ThreadLocal<String> sentAccessToken;
 
     public OAuth2AuthenticationProviderImpl(OAuthData oauthData)
     {
         this.token = oauthData;
-        retrieveAccessToken();
     }
 
     @Override
     public Map<String, List<String>> getHTTPHeaders()
     {
-        Map<String, List<String>> result = new HashMap<String, List<String>>(fixedHeaders);
-        return result.isEmpty() ? null : result;
+        OAuthTokenManager manager = tokenManager;
+        if (manager != null)
+        {
+            // Refresh in progress : wait for the new token.
+            manager.awaitRefresh();
+        }
+
+        OAuthData currentToken = token;
+        String accessToken = (currentToken != null) ? currentToken.getAccessToken() : null;
+        getSentAccessToken().set(accessToken);
+        if (accessToken == null) { return null; }
+
+        Map<String, List<String>> result = new HashMap<String, List<String>>(1);
+        result.put("Authorization", Collections.singletonList(TOKEN_TYPE_BEARER + " " + accessToken));
+        return result;
+    }
+
+    // ////////////////////////////////////////////////////
+    // TOKEN MANAGER
+    // ////////////////////////////////////////////////////
+    /**
+     * Starts the refresh of the token before its expiration.
+     *
+     * @param baseUrl : url of the OAuth server.
+     * @return the token manager of this provider.
+     * @since 1.5.1
+     */
+    public synchronized OAuthTokenManager startTokenManager(String baseUrl)
+    {
+        if (tokenManager == null)
+        {
+            setTokenManager(new OAuthTokenManager(this, baseUrl));
+        }
+        return tokenManager;
+    }
+
+    /**
+     * Replaces the token manager e.g. to refresh tokens with another server.
+     *
+     * @since 1.5.1
+     */
+    public synchronized void setTokenManager(OAuthTokenManager manager)
+    {
+        if (tokenManager != null)
+        {
+            tokenManager.stop();
+        }
+        tokenManager = manager;
+        if (manager != null)
+        {
+            manager.schedule(token);
+        }
+    }
+
+    /**
+     * @return the token manager or null if it has not been started.
+     * @since 1.5.1
+     */
+    public OAuthTokenManager getTokenManager()
+    {
+        return tokenManager;
+    }
+
+    /** Refreshes the access token sent by the last request of the current thread. */
+    public boolean renew()
+    {
+        OAuthTokenManager manager = tokenManager;
+        String rejectedAccessToken = getSentAccessToken().get();
+        if (manager == null || rejectedAccessToken == null) { return false; }
+        return manager.refresh(rejectedAccessToken);
+    }
+
+    /** The new access token has been refused too : nothing else to renew. */
+    public void renewalRejected()
+    {
     }
 
-    private void retrieveAccessToken()
+    private ThreadLocal<String> getSentAccessToken()
     {
-        fixedHeaders.put("Authorization", Collections.singletonList(TOKEN_TYPE_BEARER + " " + token.getAccessToken()));
+        if (sentAccessToken == null)
+        {
+            synchronized (this)
+            {
+                if (sentAccessToken == null)
+                {
+                    sentAccessToken = new ThreadLocal<String>();
+                }
+            }
+        }
+        return sentAccessToken;
     }
 
     @Override
@@ -85,7 +170,11 @@ public class OAuth2AuthenticationProviderImpl extends AuthenticationProviderImpl
     public void setOAuthData(OAuthData data)
     {
         this.token = data;
-        retrieveAccessToken();
+        OAuthTokenManager manager = tokenManager;
+        if (manager != null)
+        {
+            manager.schedule(data);
+        }
     }
 
     @Override
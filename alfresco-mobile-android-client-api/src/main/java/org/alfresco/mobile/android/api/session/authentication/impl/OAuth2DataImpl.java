@@ -55,6 +55,9 @@ public final class OAuth2DataImpl implements OAuthData
 
     private String scope;
 
+    /** Time of the token response. */
+    private long issuedAt = 0;
+
     public OAuth2DataImpl(String apikey, String apiSecret)
     {
         this.apiKey = apikey;
@@ -76,6 +79,25 @@ public final class OAuth2DataImpl implements OAuthData
         expiresIn = JSONConverter.getString(json, PARAM_EXPIRES_IN);
         refreshToken = JSONConverter.getString(json, PARAM_REFRESH_TOKEN);
         scope = JSONConverter.getString(json, PARAM_SCOPE);
+        issuedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * @return time in milliseconds when the access token expires or -1 if
+     *         it's unknown.
+     * @since 1.5.1
+     */
+    public long getExpirationTime()
+    {
+        if (expiresIn == null || issuedAt == 0) { return -1; }
+        try
+        {
+            return issuedAt + Long.parseLong(expiresIn) * 1000;
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,343 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.session.authentication.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.mobile.android.api.exceptions.AlfrescoSessionException;
+import org.alfresco.mobile.android.api.session.authentication.OAuthAuthenticationProvider;
+import org.alfresco.mobile.android.api.session.authentication.OAuthData;
+
+import android.util.Log;
+
+/**
+ * Refreshes the OAuth token of a cloud session. <br/>
+ * The access token is refreshed in background {@link #REFRESH_MARGIN} before
+ * its expiration (expires_in of the token response). If the server refuses a
+ * token anyway, the request which received the 401 refreshes it with
+ * {@link #refresh(String)}. <br/>
+ * Only one refresh runs at a time : concurrent callers wait for its end and
+ * share its result. Requests made during a refresh wait for the new token
+ * instead of being sent with the old one. <br/>
+ * The old refresh token becomes invalid : a {@link Listener} can save the new
+ * token. For the same reason, only one manager refreshes a refresh token : a
+ * session created with the token of another session replaces it and the
+ * manager of the replaced session is stopped. <br/>
+ * The scheduler only keeps a weak reference to the managers : a discarded
+ * session is not refreshed once it has been garbage collected.
+ *
+ * @since 1.5.1
+ */
+public class OAuthTokenManager
+{
+    private static final String TAG = OAuthTokenManager.class.getName();
+
+    /** Notified when a new token has been installed. */
+    public interface Listener
+    {
+        void onTokenRefreshed(OAuthData data);
+    }
+
+    /** Access tokens are refreshed 1 minute before their expiration. */
+    public static final long REFRESH_MARGIN = 60000;
+
+    /** Maximum time a request waits for the end of a refresh. */
+    private static final long REFRESH_TIMEOUT = 60000;
+
+    private static ScheduledExecutorService scheduler;
+
+    /** Running managers by refresh token. */
+    private static final Map<String, WeakReference<OAuthTokenManager>> MANAGERS = new HashMap<String, WeakReference<OAuthTokenManager>>();
+
+    private final OAuthAuthenticationProvider provider;
+
+    private final String baseUrl;
+
+    private final Object lock = new Object();
+
+    /** Guarded by lock. */
+    private boolean refreshing = false;
+
+    /** Guarded by lock. */
+    private ScheduledFuture<?> scheduledRefresh;
+
+    /** Guarded by lock. */
+    private boolean stopped = false;
+
+    /** Refresh token of the current data. Guarded by MANAGERS. */
+    private String refreshToken;
+
+    private volatile Listener listener;
+
+    /**
+     * @param provider : holds the token used by the requests.
+     * @param baseUrl : url of the OAuth server.
+     */
+    public OAuthTokenManager(OAuthAuthenticationProvider provider, String baseUrl)
+    {
+        this.provider = provider;
+        this.baseUrl = baseUrl;
+    }
+
+    public void setListener(Listener listener)
+    {
+        this.listener = listener;
+    }
+
+    // ////////////////////////////////////////////////////
+    // SCHEDULING
+    // ////////////////////////////////////////////////////
+    /**
+     * Schedules the refresh of a token before its expiration. Replaces the
+     * previous schedule. Nothing is scheduled if the expiration is unknown.
+     * <br/>
+     * The manager which was refreshing the same refresh token is stopped.
+     */
+    public void schedule(OAuthData data)
+    {
+        synchronized (lock)
+        {
+            if (stopped) { return; }
+        }
+        OAuthTokenManager replaced = register((data != null) ? data.getRefreshToken() : null);
+        if (replaced != null)
+        {
+            replaced.stop();
+        }
+
+        long delay = getRefreshDelay(data);
+        synchronized (lock)
+        {
+            if (scheduledRefresh != null)
+            {
+                scheduledRefresh.cancel(false);
+                scheduledRefresh = null;
+            }
+            if (stopped || delay < 0) { return; }
+            scheduledRefresh = getScheduler().schedule(new RefreshTask(this, data.getAccessToken()), delay,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the manager when its session is discarded or replaced : the token
+     * is not refreshed anymore, neither in background nor on demand.
+     */
+    public void stop()
+    {
+        synchronized (lock)
+        {
+            stopped = true;
+            if (scheduledRefresh != null)
+            {
+                scheduledRefresh.cancel(false);
+                scheduledRefresh = null;
+            }
+        }
+        register(null);
+    }
+
+    /** @return true if the manager has been stopped. */
+    public boolean isStopped()
+    {
+        synchronized (lock)
+        {
+            return stopped;
+        }
+    }
+
+    /**
+     * Registers the manager as the one refreshing a refresh token.
+     *
+     * @return the manager previously registered for this token or null.
+     */
+    private OAuthTokenManager register(String newRefreshToken)
+    {
+        synchronized (MANAGERS)
+        {
+            for (Iterator<WeakReference<OAuthTokenManager>> it = MANAGERS.values().iterator(); it.hasNext();)
+            {
+                OAuthTokenManager manager = it.next().get();
+                if (manager == null || manager == this)
+                {
+                    it.remove();
+                }
+            }
+            refreshToken = newRefreshToken;
+            if (newRefreshToken == null) { return null; }
+
+            WeakReference<OAuthTokenManager> previous = MANAGERS.put(newRefreshToken,
+                    new WeakReference<OAuthTokenManager>(this));
+            return (previous != null) ? previous.get() : null;
+        }
+    }
+
+    /** @return delay before the refresh of the token or -1 if unknown. */
+    static long getRefreshDelay(OAuthData data)
+    {
+        if (!(data instanceof OAuth2DataImpl)) { return -1; }
+        long expiration = ((OAuth2DataImpl) data).getExpirationTime();
+        if (expiration < 0) { return -1; }
+
+        // Short-lived tokens are refreshed at half of their life.
+        long lifetime = expiration - System.currentTimeMillis();
+        return Math.max(0, lifetime - Math.min(REFRESH_MARGIN, lifetime / 2));
+    }
+
+    private static synchronized ScheduledExecutorService getScheduler()
+    {
+        if (scheduler == null)
+        {
+            scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "AlfrescoOAuthRefresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * Scheduled refresh. It doesn't keep the manager alive : the scheduler
+     * lives as long as the process.
+     */
+    private static final class RefreshTask implements Runnable
+    {
+        private final WeakReference<OAuthTokenManager> manager;
+
+        private final String accessToken;
+
+        RefreshTask(OAuthTokenManager manager, String accessToken)
+        {
+            this.manager = new WeakReference<OAuthTokenManager>(manager);
+            this.accessToken = accessToken;
+        }
+
+        public void run()
+        {
+            OAuthTokenManager current = manager.get();
+            if (current != null)
+            {
+                current.refresh(accessToken);
+            }
+        }
+    }
+
+    // ////////////////////////////////////////////////////
+    // REFRESH
+    // ////////////////////////////////////////////////////
+    /**
+     * Waits for the end of the refresh in progress if any.
+     */
+    public void awaitRefresh()
+    {
+        synchronized (lock)
+        {
+            long end = System.currentTimeMillis() + REFRESH_TIMEOUT;
+            while (refreshing)
+            {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) { return; }
+                try
+                {
+                    lock.wait(remaining);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Refreshes the token unless it has already been replaced since the
+     * rejected access token was sent. If a refresh is in progress, waits for
+     * its end instead of making another one.
+     *
+     * @param rejectedAccessToken : access token to replace. Null to refresh
+     *            the current token.
+     * @return true if a new token is available. False if the manager has been
+     *         stopped.
+     */
+    public boolean refresh(String rejectedAccessToken)
+    {
+        OAuthData current;
+        synchronized (lock)
+        {
+            awaitRefresh();
+            current = provider.getOAuthData();
+            if (stopped || current == null || refreshing) { return false; }
+            if (rejectedAccessToken != null && !rejectedAccessToken.equals(current.getAccessToken())) { return true; }
+            refreshing = true;
+        }
+
+        OAuthData refreshed = null;
+        try
+        {
+            refreshed = requestRefresh(current);
+        }
+        catch (AlfrescoSessionException e)
+        {
+            Log.w(TAG, "Unable to refresh the access token : " + e.getMessage());
+        }
+        finally
+        {
+            synchronized (lock)
+            {
+                if (refreshed != null)
+                {
+                    provider.setOAuthData(refreshed);
+                }
+                refreshing = false;
+                lock.notifyAll();
+            }
+        }
+
+        if (refreshed == null) { return false; }
+        Listener currentListener = listener;
+        if (currentListener != null)
+        {
+            currentListener.onTokenRefreshed(refreshed);
+        }
+        return true;
+    }
+
+    /**
+     * Requests a new token to the OAuth server.
+     *
+     * @return the new token or null if the request has failed.
+     */
+    protected OAuthData requestRefresh(OAuthData data)
+    {
+        return new OAuthHelper(baseUrl).refreshToken(data);
+    }
+}
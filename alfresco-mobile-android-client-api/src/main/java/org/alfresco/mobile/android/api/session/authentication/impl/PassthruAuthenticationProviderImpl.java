@@ -17,8 +17,10 @@
  ******************************************************************************/
 package org.alfresco.mobile.android.api.session.authentication.impl;
 
+import java.io.Serializable;
 import java.lang.reflect.Constructor;
 import java.security.SecureRandom;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,12 +50,21 @@ public class PassthruAuthenticationProviderImpl extends AbstractAuthenticationPr
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * SSLSocketFactory by trust manager class name : sessions with the same
+     * trust manager share their pooled connections.
+     */
+    private static final Map<String, SSLSocketFactory> SSL_FACTORIES = new HashMap<String, SSLSocketFactory>();
+
     private AuthenticationProvider alfrescoAuthenticationProvider;
 
     private SSLSocketFactory factory;
 
     private boolean hasCheckedSSLFactory = false;
 
+    /** Objects put inside the binding session when it's attached. */
+    private transient Map<String, Serializable> bindingObjects;
+
     public PassthruAuthenticationProviderImpl()
     {
     }
@@ -63,6 +74,31 @@ public class PassthruAuthenticationProviderImpl extends AbstractAuthenticationPr
         this.alfrescoAuthenticationProvider = alfrescoAuthenticationProvider;
     }
 
+    /**
+     * Defines objects to put inside the binding session before the first
+     * request e.g. the caches of a session snapshot.
+     *
+     * @since 1.5.1
+     */
+    public void setBindingObjects(Map<String, Serializable> objects)
+    {
+        this.bindingObjects = objects;
+    }
+
+    @Override
+    public void setSession(BindingSession session)
+    {
+        super.setSession(session);
+        if (bindingObjects != null)
+        {
+            for (Map.Entry<String, Serializable> entry : bindingObjects.entrySet())
+            {
+                session.put(entry.getKey(), entry.getValue());
+            }
+            bindingObjects = null;
+        }
+    }
+
     @Override
     public Map<String, List<String>> getHTTPHeaders(String url)
     {
@@ -90,20 +126,28 @@ public class PassthruAuthenticationProviderImpl extends AbstractAuthenticationPr
             return null;
         }
 
-        try
-        {
-            SSLContext context = null;
-            X509TrustManager customManager = createTrustManager(getTrustManagerClassName());
-
-            context = SSLContext.getInstance("TLS");
-            context.init(null, new X509TrustManager[] { customManager }, new SecureRandom());
-            factory = context.getSocketFactory();
-        }
-        catch (Exception e)
+        synchronized (SSL_FACTORIES)
         {
-            // We don't stop a session creation due to a wrong ssl creation.
-            // The default secure one will be used instead.
-            //Log.d("TrustManager", "Unable to instantiate CustomTrustManager");
+            factory = SSL_FACTORIES.get(getTrustManagerClassName());
+            if (factory == null)
+            {
+                try
+                {
+                    SSLContext context = null;
+                    X509TrustManager customManager = createTrustManager(getTrustManagerClassName());
+
+                    context = SSLContext.getInstance("TLS");
+                    context.init(null, new X509TrustManager[] { customManager }, new SecureRandom());
+                    factory = context.getSocketFactory();
+                    SSL_FACTORIES.put(getTrustManagerClassName(), factory);
+                }
+                catch (Exception e)
+                {
+                    // We don't stop a session creation due to a wrong ssl
+                    // creation. The default secure one will be used instead.
+                    //Log.d("TrustManager", "Unable to instantiate CustomTrustManager");
+                }
+            }
         }
         hasCheckedSSLFactory = true;
         return factory;
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.session.authentication.impl;
+
+/**
+ * AuthenticationProvider whose credentials can be renewed when the server
+ * rejects them. <br/>
+ * When a request is rejected (401), the HTTP invoker calls {@link #renew()}
+ * from the thread which sent the request, then sends the request again once.
+ *
+ * @since 1.5.1
+ */
+public interface RenewableAuthenticationProvider
+{
+    /**
+     * Renews the credentials sent by the last request of the current thread
+     * unless another thread has already renewed them.
+     *
+     * @return true if the request can be sent again with new credentials.
+     */
+    boolean renew();
+
+    /**
+     * Called by the thread whose request has been rejected again with the
+     * renewed credentials.
+     */
+    void renewalRejected();
+}
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.session.authentication.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.mobile.android.api.constants.OnPremiseConstant;
+import org.alfresco.mobile.android.api.network.NetworkHttpInvoker;
+import org.alfresco.mobile.android.api.utils.JsonDataWriter;
+import org.alfresco.mobile.android.api.utils.JsonUtils;
+import org.alfresco.mobile.android.api.utils.OnPremiseUrlRegistry;
+import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.http.HttpStatus;
+
+import android.util.Log;
+
+/**
+ * AuthenticationProvider based on an Alfresco ticket. <br/>
+ * The ticket is requested once with the login webscript and sent with every
+ * request instead of the user password. When the server rejects the ticket
+ * (401), {@link #renew()} discards it : the next request logs in again. If
+ * several requests are rejected at the same time, only one login is made. <br/>
+ * If the server doesn't provide the login webscript or doesn't accept tickets,
+ * the provider falls back to Basic authentication. <br/>
+ * To use it, define {@link org.alfresco.mobile.android.api.session.AlfrescoSession#AUTHENTICATOR_CLASSNAME
+ * AUTHENTICATOR_CLASSNAME} with the classname of this class.
+ *
+ * @since 1.5.1
+ */
+public class TicketAuthenticationProviderImpl extends BasicAuthenticationProviderImpl implements
+        RenewableAuthenticationProvider
+{
+    private static final String TAG = TicketAuthenticationProviderImpl.class.getName();
+
+    private static final long serialVersionUID = 1L;
+
+    /** User name sent with a ticket. */
+    private static final String ROLE_TICKET = "ROLE_TICKET";
+
+    /** Delay before a new login after a failure. */
+    private static final long LOGIN_RETRY_DELAY = 30000;
+
+    private static final String BASE_URL = "org.alfresco.mobile.binding.internal.baseurl";
+
+    private static final String AUTHORIZATION = "Authorization";
+
+    private transient volatile String ticket;
+
+    /** Tickets are not supported by the server : Basic authentication only. */
+    private volatile boolean ticketDisabled = false;
+
+    /** Time of the last failed login. Guarded by synchronized(this). */
+    private transient long lastLoginFailure = 0;
+
+    /**
+     * True while the login request is sent : its headers don't contain a
+     * ticket. Guarded by synchronized(this).
+     */
+    private transient boolean loggingIn = false;
+
+    /** Ticket sent by the last request of each thread. */
+    private transient volatile ThreadLocal<String> sentTicket;
+
+    public TicketAuthenticationProviderImpl(Map<String, Serializable> parameters)
+    {
+        super(parameters);
+    }
+
+    public TicketAuthenticationProviderImpl(BindingSession cmisSession)
+    {
+        super(cmisSession);
+    }
+
+    // ////////////////////////////////////////////////////
+    // HEADERS
+    // ////////////////////////////////////////////////////
+    @Override
+    public Map<String, List<String>> getHTTPHeaders()
+    {
+        Map<String, List<String>> headers = super.getHTTPHeaders();
+        String currentTicket = (headers != null && headers.containsKey(AUTHORIZATION)) ? getTicket() : null;
+        getSentTicket().set(currentTicket);
+        if (currentTicket != null)
+        {
+            headers.put(AUTHORIZATION, createBasicAuthHeaderValue(ROLE_TICKET, currentTicket));
+        }
+        return headers;
+    }
+
+    /**
+     * @return the current ticket. Logs in if there's no ticket. Null if the
+     *         ticket can't be obtained.
+     */
+    public String getTicket()
+    {
+        String currentTicket = ticket;
+        if (currentTicket != null || ticketDisabled) { return currentTicket; }
+
+        synchronized (this)
+        {
+            if (ticket == null && !ticketDisabled && !loggingIn
+                    && System.currentTimeMillis() - lastLoginFailure > LOGIN_RETRY_DELAY)
+            {
+                loggingIn = true;
+                try
+                {
+                    ticket = requestTicket(getUser(), getPassword());
+                }
+                finally
+                {
+                    loggingIn = false;
+                }
+                if (ticket == null)
+                {
+                    lastLoginFailure = System.currentTimeMillis();
+                }
+            }
+            return ticket;
+        }
+    }
+
+    // ////////////////////////////////////////////////////
+    // RENEW
+    // ////////////////////////////////////////////////////
+    /**
+     * Discards the ticket sent by the last request of the current thread
+     * unless another thread has already replaced it.
+     *
+     * @return true if the request has been sent with a ticket and can be sent
+     *         again.
+     */
+    public boolean renew()
+    {
+        String rejectedTicket = getSentTicket().get();
+        if (rejectedTicket == null) { return false; }
+        synchronized (this)
+        {
+            if (rejectedTicket.equals(ticket))
+            {
+                ticket = null;
+            }
+        }
+        return true;
+    }
+
+    /** A ticket just renewed has been refused : tickets are not accepted. */
+    public void renewalRejected()
+    {
+        disable();
+    }
+
+    /**
+     * Must be called by the thread whose request has been refused with a
+     * ticket. Next requests use Basic authentication.
+     */
+    public void disable()
+    {
+        if (getSentTicket().get() == null) { return; }
+        ticketDisabled = true;
+        ticket = null;
+    }
+
+    // ////////////////////////////////////////////////////
+    // LOGIN
+    // ////////////////////////////////////////////////////
+    /**
+     * Requests a new ticket with the login webscript. The request is sent by
+     * the HttpInvoker of the binding session so its SSL settings are used.
+     *
+     * @return the ticket or null if the login has failed.
+     */
+    protected String requestTicket(String username, String password)
+    {
+        String baseUrl = getParameter(BASE_URL);
+        if (username == null || baseUrl == null) { return null; }
+        try
+        {
+            UrlBuilder builder = new UrlBuilder(OnPremiseUrlRegistry.getTicketLoginUrl(baseUrl));
+
+            JSONObject jo = new JSONObject();
+            jo.put(OnPremiseConstant.LOGIN_USERNAME_VALUE, username);
+            jo.put(OnPremiseConstant.LOGIN_PASSWORD_VALUE, (password != null) ? password : "");
+            final JsonDataWriter formData = new JsonDataWriter(jo);
+            Output output = new Output()
+            {
+                public void write(OutputStream out) throws IOException
+                {
+                    formData.write(out);
+                }
+            };
+
+            Response resp = null;
+            if (cmisSession != null)
+            {
+                resp = CmisBindingsHelper.getHttpInvoker(cmisSession).invokePOST(builder,
+                        formData.getContentType(), output, cmisSession);
+            }
+            else
+            {
+                resp = NetworkHttpInvoker.invokePOST(builder, formData.getContentType(), output,
+                        (Map<String, List<String>>) null);
+            }
+
+            if (resp.getResponseCode() == HttpStatus.SC_NOT_FOUND)
+            {
+                // Login webscript not available
+                ticketDisabled = true;
+                return null;
+            }
+            if (resp.getResponseCode() != HttpStatus.SC_OK) { return null; }
+
+            Map<String, Object> json = JsonUtils.parseObject(resp.getStream(), resp.getCharset());
+            Map<String, Object> data = JSONConverter.getMap(json.get(OnPremiseConstant.LOGIN_DATA_VALUE));
+            return (data != null) ? JSONConverter.getString(data, OnPremiseConstant.LOGIN_TICKET_VALUE) : null;
+        }
+        catch (Exception e)
+        {
+            Log.w(TAG, "Unable to request a ticket : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private ThreadLocal<String> getSentTicket()
+    {
+        if (sentTicket == null)
+        {
+            synchronized (this)
+            {
+                if (sentTicket == null)
+                {
+                    sentTicket = new ThreadLocal<String>();
+                }
+            }
+        }
+        return sentTicket;
+    }
+}
@@ -17,6 +17,7 @@
  ******************************************************************************/
 package org.alfresco.mobile.android.api.session.impl;
 
+import java.io.File;
 import java.io.Serializable;
 import java.lang.reflect.Constructor;
 import java.util.*;
@@ -26,9 +27,13 @@ import org.alfresco.mobile.android.api.exceptions.ErrorCodeRegistry;
 import org.alfresco.mobile.android.api.model.Folder;
 import org.alfresco.mobile.android.api.model.ListingContext;
 import org.alfresco.mobile.android.api.model.RepositoryInfo;
+import org.alfresco.mobile.android.api.model.impl.FolderImpl;
+import org.alfresco.mobile.android.api.network.HttpResponseCache;
 import org.alfresco.mobile.android.api.network.NetworkHttpInvoker;
+import org.alfresco.mobile.android.api.network.RequestMetrics;
 import org.alfresco.mobile.android.api.services.ServiceRegistry;
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
+import org.alfresco.mobile.android.api.session.CloudNetwork;
 import org.alfresco.mobile.android.api.session.CloudSession;
 import org.alfresco.mobile.android.api.session.RepositorySession;
 import org.alfresco.mobile.android.api.session.authentication.AuthenticationProvider;
@@ -40,12 +45,17 @@ import org.alfresco.mobile.android.api.utils.PublicAPIUrlRegistry;
 import org.alfresco.mobile.android.api.utils.messages.Messagesl18n;
 import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.client.api.SessionFactory;
+import org.apache.chemistry.opencmis.client.bindings.spi.AbstractAuthenticationProvider;
 import org.apache.chemistry.opencmis.client.runtime.SessionFactoryImpl;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisPermissionDeniedException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisUnauthorizedException;
 
 import android.os.Parcelable;
+import android.util.Log;
 
 /**
  * AlfrescoSession is the base class for all connection to a repository.
@@ -54,6 +64,8 @@ import android.os.Parcelable;
  */
 public abstract class AbstractAlfrescoSessionImpl implements AlfrescoSession, Parcelable
 {
+    private static final String TAG = AbstractAlfrescoSessionImpl.class.getName();
+
     /** Default Value of cache folder for the session. */
     public static final String DEFAULT_CACHE_FOLDER_PATH = "/sdcard/Android/data/org.alfresco.mobile.android.sdk/cache";
 
@@ -63,8 +75,11 @@ public abstract class AbstractAlfrescoSessionImpl implements AlfrescoSession, Pa
 
     protected String password;
 
-    /** Root Folder for the specific session. */
-    protected Folder rootNode;
+    /**
+     * Root Folder for the specific session. Volatile : it's replaced by the
+     * snapshot revalidation thread.
+     */
+    protected volatile Folder rootNode;
 
     /** Service Registry for all features available with this repository. */
     protected ServiceRegistry services;
@@ -324,6 +339,21 @@ public abstract class AbstractAlfrescoSessionImpl implements AlfrescoSession, Pa
         addParameterIfExist(HTTP_ACCEPT_ENCODING, HTTP_ACCEPT_ENCODING);
         addParameterIfExist(HTTP_ACCEPT_LANGUAGE, HTTP_ACCEPT_LANGUAGE);
         addParameterIfExist(HTTP_CHUNK_TRANSFERT, HTTP_CHUNK_TRANSFERT);
+        addParameterIfExist(HTTP_POOL_MAX_CONNECTIONS, HTTP_POOL_MAX_CONNECTIONS);
+        addParameterIfExist(HTTP_POOL_MAX_CONNECTIONS_PER_HOST, HTTP_POOL_MAX_CONNECTIONS_PER_HOST);
+        addParameterIfExist(HTTP_POOL_KEEP_ALIVE, HTTP_POOL_KEEP_ALIVE);
+        addParameterIfExist(HTTP_POOL_IDLE_TIMEOUT, HTTP_POOL_IDLE_TIMEOUT);
+        addParameterIfExist(CACHE_FOLDER, CACHE_FOLDER);
+        addParameterIfExist(CACHE_HTTP_MAX_SIZE, CACHE_HTTP_MAX_SIZE);
+        if (userIdentifier != null)
+        {
+            sessionParameters.put(HttpResponseCache.USER, userIdentifier);
+        }
+        String listenerKey = RequestMetrics.register(getParameter(METRICS_LISTENER));
+        if (listenerKey != null)
+        {
+            sessionParameters.put(METRICS_LISTENER, listenerKey);
+        }
         addParameterIfExist(ONPREMISE_TRUSTMANAGER_CLASSNAME, ONPREMISE_TRUSTMANAGER_CLASSNAME);
         addParameterIfExist(HTTP_INVOKER_CLASSNAME, SessionParameter.HTTP_INVOKER_CLASS);
         
@@ -337,7 +367,8 @@ public abstract class AbstractAlfrescoSessionImpl implements AlfrescoSession, Pa
     {
         if (hasParameter(keySettings))
         {
-            sessionParameters.put(keyParameters, (String) getParameter(keySettings));
+            Serializable value = getParameter(keySettings);
+            sessionParameters.put(keyParameters, (value != null) ? value.toString() : null);
         }
     }
 
@@ -440,6 +471,216 @@ public abstract class AbstractAlfrescoSessionImpl implements AlfrescoSession, Pa
         }
     }
 
+    // ////////////////////////////////////////////////////
+    // CMIS BINDING
+    // ////////////////////////////////////////////////////
+    /**
+     * @return true if the session parameters request the CMIS Browser binding
+     *         and no binding url is forced.
+     */
+    protected boolean isBrowserBindingRequested()
+    {
+        return !hasForceBinding() && !hasParameter(BINDING_URL)
+                && AlfrescoSession.CMIS_BINDING_BROWSER.equals(getParameter(AlfrescoSession.CMIS_BINDING));
+    }
+
+    /**
+     * Creates the CMIS session with the Browser binding.
+     * 
+     * @param browserUrl : url of the CMIS 1.1 Browser binding.
+     * @return the CMIS session or null if the repository doesn't provide the
+     *         Browser binding.
+     * @throws AlfrescoSessionException : if the user is not authorized.
+     */
+    protected Session createBrowserSession(SessionFactory sessionFactory, AuthenticationProvider authenticator,
+            Map<String, String> param, String browserUrl)
+    {
+        Map<String, String> browserParam = new HashMap<String, String>(param);
+        browserParam.remove(SessionParameter.ATOMPUB_URL);
+        browserParam.put(SessionParameter.BINDING_TYPE, BindingType.BROWSER.value());
+        browserParam.put(SessionParameter.BROWSER_URL, browserUrl);
+        browserParam.put(SessionParameter.BROWSER_SUCCINCT, "true");
+        try
+        {
+            return createSession(sessionFactory, authenticator, browserParam);
+        }
+        catch (AlfrescoSessionException e)
+        {
+            if (e.getErrorCode() == ErrorCodeRegistry.SESSION_UNAUTHORIZED
+                    || e.getCause() instanceof CmisUnauthorizedException) { throw e; }
+            Log.d(TAG, "Browser binding not available, fallback to AtomPub : " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the CMIS binding used by the session or null if the session is
+     *         not created.
+     * @since 1.5.1
+     */
+    public BindingType getBindingType()
+    {
+        return (cmisSession != null) ? cmisSession.getBinding().getBindingType() : null;
+    }
+
+    // ////////////////////////////////////////////////////
+    // BOOTSTRAP
+    // ////////////////////////////////////////////////////
+    /** Bootstrap phase : retrieve the cloud networks of the user. */
+    public static final String PHASE_NETWORKS = "networks";
+
+    /** Bootstrap phase : load the snapshot and create the CMIS session. */
+    public static final String PHASE_SNAPSHOT = "snapshot";
+
+    /** Bootstrap phase : create the CMIS session (service document). */
+    public static final String PHASE_CMIS_SESSION = "cmisSession";
+
+    /** Bootstrap phase : retrieve the edition of an on premise server. */
+    public static final String PHASE_EDITION = "edition";
+
+    /** Bootstrap phase : retrieve the root folder. */
+    public static final String PHASE_ROOT_FOLDER = "rootFolder";
+
+    /** Bootstrap phase : create the services. */
+    public static final String PHASE_SERVICES = "services";
+
+    /** Duration in milliseconds of each bootstrap phase. */
+    private final Map<String, Long> bootstrapTimings = new LinkedHashMap<String, Long>();
+
+    private long phaseStart;
+
+    private boolean restoredFromSnapshot = false;
+
+    protected void startBootstrap()
+    {
+        bootstrapTimings.clear();
+        phaseStart = System.currentTimeMillis();
+    }
+
+    /** Records the duration of a phase which ends now. */
+    protected void endPhase(String phase)
+    {
+        long now = System.currentTimeMillis();
+        Long previous = bootstrapTimings.get(phase);
+        bootstrapTimings.put(phase, now - phaseStart + ((previous != null) ? previous : 0));
+        phaseStart = now;
+    }
+
+    /**
+     * @return duration in milliseconds of each phase of the session creation,
+     *         in execution order. Phases are defined by the PHASE_ constants.
+     * @since 1.5.1
+     */
+    public Map<String, Long> getBootstrapTimings()
+    {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(bootstrapTimings));
+    }
+
+    /**
+     * @return true if the session has been created from a snapshot without
+     *         network round trip.
+     * @see AlfrescoSession#SESSION_SNAPSHOT
+     * @since 1.5.1
+     */
+    public boolean isRestoredFromSnapshot()
+    {
+        return restoredFromSnapshot;
+    }
+
+    /**
+     * @param networkId : requested cloud network or null.
+     * @return the snapshot file of the session or null if snapshots are
+     *         disabled.
+     */
+    protected File getSnapshotFile(String networkId)
+    {
+        Serializable enabled = getParameter(SESSION_SNAPSHOT);
+        if (enabled == null || !Boolean.parseBoolean(enabled.toString())) { return null; }
+        Serializable cacheFolder = getParameter(CACHE_FOLDER);
+        return SessionSnapshot.getFile((cacheFolder != null) ? cacheFolder.toString() : null, baseUrl,
+                userIdentifier, networkId);
+    }
+
+    /**
+     * Creates the CMIS session from a snapshot. The binding caches are filled
+     * before the session connects : no request is sent.
+     * 
+     * @return the CMIS session or null if the snapshot can't be used.
+     */
+    protected Session restoreSession(SessionSnapshot snapshot, Map<String, String> param)
+    {
+        Map<String, String> snapshotParam = new HashMap<String, String>(param);
+        snapshotParam.remove(SessionParameter.ATOMPUB_URL);
+        snapshotParam.remove(SessionParameter.BROWSER_URL);
+        snapshotParam.putAll(snapshot.getBindingParameters());
+
+        PassthruAuthenticationProviderImpl provider = new PassthruAuthenticationProviderImpl(authenticator);
+        provider.setBindingObjects(snapshot.getBindingObjects());
+        try
+        {
+            Session session = SessionFactoryImpl.newInstance().createSession(snapshotParam, null, provider, null,
+                    null);
+            restoredFromSnapshot = true;
+            return session;
+        }
+        catch (Exception e)
+        {
+            Log.w(TAG, "Unable to restore session snapshot : " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Saves the state of the session once created.
+     * 
+     * @param network : network of a cloud session. Null otherwise.
+     */
+    protected void saveSnapshot(File file, CloudNetwork network)
+    {
+        if (file == null || rootNode == null) { return; }
+        org.apache.chemistry.opencmis.commons.spi.AuthenticationProvider provider = cmisSession.getBinding()
+                .getAuthenticationProvider();
+        if (!(provider instanceof AbstractAuthenticationProvider)) { return; }
+        new SessionSnapshot(((AbstractAuthenticationProvider) provider).getSession(), cmisSession
+                .getRepositoryInfo().getId(), repositoryInfo, rootNode, hasPublicAPI, network).save(file);
+    }
+
+    /**
+     * Checks in background the credentials and the root folder of a session
+     * created from a snapshot. The snapshot is updated with the root folder or
+     * deleted if the user or the repository is not valid anymore. Network
+     * errors keep the snapshot.
+     */
+    protected void revalidateSnapshot(final File file, final SessionSnapshot snapshot)
+    {
+        Thread thread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    rootNode = new FolderImpl(cmisSession.getRootFolder());
+                    snapshot.withRootFolder(rootNode).save(file);
+                }
+                catch (CmisBaseException e)
+                {
+                    if (e instanceof CmisUnauthorizedException || e instanceof CmisPermissionDeniedException
+                            || e instanceof CmisObjectNotFoundException)
+                    {
+                        file.delete();
+                    }
+                    Log.w(TAG, "Session snapshot not revalidated : " + e.getMessage());
+                }
+                catch (Exception e)
+                {
+                    Log.w(TAG, "Session snapshot not revalidated : " + e.getMessage());
+                }
+            }
+        }, "AlfrescoSessionRevalidation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     protected Session createSession(SessionFactory sessionFactory, Map<String, String> param)
     {
         try
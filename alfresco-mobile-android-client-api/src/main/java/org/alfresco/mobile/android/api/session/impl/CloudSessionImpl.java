@@ -19,6 +19,7 @@ package org.alfresco.mobile.android.api.session.impl;
 
 import static org.alfresco.mobile.android.api.constants.OAuthConstant.PUBLIC_API_HOSTNAME;
 
+import java.io.File;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -125,6 +126,7 @@ public class CloudSessionImpl extends CloudSession
     /** Start the authentication proces. */
     private void authenticate(AuthenticationProvider authProvider)
     {
+        startBootstrap();
         try
         {
             // If no authenticationProvider start creation of
@@ -139,6 +141,14 @@ public class CloudSessionImpl extends CloudSession
                 authenticator = authProvider;
             }
 
+            // Bootstrap information saved by the previous session.
+            String requestedNetwork = (String) getParameter(CLOUD_NETWORK_ID);
+            File snapshotFile = getSnapshotFile(requestedNetwork);
+            if (snapshotFile != null && restore(snapshotFile))
+            {
+                return;
+            }
+
             // Retrieve & select the Home Network or session parameters network.
             PagingResult<CloudNetwork> networks = getPagingNetworks();
             if (networks == null || networks.getTotalItems() == 0) { throw new AlfrescoSessionException(
@@ -180,12 +190,24 @@ public class CloudSessionImpl extends CloudSession
                         ErrorCodeRegistry.SESSION_NO_NETWORK_FOUND, Messagesl18n.getString("SESSION_NO_NETWORK_FOUND"));
             }
 
+            endPhase(PHASE_NETWORKS);
+
             // Create OpenCMIS Session Parameters
             addParameter(CLOUD_NETWORK_ID, currentNetwork.getIdentifier());
             Map<String, String> param = retrieveSessionParameters();
 
             // Create CMIS Session with selected network + parameters
-            cmisSession = createSession(SessionFactoryImpl.newInstance(), authenticator, param);
+            if (isBrowserBindingRequested())
+            {
+                cmisSession = createBrowserSession(SessionFactoryImpl.newInstance(), authenticator, param,
+                        baseUrl.concat(CloudUrlRegistry.BINDING_NETWORK_CMISBROWSER)
+                                .replace(CloudUrlRegistry.VARIABLE_NETWORKID, currentNetwork.getIdentifier()));
+            }
+            if (cmisSession == null)
+            {
+                cmisSession = createSession(SessionFactoryImpl.newInstance(), authenticator, param);
+            }
+            endPhase(PHASE_CMIS_SESSION);
 
             // Init Services + Object
             try
@@ -200,10 +222,14 @@ public class CloudSessionImpl extends CloudSession
                 Log.e(TAG, "Unable to retrieve rootNode folder");
                 Log.e(TAG, Log.getStackTraceString(e));
             }
+            endPhase(PHASE_ROOT_FOLDER);
 
             repositoryInfo = new CloudRepositoryInfoImpl(cmisSession.getRepositoryInfo());
 
             create();
+            endPhase(PHASE_SERVICES);
+
+            saveSnapshot(snapshotFile, currentNetwork);
         }
         catch (Exception e)
         {
@@ -211,6 +237,46 @@ public class CloudSessionImpl extends CloudSession
         }
     }
 
+    /**
+     * Creates the session from the snapshot of the previous session : the
+     * networks of the user are not retrieved.
+     * 
+     * @return true if the session has been restored.
+     */
+    private boolean restore(File snapshotFile)
+    {
+        SessionSnapshot snapshot = SessionSnapshot.load(snapshotFile);
+        Serializable requestedNetwork = getParameter(CLOUD_NETWORK_ID);
+        if (snapshot != null && snapshot.getNetwork() != null)
+        {
+            addParameter(CLOUD_NETWORK_ID, snapshot.getNetwork().getIdentifier());
+            cmisSession = restoreSession(snapshot, retrieveSessionParameters());
+        }
+        endPhase(PHASE_SNAPSHOT);
+
+        if (cmisSession == null)
+        {
+            // Full bootstrap with the parameters of the user.
+            if (requestedNetwork != null)
+            {
+                addParameter(CLOUD_NETWORK_ID, requestedNetwork);
+            }
+            else
+            {
+                removeParameter(CLOUD_NETWORK_ID);
+            }
+            return false;
+        }
+
+        currentNetwork = snapshot.getNetwork();
+        rootNode = snapshot.getRootFolder();
+        repositoryInfo = snapshot.getRepositoryInfo();
+        create();
+        endPhase(PHASE_SERVICES);
+        revalidateSnapshot(snapshotFile, snapshot);
+        return true;
+    }
+
     private void create()
     {
         // Extension Point to implement and manage services
@@ -227,6 +293,12 @@ public class CloudSessionImpl extends CloudSession
         passThruAuthenticator = cmisSession.getBinding().getAuthenticationProvider();
         authenticator = ((PassthruAuthenticationProviderImpl) passThruAuthenticator)
                 .getAlfrescoAuthenticationProvider();
+
+        // Access token refreshed before its expiration
+        if (authenticator instanceof OAuth2AuthenticationProviderImpl)
+        {
+            ((OAuth2AuthenticationProviderImpl) authenticator).startTokenManager(baseUrl);
+        }
     }
 
     // //////////////////////////////////////////////////////////////
@@ -333,6 +405,8 @@ public class CloudSessionImpl extends CloudSession
         Bundle b = new Bundle();
         b.putSerializable("userParameters", (Serializable) userParameters);
         dest.writeBundle(b);
+        // Token with its expiration : the restored session replaces this one.
+        dest.writeSerializable(getOAuthData());
     }
 
     @SuppressWarnings("unchecked")
@@ -347,6 +421,11 @@ public class CloudSessionImpl extends CloudSession
         this.cmisSession = (Session) o.readSerializable();
         Bundle b = o.readBundle();
         this.userParameters = (Map<String, Serializable>) b.getSerializable("userParameters");
+        OAuthData oauthData = (OAuthData) o.readSerializable();
         create();
+        if (oauthData != null)
+        {
+            setOAuthData(oauthData);
+        }
     }
 }
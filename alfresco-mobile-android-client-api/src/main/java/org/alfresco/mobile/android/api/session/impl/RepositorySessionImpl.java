@@ -17,6 +17,7 @@
  ******************************************************************************/
 package org.alfresco.mobile.android.api.session.impl;
 
+import java.io.File;
 import java.io.Serializable;
 import java.util.Map;
 
@@ -104,10 +105,34 @@ public class RepositorySessionImpl extends RepositorySession
      */
     private void authenticate()
     {
+        startBootstrap();
+
         // default factory implementation
         SessionFactory sessionFactory = SessionFactoryImpl.newInstance();
         Map<String, String> param = retrieveSessionParameters();
 
+        // Bootstrap information saved by the previous session.
+        File snapshotFile = getSnapshotFile(null);
+        if (snapshotFile != null)
+        {
+            SessionSnapshot snapshot = SessionSnapshot.load(snapshotFile);
+            if (snapshot != null)
+            {
+                cmisSession = restoreSession(snapshot, param);
+            }
+            endPhase(PHASE_SNAPSHOT);
+            if (cmisSession != null)
+            {
+                hasPublicAPI = snapshot.hasPublicAPI();
+                repositoryInfo = snapshot.getRepositoryInfo();
+                rootNode = snapshot.getRootFolder();
+                initServices();
+                endPhase(PHASE_SERVICES);
+                revalidateSnapshot(snapshotFile, snapshot);
+                return;
+            }
+        }
+
         // List of endpoint
         String[] bindingUrls = { baseUrl.concat(PublicAPIUrlRegistry.BINDING_NETWORK_CMISATOM),
                 baseUrl.concat(OnPremiseUrlRegistry.BINDING_CMISATOM),
@@ -115,8 +140,21 @@ public class RepositorySessionImpl extends RepositorySession
 
         Exception creationException = null;
         hasPublicAPI = true;
+
+        // Browser binding is only exposed by the Public API.
+        if (isBrowserBindingRequested())
+        {
+            cmisSession = createBrowserSession(sessionFactory, authenticator, param,
+                    baseUrl.concat(PublicAPIUrlRegistry.BINDING_NETWORK_CMISBROWSER));
+        }
+
         for (String bindingUrl : bindingUrls)
         {
+            if (cmisSession != null)
+            {
+                break;
+            }
+
             if (!hasForceBinding())
             {
                 param.put(SessionParameter.ATOMPUB_URL, bindingUrl);
@@ -161,6 +199,7 @@ public class RepositorySessionImpl extends RepositorySession
 
         // If Session Object available we populate other info & capabilities
         repositoryInfo = new OnPremiseRepositoryInfoImpl(cmisSession.getRepositoryInfo(), hasPublicAPI);
+        endPhase(PHASE_CMIS_SESSION);
 
         // On cmisatom binding sometimes the edition is not well formated. In
         // this case we use service/cmis binding. MOBSDK-508
@@ -184,13 +223,18 @@ public class RepositorySessionImpl extends RepositorySession
             {
                 // Nothing major...
             }
+            endPhase(PHASE_EDITION);
         }
 
         // Retrieve Root Node
         rootNode = new FolderImpl(cmisSession.getRootFolder());
+        endPhase(PHASE_ROOT_FOLDER);
 
         // Retrieve Service Registry & Services
         initServices();
+        endPhase(PHASE_SERVICES);
+
+        saveSnapshot(snapshotFile, null);
     }
 
     private void initServices()
@@ -0,0 +1,311 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.session.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.alfresco.mobile.android.api.model.Folder;
+import org.alfresco.mobile.android.api.model.RepositoryInfo;
+import org.alfresco.mobile.android.api.session.CloudNetwork;
+import org.alfresco.mobile.android.api.session.CloudSession;
+import org.alfresco.mobile.android.api.utils.IOUtils;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+
+import android.util.Log;
+
+/**
+ * Bootstrap information of a session saved on disk. <br/>
+ * A snapshot contains the binding used by the session, the CMIS caches filled
+ * during the bootstrap (repository info, AtomPub service document links,
+ * Browser binding urls), the repository info, capabilities and root folder.
+ * The next session of the same user on the same server is created from the
+ * snapshot without network round trip. <br/>
+ * Credentials are never saved. Snapshots older than {@link #MAX_AGE} are
+ * ignored.
+ *
+ * @since 1.5.1
+ */
+public final class SessionSnapshot implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final String TAG = SessionSnapshot.class.getName();
+
+    /** Snapshots are ignored after 7 days. */
+    public static final long MAX_AGE = 7L * 24 * 60 * 60 * 1000;
+
+    private static final int FILE_VERSION = 1;
+
+    private static final String SNAPSHOT_FOLDER = "sessions";
+
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    /** Binding parameters required to recreate the CMIS session. */
+    private static final String[] BINDING_PARAMETERS = { SessionParameter.BINDING_TYPE, SessionParameter.ATOMPUB_URL,
+            SessionParameter.BROWSER_URL, SessionParameter.BROWSER_SUCCINCT };
+
+    /** Caches of the binding session filled during the bootstrap. */
+    private static final String[] BINDING_OBJECTS = { "org.apache.chemistry.opencmis.binding.repositoryInfoCache",
+            "org.apache.chemistry.opencmis.binding.atompub.linkcache",
+            "org.apache.chemistry.opencmis.binding.browser.repositoryurls" };
+
+    private final long createdAt;
+
+    private final HashMap<String, String> bindingParameters;
+
+    private final HashMap<String, Serializable> bindingObjects;
+
+    private final RepositoryInfo repositoryInfo;
+
+    private final Folder rootFolder;
+
+    private final boolean hasPublicAPI;
+
+    private final CloudNetwork network;
+
+    /**
+     * Captures the state of a bound session.
+     *
+     * @param bindingSession : binding session of the CMIS session.
+     * @param cmisRepositoryId : identifier of the CMIS repository.
+     * @param repositoryInfo : repository info of the session.
+     * @param rootFolder : root folder of the session.
+     * @param hasPublicAPI : true if the session uses the Public API.
+     * @param network : network of a cloud session. Null otherwise.
+     */
+    public SessionSnapshot(BindingSession bindingSession, String cmisRepositoryId, RepositoryInfo repositoryInfo,
+            Folder rootFolder, boolean hasPublicAPI, CloudNetwork network)
+    {
+        this(System.currentTimeMillis(), new HashMap<String, String>(), new HashMap<String, Serializable>(),
+                repositoryInfo, rootFolder, hasPublicAPI, network);
+        for (String key : BINDING_PARAMETERS)
+        {
+            Object value = bindingSession.get(key);
+            if (value != null)
+            {
+                bindingParameters.put(key, value.toString());
+            }
+        }
+        bindingParameters.put(SessionParameter.REPOSITORY_ID, cmisRepositoryId);
+        for (String key : BINDING_OBJECTS)
+        {
+            Object value = bindingSession.get(key);
+            if (value instanceof Serializable)
+            {
+                bindingObjects.put(key, (Serializable) value);
+            }
+        }
+    }
+
+    private SessionSnapshot(long createdAt, HashMap<String, String> bindingParameters,
+            HashMap<String, Serializable> bindingObjects, RepositoryInfo repositoryInfo, Folder rootFolder,
+            boolean hasPublicAPI, CloudNetwork network)
+    {
+        this.createdAt = createdAt;
+        this.bindingParameters = bindingParameters;
+        this.bindingObjects = bindingObjects;
+        this.repositoryInfo = repositoryInfo;
+        this.rootFolder = rootFolder;
+        this.hasPublicAPI = hasPublicAPI;
+        this.network = network;
+    }
+
+    /**
+     * @return a copy of this snapshot with a more recent root folder. The
+     *         creation date is kept : the snapshot still expires.
+     */
+    public SessionSnapshot withRootFolder(Folder folder)
+    {
+        return new SessionSnapshot(createdAt, bindingParameters, bindingObjects, repositoryInfo, folder,
+                hasPublicAPI, network);
+    }
+
+    // ////////////////////////////////////////////////////
+    // GETTERS
+    // ////////////////////////////////////////////////////
+    /** @return creation date of the snapshot in milliseconds. */
+    public long getCreatedAt()
+    {
+        return createdAt;
+    }
+
+    /** @return true if the snapshot is older than {@link #MAX_AGE}. */
+    public boolean isExpired()
+    {
+        long age = System.currentTimeMillis() - createdAt;
+        return age < 0 || age > MAX_AGE;
+    }
+
+    /** @return binding type, binding url and repository identifier. */
+    public Map<String, String> getBindingParameters()
+    {
+        return Collections.unmodifiableMap(bindingParameters);
+    }
+
+    /** @return caches to put inside the binding session. */
+    public Map<String, Serializable> getBindingObjects()
+    {
+        return Collections.unmodifiableMap(bindingObjects);
+    }
+
+    public RepositoryInfo getRepositoryInfo()
+    {
+        return repositoryInfo;
+    }
+
+    public Folder getRootFolder()
+    {
+        return rootFolder;
+    }
+
+    public boolean hasPublicAPI()
+    {
+        return hasPublicAPI;
+    }
+
+    public CloudNetwork getNetwork()
+    {
+        return network;
+    }
+
+    // ////////////////////////////////////////////////////
+    // PERSISTENCE
+    // ////////////////////////////////////////////////////
+    /**
+     * Returns the snapshot file of a user.
+     *
+     * @param cacheFolder : cache folder of the session.
+     * @param baseUrl : base url of the server.
+     * @param user : identifier of the user.
+     * @param networkId : requested cloud network. Null for the home network
+     *            or an on premise server.
+     * @return the file or null if the user is unknown.
+     */
+    public static File getFile(String cacheFolder, String baseUrl, String user, String networkId)
+    {
+        if (cacheFolder == null || baseUrl == null || user == null) { return null; }
+        if (CloudSession.USER_ME.equals(user)) { return null; }
+        String key = baseUrl + "\n" + user + "\n" + ((networkId != null) ? networkId : "");
+        return new File(new File(cacheFolder, SNAPSHOT_FOLDER), hash(key) + SNAPSHOT_EXTENSION);
+    }
+
+    /**
+     * Saves the snapshot. Errors are logged : a missing snapshot only slows
+     * down the next bootstrap.
+     */
+    public void save(File file)
+    {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        ObjectOutputStream oos = null;
+        try
+        {
+            file.getParentFile().mkdirs();
+            oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            oos.writeInt(FILE_VERSION);
+            oos.writeObject(this);
+            oos.close();
+            oos = null;
+
+            if (!tmpFile.renameTo(file))
+            {
+                file.delete();
+                tmpFile.renameTo(file);
+            }
+        }
+        catch (Exception e)
+        {
+            Log.w(TAG, "Unable to save session snapshot : " + e.getMessage());
+            tmpFile.delete();
+        }
+        finally
+        {
+            IOUtils.closeStream(oos);
+        }
+    }
+
+    /**
+     * @return the snapshot or null if the file doesn't exist, is unreadable or
+     *         expired. Unusable files are deleted.
+     */
+    public static SessionSnapshot load(File file)
+    {
+        if (file == null || !file.exists()) { return null; }
+
+        SessionSnapshot snapshot = null;
+        ObjectInputStream ois = null;
+        try
+        {
+            ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (ois.readInt() == FILE_VERSION)
+            {
+                snapshot = (SessionSnapshot) ois.readObject();
+            }
+        }
+        catch (Exception e)
+        {
+            Log.w(TAG, "Unable to load session snapshot : " + e.getMessage());
+        }
+        finally
+        {
+            IOUtils.closeStream(ois);
+        }
+
+        if (snapshot == null || snapshot.isExpired())
+        {
+            file.delete();
+            return null;
+        }
+        return snapshot;
+    }
+
+    private static String hash(String value)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+            {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -48,6 +48,9 @@ public final class CloudUrlRegistry extends PublicAPIUrlRegistry
 
     public static final String BINDING_NETWORK_CMISATOM = "/{networkId}/public/cmis/versions/1.0/atom/";
 
+    /** @since 1.5.1 */
+    public static final String BINDING_NETWORK_CMISBROWSER = "/{networkId}/public/cmis/versions/1.1/browser";
+
     // ///////////////////////////////////////////////////////////////////////////////
     // PREFERENCES
     // //////////////////////////////////////////////////////////////////////////////
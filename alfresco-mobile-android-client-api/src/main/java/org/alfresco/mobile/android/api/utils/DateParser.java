@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.utils;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Date parser and formatter used by {@link DateUtils}. <br/>
+ * The format is detected from the shape of the value in one pass :
+ * <ul>
+ * <li>ISO 8601 values (2014-03-12T10:22:31.512+01:00,
+ * 2014-03-12T09:22:31Z, 2014-03-12T10:22:31.512...) are parsed by hand
+ * without formatter and without exception. Values without time zone are
+ * local times.</li>
+ * <li>Textual values (Mar 12 2014 10:22:31 GMT+0100, 12 Mar 2014 10:22:31
+ * GMT+0100) are parsed by a formatter cached per thread.</li>
+ * </ul>
+ * Methods are thread safe.
+ *
+ * @since 1.5.1
+ */
+public final class DateParser
+{
+    /** Returned by {@link #parseMillis(String, Locale)} if the value can't be parsed. */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+
+    private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+
+    private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    /** Textual patterns, in the order of the formatter arrays. */
+    private static final String[] TEXT_PATTERNS = { DateUtils.FORMAT_4, DateUtils.FORMAT_5 };
+
+    /** Textual formatters of the current thread by locale. */
+    private static final ThreadLocal<Map<Locale, SimpleDateFormat[]>> FORMATTERS = new FormatterCache();
+
+    private DateParser()
+    {
+    }
+
+    // ////////////////////////////////////////////////////
+    // PARSE
+    // ////////////////////////////////////////////////////
+    /**
+     * @param value : date as string.
+     * @param locale : locale of textual values (month names). Textual values
+     *            are also tried with english.
+     * @return the date or null if the value has no known format.
+     */
+    public static Date parse(String value, Locale locale)
+    {
+        long time = parseMillis(value, locale);
+        return (time == INVALID) ? null : new Date(time);
+    }
+
+    /**
+     * @return number of milliseconds since epoch or {@link #INVALID} if the
+     *         value has no known format.
+     */
+    public static long parseMillis(String value, Locale locale)
+    {
+        if (value == null || value.length() < 10) { return INVALID; }
+        if (isDigit(value, 0) && value.charAt(4) == '-') { return parseIso(value); }
+        return parseText(value, locale);
+    }
+
+    private static long parseIso(String s)
+    {
+        int length = s.length();
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || s.charAt(7) != '-') { return INVALID; }
+
+        int hour = 0, minute = 0, second = 0, millis = 0;
+        int pos = 10;
+        if (pos < length && (s.charAt(pos) == 'T' || s.charAt(pos) == ' '))
+        {
+            if (length < 16 || s.charAt(13) != ':') { return INVALID; }
+            hour = digits(s, 11, 2);
+            minute = digits(s, 14, 2);
+            pos = 16;
+            if (pos < length && s.charAt(pos) == ':')
+            {
+                second = digits(s, 17, 2);
+                pos = 19;
+                if (pos < length && (s.charAt(pos) == '.' || s.charAt(pos) == ','))
+                {
+                    // Milliseconds : extra digits are ignored.
+                    pos++;
+                    int start = pos;
+                    while (pos < length && isDigit(s, pos))
+                    {
+                        if (pos - start < 3)
+                        {
+                            millis = millis * 10 + (s.charAt(pos) - '0');
+                        }
+                        pos++;
+                    }
+                    if (pos == start) { return INVALID; }
+                    for (int i = pos - start; i < 3; i++)
+                    {
+                        millis *= 10;
+                    }
+                }
+            }
+            if (hour < 0 || hour > 24 || minute < 0 || minute > 59 || second < 0 || second > 60) { return INVALID; }
+        }
+
+        long local = daysFromCivil(year, month, day) * MILLIS_PER_DAY + hour * MILLIS_PER_HOUR + minute
+                * MILLIS_PER_MINUTE + second * MILLIS_PER_SECOND + millis;
+
+        // Time zone
+        if (pos == length)
+        {
+            TimeZone tz = TimeZone.getDefault();
+            return local - tz.getOffset(local - tz.getOffset(local));
+        }
+        char c = s.charAt(pos);
+        if (c == 'Z' && pos + 1 == length) { return local; }
+        if (c != '+' && c != '-') { return INVALID; }
+
+        int offsetHour = digits(s, pos + 1, 2);
+        int offsetMinute = 0;
+        int next = pos + 3;
+        if (next < length && s.charAt(next) == ':')
+        {
+            next++;
+        }
+        if (next < length)
+        {
+            offsetMinute = digits(s, next, 2);
+            next += 2;
+        }
+        if (offsetHour < 0 || offsetMinute < 0 || next != length) { return INVALID; }
+        long offset = offsetHour * MILLIS_PER_HOUR + offsetMinute * MILLIS_PER_MINUTE;
+        return (c == '+') ? local - offset : local + offset;
+    }
+
+    private static long parseText(String s, Locale locale)
+    {
+        int pattern;
+        if (Character.isLetter(s.charAt(0)))
+        {
+            // FORMAT_4 : Mar 12 2014 10:22:31 GMT+0100
+            pattern = 0;
+        }
+        else if (isDigit(s, 0) && s.charAt(2) == ' ')
+        {
+            // FORMAT_5 : 12 Mar 2014 10:22:31 GMT+0100
+            pattern = 1;
+        }
+        else
+        {
+            return INVALID;
+        }
+
+        Date d = getFormatter(pattern, locale).parse(s, new ParsePosition(0));
+        if (d == null && !Locale.ENGLISH.equals(locale))
+        {
+            d = getFormatter(pattern, Locale.ENGLISH).parse(s, new ParsePosition(0));
+        }
+        return (d == null) ? INVALID : d.getTime();
+    }
+
+    private static SimpleDateFormat getFormatter(int pattern, Locale locale)
+    {
+        Map<Locale, SimpleDateFormat[]> formatters = FORMATTERS.get();
+        SimpleDateFormat[] localeFormatters = formatters.get(locale);
+        if (localeFormatters == null)
+        {
+            localeFormatters = new SimpleDateFormat[TEXT_PATTERNS.length];
+            formatters.put(locale, localeFormatters);
+        }
+        SimpleDateFormat sdf = localeFormatters[pattern];
+        if (sdf == null)
+        {
+            sdf = new SimpleDateFormat(TEXT_PATTERNS[pattern], locale);
+            sdf.setLenient(true);
+            localeFormatters[pattern] = sdf;
+        }
+        // Text formats contain their time zone.
+        sdf.setTimeZone(TimeZone.getDefault());
+        return sdf;
+    }
+
+    // ////////////////////////////////////////////////////
+    // FORMAT
+    // ////////////////////////////////////////////////////
+    /**
+     * Formats the date in the default time zone.
+     *
+     * @param withSeconds : true for yyyy-MM-dd'T'HH:mm:ss.SSS+hh:mm, false for
+     *            yyyy-MM-dd'T'HH:mm+hhmm
+     */
+    public static String format(GregorianCalendar calendar, boolean withSeconds)
+    {
+        long time = calendar.getTimeInMillis();
+        int offset = TimeZone.getDefault().getOffset(time);
+        long local = time + offset;
+        long days = floorDiv(local, MILLIS_PER_DAY);
+        int millisOfDay = (int) (local - days * MILLIS_PER_DAY);
+
+        StringBuilder sb = new StringBuilder(29);
+        appendCivil(sb, days);
+        sb.append('T');
+        append(sb, millisOfDay / (int) MILLIS_PER_HOUR, 2);
+        sb.append(':');
+        append(sb, (millisOfDay / (int) MILLIS_PER_MINUTE) % 60, 2);
+        if (withSeconds)
+        {
+            sb.append(':');
+            append(sb, (millisOfDay / (int) MILLIS_PER_SECOND) % 60, 2);
+            sb.append('.');
+            append(sb, millisOfDay % 1000, 3);
+        }
+
+        int offsetMinutes = offset / (int) MILLIS_PER_MINUTE;
+        sb.append(offsetMinutes < 0 ? '-' : '+');
+        offsetMinutes = Math.abs(offsetMinutes);
+        append(sb, offsetMinutes / 60, 2);
+        if (withSeconds)
+        {
+            sb.append(':');
+        }
+        append(sb, offsetMinutes % 60, 2);
+        return sb.toString();
+    }
+
+    // ////////////////////////////////////////////////////
+    // INTERNALS
+    // ////////////////////////////////////////////////////
+    private static boolean isDigit(String s, int index)
+    {
+        char c = s.charAt(index);
+        return c >= '0' && c <= '9';
+    }
+
+    /** @return value of the digits or -1 if one char is not a digit. */
+    private static int digits(String s, int start, int count)
+    {
+        if (start + count > s.length()) { return -1; }
+        int value = 0;
+        for (int i = start; i < start + count; i++)
+        {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') { return -1; }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void append(StringBuilder sb, int value, int width)
+    {
+        for (int divider = (width == 4) ? 1000 : (width == 3) ? 100 : 10; divider > 0; divider /= 10)
+        {
+            sb.append((char) ('0' + (value / divider) % 10));
+        }
+    }
+
+    private static long floorDiv(long x, long y)
+    {
+        long q = x / y;
+        return (x % y != 0 && ((x ^ y) < 0)) ? q - 1 : q;
+    }
+
+    private static class FormatterCache extends ThreadLocal<Map<Locale, SimpleDateFormat[]>>
+    {
+        @Override
+        protected Map<Locale, SimpleDateFormat[]> initialValue()
+        {
+            return new HashMap<Locale, SimpleDateFormat[]>(2);
+        }
+    }
+
+    /** Days since 1970-01-01 of a proleptic gregorian date. */
+    private static long daysFromCivil(int year, int month, int day)
+    {
+        long y = (month <= 2) ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /** Appends yyyy-MM-dd of a number of days since 1970-01-01. */
+    private static void appendCivil(StringBuilder sb, long days)
+    {
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        append(sb, year, 4);
+        sb.append('-');
+        append(sb, month, 2);
+        sb.append('-');
+        append(sb, day, 2);
+    }
+}
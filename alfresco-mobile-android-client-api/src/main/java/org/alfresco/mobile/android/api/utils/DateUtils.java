@@ -52,16 +52,7 @@ public final class DateUtils
 
     public static Date parseJsonDate(String jsonDate)
     {
-        Date d = null;
-        if (jsonDate != null)
-        {
-            d = parseDate(jsonDate, FORMAT_4);
-            if (d == null)
-            {
-                d = parseDate(jsonDate);
-            }
-        }
-        return d;
+        return parseDate(jsonDate);
     }
 
     public static Date parseDate(String atomPubDate)
@@ -70,11 +61,26 @@ public final class DateUtils
     }
 
     /**
+     * Parses the date. The format is detected from the value by
+     * {@link DateParser}. Values with an unexpected shape are tried with all
+     * known formats.
+     * 
      * @since 1.0.1
      * @param atomPubDate
      * @return
      */
     public static Date parseDate(String atomPubDate, Locale locale)
+    {
+        if (atomPubDate == null) { return null; }
+        Date d = DateParser.parse(atomPubDate, locale);
+        if (d == null)
+        {
+            d = probeDate(atomPubDate, locale);
+        }
+        return d;
+    }
+
+    private static Date probeDate(String atomPubDate, Locale locale)
     {
         Date d = null;
         SimpleDateFormat sdf;
@@ -121,6 +127,9 @@ public final class DateUtils
     }
 
     /**
+     * Parses the date with the formatter. The format is detected from the
+     * value only if the formatter doesn't recognize it.
+     * 
      * @since 1.0.1
      * @param atomPubDate
      * @return
@@ -140,23 +149,20 @@ public final class DateUtils
         return d;
     }
 
+    /**
+     * @return the date as yyyy-MM-dd'T'HH:mm:ss.SSS+hh:mm in the default time
+     *         zone.
+     */
     public static String format(GregorianCalendar calendar)
     {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'hh:mm:ss.SSSZ")
-        {
-            private static final long serialVersionUID = 1L;
-
-            public StringBuffer format(Date date, StringBuffer toAppendTo, java.text.FieldPosition pos)
-            {
-                StringBuffer toFix = super.format(date, toAppendTo, pos);
-                return toFix.insert(toFix.length() - 2, ':');
-            };
-        };
-        return dateFormat.format(calendar.getTime());
+        return DateParser.format(calendar, true);
     }
 
+    /**
+     * @return the date as yyyy-MM-dd'T'HH:mm+hhmm in the default time zone.
+     */
     public static String formatISO(GregorianCalendar calendar)
     {
-        return new SimpleDateFormat("yyyy-MM-dd'T'HH:mmZ").format(calendar.getTime());
+        return DateParser.format(calendar, false);
     }
 }
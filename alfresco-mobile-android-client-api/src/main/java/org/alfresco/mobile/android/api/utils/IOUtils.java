@@ -18,15 +18,19 @@
 package org.alfresco.mobile.android.api.utils;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.alfresco.mobile.android.api.model.ContentFile;
 
@@ -38,85 +42,40 @@ import org.alfresco.mobile.android.api.model.ContentFile;
 public final class IOUtils
 {
 
-    /*
-     * Monitored input stream for progress feedback on a ContentFile object.
-     * @author Luke Jagger
-     */
-
-    static class MonitoredBufferedInputStream extends BufferedInputStream
-    {
-        ContentFile contentFile = null;
-
-        int block = 0;
-
-        public MonitoredBufferedInputStream(InputStream in)
-        {
-            super(in);
-        }
-
-        /**
-         * Set the ContentFile object associated with this operation
-         * 
-         * @param cf : ContentFile object to notify
-         */
-
-        void setContentFile(ContentFile cf)
-        {
-            contentFile = cf;
-        }
-
-        /**
-         * Overriden InputStream file read.
-         */
-        @Override
-        public synchronized int read() throws IOException
-        {
-            if (contentFile != null)
-            {
-                contentFile.fileReadCallback(1);
-            }
-
-            return super.read();
-        }
+    /** @deprecated Copies use {@link #BUFFER_SIZE}. */
+    @Deprecated
+    public static final int MAX_BUFFER_SIZE = 1024;
 
-        /**
-         * Overriden InputStream file read.
-         */
-        @Override
-        public int read(byte[] b) throws IOException
-        {
-            ++block;
-            int nBytes = super.read(b);
-            --block;
+    /**
+     * Size of the buffers used to copy streams.
+     * 
+     * @since 1.5.1
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
 
-            if (contentFile != null && block == 0)
-            {
-                contentFile.fileReadCallback(nBytes);
-            }
+    /**
+     * Progress is reported to the ContentFile once this number of bytes has
+     * been read...
+     * 
+     * @since 1.5.1
+     */
+    public static final int PROGRESS_BYTES = 256 * 1024;
 
-            return nBytes;
-        }
+    /**
+     * ... or once this delay in milliseconds has elapsed since the last report.
+     * 
+     * @since 1.5.1
+     */
+    public static final long PROGRESS_INTERVAL = 250;
 
-        /**
-         * Overriden InputStream file read.
-         */
-        @Override
-        public synchronized int read(byte[] b, int off, int len) throws IOException
-        {
-            ++block;
-            int nBytes = super.read(b, off, len);
-            --block;
+    /** Maximum number of bytes transferred by a channel between two reports. */
+    private static final long TRANSFER_SIZE = 4 * 1024 * 1024;
 
-            if (contentFile != null && block == 0)
-            {
-                contentFile.fileReadCallback(nBytes);
-            }
+    private static final int MAX_POOLED_BUFFERS = 8;
 
-            return nBytes;
-        }
-    }
+    private static final Queue<byte[]> BUFFERS = new ConcurrentLinkedQueue<byte[]>();
 
-    public static final int MAX_BUFFER_SIZE = 1024;
+    private static final AtomicInteger POOLED_BUFFERS = new AtomicInteger();
 
     public static void closeStream(Closeable stream)
     {
@@ -172,57 +131,367 @@ public final class IOUtils
         return copyStream(src, new FileOutputStream(dest));
     }
 
+    /**
+     * Copy a file into another file. If the destination is already present,
+     * it's replaced.
+     * 
+     * @since 1.5.1
+     */
+    public static boolean copyFile(File src, File dest) throws IOException
+    {
+        ensureOrCreatePathAndFile(dest);
+        return copyStream(new FileInputStream(src), new FileOutputStream(dest));
+    }
+
     public static boolean copyStream(InputStream src, OutputStream osstream) throws IOException
     {
-        BufferedOutputStream bos = null;
-        MonitoredBufferedInputStream bis = null;
-        boolean copied = true;
+        return copyStream(src, osstream, null);
+    }
 
+    /**
+     * Copy a stream and close both streams. <br/>
+     * File to file copies are transferred by the file channels. Other copies
+     * use a pooled buffer of {@link #BUFFER_SIZE} bytes.
+     * 
+     * @param src : stream to read
+     * @param osstream : stream to write
+     * @param contentFile : notified of the bytes copied. Reports are coalesced
+     *            by {@link #PROGRESS_BYTES} / {@link #PROGRESS_INTERVAL}. Can
+     *            be null.
+     * @since 1.5.1
+     */
+    public static boolean copyStream(InputStream src, OutputStream osstream, ContentFile contentFile)
+            throws IOException
+    {
+        ProgressReporter reporter = (contentFile != null) ? new ProgressReporter(contentFile) : null;
+        byte[] buffer = null;
         try
         {
+            if (src instanceof FileInputStream && osstream instanceof FileOutputStream)
+            {
+                transfer(((FileInputStream) src).getChannel(), ((FileOutputStream) osstream).getChannel(), reporter);
+            }
 
-            bos = new BufferedOutputStream(osstream);
-            bis = new MonitoredBufferedInputStream(src);
-
-            byte[] buffer = new byte[MAX_BUFFER_SIZE];
-
+            // Remaining bytes if any
+            buffer = acquireBuffer();
             int count;
-            while ((count = bis.read(buffer)) != -1)
+            while ((count = src.read(buffer)) != -1)
             {
-                bos.write(buffer, 0, count);
+                osstream.write(buffer, 0, count);
+                if (reporter != null)
+                {
+                    reporter.add(count);
+                }
+            }
+            osstream.flush();
+            if (reporter != null)
+            {
+                reporter.flush();
             }
-            bos.flush();
-        }
-        catch (IOException e)
-        {
-            copied = false;
-            throw e;
         }
         finally
         {
+            releaseBuffer(buffer);
             closeStream(osstream);
             closeStream(src);
-            closeStream(bis);
         }
-        return copied;
+        return true;
+    }
+
+    private static void transfer(FileChannel in, FileChannel out, ProgressReporter reporter) throws IOException
+    {
+        long position = in.position();
+        long size = in.size();
+        while (position < size)
+        {
+            long count = in.transferTo(position, Math.min(TRANSFER_SIZE, size - position), out);
+            if (count <= 0)
+            {
+                break;
+            }
+            position += count;
+            if (reporter != null)
+            {
+                reporter.add(count);
+            }
+        }
+        in.position(position);
+    }
+
+    // ////////////////////////////////////////////////////
+    // BUFFERS
+    // ////////////////////////////////////////////////////
+    /**
+     * Returns a buffer of {@link #BUFFER_SIZE} bytes. The buffer must be given
+     * back with {@link #releaseBuffer(byte[])} once the copy is done.
+     * 
+     * @since 1.5.1
+     */
+    public static byte[] acquireBuffer()
+    {
+        byte[] buffer = BUFFERS.poll();
+        if (buffer == null) { return new byte[BUFFER_SIZE]; }
+        POOLED_BUFFERS.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Gives back a buffer obtained by {@link #acquireBuffer()}. The buffer must
+     * not be used anymore.
+     * 
+     * @since 1.5.1
+     */
+    public static void releaseBuffer(byte[] buffer)
+    {
+        if (buffer == null || buffer.length != BUFFER_SIZE) { return; }
+        if (POOLED_BUFFERS.incrementAndGet() <= MAX_POOLED_BUFFERS)
+        {
+            BUFFERS.offer(buffer);
+        }
+        else
+        {
+            POOLED_BUFFERS.decrementAndGet();
+        }
     }
 
+    // ////////////////////////////////////////////////////
+    // CONTENT FILE
+    // ////////////////////////////////////////////////////
+    /**
+     * Returns a stream on the file. Bytes read are reported to the
+     * contentFile, coalesced by {@link #PROGRESS_BYTES} /
+     * {@link #PROGRESS_INTERVAL}.
+     * 
+     * @param contentFile : local file
+     * @return stream or null if the file doesn't exist.
+     */
     public static InputStream getContentFileInputStream(ContentFile contentFile)
     {
 
         try
         {
-            if (contentFile != null)
-            {
-                MonitoredBufferedInputStream mb = new MonitoredBufferedInputStream(new FileInputStream(
-                        contentFile.getFile()));
-                mb.setContentFile(contentFile);
-                return mb;
-            }
+            if (contentFile != null) { return new ProgressInputStream(new BufferedInputStream(new FileInputStream(
+                    contentFile.getFile()), BUFFER_SIZE), contentFile); }
         }
         catch (FileNotFoundException e)
         {
         }
         return null;
     }
+
+    /**
+     * Returns a stream on a part of the file. Bytes read are reported to the
+     * contentFile like {@link #getContentFileInputStream(ContentFile)}.
+     * 
+     * @param contentFile : local file
+     * @param offset : position of the first byte
+     * @param length : maximum number of bytes returned by the stream
+     * @return stream or null if the file doesn't exist.
+     * @throws IOException
+     */
+    public static InputStream getContentFileInputStream(ContentFile contentFile, long offset, long length)
+            throws IOException
+    {
+        return getContentFileInputStream(contentFile, offset, length, 0);
+    }
+
+    /**
+     * Returns a stream on a part of the file which is read again, e.g. to
+     * retry its upload. The bytes already reported by the previous reads are
+     * not reported again.
+     * 
+     * @param contentFile : local file
+     * @param offset : position of the first byte
+     * @param length : maximum number of bytes returned by the stream
+     * @param reported : number of bytes of the part already reported
+     * @return stream or null if the file doesn't exist.
+     * @throws IOException
+     */
+    public static InputStream getContentFileInputStream(ContentFile contentFile, long offset, long length,
+            long reported) throws IOException
+    {
+        if (contentFile == null || !contentFile.getFile().exists()) { return null; }
+
+        FileInputStream fis = new FileInputStream(contentFile.getFile());
+        fis.getChannel().position(offset);
+        return new ProgressInputStream(new BufferedInputStream(new BoundedInputStream(fis, length), BUFFER_SIZE),
+                contentFile, reported);
+    }
+
+    /**
+     * Coalesces the progress of a copy : the ContentFile is notified at most
+     * every {@link IOUtils#PROGRESS_BYTES} bytes or
+     * {@link IOUtils#PROGRESS_INTERVAL} milliseconds.
+     */
+    static final class ProgressReporter
+    {
+        private final ContentFile contentFile;
+
+        private long pending = 0;
+
+        private long lastReport = System.currentTimeMillis();
+
+        ProgressReporter(ContentFile contentFile)
+        {
+            this.contentFile = contentFile;
+        }
+
+        void add(long count) throws IOException
+        {
+            pending += count;
+            if (pending >= PROGRESS_BYTES || System.currentTimeMillis() - lastReport >= PROGRESS_INTERVAL)
+            {
+                flush();
+            }
+        }
+
+        /** Reports the bytes not reported yet. */
+        void flush() throws IOException
+        {
+            long remaining = pending;
+            pending = 0;
+            lastReport = System.currentTimeMillis();
+            while (remaining > 0)
+            {
+                int n = (int) Math.min(Integer.MAX_VALUE, remaining);
+                contentFile.fileReadCallback(n);
+                remaining -= n;
+            }
+        }
+    }
+
+    /**
+     * Input stream reporting the bytes read to a ContentFile. Not thread safe :
+     * a stream is read by one thread at a time.
+     */
+    static final class ProgressInputStream extends FilterInputStream
+    {
+        private final ProgressReporter reporter;
+
+        /** First bytes of the stream which have already been reported. */
+        private long reported;
+
+        ProgressInputStream(InputStream in, ContentFile contentFile)
+        {
+            this(in, contentFile, 0);
+        }
+
+        ProgressInputStream(InputStream in, ContentFile contentFile, long reported)
+        {
+            super(in);
+            this.reporter = new ProgressReporter(contentFile);
+            this.reported = reported;
+        }
+
+        private void add(long count) throws IOException
+        {
+            long skipped = Math.min(count, reported);
+            reported -= skipped;
+            if (count > skipped)
+            {
+                reporter.add(count - skipped);
+            }
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+            if (b != -1)
+            {
+                add(1);
+            }
+            else
+            {
+                reporter.flush();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int count = super.read(b, off, len);
+            if (count > 0)
+            {
+                add(count);
+            }
+            else if (count == -1)
+            {
+                reporter.flush();
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                reporter.flush();
+            }
+            finally
+            {
+                super.close();
+            }
+        }
+    }
+
+    /**
+     * Input stream limited to a maximum number of bytes.
+     */
+    static class BoundedInputStream extends FilterInputStream
+    {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length)
+        {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (remaining <= 0) { return -1; }
+            int b = super.read();
+            if (b != -1)
+            {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (remaining <= 0) { return -1; }
+            int count = super.read(b, off, (int) Math.min(len, remaining));
+            if (count > 0)
+            {
+                remaining -= count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException
+        {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,326 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.mobile.android.api.exceptions.AlfrescoServiceException;
+import org.alfresco.mobile.android.api.exceptions.ErrorCodeRegistry;
+import org.alfresco.mobile.android.api.utils.messages.Messagesl18n;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+/**
+ * Pull based json reader used by listing services. <br/>
+ * Contrary to {@link JsonUtils#parseObject(InputStream, String)} the full
+ * response tree is never built : each item of the listing array is read,
+ * handed to an {@link ItemBinder} and released before the next one. Only the
+ * envelope of the response (paging information...) stays in memory.
+ * <p/>
+ * Values are converted like the parser of {@link JsonUtils} does (Map, List,
+ * String, BigInteger, BigDecimal, Boolean) so existing parseJson methods can
+ * be reused as binders.
+ *
+ * @since 1.5.1
+ */
+public final class JsonStreamReader
+{
+    private JsonStreamReader()
+    {
+    }
+
+    /**
+     * Transforms one item of a json listing into its high level object.
+     */
+    public interface ItemBinder<T>
+    {
+        /**
+         * @param json : json object of one item.
+         * @return high level object or null if the item must be ignored.
+         */
+        T bind(Map<String, Object> json);
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////
+    // / LISTING
+    // ////////////////////////////////////////////////////////////////////////////////////
+    /**
+     * Reads a json listing from an input stream. The stream is closed at the
+     * end of the read.
+     *
+     * @param stream : json response
+     * @param charset : charset of the response
+     * @param itemsPath : names of the json members leading to the items array.
+     *            Empty or null if the response is directly an array.
+     * @param binder : transforms each item into its high level object.
+     * @return the listing
+     */
+    public static <T> Listing<T> readListing(InputStream stream, String charset, String[] itemsPath,
+            ItemBinder<T> binder)
+    {
+        return readListing(stream, charset, itemsPath, binder, 0, -1);
+    }
+
+    /**
+     * Reads a json listing from an input stream. Only items between skipCount
+     * and skipCount + maxItems are bound, others are skipped without being
+     * parsed but are still counted.
+     *
+     * @param stream : json response
+     * @param charset : charset of the response
+     * @param itemsPath : names of the json members leading to the items array.
+     *            Empty or null if the response is directly an array.
+     * @param binder : transforms each item into its high level object.
+     * @param skipCount : number of items to skip.
+     * @param maxItems : maximum number of items to bind. -1 for all.
+     * @return the listing
+     */
+    public static <T> Listing<T> readListing(InputStream stream, String charset, String[] itemsPath,
+            ItemBinder<T> binder, int skipCount, int maxItems)
+    {
+        Listing<T> listing = new Listing<T>(skipCount, maxItems);
+        JsonReader reader = null;
+        try
+        {
+            reader = new JsonReader(new InputStreamReader(stream, charset));
+            reader.setLenient(true);
+
+            if (itemsPath == null || itemsPath.length == 0)
+            {
+                checkToken(reader, JsonToken.BEGIN_ARRAY);
+                readItems(reader, binder, listing);
+            }
+            else
+            {
+                checkToken(reader, JsonToken.BEGIN_OBJECT);
+                listing.envelope = readEnvelope(reader, itemsPath, 0, binder, listing);
+            }
+        }
+        catch (AlfrescoServiceException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new AlfrescoServiceException(ErrorCodeRegistry.PARSING_GENERIC, e);
+        }
+        finally
+        {
+            IOUtils.closeStream(reader);
+            IOUtils.closeStream(stream);
+        }
+        return listing;
+    }
+
+    private static Map<String, Object> readEnvelope(JsonReader reader, String[] itemsPath, int depth,
+            ItemBinder<?> binder, Listing<?> listing) throws IOException
+    {
+        Map<String, Object> envelope = new LinkedHashMap<String, Object>();
+        boolean isLast = (depth == itemsPath.length - 1);
+        String name = null;
+
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            name = reader.nextName();
+            if (itemsPath[depth].equals(name))
+            {
+                if (isLast && reader.peek() == JsonToken.BEGIN_ARRAY)
+                {
+                    readItems(reader, binder, listing);
+                    continue;
+                }
+                else if (!isLast && reader.peek() == JsonToken.BEGIN_OBJECT)
+                {
+                    envelope.put(name, readEnvelope(reader, itemsPath, depth + 1, binder, listing));
+                    continue;
+                }
+            }
+            envelope.put(name, readValue(reader));
+        }
+        reader.endObject();
+
+        return envelope;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static void readItems(JsonReader reader, ItemBinder binder, Listing listing) throws IOException
+    {
+        int index = 0;
+        Object item = null;
+        long toIndex = (listing.maxItems < 0) ? Long.MAX_VALUE : (long) listing.skipCount + listing.maxItems;
+
+        listing.found = true;
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            if (index < listing.skipCount || index >= toIndex || reader.peek() != JsonToken.BEGIN_OBJECT)
+            {
+                reader.skipValue();
+            }
+            else
+            {
+                item = binder.bind(readObject(reader));
+                if (item != null)
+                {
+                    listing.items.add(item);
+                }
+            }
+            index++;
+        }
+        reader.endArray();
+
+        listing.count = index;
+    }
+
+    private static void checkToken(JsonReader reader, JsonToken expected) throws IOException
+    {
+        if (reader.peek() != expected) { throw new AlfrescoServiceException(ErrorCodeRegistry.PARSING_GENERIC,
+                Messagesl18n.getString("JsonUtils.0")); }
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////
+    // / VALUES
+    // ////////////////////////////////////////////////////////////////////////////////////
+    /**
+     * Reads the next json object of the reader.
+     */
+    public static Map<String, Object> readObject(JsonReader reader) throws IOException
+    {
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            json.put(reader.nextName(), readValue(reader));
+        }
+        reader.endObject();
+        return json;
+    }
+
+    /**
+     * Reads the next json array of the reader.
+     */
+    public static List<Object> readArray(JsonReader reader) throws IOException
+    {
+        List<Object> json = new ArrayList<Object>();
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            json.add(readValue(reader));
+        }
+        reader.endArray();
+        return json;
+    }
+
+    /**
+     * Reads the next json value of the reader.
+     */
+    public static Object readValue(JsonReader reader) throws IOException
+    {
+        switch (reader.peek())
+        {
+            case BEGIN_OBJECT:
+                return readObject(reader);
+            case BEGIN_ARRAY:
+                return readArray(reader);
+            case STRING:
+                return reader.nextString();
+            case NUMBER:
+                return parseNumber(reader.nextString());
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                throw new AlfrescoServiceException(ErrorCodeRegistry.PARSING_GENERIC,
+                        Messagesl18n.getString("JsonUtils.0"));
+        }
+    }
+
+    private static Object parseNumber(String value)
+    {
+        boolean isDecimal = value.indexOf('.') != -1 || value.indexOf('e') != -1 || value.indexOf('E') != -1;
+        return isDecimal ? new BigDecimal(value) : new BigInteger(value);
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////
+    // / RESULT
+    // ////////////////////////////////////////////////////////////////////////////////////
+    /**
+     * Result of a streamed listing.
+     */
+    public static final class Listing<T>
+    {
+        private final int skipCount;
+
+        private final int maxItems;
+
+        private final List<T> items = new ArrayList<T>();
+
+        private Map<String, Object> envelope = new LinkedHashMap<String, Object>();
+
+        private int count;
+
+        private boolean found;
+
+        private Listing(int skipCount, int maxItems)
+        {
+            this.skipCount = (skipCount < 0) ? 0 : skipCount;
+            this.maxItems = maxItems;
+        }
+
+        /** @return bound items. */
+        public List<T> getItems()
+        {
+            return items;
+        }
+
+        /**
+         * @return members of the response which are not part of the items
+         *         array (paging information...).
+         */
+        public Map<String, Object> getEnvelope()
+        {
+            return envelope;
+        }
+
+        /** @return number of items available inside the json array. */
+        public int getCount()
+        {
+            return count;
+        }
+
+        /**
+         * @return true if the items array has been found at the expected path.
+         */
+        public boolean isFound()
+        {
+            return found;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.api.utils;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.alfresco.mobile.android.api.exceptions.AlfrescoServiceException;
+import org.alfresco.mobile.android.api.exceptions.ErrorCodeRegistry;
+import org.alfresco.mobile.android.api.model.ListingContext;
+import org.alfresco.mobile.android.api.model.PagingResult;
+
+/**
+ * Iterates over all items of a paged listing (children, sites, tasks,
+ * activities, search...). <br/>
+ * Next pages are requested in background while the current page is consumed.
+ * The number of pages requested in advance is bounded. When a page reports
+ * there are no more items, pages requested in advance are cancelled. <br/>
+ * Example :
+ *
+ * <pre>
+ * PagingIterator&lt;Site&gt; sites = new PagingIterator&lt;Site&gt;(new PagingIterator.PageFetcher&lt;Site&gt;()
+ * {
+ *     public PagingResult&lt;Site&gt; fetch(ListingContext listingContext)
+ *     {
+ *         return siteService.getAllSites(listingContext);
+ *     }
+ * }, new ListingContext());
+ * </pre>
+ *
+ * Call {@link #close()} if the iteration is stopped before its end.
+ *
+ * @since 1.5.1
+ */
+public class PagingIterator<T> implements Iterator<T>
+{
+    /** Default number of pages requested in advance. */
+    public static final int DEFAULT_PREFETCH = 2;
+
+    /**
+     * Requests one page of the listing.
+     */
+    public interface PageFetcher<T>
+    {
+        /**
+         * @param listingContext : listing context of the page (skip count and
+         *            max items).
+         * @return the page.
+         */
+        PagingResult<T> fetch(ListingContext listingContext);
+    }
+
+    private final PageFetcher<T> fetcher;
+
+    private final ListingContext listingContext;
+
+    private final int pageSize;
+
+    private final int maxPrefetch;
+
+    private final ExecutorService executor;
+
+    private final boolean ownExecutor;
+
+    private final LinkedList<Future<PagingResult<T>>> inFlight = new LinkedList<Future<PagingResult<T>>>();
+
+    private Iterator<T> current = Collections.<T> emptyList().iterator();
+
+    private int nextSkipCount;
+
+    private int totalItems = -1;
+
+    private boolean endReached = false;
+
+    private boolean closed = false;
+
+    /**
+     * @param fetcher : requests one page.
+     * @param listingContext : listing context of the first page. Can be null.
+     */
+    public PagingIterator(PageFetcher<T> fetcher, ListingContext listingContext)
+    {
+        this(fetcher, listingContext, DEFAULT_PREFETCH, null);
+    }
+
+    /**
+     * @param fetcher : requests one page.
+     * @param listingContext : listing context of the first page. Can be null.
+     * @param maxPrefetch : maximum number of pages requested at the same time.
+     * @param executor : executor used to request pages. If null, a dedicated
+     *            executor is created and shut down at the end of the
+     *            iteration.
+     */
+    public PagingIterator(PageFetcher<T> fetcher, ListingContext listingContext, int maxPrefetch,
+            ExecutorService executor)
+    {
+        this.fetcher = fetcher;
+        this.listingContext = (listingContext != null) ? listingContext : new ListingContext();
+        this.pageSize = this.listingContext.getMaxItems();
+        this.nextSkipCount = this.listingContext.getSkipCount();
+        this.maxPrefetch = (maxPrefetch > 0) ? maxPrefetch : 1;
+        this.ownExecutor = (executor == null);
+        this.executor = (executor != null) ? executor : Executors.newFixedThreadPool(this.maxPrefetch,
+                new ThreadFactory()
+                {
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread t = new Thread(r, "PagingIterator");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    /** {@inheritDoc} */
+    public synchronized boolean hasNext()
+    {
+        while (!current.hasNext())
+        {
+            if (closed) { return false; }
+            prefetch();
+            if (inFlight.isEmpty())
+            {
+                close();
+                return false;
+            }
+
+            PagingResult<T> page = waitFor(inFlight.removeFirst());
+            List<T> items = (page != null) ? page.getList() : null;
+            if (page != null && page.getTotalItems() >= 0)
+            {
+                totalItems = page.getTotalItems();
+            }
+            // An empty page may be followed by other items (e.g. filtered by
+            // the server) : only hasMoreItems ends the listing.
+            if (page == null || !Boolean.TRUE.equals(page.hasMoreItems()))
+            {
+                endReached = true;
+                cancelInFlight();
+            }
+            current = (items != null) ? items.iterator() : Collections.<T> emptyList().iterator();
+
+            // Next pages are requested while this one is consumed.
+            prefetch();
+        }
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized T next()
+    {
+        if (!hasNext()) { throw new NoSuchElementException(); }
+        return current.next();
+    }
+
+    /** Not supported. */
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Cancels pages requested in advance and releases the executor if it has
+     * been created by this iterator.
+     */
+    public synchronized void close()
+    {
+        if (closed) { return; }
+        closed = true;
+        cancelInFlight();
+        if (ownExecutor)
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    // ////////////////////////////////////////////////////
+    // INTERNALS
+    // ////////////////////////////////////////////////////
+    private void prefetch()
+    {
+        while (!endReached && !closed && inFlight.size() < maxPrefetch
+                && (totalItems < 0 || nextSkipCount < totalItems))
+        {
+            final ListingContext lc = new ListingContext(listingContext.getSortProperty(), pageSize, nextSkipCount,
+                    listingContext.isSortAscending());
+            lc.setFilter(listingContext.getFilter());
+            inFlight.add(executor.submit(new Callable<PagingResult<T>>()
+            {
+                public PagingResult<T> call() throws Exception
+                {
+                    return fetcher.fetch(lc);
+                }
+            }));
+
+            if (pageSize <= 0)
+            {
+                // No paging : one request returns everything.
+                endReached = true;
+            }
+            nextSkipCount += pageSize;
+        }
+    }
+
+    private void cancelInFlight()
+    {
+        for (Future<PagingResult<T>> future : inFlight)
+        {
+            future.cancel(true);
+        }
+        inFlight.clear();
+    }
+
+    private PagingResult<T> waitFor(Future<PagingResult<T>> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            close();
+            throw new AlfrescoServiceException(ErrorCodeRegistry.GENERAL_GENERIC, e);
+        }
+        catch (ExecutionException e)
+        {
+            close();
+            if (e.getCause() instanceof RuntimeException) { throw (RuntimeException) e.getCause(); }
+            throw new AlfrescoServiceException(ErrorCodeRegistry.GENERAL_GENERIC, e.getCause());
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package org.alfresco.mobile.android.api.utils;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +33,8 @@ public class PublicAPIResponse implements Serializable
 {
     private static final long serialVersionUID = 1L;
 
+    private static final String[] ENTRIES_PATH = { CloudConstant.LIST_VALUE, CloudConstant.ENTRIES_VALUE };
+
     private Boolean hasMoreItems;
 
     private int size;
@@ -49,7 +52,41 @@ public class PublicAPIResponse implements Serializable
         Map<String, Object> json = JsonUtils.parseObject(resp.getStream(), resp.getCharset());
 
         Map<String, Object> list = (Map<String, Object>) json.get(CloudConstant.LIST_VALUE);
+        parsePagination(list);
+
+        // Entries
+        entries = (List<Object>) list.get(CloudConstant.ENTRIES_VALUE);
+    }
+
+    /**
+     * Streams the response : each entry is bound by the binder as soon as it
+     * has been read. In this case {@link #getEntries()} returns the bound
+     * objects instead of the json entries.
+     * 
+     * @param resp : Public API listing response
+     * @param binder : transforms each entry (including its "entry" wrapper)
+     *            into its high level object.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> PublicAPIResponse(Response resp, JsonStreamReader.ItemBinder<T> binder)
+    {
+        if (resp == null || resp.getStream() == null){
+            throw new AlfrescoServiceException(ErrorCodeRegistry.PARSING_JSONDATA_EMPTY, Messagesl18n.getString("ErrorCodeRegistry.PARSING_JSONDATA_EMPTY"));
+        }
 
+        JsonStreamReader.Listing<T> listing = JsonStreamReader.readListing(resp.getStream(), resp.getCharset(),
+                ENTRIES_PATH, binder);
+
+        Map<String, Object> list = (Map<String, Object>) listing.getEnvelope().get(CloudConstant.LIST_VALUE);
+        parsePagination(list);
+
+        // Entries
+        entries = new ArrayList<Object>(listing.getItems());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void parsePagination(Map<String, Object> list)
+    {
         // Pagination
         Map<String, Object> pagination = (Map<String, Object>) list.get(CloudConstant.PAGINATION_VALUE);
         hasMoreItems = JSONConverter.getBoolean(pagination, CloudConstant.HAS_MORE_ITEMS_VALUE);
@@ -63,9 +100,6 @@ public class PublicAPIResponse implements Serializable
         {
             size = -1;
         }
-
-        // Entries
-        entries = (List<Object>) list.get(CloudConstant.ENTRIES_VALUE);
     }
 
     public Boolean getHasMoreItems()
@@ -36,6 +36,9 @@ public class PublicAPIUrlRegistry
 
     public static final String BINDING_NETWORK_CMISATOM = "/api/-default-/public/cmis/versions/1.0/atom/";
 
+    /** @since 1.5.1 */
+    public static final String BINDING_NETWORK_CMISBROWSER = "/api/-default-/public/cmis/versions/1.1/browser";
+
     // VARIABLES
     public static final String VARIABLE_PERSONID = "{personId}";
 
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.test.api.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.mobile.android.api.model.Property;
+import org.alfresco.mobile.android.api.model.impl.PropertyImpl;
+import org.alfresco.mobile.android.api.model.impl.PropertyTable;
+
+import android.test.AndroidTestCase;
+import junit.framework.Assert;
+
+/**
+ * Tests of the property table shared by nodes.
+ */
+public class PropertyTableTest extends AndroidTestCase
+{
+
+    public void testPropertyTable()
+    {
+        Map<String, Property> properties = new HashMap<String, Property>();
+        properties.put("cmis:name", new PropertyImpl("doc.txt"));
+        properties.put("cm:title", new PropertyImpl("Title"));
+        properties.put("cmis:objectId", new PropertyImpl("workspace://SpacesStore/abc;1.0"));
+        List<String> aspects = new ArrayList<String>();
+        aspects.add("P:cm:titled");
+        aspects.add("cm:author");
+
+        PropertyTable table = PropertyTable.create(properties, aspects);
+        Assert.assertEquals(3, table.size());
+        Assert.assertEquals("doc.txt", table.getValue("cmis:name"));
+        Assert.assertSame(table.get("cm:title"), table.get("cm:title"));
+        Assert.assertNull(table.get("cmis:description"));
+        Assert.assertEquals(properties, table.asMap());
+
+        Assert.assertEquals(2, table.getAspects().size());
+        Assert.assertEquals("cm:titled", table.getAspects().get(0));
+        Assert.assertTrue(table.hasAspect("cm:titled"));
+        Assert.assertTrue(table.hasAspect("P:cm:author"));
+        Assert.assertFalse(table.hasAspect("cm:versionable"));
+    }
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.test.api.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.alfresco.mobile.android.api.network.HttpResponseCache;
+import org.alfresco.mobile.android.api.network.MetricsAggregator;
+import org.alfresco.mobile.android.api.network.NetworkHttpInvoker;
+import org.alfresco.mobile.android.api.network.RequestCoalescer;
+import org.alfresco.mobile.android.api.network.RequestMetrics;
+import org.alfresco.mobile.android.api.services.AsyncService;
+import org.alfresco.mobile.android.api.services.impl.AsyncServiceImpl;
+import org.alfresco.mobile.android.api.session.AlfrescoSession;
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+
+import android.test.AndroidTestCase;
+import junit.framework.Assert;
+
+/**
+ * Tests of the HTTP layer. No server is required.
+ */
+public class NetworkTest extends AndroidTestCase
+{
+
+    public void testRequestCoalescer() throws Exception
+    {
+        final RequestCoalescer coalescer = RequestCoalescer.getInstance();
+        final AtomicInteger networkCalls = new AtomicInteger();
+        final byte[] body = "avatar".getBytes("UTF-8");
+        final RequestCoalescer.Invocation invocation = new RequestCoalescer.Invocation()
+        {
+            public Response invoke()
+            {
+                networkCalls.incrementAndGet();
+                try
+                {
+                    Thread.sleep(500);
+                }
+                catch (InterruptedException e)
+                {
+                    // Nothing to do.
+                }
+                return new Response(200, "OK", new HashMap<String, List<String>>(), new ByteArrayInputStream(
+                        body), null);
+            }
+        };
+
+        AsyncService asyncService = new AsyncServiceImpl(5);
+        List<Callable<String>> reads = new ArrayList<Callable<String>>();
+        for (int i = 0; i < 5; i++)
+        {
+            reads.add(new Callable<String>()
+            {
+                public String call() throws Exception
+                {
+                    Response resp = coalescer.invoke("GET /avatar user", invocation);
+                    byte[] buffer = new byte[16];
+                    return new String(buffer, 0, resp.getStream().read(buffer), "UTF-8") + ":"
+                            + resp.getContentLength();
+                }
+            });
+        }
+        long saved = coalescer.getSavedCount();
+        List<Object> results = asyncService.submitAll(reads, null).getResult();
+        asyncService.shutdown();
+
+        // Body length known by all readers
+        Assert.assertEquals(Arrays.asList("avatar:6", "avatar:6", "avatar:6", "avatar:6", "avatar:6"), results);
+        Assert.assertEquals(1, networkCalls.get());
+        Assert.assertEquals(4, coalescer.getSavedCount() - saved);
+    }
+
+    public void testHttpResponseCache() throws Exception
+    {
+        final AtomicInteger downloads = new AtomicInteger();
+        NetworkHttpInvoker invoker = new NetworkHttpInvoker()
+        {
+            @Override
+            protected Response invoke(UrlBuilder url, String method, String contentType, Map<String, String> headers,
+                    Output writer, BindingSession session, BigInteger offset, BigInteger length)
+            {
+                Map<String, List<String>> responseHeaders = new HashMap<String, List<String>>();
+                responseHeaders.put("ETag", Arrays.asList("\"v1\""));
+                if (headers != null && "\"v1\"".equals(headers.get("If-None-Match"))) { return new Response(304,
+                        "Not Modified", responseHeaders, null, null); }
+                downloads.incrementAndGet();
+                return new Response(200, "OK", responseHeaders, new ByteArrayInputStream(new byte[] { 1, 2, 3 }),
+                        null);
+            }
+        };
+
+        BindingSession session = new SessionImpl();
+        File folder = new File(getContext().getCacheDir(), "httpcache");
+        session.put(AlfrescoSession.CACHE_FOLDER, folder.getPath());
+        session.put(HttpResponseCache.USER, "admin");
+        HttpResponseCache.getInstance(session).clear();
+
+        UrlBuilder url = new UrlBuilder("http://localhost/alfresco/service/api/sites");
+        for (int i = 0; i < 3; i++)
+        {
+            InputStream in = invoker.invokeGET(url, session).getStream();
+            byte[] buffer = new byte[8];
+            Assert.assertEquals(3, in.read(buffer));
+            Assert.assertEquals(-1, in.read(buffer));
+            Assert.assertEquals(3, buffer[2]);
+            in.close();
+        }
+        Assert.assertEquals(1, downloads.get());
+
+        // Excluded endpoint
+        Assert.assertFalse(HttpResponseCache.isCacheable("http://localhost/alfresco/service/api/login?u=admin"));
+    }
+
+    public void testRequestMetrics() throws Exception
+    {
+        NetworkHttpInvoker invoker = new NetworkHttpInvoker()
+        {
+            @Override
+            protected Response invoke(UrlBuilder url, String method, String contentType, Map<String, String> headers,
+                    Output writer, BindingSession session, BigInteger offset, BigInteger length)
+            {
+                if (url.toString().endsWith("missing")) { return new Response(404, "Not Found",
+                        new HashMap<String, List<String>>(), null, null); }
+                Map<String, List<String>> responseHeaders = new HashMap<String, List<String>>();
+                responseHeaders.put("Content-Length", Collections.singletonList("10"));
+                return new Response(200, "OK", responseHeaders, new ByteArrayInputStream(new byte[10]), null);
+            }
+        };
+
+        MetricsAggregator aggregator = new MetricsAggregator();
+        BindingSession session = new SessionImpl();
+        session.put(AlfrescoSession.METRICS_LISTENER, RequestMetrics.register(aggregator));
+
+        // Retry mark of a request without listener doesn't leak
+        RequestMetrics.markRetry();
+        invoker.invokeGET(new UrlBuilder("http://localhost/alfresco/service/api/sites/site"), new SessionImpl());
+
+        for (int i = 0; i < 3; i++)
+        {
+            Response resp = invoker.invokeGET(
+                    new UrlBuilder("http://localhost/alfresco/service/api/sites/site" + i + "?maxItems=10"), session);
+            Assert.assertEquals(BigInteger.valueOf(10), resp.getContentLength());
+            InputStream in = resp.getStream();
+            while (in.read() != -1)
+            {
+                // Read all
+            }
+            in.close();
+        }
+        invoker.invokeGET(new UrlBuilder("http://localhost/alfresco/service/api/sites/missing"), session);
+
+        Map<String, MetricsAggregator.Statistics> statistics = aggregator.getStatistics();
+        Assert.assertEquals(2, statistics.size());
+        MetricsAggregator.Statistics sites = statistics.get(RequestMetrics.UNKNOWN_OPERATION
+                + " GET /alfresco/service/api/sites/{id}?maxItems");
+        Assert.assertEquals(3, sites.getCount());
+        Assert.assertEquals(0, sites.getErrorCount());
+        Assert.assertEquals(0, sites.getRetryCount());
+        Assert.assertEquals(30, sites.getBytesReceived());
+        Assert.assertEquals(Integer.valueOf(3), sites.getResponseCodes().get(200));
+        MetricsAggregator.Statistics missing = statistics.get(RequestMetrics.UNKNOWN_OPERATION
+                + " GET /alfresco/service/api/sites/{id}");
+        Assert.assertEquals(1, missing.getErrorCount());
+
+        Assert.assertEquals("/alfresco/api/-default-/public/alfresco/versions/{id}/nodes/{id}/children?skipCount",
+                RequestMetrics.getUrlTemplate("https://localhost/alfresco/api/-default-/public/alfresco/versions/1/"
+                        + "nodes/6f4a4c2e-7d1f-4b4b-9f5e-3c2a1b0d9e8f/children?skipCount=0"));
+
+        aggregator.reset();
+        Assert.assertTrue(aggregator.getStatistics().isEmpty());
+    }
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.test.api.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.alfresco.mobile.android.api.exceptions.AlfrescoServiceException;
+import org.alfresco.mobile.android.api.exceptions.ErrorCodeRegistry;
+import org.alfresco.mobile.android.api.model.BulkOperationContext;
+import org.alfresco.mobile.android.api.model.BulkOperationResult;
+import org.alfresco.mobile.android.api.model.Node;
+import org.alfresco.mobile.android.api.model.impl.publicapi.PublicAPIDocumentImpl;
+import org.alfresco.mobile.android.api.model.impl.publicapi.PublicAPIFolderImpl;
+import org.alfresco.mobile.android.api.services.AsyncService;
+import org.alfresco.mobile.android.api.services.impl.AsyncServiceImpl;
+import org.alfresco.mobile.android.api.services.impl.BulkOperationRunner;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisUnauthorizedException;
+
+import android.test.AndroidTestCase;
+import junit.framework.Assert;
+
+/**
+ * Tests of operations run in background. No server is required.
+ */
+public class AsyncServiceTest extends AndroidTestCase
+{
+
+    public void testAsyncService()
+    {
+        AsyncService asyncService = new AsyncServiceImpl(2);
+        // Blocks until the end of the test unless interrupted.
+        final CountDownLatch release = new CountDownLatch(1);
+        Callable<Object> blocking = new Callable<Object>()
+        {
+            public Object call() throws Exception
+            {
+                release.await(30, TimeUnit.SECONDS);
+                return null;
+            }
+        };
+
+        // Cancel
+        AsyncService.Task<Object> task = asyncService.submit(blocking);
+        Assert.assertTrue(task.cancel(true));
+        try
+        {
+            task.getResult();
+            Assert.fail();
+        }
+        catch (CancellationException e)
+        {
+            Assert.assertTrue(task.isCancelled());
+        }
+
+        // Composition
+        List<Callable<String>> operations = new ArrayList<Callable<String>>();
+        for (int i = 0; i < 5; i++)
+        {
+            final String value = "value" + i;
+            operations.add(new Callable<String>()
+            {
+                public String call()
+                {
+                    return value;
+                }
+            });
+        }
+        List<Object> results = asyncService.submitAll(operations, null).getResult();
+        Assert.assertEquals(5, results.size());
+        Assert.assertEquals("value3", results.get(3));
+
+        // Fail fast
+        List<Callable<Object>> failing = new ArrayList<Callable<Object>>();
+        failing.add(blocking);
+        failing.add(new Callable<Object>()
+        {
+            public Object call()
+            {
+                throw new IllegalStateException();
+            }
+        });
+        long start = System.currentTimeMillis();
+        try
+        {
+            asyncService.submitAll(failing, null).getResult();
+            Assert.fail();
+        }
+        catch (IllegalStateException e)
+        {
+            Assert.assertTrue(System.currentTimeMillis() - start < 30000);
+        }
+        finally
+        {
+            release.countDown();
+            asyncService.shutdown();
+        }
+    }
+
+    public void testBulkOperationRunner()
+    {
+        List<Node> nodes = new ArrayList<Node>();
+        for (int i = 0; i < 20; i++)
+        {
+            nodes.add(createNode(false, "doc" + i));
+        }
+
+        // Bounded concurrency, one failed node
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        BulkOperationResult result = new BulkOperationRunner(new BulkOperationContext(3, false, false)).run(nodes,
+                new BulkOperationRunner.Operation()
+                {
+                    public Node apply(Node node) throws Exception
+                    {
+                        int current = running.incrementAndGet();
+                        synchronized (maxRunning)
+                        {
+                            maxRunning.set(Math.max(maxRunning.get(), current));
+                        }
+                        Thread.sleep(10);
+                        running.decrementAndGet();
+                        if ("doc3".equals(node.getName())) { throw new CmisObjectNotFoundException(node.getName()); }
+                        return node;
+                    }
+                });
+        Assert.assertEquals(19, result.getNodes(BulkOperationResult.Status.SUCCEEDED).size());
+        Assert.assertEquals(BulkOperationResult.Status.FAILED, result.getStatus(3));
+        Assert.assertEquals(ErrorCodeRegistry.GENERAL_NODE_NOT_FOUND,
+                ((AlfrescoServiceException) result.getError(3)).getErrorCode());
+        Assert.assertFalse(result.isStopped());
+        Assert.assertTrue(maxRunning.get() <= 3);
+
+        // Fatal error : remaining nodes are skipped
+        result = new BulkOperationRunner(new BulkOperationContext(1, false, false)).run(nodes,
+                new BulkOperationRunner.Operation()
+                {
+                    public Node apply(Node node)
+                    {
+                        if ("doc5".equals(node.getName())) { throw new CmisUnauthorizedException("Expired"); }
+                        return null;
+                    }
+                });
+        Assert.assertTrue(result.isStopped());
+        Assert.assertEquals(5, result.getNodes(BulkOperationResult.Status.SUCCEEDED).size());
+        Assert.assertEquals(14, result.getNodes(BulkOperationResult.Status.SKIPPED).size());
+    }
+
+    private static Node createNode(boolean isFolder, String name)
+    {
+        Map<String, Object> json = new HashMap<String, Object>();
+        json.put("id", "workspace://SpacesStore/" + name);
+        json.put("name", name);
+        json.put("modifiedAt", "2014-03-12T10:22:31.512+01:00");
+        return isFolder ? new PublicAPIFolderImpl(json) : new PublicAPIDocumentImpl(json);
+    }
+}
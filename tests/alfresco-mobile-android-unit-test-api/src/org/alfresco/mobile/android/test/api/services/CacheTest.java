@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.test.api.services;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.mobile.android.api.model.ListingContext;
+import org.alfresco.mobile.android.api.model.Node;
+import org.alfresco.mobile.android.api.model.PagingResult;
+import org.alfresco.mobile.android.api.model.impl.publicapi.PublicAPIDocumentImpl;
+import org.alfresco.mobile.android.api.model.impl.publicapi.PublicAPIFolderImpl;
+import org.alfresco.mobile.android.api.services.cache.impl.ListingCache;
+import org.alfresco.mobile.android.api.services.cache.impl.NodeStore;
+
+import android.test.AndroidTestCase;
+import junit.framework.Assert;
+
+/**
+ * Tests of the local caches. No server is required.
+ */
+public class CacheTest extends AndroidTestCase
+{
+
+    public void testNodeStore()
+    {
+        File folder = new File(getContext().getCacheDir(), "nodestore");
+        NodeStore store = new NodeStore(folder, "repository/4.2");
+        store.clear();
+
+        Node root = createNode(true, "root");
+        Node folderA = createNode(true, "a");
+        Node docB = createNode(false, "b");
+        Node docC = createNode(false, "c");
+        Assert.assertNull(store.getChildren(root.getIdentifier()));
+        store.putChildren(root, Arrays.asList(folderA, docB));
+        store.putChildren(folderA, Arrays.asList(docC));
+        store.setChangeLogToken("42");
+        store.save();
+
+        // Reloaded from disk
+        store = new NodeStore(folder, "repository/4.2");
+        Assert.assertEquals("42", store.getChangeLogToken());
+        Assert.assertEquals(2, store.getChildren(root.getIdentifier()).size());
+        Assert.assertEquals("b", store.getChildren(root.getIdentifier()).get(1).getName());
+
+        // Moved, then parent deleted
+        Assert.assertTrue(store.updateNode(docC, Arrays.asList(root.getIdentifier())));
+        Assert.assertEquals(3, store.getChildren(root.getIdentifier()).size());
+        Assert.assertTrue(store.remove(folderA.getIdentifier()));
+        Assert.assertFalse(store.contains(folderA.getIdentifier()));
+        Assert.assertEquals(2, store.getChildren(root.getIdentifier()).size());
+        store.save();
+
+        // Another server version
+        store = new NodeStore(folder, "repository/5.0");
+        Assert.assertNull(store.getChildren(root.getIdentifier()));
+    }
+
+    public void testListingCache() throws Exception
+    {
+        List<String> items = new ArrayList<String>();
+        for (int i = 0; i < 25; i++)
+        {
+            items.add("item" + i);
+        }
+
+        // Pages of a complete listing
+        PagingResult<String> page = ListingCache.page(items, new ListingContext(null, 10, 20, true));
+        Assert.assertEquals(5, page.getList().size());
+        Assert.assertEquals("item20", page.getList().get(0));
+        Assert.assertFalse(page.hasMoreItems());
+        Assert.assertEquals(25, page.getTotalItems());
+        page = ListingCache.page(items, new ListingContext(null, 10, 10, true));
+        Assert.assertTrue(page.hasMoreItems());
+        Assert.assertEquals(0, ListingCache.page(items, new ListingContext(null, 10, 30, true)).getList().size());
+        Assert.assertEquals(25, ListingCache.page(items, null).getList().size());
+
+        // Expiration
+        ListingCache cache = new ListingCache(100);
+        cache.put("url", items);
+        Assert.assertEquals(25, cache.<String> get("url").size());
+        Thread.sleep(150);
+        Assert.assertNull(cache.get("url"));
+
+        // Disabled
+        cache = new ListingCache(0);
+        cache.put("url", items);
+        Assert.assertNull(cache.get("url"));
+    }
+
+    private static Node createNode(boolean isFolder, String name)
+    {
+        Map<String, Object> json = new HashMap<String, Object>();
+        json.put("id", "workspace://SpacesStore/" + name);
+        json.put("name", name);
+        json.put("modifiedAt", "2014-03-12T10:22:31.512+01:00");
+        return isFolder ? new PublicAPIFolderImpl(json) : new PublicAPIDocumentImpl(json);
+    }
+}
@@ -26,6 +26,8 @@ import org.alfresco.mobile.android.api.exceptions.AlfrescoServiceException;
 import org.alfresco.mobile.android.api.exceptions.ErrorCodeRegistry;
 import org.alfresco.mobile.android.api.model.*;
 import org.alfresco.mobile.android.api.services.DocumentFolderService;
+import org.alfresco.mobile.android.api.services.cache.impl.ContentCache;
+import org.alfresco.mobile.android.api.services.impl.AlfrescoService;
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.utils.NodeRefUtils;
 import org.alfresco.mobile.android.test.AlfrescoSDKTestCase;
@@ -796,6 +798,15 @@ public class DocumentFolderServiceTest extends AlfrescoSDKTestCase
         Assert.assertTrue(cf.getMimeType().contains(doc2.getContentStreamMimeType()));
         Assert.assertNotNull(cf.getFile());
 
+        // Second call is served by the content cache
+        ContentCache cache = ((AlfrescoService) docfolderservice).getContentCache();
+        int hitCount = cache.getStatistics().getHitCount();
+        ContentFile cachedFile = docfolderservice.getContent(doc2);
+        Assert.assertNotNull(cachedFile);
+        Assert.assertEquals(cf.getFile(), cachedFile.getFile());
+        Assert.assertEquals(cf.getLength(), cachedFile.getLength());
+        Assert.assertEquals(hitCount + 1, cache.getStatistics().getHitCount());
+
         // ////////////////////////////////////////////////////
         // Delete Methods
         // ////////////////////////////////////////////////////
@@ -872,6 +883,72 @@ public class DocumentFolderServiceTest extends AlfrescoSDKTestCase
         checkRendition(doc, true, true);
     }
 
+    /**
+     * Test download by ranges of a document bigger than the chunk size.
+     */
+    public void testRangedDownload()
+    {
+        Map<String, Serializable> settings = new HashMap<String, Serializable>(2);
+        settings.put(AlfrescoSession.DOWNLOAD_CHUNK_SIZE, 16 * 1024);
+        settings.put(AlfrescoSession.DOWNLOAD_THREADS, 2);
+        alfsession = createRepositorySession(settings);
+        docfolderservice = alfsession.getServiceRegistry().getDocumentFolderService();
+
+        Folder unitTestFolder = createUnitTestFolder(alfsession);
+        createDocumentFromAsset(unitTestFolder, "android.jpg");
+        Document doc = (Document) docfolderservice.getChildByPath(unitTestFolder, "android.jpg");
+        Assert.assertTrue(doc.getContentStreamLength() > 16 * 1024);
+
+        ContentFile cf = docfolderservice.getContent(doc);
+        Assert.assertNotNull(cf);
+        Assert.assertEquals(doc.getContentStreamLength(), cf.getFile().length());
+        Assert.assertFalse(new File(cf.getFile().getPath() + ".part.progress").exists());
+    }
+
+    /**
+     * Test lazy children listing and typed listing.
+     */
+    @SuppressWarnings("unchecked")
+    public void testLazyAndTypedListing()
+    {
+        Folder unitTestFolder = createUnitTestFolder(alfsession);
+        createNewFolder(alfsession, unitTestFolder, SAMPLE_FOLDER_NAME, null);
+        createDocument(unitTestFolder, SAMPLE_DATA_DOCFOLDER_FILE);
+
+        // Lazy conversion
+        PagingResult<Node> result = docfolderservice.getChildren(unitTestFolder, new ListingContext());
+        Assert.assertTrue(result instanceof Iterable);
+        int count = 0;
+        for (Node node : (Iterable<Node>) result)
+        {
+            Assert.assertNotNull(node.getIdentifier());
+            count++;
+        }
+        Assert.assertEquals(2, count);
+        Assert.assertEquals(2, result.getList().size());
+
+        // Client side filter
+        Assert.assertEquals(1, docfolderservice.getFolders(unitTestFolder, new ListingContext()).getList().size());
+        Assert.assertEquals(1, docfolderservice.getDocuments(unitTestFolder, new ListingContext()).getList().size());
+
+        // Server side filter : results come from the index
+        wait(10000);
+        ListingFilter filter = new ListingFilter();
+        filter.addFilter(DocumentFolderService.FILTER_TYPED_LISTING, true);
+        ListingContext lc = new ListingContext();
+        lc.setFilter(filter);
+
+        List<Folder> folders = docfolderservice.getFolders(unitTestFolder, lc).getList();
+        Assert.assertEquals(1, folders.size());
+        Assert.assertEquals(SAMPLE_FOLDER_NAME, folders.get(0).getName());
+        Assert.assertFalse(folders.get(0).hasAllProperties());
+
+        List<Document> docs = docfolderservice.getDocuments(unitTestFolder, lc).getList();
+        Assert.assertEquals(1, docs.size());
+        Assert.assertEquals(SAMPLE_DATA_DOCFOLDER_FILE, docs.get(0).getName());
+        Assert.assertTrue(docs.get(0).getContentStreamLength() > 0);
+    }
+
     public void checkRendition(Document doc, boolean validateRendition, boolean validateExtraction)
     {
         Document docRendition = (Document) docfolderservice.getNodeByIdentifier(NodeRefUtils.getCleanIdentifier(doc
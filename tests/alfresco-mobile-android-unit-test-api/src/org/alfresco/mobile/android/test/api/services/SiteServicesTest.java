@@ -19,6 +19,9 @@ package org.alfresco.mobile.android.test.api.services;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.Assert;
 
@@ -33,6 +36,7 @@ import org.alfresco.mobile.android.api.model.Site;
 import org.alfresco.mobile.android.api.model.SiteVisibility;
 import org.alfresco.mobile.android.api.model.impl.SiteImpl;
 import org.alfresco.mobile.android.api.services.SiteService;
+import org.alfresco.mobile.android.api.services.impl.AbstractSiteServiceImpl;
 import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.CloudSession;
 import org.alfresco.mobile.android.api.utils.NodeRefUtils;
@@ -948,6 +952,61 @@ public class SiteServicesTest extends AlfrescoSDKTestCase
         }
     }
 
+    /**
+     * Favorite sites sorted by short name are resolved page by page.
+     */
+    public void testFavoriteSitesWindow()
+    {
+        List<Site> favoriteSites = siteService.getFavoriteSites();
+        ListingContext lc = new ListingContext(SiteService.SORT_PROPERTY_SHORTNAME, 1, 0, true);
+        List<String> pagedSites = new ArrayList<String>(favoriteSites.size());
+        PagingResult<Site> page = null;
+        do
+        {
+            page = siteService.getFavoriteSites(lc);
+            Assert.assertTrue(page.getList().size() <= 1);
+            for (Site site : page.getList())
+            {
+                Assert.assertTrue(site.isFavorite());
+                pagedSites.add(site.getShortName());
+            }
+            lc.setSkipCount(lc.getSkipCount() + 1);
+        }
+        while (page.hasMoreItems());
+
+        Assert.assertEquals(favoriteSites.size(), pagedSites.size());
+        for (int i = 1; i < pagedSites.size(); i++)
+        {
+            Assert.assertTrue(pagedSites.get(i - 1).compareToIgnoreCase(pagedSites.get(i)) <= 0);
+        }
+    }
+
+    /**
+     * Background refresh of extra properties.
+     */
+    public void testRefreshExtraProperties() throws Exception
+    {
+        final CountDownLatch latch = new CountDownLatch(1);
+        Future<?> refresh = ((AbstractSiteServiceImpl) siteService).refreshExtraProperties(new Runnable()
+        {
+            public void run()
+            {
+                latch.countDown();
+            }
+        });
+        Assert.assertNotNull(refresh);
+
+        // Listing doesn't wait for the refresh
+        Assert.assertNotNull(siteService.getSites());
+
+        refresh.get(60, TimeUnit.SECONDS);
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        for (Site site : siteService.getSites())
+        {
+            Assert.assertTrue(site.isMember());
+        }
+    }
+
     /**
      * Tests related to favorite site.
      * 
@@ -290,6 +290,20 @@ public class TypeDefinitionServiceTest extends AlfrescoSDKTestCase
                 false, false, null);
     }
 
+    /**
+     * Test definitions are built once per session and preloaded.
+     */
+    public void testDefinitionCache()
+    {
+        ModelDefinition typeDefinition = typeDefintionService.getDocumentTypeDefinition(ContentModel.TYPE_CONTENT);
+        Assert.assertSame(typeDefinition, typeDefintionService.getDocumentTypeDefinition(ContentModel.TYPE_CONTENT));
+
+        typeDefintionService.preloadDefinitions();
+        ModelDefinition aspectDef = typeDefintionService.getAspectDefinition(ContentModel.ASPECT_TITLED);
+        Assert.assertNotNull(aspectDef);
+        Assert.assertSame(aspectDef, typeDefintionService.getAspectDefinition(ContentModel.ASPECT_TITLED));
+    }
+
     /**
      * Test to retrieve all information from the custom type fdk:everything
      */
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.test.api.session;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.alfresco.mobile.android.api.session.authentication.OAuthData;
+import org.alfresco.mobile.android.api.session.authentication.impl.OAuth2AuthenticationProviderImpl;
+import org.alfresco.mobile.android.api.session.authentication.impl.OAuth2DataImpl;
+import org.alfresco.mobile.android.api.session.authentication.impl.OAuthTokenManager;
+import org.alfresco.mobile.android.api.session.authentication.impl.TicketAuthenticationProviderImpl;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.impl.Base64;
+
+import android.test.AndroidTestCase;
+import junit.framework.Assert;
+
+/**
+ * Tests of the authentication providers. The server is simulated.
+ */
+public class AuthenticationProviderTest extends AndroidTestCase
+{
+
+    public void testTicketAuthentication() throws Exception
+    {
+        HashMap<String, Serializable> parameters = new HashMap<String, Serializable>();
+        parameters.put(SessionParameter.USER, "admin");
+        parameters.put(SessionParameter.PASSWORD, "secret");
+        final AtomicInteger logins = new AtomicInteger();
+        final TicketAuthenticationProviderImpl provider = new TicketAuthenticationProviderImpl(parameters)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected String requestTicket(String username, String password)
+            {
+                int login = logins.incrementAndGet();
+                try
+                {
+                    Thread.sleep(50);
+                }
+                catch (InterruptedException e)
+                {
+                    return null;
+                }
+                return "TICKET_" + login;
+            }
+        };
+
+        // One login for all requests
+        Assert.assertEquals(ticketHeader("TICKET_1"), provider.getHTTPHeaders().get("Authorization").get(0));
+        Assert.assertEquals(ticketHeader("TICKET_1"), provider.getHTTPHeaders().get("Authorization").get(0));
+        Assert.assertEquals(1, logins.get());
+
+        // Concurrent 401 : one renewal
+        final CountDownLatch rejected = new CountDownLatch(8);
+        final List<String> headers = Collections.synchronizedList(new ArrayList<String>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++)
+        {
+            threads.add(new Thread()
+            {
+                public void run()
+                {
+                    provider.getHTTPHeaders();
+                    rejected.countDown();
+                    try
+                    {
+                        rejected.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                    if (provider.renew())
+                    {
+                        headers.add(provider.getHTTPHeaders().get("Authorization").get(0));
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads)
+        {
+            thread.start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        Assert.assertEquals(2, logins.get());
+        Assert.assertEquals(8, headers.size());
+        for (String header : headers)
+        {
+            Assert.assertEquals(ticketHeader("TICKET_2"), header);
+        }
+
+        // Ticket refused : Basic authentication
+        provider.disable();
+        Assert.assertEquals("Basic " + Base64.encodeBytes("admin:secret".getBytes("ISO-8859-1")), provider
+                .getHTTPHeaders().get("Authorization").get(0));
+        Assert.assertFalse(provider.renew());
+        Assert.assertEquals(2, logins.get());
+    }
+
+    public void testOAuthTokenManager() throws Exception
+    {
+        final OAuth2AuthenticationProviderImpl provider = new OAuth2AuthenticationProviderImpl(new OAuth2DataImpl(
+                "key", "secret", "access1", "refresh1"));
+        final AtomicInteger refreshes = new AtomicInteger();
+        OAuthTokenManager manager = new OAuthTokenManager(provider, null)
+        {
+            @Override
+            protected OAuthData requestRefresh(OAuthData data)
+            {
+                int refresh = refreshes.incrementAndGet() + 1;
+                try
+                {
+                    Thread.sleep(50);
+                }
+                catch (InterruptedException e)
+                {
+                    return null;
+                }
+                return new OAuth2DataImpl("key", "secret", "access" + refresh, "refresh" + refresh);
+            }
+        };
+        final CountDownLatch refreshed = new CountDownLatch(2);
+        manager.setListener(new OAuthTokenManager.Listener()
+        {
+            public void onTokenRefreshed(OAuthData data)
+            {
+                refreshed.countDown();
+            }
+        });
+        provider.setTokenManager(manager);
+        Assert.assertEquals("Bearer access1", provider.getHTTPHeaders().get("Authorization").get(0));
+
+        // Concurrent 401 : one refresh, requests wait for the new token
+        final CountDownLatch rejected = new CountDownLatch(8);
+        final List<String> headers = Collections.synchronizedList(new ArrayList<String>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++)
+        {
+            threads.add(new Thread()
+            {
+                public void run()
+                {
+                    provider.getHTTPHeaders();
+                    rejected.countDown();
+                    try
+                    {
+                        rejected.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                    if (provider.renew())
+                    {
+                        headers.add(provider.getHTTPHeaders().get("Authorization").get(0));
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads)
+        {
+            thread.start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        Assert.assertEquals(1, refreshes.get());
+        Assert.assertEquals(8, headers.size());
+        for (String header : headers)
+        {
+            Assert.assertEquals("Bearer access2", header);
+        }
+
+        // Refreshed in background before its expiration
+        OAuth2DataImpl shortLived = new OAuth2DataImpl("key", "secret");
+        Map<String, Object> json = new HashMap<String, Object>();
+        json.put("access_token", "short");
+        json.put("refresh_token", "refresh");
+        json.put("expires_in", "1");
+        shortLived.parseTokenResponse(json);
+        provider.setOAuthData(shortLived);
+        Assert.assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, refreshes.get());
+        Assert.assertEquals("Bearer access3", provider.getHTTPHeaders().get("Authorization").get(0));
+
+        // Another session with the same token replaces this one
+        OAuth2AuthenticationProviderImpl replacing = new OAuth2AuthenticationProviderImpl(provider.getOAuthData());
+        replacing.startTokenManager(null);
+        Assert.assertTrue(manager.isStopped());
+        Assert.assertFalse(manager.refresh(null));
+        Assert.assertEquals(2, refreshes.get());
+        replacing.getTokenManager().stop();
+    }
+
+    private static String ticketHeader(String ticket) throws Exception
+    {
+        return "Basic " + Base64.encodeBytes(("ROLE_TICKET:" + ticket).getBytes("ISO-8859-1"));
+    }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (C) 2005-2017 Alfresco Software Limited.
+ *
+ * This file is part of the Alfresco Mobile SDK.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ ******************************************************************************/
+package org.alfresco.mobile.android.test.api.session;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.alfresco.mobile.android.api.model.Folder;
+import org.alfresco.mobile.android.api.model.Node;
+import org.alfresco.mobile.android.api.model.impl.publicapi.PublicAPIDocumentImpl;
+import org.alfresco.mobile.android.api.model.impl.publicapi.PublicAPIFolderImpl;
+import org.alfresco.mobile.android.api.session.CloudSession;
+import org.alfresco.mobile.android.api.session.impl.SessionSnapshot;
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.atompub.LinkCache;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+
+import android.test.AndroidTestCase;
+import junit.framework.Assert;
+
+/**
+ * Tests of the session snapshot. No server is required.
+ */
+public class SessionSnapshotTest extends AndroidTestCase
+{
+
+    private static final String LINK_CACHE = "org.apache.chemistry.opencmis.binding.atompub.linkcache";
+
+    public void testSessionSnapshot()
+    {
+        String cacheFolder = new File(getContext().getCacheDir(), "snapshot").getPath();
+        String url = "http://localhost:8080/alfresco";
+        Assert.assertNull(SessionSnapshot.getFile(cacheFolder, url, CloudSession.USER_ME, null));
+        File file = SessionSnapshot.getFile(cacheFolder, url, "admin", null);
+        Assert.assertFalse(file.equals(SessionSnapshot.getFile(cacheFolder, url, "admin", "acme.com")));
+        file.delete();
+        Assert.assertNull(SessionSnapshot.load(file));
+
+        BindingSession session = new SessionImpl();
+        session.put(SessionParameter.BINDING_TYPE, BindingType.ATOMPUB.value());
+        session.put(SessionParameter.ATOMPUB_URL, url + "/api/-default-/public/cmis/versions/1.0/atom");
+        session.put(SessionParameter.PASSWORD, "secret");
+        session.put(LINK_CACHE, new LinkCache(session));
+        new SessionSnapshot(session, "-default-", null, (Folder) createNode(true, "root"), true, null).save(file);
+
+        // Reloaded from disk without credentials
+        SessionSnapshot snapshot = SessionSnapshot.load(file);
+        Assert.assertEquals("-default-", snapshot.getBindingParameters().get(SessionParameter.REPOSITORY_ID));
+        Assert.assertEquals(BindingType.ATOMPUB.value(),
+                snapshot.getBindingParameters().get(SessionParameter.BINDING_TYPE));
+        Assert.assertFalse(snapshot.getBindingParameters().containsKey(SessionParameter.PASSWORD));
+        Assert.assertTrue(snapshot.getBindingObjects().get(LINK_CACHE) instanceof LinkCache);
+        Assert.assertEquals("root", snapshot.getRootFolder().getName());
+        Assert.assertTrue(snapshot.hasPublicAPI());
+        Assert.assertFalse(snapshot.isExpired());
+
+        // Revalidated root folder, same creation date
+        snapshot.withRootFolder((Folder) createNode(true, "root2")).save(file);
+        Assert.assertEquals("root2", SessionSnapshot.load(file).getRootFolder().getName());
+        Assert.assertEquals(snapshot.getCreatedAt(), SessionSnapshot.load(file).getCreatedAt());
+    }
+
+    private static Node createNode(boolean isFolder, String name)
+    {
+        Map<String, Object> json = new HashMap<String, Object>();
+        json.put("id", "workspace://SpacesStore/" + name);
+        json.put("name", name);
+        json.put("modifiedAt", "2014-03-12T10:22:31.512+01:00");
+        return isFolder ? new PublicAPIFolderImpl(json) : new PublicAPIDocumentImpl(json);
+    }
+}
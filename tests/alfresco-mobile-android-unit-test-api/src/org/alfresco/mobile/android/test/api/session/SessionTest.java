@@ -24,7 +24,12 @@ import java.util.Map;
 
 import org.alfresco.mobile.android.api.constants.OnPremiseConstant;
 import org.alfresco.mobile.android.api.exceptions.AlfrescoSessionException;
+import org.alfresco.mobile.android.api.model.Document;
 import org.alfresco.mobile.android.api.model.ListingContext;
+import org.alfresco.mobile.android.api.network.HttpConnectionPool;
+import org.alfresco.mobile.android.api.network.PooledHttpInvoker;
+import org.alfresco.mobile.android.api.services.impl.AbstractDocumentFolderServiceImpl;
+import org.alfresco.mobile.android.api.session.AlfrescoSession;
 import org.alfresco.mobile.android.api.session.RepositorySession;
 import org.alfresco.mobile.android.api.session.authentication.SamlData;
 import org.alfresco.mobile.android.api.session.authentication.SamlInfo;
@@ -32,9 +37,12 @@ import org.alfresco.mobile.android.api.session.authentication.SamlTicket;
 import org.alfresco.mobile.android.api.session.authentication.impl.Saml2InfoImpl;
 import org.alfresco.mobile.android.api.session.authentication.impl.Saml2TicketImpl;
 import org.alfresco.mobile.android.api.session.authentication.impl.SamlDataImpl;
+import org.alfresco.mobile.android.api.session.impl.AbstractAlfrescoSessionImpl;
 import org.alfresco.mobile.android.test.AlfrescoSDKTestCase;
 import org.alfresco.mobile.android.test.ServerConfigFile;
 
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+
 import android.util.Log;
 import junit.framework.Assert;
 
@@ -560,4 +568,64 @@ public class SessionTest extends AlfrescoSDKTestCase
         }
     }
 
+    /**
+     * Create a session with the pooled HTTP layer and check connections are
+     * reused between requests.
+     */
+    public void testCreateSessionWithPooledHttpInvoker()
+    {
+        HashMap<String, Serializable> settings = new HashMap<String, Serializable>(3);
+        settings.put(AlfrescoSession.HTTP_INVOKER_CLASSNAME, PooledHttpInvoker.class.getName());
+        settings.put(AlfrescoSession.HTTP_POOL_MAX_CONNECTIONS, 4);
+        settings.put(AlfrescoSession.HTTP_POOL_MAX_CONNECTIONS_PER_HOST, 2);
+
+        RepositorySession session = createRepositorySession(settings);
+        Assert.assertNotNull(session);
+        Assert.assertNotNull(session.getRootFolder());
+
+        // Several requests on the same host
+        for (int i = 0; i < 5; i++)
+        {
+            Assert.assertNotNull(session.getServiceRegistry().getDocumentFolderService()
+                    .getChildren(session.getRootFolder()));
+        }
+
+        HttpConnectionPool pool = HttpConnectionPool.getDefault();
+        Assert.assertNotNull(pool);
+        HttpConnectionPool.Statistics stats = pool.getStatistics();
+        Log.d("SessionTest", stats.toString());
+        Assert.assertTrue(stats.getRequests() > 5);
+        Assert.assertTrue(stats.getReusedConnections() > 0);
+        Assert.assertTrue(stats.getPooledConnections() <= stats.getMaxTotal());
+    }
+
+    /**
+     * Create a session with the CMIS Browser binding. Servers without the
+     * Browser binding must fallback to AtomPub.
+     */
+    public void testCreateSessionWithBrowserBinding()
+    {
+        HashMap<String, Serializable> settings = new HashMap<String, Serializable>(1);
+        settings.put(AlfrescoSession.CMIS_BINDING, AlfrescoSession.CMIS_BINDING_BROWSER);
+
+        RepositorySession session = createRepositorySession(settings);
+        Assert.assertNotNull(session);
+        Assert.assertNotNull(session.getRootFolder());
+
+        BindingType bindingType = ((AbstractAlfrescoSessionImpl) session).getBindingType();
+        Assert.assertTrue(bindingType == BindingType.BROWSER || bindingType == BindingType.ATOMPUB);
+        if (session.getRepositoryInfo().getVersion().startsWith("4.0"))
+        {
+            Assert.assertEquals(BindingType.ATOMPUB, bindingType);
+        }
+
+        // Same services whatever the binding.
+        AbstractDocumentFolderServiceImpl docFolderService = (AbstractDocumentFolderServiceImpl) session
+                .getServiceRegistry().getDocumentFolderService();
+        for (Document doc : docFolderService.getDocuments(session.getRootFolder()))
+        {
+            Assert.assertNotNull(docFolderService.getDownloadUrl(doc));
+            break;
+        }
+    }
 }
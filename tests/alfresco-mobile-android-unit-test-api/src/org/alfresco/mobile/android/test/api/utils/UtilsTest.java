@@ -17,10 +17,40 @@
  ******************************************************************************/
 package org.alfresco.mobile.android.test.api.utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.alfresco.mobile.android.api.Version;
+import org.alfresco.mobile.android.api.model.ContentFile;
+import org.alfresco.mobile.android.api.model.ListingContext;
+import org.alfresco.mobile.android.api.model.PagingResult;
+import org.alfresco.mobile.android.api.model.impl.ContentFileImpl;
+import org.alfresco.mobile.android.api.model.impl.PagingResultImpl;
+import org.alfresco.mobile.android.api.utils.DateParser;
+import org.alfresco.mobile.android.api.utils.DateUtils;
+import org.alfresco.mobile.android.api.utils.IOUtils;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.ItemBinder;
+import org.alfresco.mobile.android.api.utils.JsonStreamReader.Listing;
 import org.alfresco.mobile.android.api.utils.NodeRefUtils;
+import org.alfresco.mobile.android.api.utils.PagingIterator;
 
 import android.os.PatternMatcher;
 import android.test.AndroidTestCase;
@@ -94,4 +124,196 @@ public class UtilsTest extends AndroidTestCase
         Assert.assertFalse("i is not equal to " + "I".toLowerCase(new Locale("tr")),
                 "i".equals("I".toLowerCase(new Locale("tr"))));
     }
+
+    private static final ItemBinder<String> ID_BINDER = new ItemBinder<String>()
+    {
+        public String bind(Map<String, Object> json)
+        {
+            return (String) json.get("id");
+        }
+    };
+
+    public void testJsonStreamReader() throws Exception
+    {
+        // Envelope + items
+        String json = "{\"list\":{\"pagination\":{\"count\":3,\"hasMoreItems\":false,\"ratio\":0.5},"
+                + "\"entries\":[{\"id\":\"a\"},{\"id\":\"b\",\"sub\":{\"x\":[1,2]}},{\"id\":\"c\"}]}}";
+        Listing<String> listing = JsonStreamReader.readListing(new ByteArrayInputStream(json.getBytes("UTF-8")),
+                "UTF-8", new String[] { "list", "entries" }, ID_BINDER);
+        Assert.assertTrue(listing.isFound());
+        Assert.assertEquals(3, listing.getCount());
+        Assert.assertEquals(3, listing.getItems().size());
+        Assert.assertEquals("b", listing.getItems().get(1));
+
+        Map<?, ?> pagination = (Map<?, ?>) ((Map<?, ?>) listing.getEnvelope().get("list")).get("pagination");
+        Assert.assertEquals(BigInteger.valueOf(3), pagination.get("count"));
+        Assert.assertEquals(Boolean.FALSE, pagination.get("hasMoreItems"));
+        Assert.assertEquals(new BigDecimal("0.5"), pagination.get("ratio"));
+        Assert.assertFalse(((Map<?, ?>) listing.getEnvelope().get("list")).containsKey("entries"));
+
+        // Array + window
+        json = "[{\"id\":\"a\"},{\"id\":\"b\"},{\"id\":\"c\"},{\"id\":\"d\"}]";
+        listing = JsonStreamReader.readListing(new ByteArrayInputStream(json.getBytes("UTF-8")), "UTF-8", null,
+                ID_BINDER, 1, 2);
+        Assert.assertEquals(4, listing.getCount());
+        Assert.assertEquals(2, listing.getItems().size());
+        Assert.assertEquals("b", listing.getItems().get(0));
+        Assert.assertEquals("c", listing.getItems().get(1));
+
+        // Missing items array
+        json = "{\"data\":{\"tasks\":[]}}";
+        listing = JsonStreamReader.readListing(new ByteArrayInputStream(json.getBytes("UTF-8")), "UTF-8",
+                new String[] { "data" }, ID_BINDER);
+        Assert.assertFalse(listing.isFound());
+        Assert.assertTrue(listing.getEnvelope().get("data") instanceof Map);
+    }
+
+    public void testPagingIterator()
+    {
+        final List<Integer> source = new ArrayList<Integer>();
+        for (int i = 0; i < 23; i++)
+        {
+            source.add(i);
+        }
+        final AtomicInteger requests = new AtomicInteger();
+        PagingIterator.PageFetcher<Integer> fetcher = new PagingIterator.PageFetcher<Integer>()
+        {
+            public PagingResult<Integer> fetch(ListingContext lc)
+            {
+                requests.incrementAndGet();
+                int from = Math.min(lc.getSkipCount(), source.size());
+                int to = Math.min(from + lc.getMaxItems(), source.size());
+                return new PagingResultImpl<Integer>(new ArrayList<Integer>(source.subList(from, to)),
+                        to < source.size(), -1);
+            }
+        };
+
+        ListingContext lc = new ListingContext();
+        lc.setMaxItems(5);
+        PagingIterator<Integer> it = new PagingIterator<Integer>(fetcher, lc, 3, null);
+        int expected = 0;
+        while (it.hasNext())
+        {
+            Assert.assertEquals(Integer.valueOf(expected++), it.next());
+        }
+        Assert.assertEquals(23, expected);
+        Assert.assertFalse(it.hasNext());
+        // 5 pages + at most 2 pages requested in advance after the last one.
+        Assert.assertTrue(requests.get() >= 5 && requests.get() <= 7);
+
+        // Empty page in the middle of the listing
+        PagingIterator.PageFetcher<Integer> withEmptyPage = new PagingIterator.PageFetcher<Integer>()
+        {
+            public PagingResult<Integer> fetch(ListingContext lc)
+            {
+                int from = Math.min(lc.getSkipCount(), source.size());
+                int to = Math.min(from + lc.getMaxItems(), source.size());
+                List<Integer> items = (from == 5) ? new ArrayList<Integer>() : new ArrayList<Integer>(
+                        source.subList(from, to));
+                return new PagingResultImpl<Integer>(items, to < source.size(), -1);
+            }
+        };
+        it = new PagingIterator<Integer>(withEmptyPage, lc, 3, null);
+        int count = 0;
+        while (it.hasNext())
+        {
+            it.next();
+            count++;
+        }
+        Assert.assertEquals(18, count);
+    }
+
+    public void testDateParser() throws Exception
+    {
+        // ISO 8601 with offset, UTC and local time.
+        Date expected = new Date(1394616151512L);
+        Assert.assertEquals(expected, DateUtils.parseDate("2014-03-12T10:22:31.512+01:00"));
+        Assert.assertEquals(expected, DateUtils.parseDate("2014-03-12T10:22:31.512+0100"));
+        Assert.assertEquals(expected, DateUtils.parseDate("2014-03-12T09:22:31.512Z"));
+        Assert.assertEquals(new Date(1394616151000L), DateUtils.parseDate("2014-03-12T09:22:31Z"));
+
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.getDefault());
+        Assert.assertEquals(sdf.parse("2014-03-12T10:22:31.512"), DateUtils.parseDate("2014-03-12T10:22:31.512"));
+
+        // Textual value
+        sdf = new SimpleDateFormat(DateUtils.FORMAT_4, Locale.ENGLISH);
+        Assert.assertEquals(sdf.parse("Mar 12 2014 10:22:31 GMT+01:00"),
+                DateUtils.parseJsonDate("Mar 12 2014 10:22:31 GMT+01:00"));
+
+        // Invalid values
+        Assert.assertNull(DateParser.parse("2014-13-12T10:22:31", Locale.getDefault()));
+        Assert.assertEquals(DateParser.INVALID, DateParser.parseMillis("not a date", Locale.getDefault()));
+
+        // Format and parse back
+        GregorianCalendar calendar = new GregorianCalendar(TimeZone.getDefault());
+        calendar.setTime(expected);
+        Assert.assertEquals(expected, DateUtils.parseDate(DateUtils.format(calendar)));
+        Assert.assertEquals(1394616120000L, DateUtils.parseDate(DateUtils.formatISO(calendar)).getTime());
+    }
+
+    public void testCopyStream() throws Exception
+    {
+        byte[] data = new byte[1024 * 1024 + 17];
+        new Random(42).nextBytes(data);
+        File folder = new File(getContext().getCacheDir(), "copy");
+        folder.mkdirs();
+        File src = new File(folder, "src.bin");
+        IOUtils.copyStream(new ByteArrayInputStream(data), new FileOutputStream(src));
+        Assert.assertEquals(data.length, src.length());
+
+        // File to file through channels
+        final long[] progress = new long[2];
+        ContentFile contentFile = new ContentFileImpl(src, "src.bin", "application/octet-stream")
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void fileReadCallback(int nBytes)
+            {
+                progress[0]++;
+                progress[1] += nBytes;
+            }
+        };
+        File dest = new File(folder, "dest.bin");
+        IOUtils.copyStream(new FileInputStream(src), new FileOutputStream(dest), contentFile);
+        Assert.assertTrue(Arrays.equals(data, readFully(new FileInputStream(dest))));
+        Assert.assertEquals(data.length, progress[1]);
+
+        // Stream with coalesced progress
+        progress[0] = 0;
+        progress[1] = 0;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copyStream(new ByteArrayInputStream(data), out, contentFile);
+        Assert.assertTrue(Arrays.equals(data, out.toByteArray()));
+        Assert.assertEquals(data.length, progress[1]);
+        Assert.assertTrue(progress[0] < data.length / IOUtils.BUFFER_SIZE);
+
+        // Upload stream read by small blocks
+        progress[0] = 0;
+        progress[1] = 0;
+        InputStream upload = IOUtils.getContentFileInputStream(contentFile);
+        Assert.assertTrue(Arrays.equals(data, readFully(upload)));
+        Assert.assertEquals(data.length, progress[1]);
+        Assert.assertTrue(progress[0] < data.length / IOUtils.BUFFER_SIZE);
+
+        // Pooled buffers
+        byte[] buffer = IOUtils.acquireBuffer();
+        IOUtils.releaseBuffer(buffer);
+        Assert.assertTrue(buffer == IOUtils.acquireBuffer());
+        src.delete();
+        dest.delete();
+    }
+
+    private static byte[] readFully(InputStream in) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = in.read(buffer)) != -1)
+        {
+            out.write(buffer, 0, count);
+        }
+        in.close();
+        return out.toByteArray();
+    }
 }